@@ -0,0 +1,370 @@
+/**
+ * Copyright (C) 1998-2008 Majormode.  All rights reserved.
+ *
+ * This software is the confidential and proprietary information of
+ * Majormode or one of its subsidiaries.  You shall not disclose this
+ * confidential information and shall use it only in accordance with
+ * the terms of the license agreement or other applicable agreement
+ * you entered into with Majormode.
+ *
+ * MAJORMODE MAKES NO REPRESENTATIONS OR WARRANTIES ABOUT THE
+ * SUITABILITY OF THE SOFTWARE, EITHER EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE IMPLIED WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE, OR NON-INFRINGEMENT.  MAJORMODE
+ * SHALL NOT BE LIABLE FOR ANY LOSSES OR DAMAGES SUFFERED BY LICENSEE
+ * AS A RESULT OF USING, MODIFYING OR DISTRIBUTING THIS SOFTWARE OR
+ * ITS DERIVATIVES.
+ */
+
+package com.majormode.tool.dbdeploy;
+
+import com.martiansoftware.jsap.FlaggedOption;
+import com.martiansoftware.jsap.JSAP;
+import com.martiansoftware.jsap.JSAPResult;
+import com.martiansoftware.jsap.SimpleJSAP;
+import com.martiansoftware.jsap.Switch;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Benchmark whole deployments of synthetic schemas against the stub
+ * database, without any relational database management system.  For
+ * every size of schema, the harness records the throughput of the
+ * deployment in SQL statements per second, the number of connections
+ * opened, the number of round trips, the number of SQL statements
+ * executed once again after a dependency error, and the peak usage of
+ * the heap.
+ *
+ * <p>The results are written in JSON, and compared to a baseline of a
+ * previous run, if any: the harness exits with the status
+ * <code>1</code> if a metric is worse than its baseline beyond the
+ * tolerance.</p>
+ *
+ * @author Daniel CAUNE (daniel.caune@majormode.com)
+ */
+public class DeploymentBenchmark {
+  protected static final String LONG_FLAG_OPTION_BASELINE = "baseline";
+  protected static final String LONG_FLAG_OPTION_BATCH_SIZE = "batch-size";
+  protected static final String LONG_FLAG_OPTION_CONNECT_LATENCY = "connect-latency";
+  protected static final String LONG_FLAG_OPTION_DEPENDENCY_ERROR_RATE = "dependency-error-rate";
+  protected static final String LONG_FLAG_OPTION_LATENCY = "latency";
+  protected static final String LONG_FLAG_OPTION_OUTPUT = "output";
+  protected static final String LONG_FLAG_OPTION_STATEMENT_COUNTS = "statement-counts";
+  protected static final String LONG_FLAG_OPTION_TOLERANCE = "tolerance";
+  protected static final String LONG_FLAG_OPTION_TRANSACTION_MODE = "transaction-mode";
+  protected static final String LONG_FLAG_OPTION_UPDATE_BASELINE = "update-baseline";
+  protected static final String LONG_FLAG_OPTION_VERBOSE = "verbose";
+  protected static final String LONG_FLAG_OPTION_WORKER_COUNT = "worker-count";
+
+  /**
+   * Metrics which higher values are better.  The other metrics are
+   * better when lower.
+   */
+  protected static final String METRIC_STATEMENTS_PER_SECOND = "statements_per_second";
+
+  /**
+   * Metrics that are compared to the baseline.
+   */
+  protected static final String[] COMPARED_METRICS = {
+    METRIC_STATEMENTS_PER_SECOND,
+    "connection_count",
+    "round_trip_count",
+    "retry_count",
+    "peak_heap_bytes"
+  };
+
+  /**
+   * Delete the specified directory and its content.
+   *
+   * @param directory a directory.
+   *
+   * @throws IOException if a file cannot be deleted.
+   */
+  protected static void delete(Path directory)
+    throws IOException {
+    Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+      public FileVisitResult postVisitDirectory(Path directory, IOException exception)
+        throws IOException {
+        Files.delete(directory);
+        return FileVisitResult.CONTINUE;
+      }
+
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attributes)
+        throws IOException {
+        Files.delete(file);
+        return FileVisitResult.CONTINUE;
+      }
+    });
+  }
+
+  /**
+   * Deploy a synthetic schema of the specified size against the stub
+   * database, and return the metrics of the deployment.
+   *
+   * @param statementCount the approximate number of SQL statements of
+   *        the schema.
+   * @param configuration the arguments of the harness.
+   *
+   * @return the metrics of the deployment, keyed by their names.
+   *
+   * @throws Exception if the deployment failed.
+   */
+  protected static Map deploy(int statementCount, JSAPResult configuration)
+    throws Exception {
+    Path directory = Files.createTempDirectory("dbdeploy-benchmark-");
+    try {
+      int generatedStatementCount = new DeploymentBenchmarkSchemaGenerator(
+          statementCount,
+          configuration.getDouble(LONG_FLAG_OPTION_DEPENDENCY_ERROR_RATE)).generate(directory);
+
+      StubDatabase stubDatabase = StubDatabase.getInstance();
+      stubDatabase.reset();
+      stubDatabase.setLatency(
+          configuration.getLong(LONG_FLAG_OPTION_LATENCY),
+          configuration.getLong(LONG_FLAG_OPTION_CONNECT_LATENCY));
+
+      System.gc();
+      List heapMemoryPools = new ArrayList();
+      for (Iterator iterator = ManagementFactory.getMemoryPoolMXBeans().iterator(); iterator.hasNext(); ) {
+        MemoryPoolMXBean memoryPool = (MemoryPoolMXBean) iterator.next();
+        if (memoryPool.getType() == MemoryType.HEAP) {
+          memoryPool.resetPeakUsage();
+          heapMemoryPools.add(memoryPool);
+        }
+      }
+
+      PrintStream standardOutput = System.out;
+      if (!configuration.getBoolean(LONG_FLAG_OPTION_VERBOSE))
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+      long startTime = System.nanoTime();
+      try {
+        SQLDeploymentManager sqlDeploymentManager = SQLDeploymentManagerFactory.getSQLDeploymentManager(
+            "postgresql", StubDriver.class.getName(), StubDriver.URL_PREFIX + "benchmark", "benchmark", "benchmark");
+        try {
+          sqlDeploymentManager.setBatchSize(configuration.getInt(LONG_FLAG_OPTION_BATCH_SIZE));
+          sqlDeploymentManager.setTransactionMode(configuration.getString(LONG_FLAG_OPTION_TRANSACTION_MODE));
+          sqlDeploymentManager.setWorkerCount(configuration.getInt(LONG_FLAG_OPTION_WORKER_COUNT));
+          sqlDeploymentManager.setSQLScripts(Main.collectSQLScripts(
+              directory, new SQLScriptIgnoreList(), sqlDeploymentManager.getLogger()));
+          sqlDeploymentManager.process();
+        } finally {
+          sqlDeploymentManager.close();
+        }
+      } finally {
+        System.setOut(standardOutput);
+      }
+      long elapsedTime = System.nanoTime() - startTime;
+
+      long peakHeapUsage = 0;
+      for (Iterator iterator = heapMemoryPools.iterator(); iterator.hasNext(); )
+        peakHeapUsage += ((MemoryPoolMXBean) iterator.next()).getPeakUsage().getUsed();
+
+      Map metrics = new LinkedHashMap();
+      metrics.put("statement_count", Long.valueOf(generatedStatementCount));
+      metrics.put("elapsed_milliseconds", Long.valueOf(elapsedTime / 1000000));
+      metrics.put(METRIC_STATEMENTS_PER_SECOND,
+          Long.valueOf(Math.round(generatedStatementCount * 1000000000.0 / Math.max(1, elapsedTime))));
+      metrics.put("connection_count", Long.valueOf(stubDatabase.getConnectionCount()));
+      metrics.put("round_trip_count", Long.valueOf(stubDatabase.getRoundTripCount()));
+      metrics.put("executed_statement_count", Long.valueOf(stubDatabase.getAttemptCount()));
+      metrics.put("retry_count", Long.valueOf(stubDatabase.getDependencyErrorCount()));
+      metrics.put("peak_heap_bytes", Long.valueOf(peakHeapUsage));
+      return metrics;
+    } finally {
+      delete(directory);
+    }
+  }
+
+  /**
+   * Return the metrics of the specified results that are worse than
+   * their baseline beyond the given tolerance.
+   *
+   * @param results the metrics of every deployment, keyed by the
+   *        size of the schema.
+   * @param baseline the baseline of a previous run.
+   * @param tolerance the tolerated degradation, such as
+   *        <code>0.25</code> for 25%.
+   *
+   * @return a list of the descriptions of the regressions.
+   */
+  protected static List findRegressions(Map results, Properties baseline, double tolerance) {
+    List regressions = new ArrayList();
+
+    for (Iterator iterator = results.entrySet().iterator(); iterator.hasNext(); ) {
+      Map.Entry result = (Map.Entry) iterator.next();
+      Map metrics = (Map) result.getValue();
+
+      for (int i = 0; i < COMPARED_METRICS.length; i++) {
+        String key = result.getKey() + "." + COMPARED_METRICS[i];
+        String baselineValue = baseline.getProperty(key);
+        if (baselineValue == null)
+          continue;
+
+        long expectedValue = Long.parseLong(baselineValue);
+        long value = ((Long) metrics.get(COMPARED_METRICS[i])).longValue();
+        boolean isRegression = COMPARED_METRICS[i].equals(METRIC_STATEMENTS_PER_SECOND)
+            ? value < expectedValue * (1 - tolerance)
+            : value > expectedValue * (1 + tolerance) + 1;
+        if (isRegression)
+          regressions.add(key + ": " + value + " (baseline " + expectedValue + ")");
+      }
+    }
+
+    return regressions;
+  }
+
+  /**
+   * Execute the deployment benchmark.
+   *
+   * @param arguments a list of arguments that the harness supports,
+   *        which the option <code>--help</code> describes.
+   *
+   * @throws Exception if an unexpected exception occurs.
+   */
+  public static void main(String[] arguments)
+    throws Exception {
+    SimpleJSAP jsap = new SimpleJSAP(
+        "dbdeploy-benchmark",
+        "Benchmark whole deployments of synthetic schemas against a stub database.",
+        new com.martiansoftware.jsap.Parameter[] {
+            new FlaggedOption(LONG_FLAG_OPTION_BASELINE, JSAP.STRING_PARSER, "bench/e2e/baseline.properties", JSAP.NOT_REQUIRED, 'B', LONG_FLAG_OPTION_BASELINE,
+                "Specifies the file of the baseline the results are compared to."),
+            new FlaggedOption(LONG_FLAG_OPTION_BATCH_SIZE, JSAP.INTEGER_PARSER, "50", JSAP.NOT_REQUIRED, 'n', LONG_FLAG_OPTION_BATCH_SIZE,
+                "Specifies the maximum number of consecutive SQL statements sent at once."),
+            new FlaggedOption(LONG_FLAG_OPTION_CONNECT_LATENCY, JSAP.LONG_PARSER, "2000", JSAP.NOT_REQUIRED, 'C', LONG_FLAG_OPTION_CONNECT_LATENCY,
+                "Specifies the latency in microseconds of the opening of a connection."),
+            new FlaggedOption(LONG_FLAG_OPTION_DEPENDENCY_ERROR_RATE, JSAP.DOUBLE_PARSER, "0.05", JSAP.NOT_REQUIRED, 'r', LONG_FLAG_OPTION_DEPENDENCY_ERROR_RATE,
+                "Specifies the rate of the tables and functions that require a database object of a later module."),
+            new FlaggedOption(LONG_FLAG_OPTION_LATENCY, JSAP.LONG_PARSER, "100", JSAP.NOT_REQUIRED, 'l', LONG_FLAG_OPTION_LATENCY,
+                "Specifies the latency in microseconds of a round trip."),
+            new FlaggedOption(LONG_FLAG_OPTION_OUTPUT, JSAP.STRING_PARSER, "build/bench/e2e-result.json", JSAP.NOT_REQUIRED, 'o', LONG_FLAG_OPTION_OUTPUT,
+                "Specifies the file the results are written to in JSON."),
+            new FlaggedOption(LONG_FLAG_OPTION_STATEMENT_COUNTS, JSAP.INTEGER_PARSER, "1000,10000,100000", JSAP.NOT_REQUIRED, 's', LONG_FLAG_OPTION_STATEMENT_COUNTS,
+                "Specifies the sizes of the schemas, in SQL statements, separated with commas.").setList(true).setListSeparator(','),
+            new FlaggedOption(LONG_FLAG_OPTION_TOLERANCE, JSAP.DOUBLE_PARSER, "0.25", JSAP.NOT_REQUIRED, 't', LONG_FLAG_OPTION_TOLERANCE,
+                "Specifies the tolerated degradation of a metric compared to its baseline."),
+            new FlaggedOption(LONG_FLAG_OPTION_TRANSACTION_MODE, JSAP.STRING_PARSER, SQLDeploymentManager.TRANSACTION_MODE_NONE, JSAP.NOT_REQUIRED, 'x', LONG_FLAG_OPTION_TRANSACTION_MODE,
+                "Specifies when the SQL statements are committed: \"none\", \"script\" or \"tier\"."),
+            new Switch(LONG_FLAG_OPTION_UPDATE_BASELINE, 'u', LONG_FLAG_OPTION_UPDATE_BASELINE,
+                "Specifies that the results are written to the baseline file rather than compared to it."),
+            new Switch(LONG_FLAG_OPTION_VERBOSE, 'v', LONG_FLAG_OPTION_VERBOSE,
+                "Displays the output of the deployments."),
+            new FlaggedOption(LONG_FLAG_OPTION_WORKER_COUNT, JSAP.INTEGER_PARSER, "4", JSAP.NOT_REQUIRED, 'w', LONG_FLAG_OPTION_WORKER_COUNT,
+                "Specifies the number of SQL scripts executed concurrently.")
+        }
+    );
+
+    JSAPResult configuration = jsap.parse(arguments);
+    if (jsap.messagePrinted())
+      System.exit(1);
+
+    Map results = new LinkedHashMap();
+    int[] statementCounts = configuration.getIntArray(LONG_FLAG_OPTION_STATEMENT_COUNTS);
+    for (int i = 0; i < statementCounts.length; i++) {
+      System.out.println("Deploying " + statementCounts[i] + " statements...");
+      Map metrics = deploy(statementCounts[i], configuration);
+      System.out.println("  " + metrics);
+      results.put(Integer.toString(statementCounts[i]), metrics);
+    }
+
+    Path outputFile = Paths.get(configuration.getString(LONG_FLAG_OPTION_OUTPUT));
+    if (outputFile.getParent() != null)
+      Files.createDirectories(outputFile.getParent());
+    Files.write(outputFile, toJSON(results, configuration).getBytes(StandardCharsets.UTF_8));
+    System.out.println("Results written to " + outputFile);
+
+    Path baselineFile = Paths.get(configuration.getString(LONG_FLAG_OPTION_BASELINE));
+    if (configuration.getBoolean(LONG_FLAG_OPTION_UPDATE_BASELINE)) {
+      // The metrics are sorted so that two baselines can be compared
+      // line by line.
+      //
+      Map baseline = new TreeMap();
+      for (Iterator iterator = results.entrySet().iterator(); iterator.hasNext(); ) {
+        Map.Entry result = (Map.Entry) iterator.next();
+        Map metrics = (Map) result.getValue();
+        for (int i = 0; i < COMPARED_METRICS.length; i++)
+          baseline.put(result.getKey() + "." + COMPARED_METRICS[i], metrics.get(COMPARED_METRICS[i]));
+      }
+
+      StringBuilder content = new StringBuilder("# Baseline of the deployment benchmark\n");
+      for (Iterator iterator = baseline.entrySet().iterator(); iterator.hasNext(); ) {
+        Map.Entry metric = (Map.Entry) iterator.next();
+        content.append(metric.getKey()).append('=').append(metric.getValue()).append('\n');
+      }
+      Files.write(baselineFile, content.toString().getBytes(StandardCharsets.ISO_8859_1));
+      System.out.println("Baseline written to " + baselineFile);
+    } else if (Files.isRegularFile(baselineFile)) {
+      Properties baseline = new Properties();
+      InputStream inputStream = Files.newInputStream(baselineFile);
+      try {
+        baseline.load(inputStream);
+      } finally {
+        inputStream.close();
+      }
+
+      List regressions = findRegressions(results, baseline, configuration.getDouble(LONG_FLAG_OPTION_TOLERANCE));
+      for (Iterator iterator = regressions.iterator(); iterator.hasNext(); )
+        System.out.println("Regression: " + iterator.next());
+
+      if (!regressions.isEmpty())
+        System.exit(1);
+      System.out.println("No regression compared to " + baselineFile);
+    }
+  }
+
+  /**
+   * Return the JSON representation of the specified results.
+   *
+   * @param results the metrics of every deployment, keyed by the
+   *        size of the schema.
+   * @param configuration the arguments of the harness.
+   *
+   * @return the JSON document of the results.
+   */
+  protected static String toJSON(Map results, JSAPResult configuration) {
+    StringBuilder json = new StringBuilder();
+    json.append("{\n")
+        .append("  \"latency_microseconds\": ").append(configuration.getLong(LONG_FLAG_OPTION_LATENCY)).append(",\n")
+        .append("  \"batch_size\": ").append(configuration.getInt(LONG_FLAG_OPTION_BATCH_SIZE)).append(",\n")
+        .append("  \"worker_count\": ").append(configuration.getInt(LONG_FLAG_OPTION_WORKER_COUNT)).append(",\n")
+        .append("  \"transaction_mode\": \"").append(configuration.getString(LONG_FLAG_OPTION_TRANSACTION_MODE)).append("\",\n")
+        .append("  \"runs\": [");
+
+    for (Iterator iterator = results.values().iterator(); iterator.hasNext(); ) {
+      Map metrics = (Map) iterator.next();
+      json.append("\n    {");
+      for (Iterator metricIterator = metrics.entrySet().iterator(); metricIterator.hasNext(); ) {
+        Map.Entry metric = (Map.Entry) metricIterator.next();
+        json.append(" \"").append(metric.getKey()).append("\": ").append(metric.getValue());
+        if (metricIterator.hasNext())
+          json.append(',');
+      }
+      json.append(" }");
+      if (iterator.hasNext())
+        json.append(',');
+    }
+
+    return json.append("\n  ]\n}\n").toString();
+  }
+}
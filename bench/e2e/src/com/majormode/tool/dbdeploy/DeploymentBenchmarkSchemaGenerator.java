@@ -0,0 +1,233 @@
+/**
+ * Copyright (C) 1998-2008 Majormode.  All rights reserved.
+ *
+ * This software is the confidential and proprietary information of
+ * Majormode or one of its subsidiaries.  You shall not disclose this
+ * confidential information and shall use it only in accordance with
+ * the terms of the license agreement or other applicable agreement
+ * you entered into with Majormode.
+ *
+ * MAJORMODE MAKES NO REPRESENTATIONS OR WARRANTIES ABOUT THE
+ * SUITABILITY OF THE SOFTWARE, EITHER EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE IMPLIED WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE, OR NON-INFRINGEMENT.  MAJORMODE
+ * SHALL NOT BE LIABLE FOR ANY LOSSES OR DAMAGES SUFFERED BY LICENSEE
+ * AS A RESULT OF USING, MODIFYING OR DISTRIBUTING THIS SOFTWARE OR
+ * ITS DERIVATIVES.
+ */
+
+package com.majormode.tool.dbdeploy;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Generate the SQL script files of a synthetic schema used to
+ * benchmark whole deployments.  The schema is split into modules of
+ * about <code>MODULE_STATEMENT_COUNT</code> SQL statements, and every
+ * module has the following SQL script files:
+ *
+ * <ul>
+ *  <li><code>table</code>: tables which reference the previous table
+ *   of the module, followed by the rows inserted in these tables;</li>
+ *  <li><code>view</code>: views of the tables;</li>
+ *  <li><code>index</code>: indexes of the tables;</li>
+ *  <li><code>function</code>: SQL functions.</li>
+ * </ul>
+ *
+ * <p>A given rate of tables and functions require a table or a
+ * function of a later module through a hint of the stub database, so
+ * that their first execution fails with a dependency error.  The
+ * schema only depends on the arguments, so that the results of two
+ * runs can be compared.</p>
+ *
+ * @author Daniel CAUNE (daniel.caune@majormode.com)
+ */
+public class DeploymentBenchmarkSchemaGenerator {
+  /**
+   * Approximate number of SQL statements of a module.
+   */
+  public static final int MODULE_STATEMENT_COUNT = 500;
+
+  /**
+   * Seed of the generator of the dependencies between modules.
+   */
+  protected static final long RANDOM_SEED = 20081231L;
+
+  /**
+   * Rate of the tables and functions that require a database object
+   * of a later module.
+   */
+  protected double m_dependencyErrorRate;
+
+  /**
+   * Number of modules of the schema.
+   */
+  protected int m_moduleCount;
+
+  /**
+   * Generator of the dependencies between modules.
+   */
+  protected Random m_random = new Random(RANDOM_SEED);
+
+  /**
+   * Number of SQL statements of every module, per type of database
+   * objects.
+   */
+  protected int m_functionCount;
+  protected int m_indexCount;
+  protected int m_rowCount;
+  protected int m_tableCount;
+  protected int m_viewCount;
+
+  /**
+   * Build a generator of a schema of the specified size.
+   *
+   * @param statementCount the approximate number of SQL statements of
+   *        the schema.
+   * @param dependencyErrorRate the rate of the tables and functions
+   *        that require a database object of a later module.
+   */
+  public DeploymentBenchmarkSchemaGenerator(int statementCount, double dependencyErrorRate) {
+    m_dependencyErrorRate = dependencyErrorRate;
+    m_moduleCount = Math.max(1, statementCount / MODULE_STATEMENT_COUNT);
+
+    int moduleStatementCount = Math.max(10, statementCount / m_moduleCount);
+    m_tableCount = moduleStatementCount / 5;
+    m_rowCount = moduleStatementCount * 2 / 5;
+    m_viewCount = moduleStatementCount / 10;
+    m_indexCount = moduleStatementCount / 10;
+    m_functionCount = moduleStatementCount - m_tableCount - m_rowCount - m_viewCount - m_indexCount;
+  }
+
+  /**
+   * Generate the SQL script files of the schema in the specified
+   * directory.
+   *
+   * @param directory the directory where the SQL script files are
+   *        written.
+   *
+   * @return the number of SQL statements of the schema.
+   *
+   * @throws IOException if a SQL script file cannot be written.
+   */
+  public int generate(Path directory)
+    throws IOException {
+    for (int module = 0; module < m_moduleCount; module++) {
+      Path moduleDirectory = Files.createDirectories(directory.resolve(getModuleName(module)));
+      write(moduleDirectory, module, "table", generateTableScript(module));
+      write(moduleDirectory, module, "view", generateViewScript(module));
+      write(moduleDirectory, module, "index", generateIndexScript(module));
+      write(moduleDirectory, module, "function", generateFunctionScript(module));
+    }
+
+    return m_moduleCount * (m_tableCount + m_rowCount + m_viewCount + m_indexCount + m_functionCount);
+  }
+
+  /**
+   * Return a hint requiring a database object of a later module, at
+   * the rate of the dependency errors.
+   *
+   * @param module the index of the module of the SQL statement.
+   * @param objectKind <code>relation</code> or <code>function</code>.
+   * @param objectTypeName the type of the required database object.
+   * @param objectCount the number of database objects of this type
+   *        per module.
+   *
+   * @return the hint, or an empty string if the SQL statement doesn't
+   *         require any database object of a later module.
+   */
+  protected String generateRequirementHint(int module, String objectKind, String objectTypeName, int objectCount) {
+    if ((module + 1 >= m_moduleCount) || (m_random.nextDouble() >= m_dependencyErrorRate))
+      return "";
+
+    int requiredModule = module + 1 + m_random.nextInt(m_moduleCount - module - 1);
+    return " /*+ stub-requires " + objectKind + " "
+        + getObjectName(requiredModule, objectTypeName, m_random.nextInt(objectCount)) + " */";
+  }
+
+  protected String generateFunctionScript(int module) {
+    StringBuilder content = new StringBuilder();
+    for (int i = 0; i < m_functionCount; i++)
+      content.append("CREATE OR REPLACE FUNCTION ").append(getObjectName(module, "function", i))
+          .append("(p_value integer)\n  RETURNS integer\nAS $$\n  SELECT p_value + ").append(i)
+          .append("\n$$ LANGUAGE sql")
+          .append(generateRequirementHint(module, "function", "function", m_functionCount))
+          .append(";\n\n");
+
+    return content.toString();
+  }
+
+  protected String generateIndexScript(int module) {
+    StringBuilder content = new StringBuilder();
+    for (int i = 0; i < m_indexCount; i++)
+      content.append("CREATE INDEX ").append(getObjectName(module, "index", i))
+          .append(" ON ").append(getObjectName(module, "table", i % m_tableCount)).append(" (label);\n");
+
+    return content.toString();
+  }
+
+  protected String generateTableScript(int module) {
+    StringBuilder content = new StringBuilder();
+    content.append("--(defconstant ").append(getConstantName(module)).append(' ').append(module * 1000).append(")\n\n");
+
+    for (int i = 0; i < m_tableCount; i++) {
+      content.append("CREATE TABLE ").append(getObjectName(module, "table", i)).append(" (\n")
+          .append("  id integer PRIMARY KEY,\n");
+      if (i > 0)
+        content.append("  parent_id integer REFERENCES ").append(getObjectName(module, "table", i - 1)).append(" (id),\n");
+      content.append("  label text\n)")
+          .append(generateRequirementHint(module, "relation", "table", m_tableCount))
+          .append(";\n\n");
+    }
+
+    for (int i = 0; i < m_rowCount; i++)
+      content.append("INSERT INTO ").append(getObjectName(module, "table", i % m_tableCount))
+          .append(" (id, label) VALUES (").append(getConstantName(module)).append(" + ").append(i)
+          .append(", 'row ").append(i).append("');\n");
+
+    return content.toString();
+  }
+
+  protected String generateViewScript(int module) {
+    StringBuilder content = new StringBuilder();
+    for (int i = 0; i < m_viewCount; i++)
+      content.append("CREATE VIEW ").append(getObjectName(module, "view", i))
+          .append(" AS\n  SELECT id, label\n    FROM ").append(getObjectName(module, "table", i % m_tableCount))
+          .append(";\n\n");
+
+    return content.toString();
+  }
+
+  protected static String getConstantName(int module) {
+    return "+" + getModuleName(module) + "-offset+";
+  }
+
+  protected static String getModuleName(int module) {
+    return "module" + module;
+  }
+
+  protected static String getObjectName(int module, String objectTypeName, int index) {
+    return getModuleName(module) + "_" + objectTypeName + "_" + index;
+  }
+
+  /**
+   * Write a SQL script file of the schema.
+   *
+   * @param directory the directory of the module.
+   * @param module the index of the module.
+   * @param objectTypeName the type of database objects of the file.
+   * @param content the content of the file.
+   *
+   * @throws IOException if the file cannot be written.
+   */
+  protected static void write(Path directory, int module, String objectTypeName, String content)
+    throws IOException {
+    Files.write(
+        directory.resolve("create_" + getModuleName(module) + "_" + objectTypeName + ".sql"),
+        content.getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,394 @@
+/**
+ * Copyright (C) 1998-2008 Majormode.  All rights reserved.
+ *
+ * This software is the confidential and proprietary information of
+ * Majormode or one of its subsidiaries.  You shall not disclose this
+ * confidential information and shall use it only in accordance with
+ * the terms of the license agreement or other applicable agreement
+ * you entered into with Majormode.
+ *
+ * MAJORMODE MAKES NO REPRESENTATIONS OR WARRANTIES ABOUT THE
+ * SUITABILITY OF THE SOFTWARE, EITHER EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE IMPLIED WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE, OR NON-INFRINGEMENT.  MAJORMODE
+ * SHALL NOT BE LIABLE FOR ANY LOSSES OR DAMAGES SUFFERED BY LICENSEE
+ * AS A RESULT OF USING, MODIFYING OR DISTRIBUTING THIS SOFTWARE OR
+ * ITS DERIVATIVES.
+ */
+
+package com.majormode.tool.dbdeploy;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * In-process database that the stub JDBC driver connects to.  The
+ * database doesn't store any data: it records the calls it receives,
+ * simulates the latency of every round trip to a relational database
+ * management system, and keeps track of the database objects that the
+ * SQL statements create, so that it can reject a SQL statement which
+ * requires a database object that has not been created yet.
+ *
+ * <p>A SQL statement declares the database objects it requires with
+ * hints of the following form, which the SQL dependency analyzer
+ * ignores, so that the deployment meets the same dependency errors
+ * as against PostgreSQL:</p>
+ *
+ * <pre>
+ * CREATE TABLE a (...) /*+ stub-requires relation b *&#47;
+ * </pre>
+ *
+ * @author Daniel CAUNE (daniel.caune@majormode.com)
+ */
+public class StubDatabase {
+  /**
+   * Regular expression that matches a hint declaring a database object
+   * that a SQL statement requires.
+   */
+  protected static final String PATTERN_REQUIREMENT_HINT =
+    "/\\*\\+\\s*stub-requires\\s+(relation|function)\\s+(\\w+)\\s*\\*/";
+
+  /**
+   * SQLSTATE of the error raised when a function doesn't exist.
+   */
+  public static final String SQLSTATE_UNDEFINED_FUNCTION = "42883";
+
+  /**
+   * SQLSTATE of the error raised when a relation doesn't exist.
+   */
+  public static final String SQLSTATE_UNDEFINED_TABLE = "42P01";
+
+  /**
+   * Unique instance of the database, shared by the connections of the
+   * stub JDBC driver.
+   */
+  protected static final StubDatabase m_instance = new StubDatabase();
+
+  /**
+   * Number of SQL statements that have been executed, in a batch or
+   * not, whether they succeeded or not.
+   */
+  protected AtomicLong m_attemptCount = new AtomicLong();
+
+  /**
+   * Number of connections that have been opened.
+   */
+  protected AtomicLong m_connectionCount = new AtomicLong();
+
+  /**
+   * Latency in microseconds of the opening of a connection.
+   */
+  protected volatile long m_connectLatency = 0;
+
+  /**
+   * Names of the database objects that have been created.
+   */
+  protected Set m_createdObjectNames = ConcurrentHashMap.newKeySet();
+
+  /**
+   * Number of SQL statements that failed because a database object
+   * they require doesn't exist.
+   */
+  protected AtomicLong m_dependencyErrorCount = new AtomicLong();
+
+  /**
+   * Latency in microseconds of a round trip.
+   */
+  protected volatile long m_latency = 0;
+
+  /**
+   * Compiled representation of the regular expression that matches a
+   * hint declaring a database object that a SQL statement requires.
+   */
+  protected Pattern m_patternRequirementHint = Pattern.compile(PATTERN_REQUIREMENT_HINT);
+
+  /**
+   * Number of round trips, such as the execution of a SQL statement or
+   * of a batch, a commit or a savepoint.
+   */
+  protected AtomicLong m_roundTripCount = new AtomicLong();
+
+  /**
+   * Analyzer of the database objects that a SQL statement creates.
+   */
+  protected SQLDependencyAnalyzer m_sqlDependencyAnalyzer = new SQLDependencyAnalyzer();
+
+  /**
+   * Return the default value of the specified type, which a stub
+   * method returns when it doesn't simulate anything.
+   *
+   * @param type a type.
+   *
+   * @return the default value of this type.
+   */
+  protected static Object getDefaultValue(Class type) {
+    if (type == boolean.class)
+      return Boolean.FALSE;
+    else if (type == int.class)
+      return Integer.valueOf(0);
+    else if (type == long.class)
+      return Long.valueOf(0);
+
+    return null;
+  }
+
+  /**
+   * Return the unique instance of the database.
+   *
+   * @return the database.
+   */
+  public static StubDatabase getInstance() {
+    return m_instance;
+  }
+
+  public long getAttemptCount() {
+    return m_attemptCount.get();
+  }
+
+  public long getConnectionCount() {
+    return m_connectionCount.get();
+  }
+
+  public long getDependencyErrorCount() {
+    return m_dependencyErrorCount.get();
+  }
+
+  public long getRoundTripCount() {
+    return m_roundTripCount.get();
+  }
+
+  /**
+   * Execute the specified SQL statement: check that the database
+   * objects it requires exist, then record the database objects it
+   * creates.
+   *
+   * @param sqlExpression a SQL statement.
+   *
+   * @throws SQLException if a database object that the SQL statement
+   *         requires doesn't exist.
+   */
+  protected void execute(String sqlExpression)
+    throws SQLException {
+    m_attemptCount.incrementAndGet();
+
+    Matcher matcher = m_patternRequirementHint.matcher(sqlExpression);
+    while (matcher.find()) {
+      String objectName = matcher.group(2).toLowerCase();
+      if (m_createdObjectNames.contains(objectName))
+        continue;
+
+      m_dependencyErrorCount.incrementAndGet();
+      if (matcher.group(1).equals("relation"))
+        throw new SQLException("ERROR: relation \"" + objectName + "\" does not exist", SQLSTATE_UNDEFINED_TABLE);
+      else
+        throw new SQLException("ERROR: function " + objectName + "(integer) does not exist", SQLSTATE_UNDEFINED_FUNCTION);
+    }
+
+    m_createdObjectNames.addAll(m_sqlDependencyAnalyzer.getCreatedObjectNames(sqlExpression));
+  }
+
+  /**
+   * Open a connection to the database.
+   *
+   * @return the connection.
+   */
+  public Connection connect() {
+    m_connectionCount.incrementAndGet();
+    sleep(m_connectLatency);
+
+    return (Connection) Proxy.newProxyInstance(
+        StubDatabase.class.getClassLoader(),
+        new Class[] { Connection.class },
+        new InvocationHandler() {
+          protected boolean m_isAutoCommit = true;
+          protected boolean m_isClosed = false;
+
+          public Object invoke(Object proxy, Method method, Object[] arguments)
+            throws SQLException {
+            String name = method.getName();
+            if (method.getDeclaringClass() == Object.class)
+              return invokeObjectMethod(proxy, method, arguments);
+            else if (name.equals("createStatement"))
+              return createStatement(null);
+            else if (name.equals("prepareStatement"))
+              return createStatement((String) arguments[0]);
+            else if (name.equals("getAutoCommit"))
+              return Boolean.valueOf(m_isAutoCommit);
+            else if (name.equals("setAutoCommit"))
+              m_isAutoCommit = ((Boolean) arguments[0]).booleanValue();
+            else if (name.equals("commit") || name.equals("rollback") || name.equals("releaseSavepoint"))
+              roundTrip();
+            else if (name.equals("setSavepoint")) {
+              roundTrip();
+              return Proxy.newProxyInstance(
+                  StubDatabase.class.getClassLoader(),
+                  new Class[] { Savepoint.class },
+                  new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] arguments) {
+                      return (method.getDeclaringClass() == Object.class)
+                          ? invokeObjectMethod(proxy, method, arguments)
+                          : getDefaultValue(method.getReturnType());
+                    }
+                  });
+            } else if (name.equals("isValid"))
+              return Boolean.valueOf(!m_isClosed);
+            else if (name.equals("isClosed"))
+              return Boolean.valueOf(m_isClosed);
+            else if (name.equals("close"))
+              m_isClosed = true;
+            else if (name.equals("unwrap"))
+              throw new SQLException("The stub connection doesn't wrap any other connection");
+
+            return getDefaultValue(method.getReturnType());
+          }
+        });
+  }
+
+  /**
+   * Create a statement, or a prepared statement, of a connection.  A
+   * query returns an empty result set, and an update doesn't update
+   * any row.
+   *
+   * @param preparedSQLExpression the SQL expression of a prepared
+   *        statement, or <code>null</code> for a statement.
+   *
+   * @return the statement.
+   */
+  protected Statement createStatement(final String preparedSQLExpression) {
+    return (Statement) Proxy.newProxyInstance(
+        StubDatabase.class.getClassLoader(),
+        new Class[] { (preparedSQLExpression == null) ? Statement.class : PreparedStatement.class },
+        new InvocationHandler() {
+          protected List m_batch = new ArrayList();
+
+          public Object invoke(Object proxy, Method method, Object[] arguments)
+            throws SQLException {
+            String name = method.getName();
+            if (method.getDeclaringClass() == Object.class)
+              return invokeObjectMethod(proxy, method, arguments);
+            else if (name.equals("addBatch"))
+              m_batch.add((arguments == null) ? preparedSQLExpression : (String) arguments[0]);
+            else if (name.equals("clearBatch"))
+              m_batch.clear();
+            else if (name.equals("executeBatch")) {
+              roundTrip();
+              int[] updateCounts = new int[m_batch.size()];
+              try {
+                for (int i = 0; i < updateCounts.length; i++)
+                  execute((String) m_batch.get(i));
+              } catch (SQLException exception) {
+                throw new BatchUpdateException(exception.getMessage(), exception.getSQLState(), new int[0], exception);
+              } finally {
+                m_batch.clear();
+              }
+              return updateCounts;
+            } else if (name.equals("executeQuery")) {
+              roundTrip();
+              m_attemptCount.incrementAndGet();
+              return createResultSet();
+            } else if (name.startsWith("execute")) {
+              roundTrip();
+              execute((arguments == null) ? preparedSQLExpression : (String) arguments[0]);
+              return name.equals("execute") ? (Object) Boolean.FALSE : (Object) Integer.valueOf(0);
+            } else if (name.equals("getUpdateCount"))
+              return Integer.valueOf(-1);
+
+            return getDefaultValue(method.getReturnType());
+          }
+        });
+  }
+
+  /**
+   * Create an empty result set.
+   *
+   * @return the result set.
+   */
+  protected ResultSet createResultSet() {
+    return (ResultSet) Proxy.newProxyInstance(
+        StubDatabase.class.getClassLoader(),
+        new Class[] { ResultSet.class },
+        new InvocationHandler() {
+          public Object invoke(Object proxy, Method method, Object[] arguments) {
+            return (method.getDeclaringClass() == Object.class)
+                ? invokeObjectMethod(proxy, method, arguments)
+                : getDefaultValue(method.getReturnType());
+          }
+        });
+  }
+
+  /**
+   * Invoke a method of the class <code>Object</code> on a stub.
+   *
+   * @param proxy the stub.
+   * @param method a method of the class <code>Object</code>.
+   * @param arguments the arguments of the method.
+   *
+   * @return the result of the method.
+   */
+  protected static Object invokeObjectMethod(Object proxy, Method method, Object[] arguments) {
+    if (method.getName().equals("equals"))
+      return Boolean.valueOf(proxy == arguments[0]);
+    else if (method.getName().equals("hashCode"))
+      return Integer.valueOf(System.identityHashCode(proxy));
+
+    return "stub@" + Integer.toHexString(System.identityHashCode(proxy));
+  }
+
+  /**
+   * Forget the database objects created so far and reset the
+   * counters, before a new deployment.
+   */
+  public void reset() {
+    m_attemptCount.set(0);
+    m_connectionCount.set(0);
+    m_createdObjectNames.clear();
+    m_dependencyErrorCount.set(0);
+    m_roundTripCount.set(0);
+  }
+
+  /**
+   * Record a round trip and wait for its latency.
+   */
+  protected void roundTrip() {
+    m_roundTripCount.incrementAndGet();
+    sleep(m_latency);
+  }
+
+  /**
+   * Define the latency of the database.
+   *
+   * @param latency the latency in microseconds of a round trip.
+   * @param connectLatency the latency in microseconds of the opening of
+   *        a connection.
+   */
+  public void setLatency(long latency, long connectLatency) {
+    m_latency = latency;
+    m_connectLatency = connectLatency;
+  }
+
+  /**
+   * Wait for the specified duration.
+   *
+   * @param duration a duration in microseconds.
+   */
+  protected static void sleep(long duration) {
+    if (duration > 0)
+      LockSupport.parkNanos(duration * 1000);
+  }
+}
@@ -0,0 +1,80 @@
+/**
+ * Copyright (C) 1998-2008 Majormode.  All rights reserved.
+ *
+ * This software is the confidential and proprietary information of
+ * Majormode or one of its subsidiaries.  You shall not disclose this
+ * confidential information and shall use it only in accordance with
+ * the terms of the license agreement or other applicable agreement
+ * you entered into with Majormode.
+ *
+ * MAJORMODE MAKES NO REPRESENTATIONS OR WARRANTIES ABOUT THE
+ * SUITABILITY OF THE SOFTWARE, EITHER EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE IMPLIED WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE, OR NON-INFRINGEMENT.  MAJORMODE
+ * SHALL NOT BE LIABLE FOR ANY LOSSES OR DAMAGES SUFFERED BY LICENSEE
+ * AS A RESULT OF USING, MODIFYING OR DISTRIBUTING THIS SOFTWARE OR
+ * ITS DERIVATIVES.
+ */
+
+package com.majormode.tool.dbdeploy;
+
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+/**
+ * JDBC driver which connections are stubs of the in-process
+ * <code>StubDatabase</code>.  The driver accepts URLs of the form
+ * <code>jdbc:stub:</code>, and registers itself with the driver
+ * manager when its class is loaded.
+ *
+ * @author Daniel CAUNE (daniel.caune@majormode.com)
+ */
+public class StubDriver implements Driver {
+  /**
+   * Prefix of the URLs accepted by the driver.
+   */
+  public static final String URL_PREFIX = "jdbc:stub:";
+
+  static {
+    try {
+      DriverManager.registerDriver(new StubDriver());
+    } catch (SQLException exception) {
+      throw new ExceptionInInitializerError(exception);
+    }
+  }
+
+  public boolean acceptsURL(String url) {
+    return url.startsWith(URL_PREFIX);
+  }
+
+  public Connection connect(String url, Properties info) {
+    return acceptsURL(url) ? StubDatabase.getInstance().connect() : null;
+  }
+
+  public int getMajorVersion() {
+    return 1;
+  }
+
+  public int getMinorVersion() {
+    return 0;
+  }
+
+  public Logger getParentLogger()
+    throws SQLFeatureNotSupportedException {
+    throw new SQLFeatureNotSupportedException();
+  }
+
+  public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+    return new DriverPropertyInfo[0];
+  }
+
+  public boolean jdbcCompliant() {
+    return false;
+  }
+}
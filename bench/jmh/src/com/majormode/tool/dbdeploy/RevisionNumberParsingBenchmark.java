@@ -0,0 +1,78 @@
+/**
+ * Copyright (C) 1998-2008 Majormode.  All rights reserved.
+ *
+ * This software is the confidential and proprietary information of
+ * Majormode or one of its subsidiaries.  You shall not disclose this
+ * confidential information and shall use it only in accordance with
+ * the terms of the license agreement or other applicable agreement
+ * you entered into with Majormode.
+ *
+ * MAJORMODE MAKES NO REPRESENTATIONS OR WARRANTIES ABOUT THE
+ * SUITABILITY OF THE SOFTWARE, EITHER EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE IMPLIED WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE, OR NON-INFRINGEMENT.  MAJORMODE
+ * SHALL NOT BE LIABLE FOR ANY LOSSES OR DAMAGES SUFFERED BY LICENSEE
+ * AS A RESULT OF USING, MODIFYING OR DISTRIBUTING THIS SOFTWARE OR
+ * ITS DERIVATIVES.
+ */
+
+package com.majormode.tool.dbdeploy;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measure the throughput of the parsing of the revision number of a
+ * SQL script by every revision control system.  The revision keyword
+ * is written either at the beginning of the script, as it usually is,
+ * or at its end, so that the whole script is scanned for it.
+ *
+ * @author Daniel CAUNE (daniel.caune@majormode.com)
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class RevisionNumberParsingBenchmark {
+  @Param({ "head", "tail" })
+  public String m_keywordPosition;
+
+  @Param({ "content-hash", "perforce", "subversion" })
+  public String m_revisionControlSystemName;
+
+  @Param({ "100" })
+  public int m_size;
+
+  /**
+   * Content of the SQL script which revision number is parsed.
+   */
+  protected String m_content;
+
+  /**
+   * Revision control system which parses the revision number.
+   */
+  protected RevisionControlSystem m_revisionControlSystem;
+
+  @Setup
+  public void setUp()
+    throws UnsupportedRevisionControlSystemException {
+    m_revisionControlSystem = RevisionControlSystemFactory.getRevisionControlSystem(m_revisionControlSystemName);
+    m_content = SQLCorpusGenerator.insertRevisionKeyword(
+        SQLCorpusGenerator.generateFunctionScript(m_size),
+        m_revisionControlSystemName.equals("perforce") ? "$Revision: #1234 $" : "$Revision: 1234 $",
+        m_keywordPosition.equals("tail"));
+  }
+
+  @Benchmark
+  public int parseRevisionNumber()
+    throws UndefinedRevisionNumberException {
+    return m_revisionControlSystem.parseRevisionNumber(m_content);
+  }
+}
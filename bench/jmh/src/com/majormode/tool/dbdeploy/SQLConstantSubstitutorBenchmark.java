@@ -0,0 +1,126 @@
+/**
+ * Copyright (C) 1998-2008 Majormode.  All rights reserved.
+ *
+ * This software is the confidential and proprietary information of
+ * Majormode or one of its subsidiaries.  You shall not disclose this
+ * confidential information and shall use it only in accordance with
+ * the terms of the license agreement or other applicable agreement
+ * you entered into with Majormode.
+ *
+ * MAJORMODE MAKES NO REPRESENTATIONS OR WARRANTIES ABOUT THE
+ * SUITABILITY OF THE SOFTWARE, EITHER EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE IMPLIED WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE, OR NON-INFRINGEMENT.  MAJORMODE
+ * SHALL NOT BE LIABLE FOR ANY LOSSES OR DAMAGES SUFFERED BY LICENSEE
+ * AS A RESULT OF USING, MODIFYING OR DISTRIBUTING THIS SOFTWARE OR
+ * ITS DERIVATIVES.
+ */
+
+package com.majormode.tool.dbdeploy;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measure the throughput of the replacement of the SQL constants used
+ * in a SQL script by their values, whether the script is substituted
+ * as a whole or streamed, such as the data of a dataset file.
+ *
+ * @author Daniel CAUNE (daniel.caune@majormode.com)
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class SQLConstantSubstitutorBenchmark {
+  /**
+   * Size of the buffers of the streamed substitution.
+   */
+  protected static final int BUFFER_SIZE = 65536;
+
+  @Param({ "10", "1000", "10000" })
+  public int m_constantCount;
+
+  @Param({ "10000" })
+  public int m_statementCount;
+
+  /**
+   * Content of the SQL script which SQL constants are replaced.
+   */
+  protected String m_content;
+
+  /**
+   * Content of the SQL script encoded in UTF-8.
+   */
+  protected byte[] m_encodedContent;
+
+  /**
+   * Buffer the substituted stream is read into.
+   */
+  protected byte[] m_readBuffer = new byte[BUFFER_SIZE];
+
+  /**
+   * SQL constants declared in the SQL script, keyed by their names.
+   */
+  protected Map m_sqlConstants;
+
+  /**
+   * Substitutor compiled from the SQL constants.
+   */
+  protected SQLConstantSubstitutor m_sqlConstantSubstitutor;
+
+  @Setup
+  public void setUp() {
+    m_content = SQLCorpusGenerator.generateConstantScript(m_statementCount, m_constantCount);
+    m_encodedContent = m_content.getBytes(StandardCharsets.UTF_8);
+    m_sqlConstants = SQLCorpusGenerator.generateConstants(m_constantCount);
+    m_sqlConstantSubstitutor = new SQLConstantSubstitutor(m_sqlConstants);
+  }
+
+  @Benchmark
+  public Collection collectConstantNames() {
+    Collection constantNames = new ArrayList();
+    SQLConstantSubstitutor.collectConstantNames(m_content, constantNames);
+    return constantNames;
+  }
+
+  @Benchmark
+  public SQLConstantSubstitutor compileSubstitutor() {
+    return new SQLConstantSubstitutor(m_sqlConstants);
+  }
+
+  @Benchmark
+  public String substitute() {
+    return m_sqlConstantSubstitutor.substitute(m_content, null);
+  }
+
+  @Benchmark
+  public long substituteStream()
+    throws IOException {
+    InputStream inputStream = new SQLConstantSubstitutingInputStream(
+        new ByteArrayInputStream(m_encodedContent),
+        m_sqlConstantSubstitutor,
+        BUFFER_SIZE);
+
+    long byteCount = 0;
+    int readCount;
+    while ((readCount = inputStream.read(m_readBuffer, 0, m_readBuffer.length)) >= 0)
+      byteCount += readCount;
+
+    return byteCount;
+  }
+}
@@ -0,0 +1,243 @@
+/**
+ * Copyright (C) 1998-2008 Majormode.  All rights reserved.
+ *
+ * This software is the confidential and proprietary information of
+ * Majormode or one of its subsidiaries.  You shall not disclose this
+ * confidential information and shall use it only in accordance with
+ * the terms of the license agreement or other applicable agreement
+ * you entered into with Majormode.
+ *
+ * MAJORMODE MAKES NO REPRESENTATIONS OR WARRANTIES ABOUT THE
+ * SUITABILITY OF THE SOFTWARE, EITHER EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE IMPLIED WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE, OR NON-INFRINGEMENT.  MAJORMODE
+ * SHALL NOT BE LIABLE FOR ANY LOSSES OR DAMAGES SUFFERED BY LICENSEE
+ * AS A RESULT OF USING, MODIFYING OR DISTRIBUTING THIS SOFTWARE OR
+ * ITS DERIVATIVES.
+ */
+
+package com.majormode.tool.dbdeploy;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Generate synthetic SQL scripts used by the benchmarks to measure the
+ * parsing of the SQL script files.  Every corpus stresses a particular
+ * path of the parser:
+ *
+ * <ul>
+ *  <li><code>function</code>: huge PL/pgSQL functions which bodies are
+ *   dollar-quoted strings, with string literals and comments;</li>
+ *  <li><code>copy</code>: a long block of data of a bulk loading
+ *   statement;</li>
+ *  <li><code>constant</code>: statements that use a large number of
+ *   SQL constants;</li>
+ *  <li><code>comment</code>: statements surrounded with deeply nested
+ *   C-like comments and line comments.</li>
+ * </ul>
+ *
+ * <p>The content generated only depends on the arguments, so that
+ * the results of two runs can be compared.</p>
+ *
+ * @author Daniel CAUNE (daniel.caune@majormode.com)
+ */
+public class SQLCorpusGenerator {
+  public static final String CORPUS_COMMENT = "comment";
+  public static final String CORPUS_CONSTANT = "constant";
+  public static final String CORPUS_COPY = "copy";
+  public static final String CORPUS_FUNCTION = "function";
+
+  /**
+   * Number of SQL constants used by every statement of the corpus
+   * <code>constant</code>.
+   */
+  protected static final int CONSTANTS_PER_STATEMENT = 8;
+
+  /**
+   * Depth of the nested comments of the corpus <code>comment</code>.
+   */
+  protected static final int COMMENT_DEPTH = 16;
+
+  /**
+   * Number of lines of the body of every function of the corpus
+   * <code>function</code>.
+   */
+  protected static final int FUNCTION_LINE_COUNT = 200;
+
+  /**
+   * Return the name of the SQL constant of the specified index,
+   * delimiters included.
+   *
+   * @param index the index of a SQL constant.
+   *
+   * @return the name of this SQL constant.
+   */
+  public static String getConstantName(int index) {
+    return "+benchmark-constant-" + index + "+";
+  }
+
+  /**
+   * Build the SQL constants which names are returned by
+   * <code>getConstantName</code>.
+   *
+   * @param constantCount the number of SQL constants.
+   *
+   * @return a map of <code>SQLConstant</code> objects keyed by their
+   *         names.
+   */
+  public static Map generateConstants(int constantCount) {
+    Map sqlConstants = new HashMap();
+    for (int i = 0; i < constantCount; i++) {
+      String constantName = getConstantName(i);
+      sqlConstants.put(constantName, new SQLConstant(null, constantName, Integer.toString(i * 7919)));
+    }
+
+    return sqlConstants;
+  }
+
+  /**
+   * Generate the content of a SQL script of the specified corpus.
+   *
+   * @param corpus the name of a corpus.
+   * @param size the number of statements of the script, or the number
+   *        of rows of the corpus <code>copy</code>.
+   * @param constantCount the number of SQL constants declared, which
+   *        the corpus <code>constant</code> uses.
+   *
+   * @return the content of the SQL script.
+   */
+  public static String generate(String corpus, int size, int constantCount) {
+    if (CORPUS_COMMENT.equals(corpus))
+      return generateCommentScript(size);
+    else if (CORPUS_CONSTANT.equals(corpus))
+      return generateConstantScript(size, constantCount);
+    else if (CORPUS_COPY.equals(corpus))
+      return generateCopyScript(size);
+    else if (CORPUS_FUNCTION.equals(corpus))
+      return generateFunctionScript(size);
+
+    throw new IllegalArgumentException("Unsupported corpus \"" + corpus + "\"");
+  }
+
+  /**
+   * Generate a SQL script which statements are surrounded with deeply
+   * nested comments.
+   *
+   * @param statementCount the number of statements.
+   *
+   * @return the content of the SQL script.
+   */
+  public static String generateCommentScript(int statementCount) {
+    StringBuilder content = new StringBuilder();
+    for (int i = 0; i < statementCount; i++) {
+      for (int depth = 0; depth < COMMENT_DEPTH; depth++)
+        content.append("/* level ").append(depth).append(" of the comment of statement ").append(i).append('\n');
+      for (int depth = 0; depth < COMMENT_DEPTH; depth++)
+        content.append("   ; ' \" $$ -- not the end of the comment */\n");
+
+      content.append("-- Statement ").append(i).append(": the comment ends at the end of the line; ' \"\n")
+          .append("INSERT INTO account(account_id, name) /* inline */ VALUES (")
+          .append(i).append(", 'account-").append(i).append("'); -- trailing comment\n");
+    }
+
+    return content.toString();
+  }
+
+  /**
+   * Generate a SQL script which declares the specified number of SQL
+   * constants, and which statements use these constants.
+   *
+   * @param statementCount the number of statements.
+   * @param constantCount the number of SQL constants.
+   *
+   * @return the content of the SQL script.
+   */
+  public static String generateConstantScript(int statementCount, int constantCount) {
+    StringBuilder content = new StringBuilder();
+    for (int i = 0; i < constantCount; i++)
+      content.append("--(defconstant ").append(getConstantName(i)).append(' ').append(i * 7919).append(")\n");
+
+    for (int i = 0; i < statementCount; i++) {
+      content.append("UPDATE account SET status = ").append(getConstantName(i % constantCount))
+          .append(", score = score + 1 WHERE kind IN (");
+      for (int j = 1; j < CONSTANTS_PER_STATEMENT; j++) {
+        if (j > 1)
+          content.append(", ");
+        content.append(getConstantName((i * CONSTANTS_PER_STATEMENT + j) % constantCount));
+      }
+      content.append(") AND note <> 'a+b+c' AND total + 1 > +undefined-constant+;\n");
+    }
+
+    return content.toString();
+  }
+
+  /**
+   * Generate a SQL script made of a bulk loading statement followed by
+   * its data.
+   *
+   * @param rowCount the number of rows of data.
+   *
+   * @return the content of the SQL script.
+   */
+  public static String generateCopyScript(int rowCount) {
+    StringBuilder content = new StringBuilder();
+    content.append("-- Load the accounts.\n")
+        .append("COPY account(account_id, name, email, creation_time) FROM STDIN;\n");
+    for (int i = 0; i < rowCount; i++)
+      content.append(i).append("\taccount-").append(i).append("\taccount-").append(i)
+          .append("@example.com\t2008-01-01 00:00:00+00\n");
+    content.append("\\.\n")
+        .append("ANALYZE account;\n");
+
+    return content.toString();
+  }
+
+  /**
+   * Generate a SQL script made of huge PL/pgSQL functions.
+   *
+   * @param functionCount the number of functions.
+   *
+   * @return the content of the SQL script.
+   */
+  public static String generateFunctionScript(int functionCount) {
+    StringBuilder content = new StringBuilder();
+    for (int i = 0; i < functionCount; i++) {
+      content.append("/**\n * Benchmark function ").append(i).append(".\n */\n")
+          .append("CREATE OR REPLACE FUNCTION benchmark_function_").append(i).append("(p_value integer)\n")
+          .append("  RETURNS integer\n")
+          .append("AS $function$\n")
+          .append("DECLARE\n")
+          .append("  v_result integer := 0;\n")
+          .append("BEGIN\n");
+      for (int j = 0; j < FUNCTION_LINE_COUNT; j++)
+        content.append("  v_result := v_result + p_value * ").append(j)
+            .append("; -- step ").append(j).append(" of 'function' ").append(i).append('\n');
+      content.append("  RAISE NOTICE 'result: %; done', v_result;\n")
+          .append("  RETURN v_result;\n")
+          .append("END;\n")
+          .append("$function$\n")
+          .append("LANGUAGE plpgsql;\n\n");
+    }
+
+    return content.toString();
+  }
+
+  /**
+   * Insert a revision keyword in the specified content of a SQL
+   * script.
+   *
+   * @param content the content of a SQL script.
+   * @param revisionKeyword a revision keyword, such as
+   *        <code>$Revision: 1234 $</code>.
+   * @param isAtEnd indicate whether the keyword is inserted at the end
+   *        of the content rather than at its beginning.
+   *
+   * @return the content with the revision keyword.
+   */
+  public static String insertRevisionKeyword(String content, String revisionKeyword, boolean isAtEnd) {
+    return isAtEnd
+        ? content + "-- " + revisionKeyword + "\n"
+        : "-- " + revisionKeyword + "\n" + content;
+  }
+}
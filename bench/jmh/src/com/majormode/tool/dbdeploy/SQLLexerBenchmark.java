@@ -0,0 +1,79 @@
+/**
+ * Copyright (C) 1998-2008 Majormode.  All rights reserved.
+ *
+ * This software is the confidential and proprietary information of
+ * Majormode or one of its subsidiaries.  You shall not disclose this
+ * confidential information and shall use it only in accordance with
+ * the terms of the license agreement or other applicable agreement
+ * you entered into with Majormode.
+ *
+ * MAJORMODE MAKES NO REPRESENTATIONS OR WARRANTIES ABOUT THE
+ * SUITABILITY OF THE SOFTWARE, EITHER EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE IMPLIED WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE, OR NON-INFRINGEMENT.  MAJORMODE
+ * SHALL NOT BE LIABLE FOR ANY LOSSES OR DAMAGES SUFFERED BY LICENSEE
+ * AS A RESULT OF USING, MODIFYING OR DISTRIBUTING THIS SOFTWARE OR
+ * ITS DERIVATIVES.
+ */
+
+package com.majormode.tool.dbdeploy;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measure the throughput of the lexer that strips the comments of a
+ * SQL script and splits it into SQL statements.  The corpus
+ * <code>comment</code> mostly measures the stripping of the comments,
+ * the corpora <code>function</code> and <code>copy</code> the reading
+ * of dollar-quoted strings and of the data of bulk loading statements.
+ *
+ * @author Daniel CAUNE (daniel.caune@majormode.com)
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class SQLLexerBenchmark {
+  /**
+   * Number of rows of data of the corpus <code>copy</code> per
+   * statement of the other corpora, so that the scripts have similar
+   * sizes.
+   */
+  protected static final int COPY_ROW_COUNT_PER_STATEMENT = 100;
+
+  @Param({ "comment", "copy", "function" })
+  public String m_corpus;
+
+  @Param({ "1000" })
+  public int m_size;
+
+  /**
+   * Content of the SQL script that is split.
+   */
+  protected String m_content;
+
+  @Setup
+  public void setUp() {
+    int size = m_corpus.equals(SQLCorpusGenerator.CORPUS_COPY) ? m_size * COPY_ROW_COUNT_PER_STATEMENT : m_size;
+    m_content = SQLCorpusGenerator.generate(m_corpus, size, 1);
+  }
+
+  @Benchmark
+  public void splitSQLStatements(Blackhole blackhole) throws IOException {
+    SQLLexer lexer = new SQLLexer(m_content);
+    while (lexer.next()) {
+      blackhole.consume(lexer.getStatement());
+      blackhole.consume(lexer.getCopyDataEnd());
+    }
+  }
+}
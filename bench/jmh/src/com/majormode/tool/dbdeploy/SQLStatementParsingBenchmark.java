@@ -0,0 +1,120 @@
+/**
+ * Copyright (C) 1998-2008 Majormode.  All rights reserved.
+ *
+ * This software is the confidential and proprietary information of
+ * Majormode or one of its subsidiaries.  You shall not disclose this
+ * confidential information and shall use it only in accordance with
+ * the terms of the license agreement or other applicable agreement
+ * you entered into with Majormode.
+ *
+ * MAJORMODE MAKES NO REPRESENTATIONS OR WARRANTIES ABOUT THE
+ * SUITABILITY OF THE SOFTWARE, EITHER EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE IMPLIED WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE, OR NON-INFRINGEMENT.  MAJORMODE
+ * SHALL NOT BE LIABLE FOR ANY LOSSES OR DAMAGES SUFFERED BY LICENSEE
+ * AS A RESULT OF USING, MODIFYING OR DISTRIBUTING THIS SOFTWARE OR
+ * ITS DERIVATIVES.
+ */
+
+package com.majormode.tool.dbdeploy;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measure the throughput of the whole parsing of a SQL script by the
+ * PostgreSQL deployment manager: the parsing of the SQL constants it
+ * declares, then the splitting of its SQL statements, the replacement
+ * of their SQL constants and the analysis of their dependencies.  No
+ * connection to the relational database management system is opened.
+ * The SQL script is written to a temporary file, as the data of bulk
+ * loading statements are located in the file rather than copied.
+ *
+ * @author Daniel CAUNE (daniel.caune@majormode.com)
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class SQLStatementParsingBenchmark {
+  @Param({ "1000" })
+  public int m_constantCount;
+
+  @Param({ "comment", "constant", "copy", "function" })
+  public String m_corpus;
+
+  @Param({ "1000" })
+  public int m_size;
+
+  /**
+   * Content of the SQL script that is parsed.
+   */
+  protected String m_content;
+
+  /**
+   * Temporary file of the SQL script.
+   */
+  protected Path m_file;
+
+  /**
+   * SQL deployment manager that parses the SQL script.
+   */
+  protected PostgreSQLDeploymentManager m_sqlDeploymentManager;
+
+  /**
+   * SQL script that is parsed.
+   */
+  protected SQLScript m_sqlScript;
+
+  @Setup
+  public void setUp()
+    throws ClassNotFoundException,
+           IOException {
+    m_content = SQLCorpusGenerator.generate(m_corpus, m_size, m_constantCount);
+
+    m_file = Files.createTempFile("create_benchmark_", ".sql");
+    Files.write(m_file, m_content.getBytes(StandardCharsets.UTF_8));
+
+    m_sqlScript = new SQLScript("function", "benchmark", m_file.toString());
+    m_sqlScript.m_content = m_content;
+
+    m_sqlDeploymentManager = new PostgreSQLDeploymentManager(
+        "org.postgresql.Driver", "jdbc:postgresql://localhost/benchmark", "benchmark", "benchmark");
+    m_sqlDeploymentManager.m_sqlConstantSubstitutor =
+      new SQLConstantSubstitutor(SQLCorpusGenerator.generateConstants(m_constantCount));
+  }
+
+  @TearDown
+  public void tearDown()
+    throws IOException {
+    Files.deleteIfExists(m_file);
+  }
+
+  @Benchmark
+  public List parseSQLConstantDeclarations()
+    throws IOException {
+    return m_sqlDeploymentManager.parseSQLConstantDeclarations(m_sqlScript);
+  }
+
+  @Benchmark
+  public Collection parseSQLStatements()
+    throws IOException {
+    return m_sqlDeploymentManager.parseSQLStatements(m_content, m_sqlScript.m_objectTypeName, m_sqlScript,
+        new ArrayList());
+  }
+}
@@ -0,0 +1,64 @@
+#!/usr/bin/env python
+# -*- coding: utf-8 -*-
+#
+# Copyright (C) 2010 Majormode.  All rights reserved.
+#
+# This software is the confidential and proprietary information of
+# Majormode or one of its subsidiaries.  You shall not disclose this
+# confidential information and shall use it only in accordance with
+# the terms of the license agreement or other applicable agreement you
+# entered into with Majormode.
+#
+# MAJORMODE MAKES NO REPRESENTATIONS OR WARRANTIES ABOUT THE
+# SUITABILITY OF THE SOFTWARE, EITHER EXPRESS OR IMPLIED, INCLUDING
+# BUT NOT LIMITED TO THE IMPLIED WARRANTIES OF MERCHANTABILITY,
+# FITNESS FOR A PARTICULAR PURPOSE, OR NON-INFRINGEMENT.  MAJORMODE
+# SHALL NOT BE LIABLE FOR ANY LOSSES OR DAMAGES SUFFERED BY LICENSEE
+# AS A RESULT OF USING, MODIFYING OR DISTRIBUTING THIS SOFTWARE OR ITS
+# DERIVATIVES.
+#
+# @version $Revision$
+
+# Send the arguments of the Database Deployment Tool to a deployment
+# server started with:
+#
+#     java com.majormode.tool.dbdeploy.SQLDeploymentServer [--socket PATH]
+#
+# and print the output of the deployment.  The exit status is this of
+# the deployment.  The pathname of the socket file of the server is
+# read from the environment variable DBDEPLOY_SERVER_SOCKET, if
+# defined.
+
+from __future__ import print_function
+
+import os
+import socket
+import sys
+
+
+DEFAULT_SOCKET_PATHNAME = os.path.join('~', '.dbdeploy', 'server.sock')
+
+STATUS_PREFIX = 'dbdeploy-status: '
+
+
+if __name__ == '__main__':
+    socket_pathname = os.path.expanduser(os.environ.get('DBDEPLOY_SERVER_SOCKET', DEFAULT_SOCKET_PATHNAME))
+
+    request = '\n'.join([ os.getcwd() ] + sys.argv[1:]) + '\n\n'
+
+    connection = socket.socket(socket.AF_UNIX, socket.SOCK_STREAM)
+    connection.connect(socket_pathname)
+    connection.sendall(request.encode('utf-8'))
+
+    status = 1
+    reply = connection.makefile('rb')
+    for line in reply:
+        line = line.decode('utf-8').rstrip('\n')
+        if line.startswith(STATUS_PREFIX):
+            status = int(line[len(STATUS_PREFIX):])
+        else:
+            print(line)
+            sys.stdout.flush()
+
+    connection.close()
+    sys.exit(status)
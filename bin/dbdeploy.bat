@@ -31,4 +31,4 @@ SET LOCAL_CLASSPATH="%DB_DEPLOY_HOME%\lib\dbdeploy.jar"
 SET LOCAL_CLASSPATH=%LOCAL_CLASSPATH%;"%DB_DEPLOY_HOME%\lib\postgresql-8.2-507.jdbc4.jar"
 SET LOCAL_CLASSPATH=%LOCAL_CLASSPATH%;"%DB_DEPLOY_HOME%\lib\jsap-2.1.jar"
 
-java -Xss8192k -classpath "%LOCAL_CLASSPATH%" com.majormode.tool.dbdeploy.Main --rdbms %RDBMS% --jdbc-driver %JDBC_DRIVER% --jdbc-url %JDBC_URL% --username %RDBMS_USERNAME% --password %RDBMS_PASSWORD% %*
+java -classpath "%LOCAL_CLASSPATH%" com.majormode.tool.dbdeploy.Main --rdbms %RDBMS% --jdbc-driver %JDBC_DRIVER% --jdbc-url %JDBC_URL% --username %RDBMS_USERNAME% --password %RDBMS_PASSWORD% %*
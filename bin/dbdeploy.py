@@ -43,7 +43,7 @@ if __name__ == '__main__':
     parser.add_argument('--rdbms', default='postgresql')
     parser.add_argument('--jdbc_driver', default='org.postgresql.Driver')
     parser.add_argument('--jdbc_url', default='jdbc:postgresql://%(hostname)s/%(database)s')
-    parser.add_argument('--java_args', default='-Xss8192k')
+    parser.add_argument('--java_args', default='')
     parser.add_argument('--debug', action='store_true')
     arguments = parser.parse_args()
 
@@ -51,7 +51,7 @@ if __name__ == '__main__':
 
     java_classpath = build_classpath('lib') + build_classpath('build') + [ os.path.join(script_root_path, 'build') ]
 
-    java_args = [ arguments.java_args, '-classpath %s' % os.pathsep.join(java_classpath) ]
+    java_args = ([ arguments.java_args ] if arguments.java_args else []) + [ '-classpath %s' % os.pathsep.join(java_classpath) ]
 
     tool_args = {
         '--rdbms': arguments.rdbms,
@@ -38,7 +38,7 @@ for i in `find $DB_DEPLOY_HOME/build -name "*.jar"` ; do
 done
 
 # Execute the Database Deployment Tool.
-JAVA_ARGS="-Xss8192k -classpath $CLASSPATH"
+JAVA_ARGS="-classpath $CLASSPATH"
 java $JAVA_ARGS com.majormode.tool.dbdeploy.Main \
     --rdbms $RDBMS \
     --jdbc-driver $JDBC_DRIVER \
@@ -0,0 +1,69 @@
+/**
+ * Copyright (C) 1998-2008 Majormode.  All rights reserved.
+ *
+ * This software is the confidential and proprietary information of
+ * Majormode or one of its subsidiaries.  You shall not disclose this
+ * confidential information and shall use it only in accordance with
+ * the terms of the license agreement or other applicable agreement
+ * you entered into with Majormode.
+ *
+ * MAJORMODE MAKES NO REPRESENTATIONS OR WARRANTIES ABOUT THE
+ * SUITABILITY OF THE SOFTWARE, EITHER EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE IMPLIED WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE, OR NON-INFRINGEMENT.  MAJORMODE
+ * SHALL NOT BE LIABLE FOR ANY LOSSES OR DAMAGES SUFFERED BY LICENSEE
+ * AS A RESULT OF USING, MODIFYING OR DISTRIBUTING THIS SOFTWARE OR
+ * ITS DERIVATIVES.
+ */
+
+package com.majormode.tool.dbdeploy;
+
+/**
+ * Revision control system that doesn't rely on any revision keyword
+ * expanded in the source code, such as with Git.  The revision number
+ * of a source code is a fingerprint of its content, computed with the
+ * 64-bit FNV-1a hash function and folded to 32 bits so that it can be
+ * stored as any other revision number.  Such revision numbers only
+ * tell whether a source code has changed since its last deployment.
+ *
+ * @author Daniel CAUNE (daniel.caune@majormode.com)
+ */
+public class ContentHashRevisionControlSystem implements RevisionControlSystem {
+  /**
+   * Offset basis of the 64-bit FNV-1a hash function.
+   */
+  protected static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+  /**
+   * Prime of the 64-bit FNV-1a hash function.
+   */
+  protected static final long FNV_PRIME = 0x100000001b3L;
+
+  /**
+   * Return the 64-bit FNV-1a hash of the specified characters.
+   *
+   * @param content a sequence of characters.
+   *
+   * @return the hash of these characters.
+   */
+  public static long hash(CharSequence content) {
+    long hash = FNV_OFFSET_BASIS;
+
+    for (int i = 0, length = content.length(); i < length; i++) {
+      char c = content.charAt(i);
+      hash = (hash ^ (c & 0xFF)) * FNV_PRIME;
+      hash = (hash ^ (c >>> 8)) * FNV_PRIME;
+    }
+
+    return hash;
+  }
+
+  public boolean hasOrderedRevisionNumbers() {
+    return false;
+  }
+
+  public int parseRevisionNumber(String sourceCode) {
+    long hash = hash(sourceCode);
+    return (int) (hash ^ (hash >>> 32));
+  }
+}
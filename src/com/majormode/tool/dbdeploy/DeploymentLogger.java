@@ -0,0 +1,590 @@
+/**
+ * Copyright (C) 1998-2008 Majormode.  All rights reserved.
+ *
+ * This software is the confidential and proprietary information of
+ * Majormode or one of its subsidiaries.  You shall not disclose this
+ * confidential information and shall use it only in accordance with
+ * the terms of the license agreement or other applicable agreement
+ * you entered into with Majormode.
+ *
+ * MAJORMODE MAKES NO REPRESENTATIONS OR WARRANTIES ABOUT THE
+ * SUITABILITY OF THE SOFTWARE, EITHER EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE IMPLIED WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE, OR NON-INFRINGEMENT.  MAJORMODE
+ * SHALL NOT BE LIABLE FOR ANY LOSSES OR DAMAGES SUFFERED BY LICENSEE
+ * AS A RESULT OF USING, MODIFYING OR DISTRIBUTING THIS SOFTWARE OR
+ * ITS DERIVATIVES.
+ */
+
+package com.majormode.tool.dbdeploy;
+
+import java.io.PrintStream;
+import java.time.Instant;
+import java.util.Date;
+
+/**
+ * Logger of the events of a deployment.  The threads that log events
+ * don't write them: the events are stored in a bounded ring buffer,
+ * and a background thread formats and writes them in chunks, so that
+ * a slow output, such as the log of a continuous integration job,
+ * doesn't slow down the deployment.
+ *
+ * <p>An event has a level, a name, a message, and optional fields
+ * given as pairs of names and values.  The events are written either
+ * as text, where only the message is written, or as JSON lines, where
+ * every event is a JSON object with its time, level, thread, name,
+ * message and fields.  The messages longer than the maximum length
+ * of a statement, such as the SQL expressions of the statements, are
+ * truncated.</p>
+ *
+ * <p>When the ring buffer is full, the debug events are dropped, and
+ * the number of dropped events is logged once some room has been
+ * made; the threads that log events of other levels wait until some
+ * room has been made.</p>
+ *
+ * @author Daniel CAUNE (daniel.caune@majormode.com)
+ */
+public class DeploymentLogger {
+  /**
+   * Default capacity of the ring buffer, in events.
+   */
+  public static final int DEFAULT_CAPACITY = 8192;
+
+  /**
+   * Default maximum length of a message written, beyond which the
+   * message is truncated.
+   */
+  public static final int DEFAULT_MAXIMUM_STATEMENT_LENGTH = 1024;
+
+  /**
+   * Events written as JSON lines.
+   */
+  public static final String FORMAT_JSON = "json";
+
+  /**
+   * Events written as text, one message per line.
+   */
+  public static final String FORMAT_TEXT = "text";
+
+  /**
+   * Level of the events that detail the execution of every SQL
+   * statement.
+   */
+  public static final int LEVEL_DEBUG = 0;
+
+  /**
+   * Level of the events that report the progress of the deployment.
+   */
+  public static final int LEVEL_INFO = 1;
+
+  /**
+   * Level of the events that report a problem that doesn't prevent
+   * the deployment.
+   */
+  public static final int LEVEL_WARNING = 2;
+
+  /**
+   * Level of the events that report a problem that makes the
+   * deployment fail.
+   */
+  public static final int LEVEL_ERROR = 3;
+
+  /**
+   * Names of the levels, indexed by level.
+   */
+  public static final String[] LEVEL_NAMES = { "debug", "info", "warning", "error" };
+
+  /**
+   * Prefixes of the messages written as text, indexed by level.
+   */
+  protected static final String[] TEXT_PREFIXES = { "", "", "Warning: ", "Error: " };
+
+  /**
+   * Number of events stored in the ring buffer.
+   */
+  protected int m_count = 0;
+
+  /**
+   * Number of debug events dropped since the last report.
+   */
+  protected long m_droppedEventCount = 0;
+
+  /**
+   * Names of the events stored in the ring buffer.
+   */
+  protected String[] m_eventNames;
+
+  /**
+   * Fields of the events stored in the ring buffer, as pairs of names
+   * and values.
+   */
+  protected Object[][] m_eventFields;
+
+  /**
+   * Levels of the events stored in the ring buffer.
+   */
+  protected int[] m_eventLevels;
+
+  /**
+   * Messages of the events stored in the ring buffer.
+   */
+  protected String[] m_eventMessages;
+
+  /**
+   * Names of the threads that logged the events stored in the ring
+   * buffer.
+   */
+  protected String[] m_eventThreadNames;
+
+  /**
+   * Times in milliseconds of the events stored in the ring buffer.
+   */
+  protected long[] m_eventTimes;
+
+  /**
+   * Format of the events written, either <code>FORMAT_TEXT</code> or
+   * <code>FORMAT_JSON</code>.
+   */
+  protected String m_format = FORMAT_TEXT;
+
+  /**
+   * Index of the oldest event stored in the ring buffer.
+   */
+  protected int m_head = 0;
+
+  /**
+   * Level below which the events are discarded.
+   */
+  protected int m_level = LEVEL_INFO;
+
+  /**
+   * Maximum length of a message written, or <code>0</code> if the
+   * messages are never truncated.
+   */
+  protected int m_maximumStatementLength = DEFAULT_MAXIMUM_STATEMENT_LENGTH;
+
+  /**
+   * Stream the events are written to, or <code>null</code> if the
+   * events are written to the standard output as it is defined when
+   * they are written.
+   */
+  protected PrintStream m_outputStream;
+
+  /**
+   * Indicate whether the writer is writing events that have been
+   * removed from the ring buffer.
+   */
+  protected boolean m_writing = false;
+
+  /**
+   * Background thread that writes the events, or <code>null</code> if
+   * it has not been started yet or if it has been stopped.
+   */
+  protected Thread m_writerThread = null;
+
+  /**
+   * Build a logger that writes the events to the standard output, with
+   * a ring buffer of the default capacity.
+   */
+  public DeploymentLogger() {
+    this(null, DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Build a logger that writes the events to the specified stream.
+   *
+   * @param outputStream the stream the events are written to, or
+   *        <code>null</code> to write them to the standard output as
+   *        it is defined when they are written.
+   * @param capacity the capacity of the ring buffer, in events.
+   */
+  public DeploymentLogger(PrintStream outputStream, int capacity) {
+    m_outputStream = outputStream;
+    m_eventNames = new String[capacity];
+    m_eventFields = new Object[capacity][];
+    m_eventLevels = new int[capacity];
+    m_eventMessages = new String[capacity];
+    m_eventThreadNames = new String[capacity];
+    m_eventTimes = new long[capacity];
+  }
+
+  /**
+   * Append the specified event, formatted according to the format of
+   * this logger.
+   *
+   * @param output the buffer to append the event to.
+   * @param time the time in milliseconds of the event.
+   * @param level the level of the event.
+   * @param threadName the name of the thread that logged the event.
+   * @param eventName the name of the event.
+   * @param message the message of the event.
+   * @param fields the fields of the event, as pairs of names and
+   *        values.
+   */
+  protected void appendEvent(
+      StringBuilder output,
+      long time,
+      int level,
+      String threadName,
+      String eventName,
+      String message,
+      Object[] fields) {
+    if (FORMAT_TEXT.equals(m_format)) {
+      output.append(TEXT_PREFIXES[level]).append(truncate(message)).append('\n');
+      return;
+    }
+
+    output.append("{\"time\":\"").append(Instant.ofEpochMilli(time))
+        .append("\",\"level\":\"").append(LEVEL_NAMES[level])
+        .append("\",\"thread\":").append(DeploymentMetrics.quoteJSON(threadName))
+        .append(",\"event\":").append(DeploymentMetrics.quoteJSON(eventName))
+        .append(",\"message\":");
+    appendJSONValue(output, truncate(message));
+
+    for (int i = 0; i + 1 < fields.length; i += 2) {
+      output.append(',').append(DeploymentMetrics.quoteJSON(String.valueOf(fields[i]))).append(':');
+      appendJSONValue(output, fields[i + 1]);
+    }
+
+    output.append("}\n");
+  }
+
+  /**
+   * Append the JSON representation of the specified value.
+   *
+   * @param json the buffer to append the value to.
+   * @param value a value.
+   */
+  protected void appendJSONValue(StringBuilder json, Object value) {
+    if ((value == null) || (value instanceof Number) || (value instanceof Boolean))
+      json.append(value);
+    else if (value instanceof Date)
+      json.append('"').append(((Date) value).toInstant()).append('"');
+    else
+      json.append(DeploymentMetrics.quoteJSON(value.toString()));
+  }
+
+  /**
+   * Write every event logged so far, and stop the background writer.
+   * The writer is started again if some other events are logged.
+   */
+  public void close() {
+    Thread writerThread;
+    synchronized (this) {
+      writerThread = m_writerThread;
+      m_writerThread = null;
+      notifyAll();
+    }
+
+    if (writerThread != null) {
+      try {
+        writerThread.join();
+      } catch (InterruptedException exception) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * Log an event at the debug level.
+   *
+   * @param eventName the name of the event.
+   * @param message the message of the event.
+   * @param fields the fields of the event, as pairs of names and
+   *        values.
+   */
+  public void debug(String eventName, String message, Object... fields) {
+    log(LEVEL_DEBUG, eventName, message, fields);
+  }
+
+  /**
+   * Log an event at the error level.
+   *
+   * @param eventName the name of the event.
+   * @param message the message of the event.
+   * @param fields the fields of the event, as pairs of names and
+   *        values.
+   */
+  public void error(String eventName, String message, Object... fields) {
+    log(LEVEL_ERROR, eventName, message, fields);
+  }
+
+  /**
+   * Wait until every event logged so far has been written.
+   */
+  public synchronized void flush() {
+    while (((m_count > 0) || m_writing) && (m_writerThread != null)) {
+      try {
+        wait();
+      } catch (InterruptedException exception) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+  }
+
+  /**
+   * Return the level of the specified name.
+   *
+   * @param levelName the name of a level, as defined by
+   *        <code>LEVEL_NAMES</code>.
+   *
+   * @return the level.
+   *
+   * @throws IllegalArgumentException if the name doesn't correspond to
+   *         any level.
+   */
+  public static int getLevel(String levelName) {
+    for (int i = 0; i < LEVEL_NAMES.length; i++)
+      if (LEVEL_NAMES[i].equalsIgnoreCase(levelName))
+        return i;
+
+    throw new IllegalArgumentException("Unsupported log level \"" + levelName + "\"");
+  }
+
+  /**
+   * Log an event at the info level.
+   *
+   * @param eventName the name of the event.
+   * @param message the message of the event.
+   * @param fields the fields of the event, as pairs of names and
+   *        values.
+   */
+  public void info(String eventName, String message, Object... fields) {
+    log(LEVEL_INFO, eventName, message, fields);
+  }
+
+  /**
+   * Indicate whether the events of the specified level are logged.
+   *
+   * @param level a level.
+   *
+   * @return <code>true</code> if the events of this level are logged;
+   *         <code>false</code> otherwise.
+   */
+  public boolean isEnabled(int level) {
+    return level >= m_level;
+  }
+
+  /**
+   * Log an event.  The event is only stored in the ring buffer; it is
+   * formatted and written later by the background writer.
+   *
+   * @param level the level of the event.
+   * @param eventName the name of the event.
+   * @param message the message of the event.
+   * @param fields the fields of the event, as pairs of names and
+   *        values.
+   */
+  public void log(int level, String eventName, String message, Object... fields) {
+    if (!isEnabled(level))
+      return;
+
+    long time = System.currentTimeMillis();
+    String threadName = Thread.currentThread().getName();
+
+    synchronized (this) {
+      while (m_count == m_eventLevels.length) {
+        if (level == LEVEL_DEBUG) {
+          m_droppedEventCount++;
+          return;
+        }
+
+        try {
+          wait();
+        } catch (InterruptedException exception) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+      }
+
+      int tail = (m_head + m_count) % m_eventLevels.length;
+      m_eventTimes[tail] = time;
+      m_eventLevels[tail] = level;
+      m_eventThreadNames[tail] = threadName;
+      m_eventNames[tail] = eventName;
+      m_eventMessages[tail] = message;
+      m_eventFields[tail] = fields;
+      m_count++;
+
+      if (m_writerThread == null)
+        startWriter();
+      else if (m_count == 1)
+        notifyAll();
+    }
+  }
+
+  /**
+   * Define the format of the events written.
+   *
+   * @param format <code>FORMAT_TEXT</code> or
+   *        <code>FORMAT_JSON</code>.
+   *
+   * @throws IllegalArgumentException if the format is not supported.
+   */
+  public synchronized void setFormat(String format) {
+    if (!FORMAT_TEXT.equals(format) && !FORMAT_JSON.equals(format))
+      throw new IllegalArgumentException("Unsupported log format \"" + format + "\"");
+
+    m_format = format;
+  }
+
+  /**
+   * Define the level below which the events are discarded.
+   *
+   * @param level a level.
+   */
+  public void setLevel(int level) {
+    m_level = level;
+  }
+
+  /**
+   * Define the maximum length of a message written, such as the SQL
+   * expression of a statement, beyond which the message is truncated.
+   *
+   * @param maximumStatementLength a number of characters, or
+   *        <code>0</code> if the messages are never truncated.
+   */
+  public synchronized void setMaximumStatementLength(int maximumStatementLength) {
+    m_maximumStatementLength = maximumStatementLength;
+  }
+
+  /**
+   * Define the stream the events are written to.  The events logged so
+   * far are written to the previous stream first.
+   *
+   * @param outputStream the stream the events are written to, or
+   *        <code>null</code> to write them to the standard output as
+   *        it is defined when they are written.
+   */
+  public synchronized void setOutputStream(PrintStream outputStream) {
+    flush();
+    m_outputStream = outputStream;
+  }
+
+  /**
+   * Start the background writer.
+   */
+  protected void startWriter() {
+    m_writerThread = new Thread(new Runnable() {
+      public void run() {
+        write();
+      }
+    }, "dbdeploy-log-writer");
+    m_writerThread.setDaemon(true);
+    m_writerThread.start();
+  }
+
+  /**
+   * Truncate the specified message to the maximum length of a
+   * statement.
+   *
+   * @param message a message, or <code>null</code>.
+   *
+   * @return the message, truncated if it is too long.
+   */
+  protected String truncate(String message) {
+    if ((message == null) || (m_maximumStatementLength <= 0) || (message.length() <= m_maximumStatementLength))
+      return message;
+
+    return message.substring(0, m_maximumStatementLength)
+        + "... (" + (message.length() - m_maximumStatementLength) + " more characters)";
+  }
+
+  /**
+   * Log an event at the warning level.
+   *
+   * @param eventName the name of the event.
+   * @param message the message of the event.
+   * @param fields the fields of the event, as pairs of names and
+   *        values.
+   */
+  public void warning(String eventName, String message, Object... fields) {
+    log(LEVEL_WARNING, eventName, message, fields);
+  }
+
+  /**
+   * Write the events of the ring buffer as they are logged, until the
+   * writer is stopped and every event has been written.  The events
+   * are moved out of the ring buffer in chunks, and they are formatted
+   * and written once the ring buffer has been released, so that the
+   * threads that log events only wait for the output when the ring
+   * buffer is full.
+   */
+  protected void write() {
+    Thread writerThread = Thread.currentThread();
+    int capacity = m_eventLevels.length;
+    long[] eventTimes = new long[capacity];
+    int[] eventLevels = new int[capacity];
+    String[] eventThreadNames = new String[capacity];
+    String[] eventNames = new String[capacity];
+    String[] eventMessages = new String[capacity];
+    Object[][] eventFields = new Object[capacity][];
+    StringBuilder output = new StringBuilder();
+
+    while (true) {
+      int count = 0;
+      long droppedEventCount;
+      PrintStream outputStream;
+
+      synchronized (this) {
+        m_writing = false;
+        notifyAll();
+
+        while ((m_count == 0) && (m_writerThread == writerThread)) {
+          try {
+            wait();
+          } catch (InterruptedException exception) {
+            return;
+          }
+        }
+
+        if (m_count == 0)
+          return;
+
+        while (m_count > 0) {
+          eventTimes[count] = m_eventTimes[m_head];
+          eventLevels[count] = m_eventLevels[m_head];
+          eventThreadNames[count] = m_eventThreadNames[m_head];
+          eventNames[count] = m_eventNames[m_head];
+          eventMessages[count] = m_eventMessages[m_head];
+          eventFields[count] = m_eventFields[m_head];
+          count++;
+
+          m_eventThreadNames[m_head] = null;
+          m_eventNames[m_head] = null;
+          m_eventMessages[m_head] = null;
+          m_eventFields[m_head] = null;
+          m_head = (m_head + 1) % capacity;
+          m_count--;
+        }
+
+        droppedEventCount = m_droppedEventCount;
+        m_droppedEventCount = 0;
+        outputStream = (m_outputStream == null) ? System.out : m_outputStream;
+
+        m_writing = true;
+        notifyAll();
+      }
+
+      output.setLength(0);
+      for (int i = 0; i < count; i++) {
+        appendEvent(output, eventTimes[i], eventLevels[i], eventThreadNames[i], eventNames[i], eventMessages[i],
+            eventFields[i]);
+
+        eventThreadNames[i] = null;
+        eventNames[i] = null;
+        eventMessages[i] = null;
+        eventFields[i] = null;
+      }
+
+      if (droppedEventCount > 0)
+        appendEvent(output, System.currentTimeMillis(), LEVEL_WARNING, writerThread.getName(), "log.dropped",
+            droppedEventCount + " debug events dropped as the log was full",
+            new Object[] { "count", Long.valueOf(droppedEventCount) });
+
+      outputStream.print(output);
+      outputStream.flush();
+    }
+  }
+}
@@ -0,0 +1,655 @@
+/**
+ * Copyright (C) 1998-2008 Majormode.  All rights reserved.
+ *
+ * This software is the confidential and proprietary information of
+ * Majormode or one of its subsidiaries.  You shall not disclose this
+ * confidential information and shall use it only in accordance with
+ * the terms of the license agreement or other applicable agreement
+ * you entered into with Majormode.
+ *
+ * MAJORMODE MAKES NO REPRESENTATIONS OR WARRANTIES ABOUT THE
+ * SUITABILITY OF THE SOFTWARE, EITHER EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE IMPLIED WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE, OR NON-INFRINGEMENT.  MAJORMODE
+ * SHALL NOT BE LIABLE FOR ANY LOSSES OR DAMAGES SUFFERED BY LICENSEE
+ * AS A RESULT OF USING, MODIFYING OR DISTRIBUTING THIS SOFTWARE OR
+ * ITS DERIVATIVES.
+ */
+
+package com.majormode.tool.dbdeploy;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Metrics of a deployment: the time spent in each of its phases, the
+ * latencies of the SQL statements and of the SQL scripts executed, and
+ * the counts of the retries, the connections and the bulk loaded data.
+ * The metrics may be recorded concurrently by the workers of the SQL
+ * deployment manager.  They are exported at the end of the deployment
+ * in JSON, or in the text format of Prometheus so that the file can be
+ * collected by the textfile collector of the node exporter.
+ *
+ * <p>The time of a phase whose work is shared by several threads, such
+ * as the substitution of the SQL constants, is the sum of the time
+ * of every thread, which may exceed the elapsed time of the
+ * deployment.</p>
+ *
+ * @author Daniel CAUNE (daniel.caune@majormode.com)
+ */
+public class DeploymentMetrics {
+  /**
+   * Maximum number of the slowest SQL scripts reported in JSON.
+   */
+  public static final int MAXIMUM_SLOWEST_SQL_SCRIPT_COUNT = 10;
+
+  /**
+   * Prefix of the names of the metrics exported to Prometheus.
+   */
+  public static final String METRIC_NAME_PREFIX = "dbdeploy_";
+
+  /**
+   * Phase where the SQL constants declared in the SQL scripts are
+   * parsed.
+   */
+  public static final String PHASE_CONSTANT_DECLARATION = "constant_declaration";
+
+  /**
+   * Phase where the SQL constants used in the SQL statements are
+   * replaced by their values, summed over the parser threads.
+   */
+  public static final String PHASE_CONSTANT_SUBSTITUTION = "constant_substitution";
+
+  /**
+   * Phase where the SQL statements are executed.
+   */
+  public static final String PHASE_EXECUTION = "execution";
+
+  /**
+   * Phase where the SQL scripts are parsed into SQL statements.
+   */
+  public static final String PHASE_PARSING = "parsing";
+
+  /**
+   * Time spent in executing SQL statements that failed because of a
+   * dependency on a database object that had not been created yet,
+   * and batches that failed and were executed again statement by
+   * statement.
+   */
+  public static final String PHASE_RETRYING = "retrying";
+
+  /**
+   * Phase where the revision control records are read and written.
+   */
+  public static final String PHASE_REVISION_CONTROL = "revision_control";
+
+  /**
+   * Phase where the SQL script files are collected.
+   */
+  public static final String PHASE_SCANNING = "scanning";
+
+  /**
+   * Phase where the SQL statements are ordered according to their
+   * dependencies.
+   */
+  public static final String PHASE_SCHEDULING = "scheduling";
+
+  /**
+   * Time spent in waiting for a session of the pool to be available,
+   * summed over the workers.
+   */
+  public static final String PHASE_SESSION_WAITING = "session_waiting";
+
+  /**
+   * Time spent by the calling thread in waiting for the other workers
+   * to complete a stage.
+   */
+  public static final String PHASE_STAGE_WAITING = "stage_waiting";
+
+  /**
+   * Latencies of the batches of SQL statements.
+   */
+  protected LatencyHistogram m_batchLatencies = new LatencyHistogram();
+
+  /**
+   * Number of batches executed.
+   */
+  protected long m_batchCount = 0;
+
+  /**
+   * Number of connections opened with the relational database
+   * management system, including the reconnections.
+   */
+  protected long m_connectionCount = 0;
+
+  /**
+   * Number of bytes bulk loaded.
+   */
+  protected long m_copyByteCount = 0;
+
+  /**
+   * Number of rows bulk loaded.
+   */
+  protected long m_copyRowCount = 0;
+
+  /**
+   * Number of tables bulk loaded.
+   */
+  protected long m_copyTableCount = 0;
+
+  /**
+   * Time in milliseconds when the deployment completed, or
+   * <code>0</code> if the deployment has not completed yet.
+   */
+  protected long m_endTime = 0;
+
+  /**
+   * Number of batches that failed and which SQL statements have been
+   * executed again one by one.
+   */
+  protected long m_failedBatchCount = 0;
+
+  /**
+   * Time in nanoseconds spent in each phase, keyed by the name of the
+   * phase, in the order the phases have been first recorded.
+   */
+  protected LinkedHashMap m_phaseTimes = new LinkedHashMap();
+
+  /**
+   * Number of executions of SQL statements that failed because of a
+   * dependency on a database object that had not been created yet.
+   */
+  protected long m_retryCount = 0;
+
+  /**
+   * Time in nanoseconds spent in executing the SQL statements of each
+   * SQL script, keyed by the path name of the SQL script file.
+   */
+  protected HashMap m_sqlScriptTimes = new HashMap();
+
+  /**
+   * Time in milliseconds when the recording of these metrics started.
+   */
+  protected long m_startTime = System.currentTimeMillis();
+
+  /**
+   * Latencies of the SQL statements executed one by one.
+   */
+  protected LatencyHistogram m_statementLatencies = new LatencyHistogram();
+
+  /**
+   * Number of executions of SQL statements, whether they succeeded or
+   * not, including the SQL statements executed in batches.
+   */
+  protected long m_statementCount = 0;
+
+  /**
+   * Indicate whether the deployment succeeded, or <code>null</code> if
+   * the deployment has not completed yet.
+   */
+  protected Boolean m_succeeded = null;
+
+  /**
+   * Add the specified number of opened connections.
+   *
+   * @param connectionCount a number of connections.
+   */
+  public synchronized void addConnectionCount(long connectionCount) {
+    m_connectionCount += connectionCount;
+  }
+
+  /**
+   * Add the statistics of the bulk loading statements executed.
+   *
+   * @param copyStatistics the statistics of the bulk loading
+   *        statements.
+   */
+  public synchronized void addCopyStatistics(SQLCopyStatistics copyStatistics) {
+    m_copyByteCount += copyStatistics.getByteCount();
+    m_copyRowCount += copyStatistics.getRowCount();
+    m_copyTableCount += copyStatistics.getTableCount();
+  }
+
+  /**
+   * Add the specified time to a phase.
+   *
+   * @param phase the name of the phase.
+   * @param duration a duration in nanoseconds.
+   */
+  public synchronized void addPhaseTime(String phase, long duration) {
+    long[] phaseTime = (long[]) m_phaseTimes.get(phase);
+    if (phaseTime == null) {
+      phaseTime = new long[1];
+      m_phaseTimes.put(phase, phaseTime);
+    }
+    phaseTime[0] += duration;
+  }
+
+  /**
+   * Add the time elapsed since the specified time to a phase.
+   *
+   * @param phase the name of the phase.
+   * @param startTime a time in nanoseconds, as returned by
+   *        <code>System.nanoTime</code>.
+   */
+  public void addPhaseTimeSince(String phase, long startTime) {
+    addPhaseTime(phase, System.nanoTime() - startTime);
+  }
+
+  /**
+   * Return the duration of the deployment.
+   *
+   * @return the duration in seconds of the deployment, or of its
+   *         part completed so far if it is still in progress.
+   */
+  public synchronized double getDuration() {
+    long endTime = (m_endTime == 0) ? System.currentTimeMillis() : m_endTime;
+    return (endTime - m_startTime) / 1000.0;
+  }
+
+  /**
+   * Return the latencies of the SQL scripts, as the time spent in
+   * executing their SQL statements.
+   *
+   * @return the histogram of the latencies of the SQL scripts.
+   */
+  public synchronized LatencyHistogram getSQLScriptLatencies() {
+    LatencyHistogram sqlScriptLatencies = new LatencyHistogram();
+    for (Iterator iterator = m_sqlScriptTimes.values().iterator(); iterator.hasNext(); )
+      sqlScriptLatencies.record(((long[]) iterator.next())[0]);
+    return sqlScriptLatencies;
+  }
+
+  /**
+   * Return the time spent in the specified phase.
+   *
+   * @param phase the name of the phase.
+   *
+   * @return the time in seconds spent in this phase.
+   */
+  public synchronized double getPhaseTime(String phase) {
+    long[] phaseTime = (long[]) m_phaseTimes.get(phase);
+    return (phaseTime == null) ? 0 : phaseTime[0] / LatencyHistogram.NANOSECONDS_PER_SECOND;
+  }
+
+  /**
+   * Return the number of executions of SQL statements that failed
+   * because of a dependency on a database object that had not been
+   * created yet.
+   *
+   * @return the number of retries.
+   */
+  public synchronized long getRetryCount() {
+    return m_retryCount;
+  }
+
+  /**
+   * Return the number of executions of SQL statements.
+   *
+   * @return the number of executions.
+   */
+  public synchronized long getStatementCount() {
+    return m_statementCount;
+  }
+
+  /**
+   * Return the specified string as a JSON string literal.
+   *
+   * @param string a string.
+   *
+   * @return the string enclosed in double quotes, where the quotes,
+   *         the backslashes and the control characters are escaped.
+   */
+  public static String quoteJSON(String string) {
+    StringBuilder quotedString = new StringBuilder(string.length() + 2);
+    quotedString.append('"');
+    for (int i = 0; i < string.length(); i++) {
+      char c = string.charAt(i);
+      switch (c) {
+      case '"':
+        quotedString.append("\\\"");
+        break;
+      case '\\':
+        quotedString.append("\\\\");
+        break;
+      case '\n':
+        quotedString.append("\\n");
+        break;
+      case '\r':
+        quotedString.append("\\r");
+        break;
+      case '\t':
+        quotedString.append("\\t");
+        break;
+      default:
+        if (c < 0x20)
+          quotedString.append(String.format("\\u%04x", (int) c));
+        else
+          quotedString.append(c);
+      }
+    }
+    return quotedString.append('"').toString();
+  }
+
+  /**
+   * Record the execution of a batch of SQL statements.  The time of a
+   * batch that failed is accounted as retrying time, as its SQL
+   * statements are executed again one by one.
+   *
+   * @param sqlStatements the list of the <code>SQLStatement</code>
+   *        objects of the batch, which belong to a same SQL script.
+   * @param duration the duration in nanoseconds of the batch.
+   * @param succeeded indicate whether the batch succeeded.
+   */
+  public synchronized void recordBatch(List sqlStatements, long duration, boolean succeeded) {
+    m_batchLatencies.record(duration);
+    m_batchCount++;
+    m_statementCount += sqlStatements.size();
+    recordSQLScriptTime(((SQLStatement) sqlStatements.get(0)).m_sqlScript, duration);
+
+    if (!succeeded) {
+      m_failedBatchCount++;
+      addPhaseTime(PHASE_RETRYING, duration);
+    }
+  }
+
+  /**
+   * Add the specified time to the execution time of a SQL script.
+   *
+   * @param sqlScript a SQL script.
+   * @param duration a duration in nanoseconds.
+   */
+  protected void recordSQLScriptTime(SQLScript sqlScript, long duration) {
+    long[] sqlScriptTime = (long[]) m_sqlScriptTimes.get(sqlScript.m_filePathname);
+    if (sqlScriptTime == null) {
+      sqlScriptTime = new long[1];
+      m_sqlScriptTimes.put(sqlScript.m_filePathname, sqlScriptTime);
+    }
+    sqlScriptTime[0] += duration;
+  }
+
+  /**
+   * Record the execution of a SQL statement on its own.
+   *
+   * @param sqlStatement the SQL statement executed.
+   * @param duration the duration in nanoseconds of the execution.
+   * @param succeeded <code>false</code> if the execution failed
+   *        because of a dependency on a database object that had not
+   *        been created yet; <code>true</code> otherwise.
+   */
+  public synchronized void recordStatement(SQLStatement sqlStatement, long duration, boolean succeeded) {
+    m_statementLatencies.record(duration);
+    m_statementCount++;
+    recordSQLScriptTime(sqlStatement.m_sqlScript, duration);
+
+    if (!succeeded) {
+      m_retryCount++;
+      addPhaseTime(PHASE_RETRYING, duration);
+    }
+  }
+
+  /**
+   * Discard every metric recorded so far, before a new deployment.
+   */
+  public synchronized void reset() {
+    m_batchLatencies = new LatencyHistogram();
+    m_batchCount = 0;
+    m_connectionCount = 0;
+    m_copyByteCount = 0;
+    m_copyRowCount = 0;
+    m_copyTableCount = 0;
+    m_endTime = 0;
+    m_failedBatchCount = 0;
+    m_phaseTimes.clear();
+    m_retryCount = 0;
+    m_sqlScriptTimes.clear();
+    m_startTime = System.currentTimeMillis();
+    m_statementLatencies = new LatencyHistogram();
+    m_statementCount = 0;
+    m_succeeded = null;
+  }
+
+  /**
+   * Define whether the deployment succeeded, which marks the end of
+   * the deployment.
+   *
+   * @param succeeded indicate whether the deployment succeeded.
+   */
+  public synchronized void setSucceeded(boolean succeeded) {
+    m_succeeded = Boolean.valueOf(succeeded);
+    m_endTime = System.currentTimeMillis();
+  }
+
+  /**
+   * Format the specified number of seconds.
+   *
+   * @param seconds a number of seconds.
+   *
+   * @return the number of seconds, with six decimals.
+   */
+  protected static String formatSeconds(double seconds) {
+    return String.format(Locale.ROOT, "%.6f", seconds);
+  }
+
+  /**
+   * Return the JSON representation of the specified histogram.
+   *
+   * @param histogram a histogram of latencies.
+   *
+   * @return the JSON object of the histogram.
+   */
+  protected static String toJSON(LatencyHistogram histogram) {
+    StringBuilder json = new StringBuilder();
+    json.append("{ \"count\": ").append(histogram.getCount())
+        .append(", \"sum_seconds\": ").append(formatSeconds(histogram.getSum()))
+        .append(", \"max_seconds\": ").append(formatSeconds(histogram.getMaximum()))
+        .append(", \"p50_seconds\": ").append(formatSeconds(histogram.getQuantile(0.5)))
+        .append(", \"p99_seconds\": ").append(formatSeconds(histogram.getQuantile(0.99)))
+        .append(", \"buckets\": {");
+
+    double[] bucketBounds = histogram.getBucketBounds();
+    long[] cumulativeCounts = histogram.getCumulativeCounts();
+    for (int i = 0; i < bucketBounds.length; i++)
+      json.append(" \"").append(bucketBounds[i]).append("\": ").append(cumulativeCounts[i]).append(',');
+
+    return json.append(" \"+Inf\": ").append(cumulativeCounts[bucketBounds.length]).append(" } }").toString();
+  }
+
+  /**
+   * Return the JSON representation of these metrics.
+   *
+   * @return the JSON document of the metrics.
+   */
+  public synchronized String toJSON() {
+    StringBuilder json = new StringBuilder();
+    json.append("{\n")
+        .append("  \"start_time\": ").append(m_startTime).append(",\n")
+        .append("  \"duration_seconds\": ").append(formatSeconds(getDuration())).append(",\n")
+        .append("  \"succeeded\": ").append(m_succeeded).append(",\n")
+        .append("  \"phases_seconds\": {");
+
+    for (Iterator iterator = m_phaseTimes.keySet().iterator(); iterator.hasNext(); ) {
+      String phase = (String) iterator.next();
+      json.append("\n    ").append(quoteJSON(phase)).append(": ").append(formatSeconds(getPhaseTime(phase)));
+      if (iterator.hasNext())
+        json.append(',');
+    }
+
+    json.append("\n  },\n")
+        .append("  \"statement_count\": ").append(m_statementCount).append(",\n")
+        .append("  \"retry_count\": ").append(m_retryCount).append(",\n")
+        .append("  \"batch_count\": ").append(m_batchCount).append(",\n")
+        .append("  \"failed_batch_count\": ").append(m_failedBatchCount).append(",\n")
+        .append("  \"connection_count\": ").append(m_connectionCount).append(",\n")
+        .append("  \"copy_table_count\": ").append(m_copyTableCount).append(",\n")
+        .append("  \"copy_row_count\": ").append(m_copyRowCount).append(",\n")
+        .append("  \"copy_byte_count\": ").append(m_copyByteCount).append(",\n")
+        .append("  \"statement_latencies\": ").append(toJSON(m_statementLatencies)).append(",\n")
+        .append("  \"batch_latencies\": ").append(toJSON(m_batchLatencies)).append(",\n")
+        .append("  \"script_latencies\": ").append(toJSON(getSQLScriptLatencies())).append(",\n")
+        .append("  \"slowest_scripts\": [");
+
+    List sqlScriptTimes = new ArrayList(m_sqlScriptTimes.entrySet());
+    Collections.sort(sqlScriptTimes, new Comparator() {
+      public int compare(Object object1, Object object2) {
+        return Long.compare(((long[]) ((Map.Entry) object2).getValue())[0], ((long[]) ((Map.Entry) object1).getValue())[0]);
+      }
+    });
+
+    int sqlScriptCount = Math.min(sqlScriptTimes.size(), MAXIMUM_SLOWEST_SQL_SCRIPT_COUNT);
+    for (int i = 0; i < sqlScriptCount; i++) {
+      Map.Entry sqlScriptTime = (Map.Entry) sqlScriptTimes.get(i);
+      json.append("\n    { \"file\": ").append(quoteJSON((String) sqlScriptTime.getKey()))
+          .append(", \"seconds\": ").append(formatSeconds(((long[]) sqlScriptTime.getValue())[0] / LatencyHistogram.NANOSECONDS_PER_SECOND))
+          .append(" }");
+      if (i < sqlScriptCount - 1)
+        json.append(',');
+    }
+
+    return json.append("\n  ]\n}\n").toString();
+  }
+
+  /**
+   * Append a gauge in the text format of Prometheus.
+   *
+   * @param text the buffer to append the gauge to.
+   * @param name the name of the gauge, without its prefix.
+   * @param help the description of the gauge.
+   * @param value the value of the gauge.
+   */
+  protected static void appendGauge(StringBuilder text, String name, String help, Object value) {
+    text.append("# HELP ").append(METRIC_NAME_PREFIX).append(name).append(' ').append(help).append('\n')
+        .append("# TYPE ").append(METRIC_NAME_PREFIX).append(name).append(" gauge\n")
+        .append(METRIC_NAME_PREFIX).append(name).append(' ').append(value).append('\n');
+  }
+
+  /**
+   * Append a histogram in the text format of Prometheus.
+   *
+   * @param text the buffer to append the histogram to.
+   * @param name the name of the histogram, without its prefix.
+   * @param help the description of the histogram.
+   * @param histogram the histogram.
+   */
+  protected static void appendHistogram(StringBuilder text, String name, String help, LatencyHistogram histogram) {
+    text.append("# HELP ").append(METRIC_NAME_PREFIX).append(name).append(' ').append(help).append('\n')
+        .append("# TYPE ").append(METRIC_NAME_PREFIX).append(name).append(" histogram\n");
+
+    double[] bucketBounds = histogram.getBucketBounds();
+    long[] cumulativeCounts = histogram.getCumulativeCounts();
+    for (int i = 0; i < bucketBounds.length; i++)
+      text.append(METRIC_NAME_PREFIX).append(name).append("_bucket{le=\"").append(bucketBounds[i]).append("\"} ")
+          .append(cumulativeCounts[i]).append('\n');
+
+    text.append(METRIC_NAME_PREFIX).append(name).append("_bucket{le=\"+Inf\"} ")
+        .append(cumulativeCounts[bucketBounds.length]).append('\n')
+        .append(METRIC_NAME_PREFIX).append(name).append("_sum ").append(formatSeconds(histogram.getSum())).append('\n')
+        .append(METRIC_NAME_PREFIX).append(name).append("_count ").append(histogram.getCount()).append('\n');
+  }
+
+  /**
+   * Return the representation of these metrics in the text format of
+   * Prometheus.  The values describe the last deployment, which is why
+   * the counts are exported as gauges.
+   *
+   * @return the text of the metrics.
+   */
+  public synchronized String toPrometheusText() {
+    StringBuilder text = new StringBuilder();
+    appendGauge(text, "last_run_timestamp_seconds", "Time when the last deployment started.",
+        formatSeconds(m_startTime / 1000.0));
+    appendGauge(text, "last_run_duration_seconds", "Duration of the last deployment.",
+        formatSeconds(getDuration()));
+    appendGauge(text, "last_run_success", "Whether the last deployment succeeded.",
+        Boolean.TRUE.equals(m_succeeded) ? "1" : "0");
+
+    String phaseName = METRIC_NAME_PREFIX + "last_run_phase_seconds";
+    text.append("# HELP ").append(phaseName).append(" Time spent in each phase of the last deployment.\n")
+        .append("# TYPE ").append(phaseName).append(" gauge\n");
+    for (Iterator iterator = m_phaseTimes.keySet().iterator(); iterator.hasNext(); ) {
+      String phase = (String) iterator.next();
+      text.append(phaseName).append("{phase=\"").append(phase).append("\"} ")
+          .append(formatSeconds(getPhaseTime(phase))).append('\n');
+    }
+
+    appendGauge(text, "last_run_statements", "Number of executions of SQL statements.", Long.valueOf(m_statementCount));
+    appendGauge(text, "last_run_retries", "Number of executions that failed on a missing dependency.", Long.valueOf(m_retryCount));
+    appendGauge(text, "last_run_batches", "Number of batches of SQL statements executed.", Long.valueOf(m_batchCount));
+    appendGauge(text, "last_run_failed_batches", "Number of batches executed again statement by statement.", Long.valueOf(m_failedBatchCount));
+    appendGauge(text, "last_run_connections", "Number of connections opened, reconnections included.", Long.valueOf(m_connectionCount));
+    appendGauge(text, "last_run_copy_tables", "Number of tables bulk loaded.", Long.valueOf(m_copyTableCount));
+    appendGauge(text, "last_run_copy_rows", "Number of rows bulk loaded.", Long.valueOf(m_copyRowCount));
+    appendGauge(text, "last_run_copy_bytes", "Number of bytes bulk loaded.", Long.valueOf(m_copyByteCount));
+
+    appendHistogram(text, "last_run_statement_duration_seconds", "Latencies of the SQL statements executed one by one.",
+        m_statementLatencies);
+    appendHistogram(text, "last_run_batch_duration_seconds", "Latencies of the batches of SQL statements.",
+        m_batchLatencies);
+    appendHistogram(text, "last_run_script_duration_seconds", "Time spent in executing the SQL statements of each script.",
+        getSQLScriptLatencies());
+
+    return text.toString();
+  }
+
+  /**
+   * Write the specified text to a file, replacing it atomically so that
+   * a collector never reads a partially written file.
+   *
+   * @param filePath the path of the file.
+   * @param text the text to write.
+   *
+   * @throws IOException if the file cannot be written.
+   */
+  protected static void write(Path filePath, String text)
+    throws IOException {
+    Path directory = filePath.toAbsolutePath().getParent();
+    Files.createDirectories(directory);
+
+    Path temporaryPath = Files.createTempFile(directory, null, null);
+    try {
+      Files.write(temporaryPath, text.getBytes(StandardCharsets.UTF_8));
+      Files.move(temporaryPath, filePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(temporaryPath);
+    }
+  }
+
+  /**
+   * Write these metrics in JSON to the specified file.
+   *
+   * @param filePath the path of the file.
+   *
+   * @throws IOException if the file cannot be written.
+   */
+  public void writeJSON(Path filePath)
+    throws IOException {
+    write(filePath, toJSON());
+  }
+
+  /**
+   * Write these metrics in the text format of Prometheus to the
+   * specified file.  The name of a file to be collected by the
+   * textfile collector of the node exporter must end with
+   * <code>.prom</code>.
+   *
+   * @param filePath the path of the file.
+   *
+   * @throws IOException if the file cannot be written.
+   */
+  public void writePrometheusText(Path filePath)
+    throws IOException {
+    write(filePath, toPrometheusText());
+  }
+}
@@ -0,0 +1,185 @@
+/**
+ * Copyright (C) 1998-2008 Majormode.  All rights reserved.
+ *
+ * This software is the confidential and proprietary information of
+ * Majormode or one of its subsidiaries.  You shall not disclose this
+ * confidential information and shall use it only in accordance with
+ * the terms of the license agreement or other applicable agreement
+ * you entered into with Majormode.
+ *
+ * MAJORMODE MAKES NO REPRESENTATIONS OR WARRANTIES ABOUT THE
+ * SUITABILITY OF THE SOFTWARE, EITHER EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE IMPLIED WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE, OR NON-INFRINGEMENT.  MAJORMODE
+ * SHALL NOT BE LIABLE FOR ANY LOSSES OR DAMAGES SUFFERED BY LICENSEE
+ * AS A RESULT OF USING, MODIFYING OR DISTRIBUTING THIS SOFTWARE OR
+ * ITS DERIVATIVES.
+ */
+
+package com.majormode.tool.dbdeploy;
+
+/**
+ * Distribution of durations over a fixed set of buckets, which upper
+ * bounds are expressed in seconds.  As for the histograms of
+ * Prometheus, the count of a bucket includes the durations of every
+ * lower bucket, and the last bucket, which upper bound is infinite,
+ * counts every duration recorded.
+ *
+ * @author Daniel CAUNE (daniel.caune@majormode.com)
+ */
+public class LatencyHistogram {
+  /**
+   * Default upper bounds in seconds of the buckets, from the duration
+   * of a trivial statement to the duration of a large bulk load.
+   */
+  public static final double[] DEFAULT_BUCKET_BOUNDS = {
+    0.001, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60
+  };
+
+  /**
+   * Number of nanoseconds in a second.
+   */
+  public static final double NANOSECONDS_PER_SECOND = 1000000000.0;
+
+  /**
+   * Upper bounds in seconds of the buckets, in ascending order.
+   */
+  protected double[] m_bucketBounds;
+
+  /**
+   * Number of durations recorded in each bucket, not cumulated, the
+   * last entry counting the durations greater than every upper
+   * bound.
+   */
+  protected long[] m_bucketCounts;
+
+  /**
+   * Number of durations recorded.
+   */
+  protected long m_count = 0;
+
+  /**
+   * Longest duration recorded, in nanoseconds.
+   */
+  protected long m_maximum = 0;
+
+  /**
+   * Sum of the durations recorded, in nanoseconds.
+   */
+  protected long m_sum = 0;
+
+  /**
+   * Build a histogram with the default buckets.
+   */
+  public LatencyHistogram() {
+    this(DEFAULT_BUCKET_BOUNDS);
+  }
+
+  /**
+   * Build a histogram with the specified buckets.
+   *
+   * @param bucketBounds the upper bounds in seconds of the buckets, in
+   *        ascending order.
+   */
+  public LatencyHistogram(double[] bucketBounds) {
+    m_bucketBounds = bucketBounds;
+    m_bucketCounts = new long[bucketBounds.length + 1];
+  }
+
+  /**
+   * Return the upper bounds in seconds of the buckets.
+   *
+   * @return the upper bounds of the buckets, in ascending order.
+   */
+  public double[] getBucketBounds() {
+    return m_bucketBounds;
+  }
+
+  /**
+   * Return the cumulative counts of the buckets, the last one being the
+   * count of every duration recorded.
+   *
+   * @return an array of as many counts as upper bounds plus one.
+   */
+  public synchronized long[] getCumulativeCounts() {
+    long[] cumulativeCounts = new long[m_bucketCounts.length];
+    long count = 0;
+    for (int i = 0; i < m_bucketCounts.length; i++) {
+      count += m_bucketCounts[i];
+      cumulativeCounts[i] = count;
+    }
+    return cumulativeCounts;
+  }
+
+  /**
+   * Return the number of durations recorded.
+   *
+   * @return the number of durations.
+   */
+  public synchronized long getCount() {
+    return m_count;
+  }
+
+  /**
+   * Return the longest duration recorded.
+   *
+   * @return the longest duration in seconds.
+   */
+  public synchronized double getMaximum() {
+    return m_maximum / NANOSECONDS_PER_SECOND;
+  }
+
+  /**
+   * Return an estimate of the specified quantile of the durations
+   * recorded, as the upper bound of the bucket where this quantile
+   * falls.
+   *
+   * @param quantile a number between <code>0</code> and
+   *        <code>1</code>.
+   *
+   * @return the estimated quantile in seconds, the longest duration
+   *         recorded if the quantile falls beyond the last upper
+   *         bound, or <code>0</code> if no duration has been
+   *         recorded.
+   */
+  public synchronized double getQuantile(double quantile) {
+    if (m_count == 0)
+      return 0;
+
+    long rank = (long) Math.ceil(quantile * m_count);
+    long count = 0;
+    for (int i = 0; i < m_bucketBounds.length; i++) {
+      count += m_bucketCounts[i];
+      if (count >= rank)
+        return Math.min(m_bucketBounds[i], getMaximum());
+    }
+
+    return getMaximum();
+  }
+
+  /**
+   * Return the sum of the durations recorded.
+   *
+   * @return the sum of the durations in seconds.
+   */
+  public synchronized double getSum() {
+    return m_sum / NANOSECONDS_PER_SECOND;
+  }
+
+  /**
+   * Record the specified duration.
+   *
+   * @param duration a duration in nanoseconds.
+   */
+  public synchronized void record(long duration) {
+    double seconds = duration / NANOSECONDS_PER_SECOND;
+    int bucket = 0;
+    while ((bucket < m_bucketBounds.length) && (seconds > m_bucketBounds[bucket]))
+      bucket++;
+
+    m_bucketCounts[bucket]++;
+    m_count++;
+    m_sum += duration;
+    m_maximum = Math.max(m_maximum, duration);
+  }
+}
@@ -20,43 +20,79 @@ package com.majormode.tool.dbdeploy;
 
 import com.martiansoftware.jsap.FlaggedOption;
 import com.martiansoftware.jsap.JSAP;
+import com.martiansoftware.jsap.JSAPException;
 import com.martiansoftware.jsap.JSAPResult;
 import com.martiansoftware.jsap.SimpleJSAP;
 import com.martiansoftware.jsap.Switch;
 
-import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Hashtable;
 import java.util.Vector;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 public class Main {
+  protected static final String LONG_FLAG_OPTION_BATCH_SIZE = "batch-size";
+  protected static final String LONG_FLAG_OPTION_CACHE_DIRECTORY = "cache-directory";
+  protected static final String LONG_FLAG_OPTION_COPY_BUFFER_SIZE = "copy-buffer-size";
+  protected static final String LONG_FLAG_OPTION_COPY_WORKER_COUNT = "copy-worker-count";
   protected static final String LONG_FLAG_OPTION_FORCE_UPDATE = "force-update";
+  protected static final String LONG_FLAG_OPTION_IGNORE_FILE = "ignore-file";
   protected static final String LONG_FLAG_OPTION_JDBC_DRIVER = "jdbc-driver";
   protected static final String LONG_FLAG_OPTION_JDBC_URL = "jdbc-url";
+  protected static final String LONG_FLAG_OPTION_LOG_FORMAT = "log-format";
+  protected static final String LONG_FLAG_OPTION_LOG_LEVEL = "log-level";
+  protected static final String LONG_FLAG_OPTION_LOG_STATEMENT_LENGTH = "log-statement-length";
   protected static final String LONG_FLAG_OPTION_MAXIMUM_ATTEMPT_COUNT = "maximum-attempt-count";
+  protected static final String LONG_FLAG_OPTION_METRICS_FILE = "metrics-file";
+  protected static final String LONG_FLAG_OPTION_METRICS_TEXTFILE = "metrics-textfile";
   protected static final String LONG_FLAG_OPTION_MODULE_NAME = "module-name";
   protected static final String LONG_FLAG_OPTION_OBJECT_TYPE = "object-type";
   protected static final String LONG_FLAG_OPTION_PASSWORD = "password";
   protected static final String LONG_FLAG_OPTION_PATH = "path";
   protected static final String LONG_FLAG_OPTION_RDBMS = "rdbms";
   protected static final String LONG_FLAG_OPTION_REVISION_CONTROL_SYSTEM = "revision-control-system";
+  protected static final String LONG_FLAG_OPTION_TRANSACTION_MODE = "transaction-mode";
   protected static final String LONG_FLAG_OPTION_USERNAME = "username";
   protected static final String LONG_FLAG_OPTION_VERBOSE = "verbose";
+  protected static final String LONG_FLAG_OPTION_WATCH = "watch";
+  protected static final String LONG_FLAG_OPTION_WORKER_COUNT = "worker-count";
 
+  protected static final char SHORT_FLAG_OPTION_BATCH_SIZE = 'n';
+  protected static final char SHORT_FLAG_OPTION_CACHE_DIRECTORY = 'e';
+  protected static final char SHORT_FLAG_OPTION_COPY_BUFFER_SIZE = 'c';
+  protected static final char SHORT_FLAG_OPTION_COPY_WORKER_COUNT = 'k';
   protected static final char SHORT_FLAG_OPTION_FORCE_UPDATE = 'f';
+  protected static final char SHORT_FLAG_OPTION_IGNORE_FILE = 'i';
   protected static final char SHORT_FLAG_OPTION_JDBC_DRIVER = 'r';
   protected static final char SHORT_FLAG_OPTION_JDBC_URL = 'l';
+  protected static final char SHORT_FLAG_OPTION_LOG_FORMAT = 'g';
+  protected static final char SHORT_FLAG_OPTION_LOG_LEVEL = 'y';
+  protected static final char SHORT_FLAG_OPTION_LOG_STATEMENT_LENGTH = 'z';
   protected static final char SHORT_FLAG_OPTION_MAXIMUM_ATTEMPT_COUNT = 'a';
+  protected static final char SHORT_FLAG_OPTION_METRICS_FILE = 'j';
+  protected static final char SHORT_FLAG_OPTION_METRICS_TEXTFILE = 'q';
   protected static final char SHORT_FLAG_OPTION_MODULE_NAME = 'm';
   protected static final char SHORT_FLAG_OPTION_OBJECT_TYPE = 't';
   protected static final char SHORT_FLAG_OPTION_PASSWORD = 'p';
   protected static final char SHORT_FLAG_OPTION_PATH = 'd';
   protected static final char SHORT_FLAG_OPTION_RDBMS = 'b';
   protected static final char SHORT_FLAG_OPTION_REVISION_CONTROL_SYSTEM = 's';
+  protected static final char SHORT_FLAG_OPTION_TRANSACTION_MODE = 'x';
   protected static final char SHORT_FLAG_OPTION_USERNAME = 'u';
   protected static final char SHORT_FLAG_OPTION_VERBOSE = 'v';
+  protected static final char SHORT_FLAG_OPTION_WATCH = 'o';
+  protected static final char SHORT_FLAG_OPTION_WORKER_COUNT = 'w';
 
   /**
    * Regular expression that matches the name of a script file. This name must
@@ -78,15 +114,49 @@ public class Main {
    * 
    * @param arguments a list of arguments that the tool supports:
    *        <ul>
+   *        <li><code>--batch-size</code>: specifies the maximum number
+   *         of consecutive SQL statements of a script that are sent at
+   *         once to the relational database management system.</li>
+   *        <li><code>--cache-directory</code>: specifies a directory
+   *         where the results of the parsing of the SQL script files
+   *         are cached, so that unchanged files are not parsed
+   *         again.</li>
+   *        <li><code>--copy-buffer-size</code>: specifies the size in
+   *         bytes of the buffers used to stream the data of bulk
+   *         loading statements and dataset files.</li>
+   *        <li><code>--copy-worker-count</code>: specifies the number
+   *         of dataset scripts that are loaded concurrently, each on
+   *         its own connection.</li>
+   *        <li><code>--ignore-file</code>: specifies a file that lists
+   *         the glob patterns of the files and directories to be
+   *         ignored when collecting SQL script files.</li>
    *        <li><code>--jdbc_driver</code>: defines the Java class
    *         name of the JDBC driver that is to be used to connect to
    *         the relational database management system.</li>
    *        <li><code>--jdbc_url</code>: defines a database URL of the
    *         form <code>jdbc:subprotocol:subname</code> identifying
    *         the relational database management system.</li>
+   *        <li><code>--log-format</code>: specifies whether the events
+   *         of the deployment are written as text, or as JSON lines
+   *         with their time, level, thread and fields.</li>
+   *        <li><code>--log-level</code>: specifies the level below
+   *         which the events of the deployment are discarded:
+   *         <code>debug</code>, <code>info</code>,
+   *         <code>warning</code> or <code>error</code>.</li>
+   *        <li><code>--log-statement-length</code>: specifies the
+   *         number of characters beyond which the SQL statements
+   *         written in the log are truncated.</li>
    *        <li><code>--maximum_attempt_count</code>: specifies the
    *         maximum number of attempts in executing an SQL statement
    *         that might temporarily fail for dependency reason.</li>
+   *        <li><code>--metrics-file</code>: specifies a file where the
+   *         metrics of the deployment, such as the time spent in each
+   *         phase and the latencies of the SQL statements, are
+   *         written in JSON once the deployment ends.</li>
+   *        <li><code>--metrics-textfile</code>: specifies a file where
+   *         the metrics of the deployment are written in the text
+   *         format of Prometheus, to be collected by the textfile
+   *         collector of the node exporter.</li>
    *        <li><code>--module-name</code>: specifies the module which
    *         database objects have to be created or updated.  If not
    *         specified, all existing modules are creating or
@@ -104,63 +174,158 @@ public class Main {
    *        <li><code>--rdbms</code>: defines the name the relational
    *         database management system which the SQL statements might
    *         be specific to.</li>
+   *        <li><code>--transaction-mode</code>: specifies when the SQL
+   *         statements are committed: <code>none</code> to commit each
+   *         statement on its own, <code>script</code> to commit the
+   *         statements of a script at once, or <code>tier</code> to
+   *         commit at once the statements of a type of database
+   *         objects.</li>
    *        <li><code>--username</code>: defines database user on
    *         whose behalf the connection is being made to the
    *         relational database management system.</li>
+   *        <li><code>--watch</code>: specifies that the SQL script
+   *         files are watched once deployed, and that the files that
+   *         change are deployed again until the tool is stopped.</li>
+   *        <li><code>--worker-count</code>: specifies the number of
+   *         SQL scripts of a same type of database objects that are
+   *         executed concurrently, each on its own connection.</li>
    *        </ul>
    * 
    * @throws Exception if an unexpected exception occurs.
    */
   public static void main(String[] arguments)
     throws Exception {
-    SimpleJSAP jsap = new SimpleJSAP( 
+    SimpleJSAP jsap = createCommandLineParser();
+    JSAPResult configuration = jsap.parse(arguments);
+    if (jsap.messagePrinted())
+      System.exit(1);
+
+    Path workingDirectory = Paths.get("");
+    SQLDeploymentManager sqlDeploymentManager = createSQLDeploymentManager(configuration, workingDirectory);
+
+    try {
+      if (!configuration.getBoolean(LONG_FLAG_OPTION_WATCH))
+        deploy(sqlDeploymentManager, configuration, workingDirectory, System.out);
+      else {
+        // The SQL scripts that fail to be deployed are deployed again
+        // once their files are fixed.
+        //
+        try {
+          deploy(sqlDeploymentManager, configuration, workingDirectory, System.out);
+        } catch (Exception exception) {
+          sqlDeploymentManager.getLogger().error("deployment.failure", String.valueOf(exception.getMessage()));
+        }
+
+        Path rootPath = getRootPath(configuration, workingDirectory);
+        new SQLScriptWatcher(
+            sqlDeploymentManager,
+            rootPath,
+            loadIgnoreList(configuration, rootPath, workingDirectory)).watch();
+      }
+    } finally {
+      sqlDeploymentManager.close();
+    }
+  }
+
+  /**
+   * Build the parser of the arguments that the tool supports, as
+   * documented by the method <code>main</code>.
+   *
+   * @return the parser of the command line arguments.
+   *
+   * @throws JSAPException if the parser cannot be built.
+   */
+  static protected SimpleJSAP createCommandLineParser()
+    throws JSAPException {
+    return new SimpleJSAP( 
         "dbdeploy "
         + Main.class.getPackage().getSpecificationVersion() + "."
         + Main.class.getPackage().getImplementationVersion()
         + "\nCopyright (C) 1998-2008 Majormode.  All rights reserved.\n", 
         "Deploy database objects on a relational database management system (RDBMS).",        
-        new com.martiansoftware.jsap.Parameter[] {
-            new Switch(LONG_FLAG_OPTION_FORCE_UPDATE, SHORT_FLAG_OPTION_FORCE_UPDATE, LONG_FLAG_OPTION_FORCE_UPDATE,
-                "Specifies that database objects must be updated even if their current revision correspond to the last deployed."),
-            new FlaggedOption(LONG_FLAG_OPTION_JDBC_DRIVER, JSAP.STRING_PARSER, JSAP.NO_DEFAULT, JSAP.REQUIRED, SHORT_FLAG_OPTION_JDBC_DRIVER, LONG_FLAG_OPTION_JDBC_DRIVER,
-                "Defines the Java class name of the JDBC driver that is to be used to connect to the relational database management system."),
-            new FlaggedOption(LONG_FLAG_OPTION_JDBC_URL, JSAP.STRING_PARSER, JSAP.NO_DEFAULT, JSAP.REQUIRED, SHORT_FLAG_OPTION_JDBC_URL, LONG_FLAG_OPTION_JDBC_URL,
-                "Defines a database URL of the form jdbc:subprotocol:subname identifying the relational database management system."),
-            new FlaggedOption(LONG_FLAG_OPTION_MAXIMUM_ATTEMPT_COUNT, JSAP.INTEGER_PARSER, JSAP.NO_DEFAULT, JSAP.NOT_REQUIRED, SHORT_FLAG_OPTION_MAXIMUM_ATTEMPT_COUNT, LONG_FLAG_OPTION_MAXIMUM_ATTEMPT_COUNT,
-                "Specifies the maximum number of attempts in executing an SQL statement that might temporarily fail for dependency reason.  The default value is 3."),
-            new FlaggedOption(LONG_FLAG_OPTION_MODULE_NAME, JSAP.STRING_PARSER, JSAP.NO_DEFAULT, JSAP.NOT_REQUIRED, SHORT_FLAG_OPTION_MODULE_NAME, LONG_FLAG_OPTION_MODULE_NAME,
-                "Specifies the module which database objects have to be created or updated.  If not specified, all existing modules are creating or updating."),
-            new FlaggedOption(LONG_FLAG_OPTION_OBJECT_TYPE, JSAP.STRING_PARSER, JSAP.NO_DEFAULT, JSAP.NOT_REQUIRED, SHORT_FLAG_OPTION_OBJECT_TYPE, LONG_FLAG_OPTION_OBJECT_TYPE,
-                "Specifies the type of database objects that have to be created or updated.  If not specified, all database objects are creating or updating."),
-            new FlaggedOption(LONG_FLAG_OPTION_PASSWORD, JSAP.STRING_PARSER, JSAP.NO_DEFAULT, JSAP.REQUIRED, SHORT_FLAG_OPTION_PASSWORD, LONG_FLAG_OPTION_PASSWORD,
-                "Defines the password of the user on whose behalf the connection is being made to the relational database management system."),
-            new FlaggedOption(LONG_FLAG_OPTION_PATH, JSAP.STRING_PARSER, ".", JSAP.NOT_REQUIRED, SHORT_FLAG_OPTION_PATH, LONG_FLAG_OPTION_PATH,
-            	"Specifies the path where to find SQL script files.  If not defined, the path corresponds to the working directory."),
-            new FlaggedOption(LONG_FLAG_OPTION_RDBMS, JSAP.STRING_PARSER, JSAP.NO_DEFAULT, JSAP.REQUIRED, SHORT_FLAG_OPTION_RDBMS, LONG_FLAG_OPTION_RDBMS,
-                "Defines the name the relational database management system which the SQL statements might be specific to."),
-            new FlaggedOption(LONG_FLAG_OPTION_REVISION_CONTROL_SYSTEM, JSAP.STRING_PARSER, JSAP.NO_DEFAULT, JSAP.NOT_REQUIRED, SHORT_FLAG_OPTION_REVISION_CONTROL_SYSTEM, LONG_FLAG_OPTION_REVISION_CONTROL_SYSTEM,
-                "Specifies the name of the revision control system that stores the identification of a revision within source files."),
-            new FlaggedOption(LONG_FLAG_OPTION_USERNAME, JSAP.STRING_PARSER, JSAP.NO_DEFAULT, JSAP.REQUIRED, SHORT_FLAG_OPTION_USERNAME, LONG_FLAG_OPTION_USERNAME,
-                "Defines database user on whose behalf the connection is being made to the relational database management system."),
-            new Switch(LONG_FLAG_OPTION_VERBOSE, SHORT_FLAG_OPTION_VERBOSE, LONG_FLAG_OPTION_VERBOSE,
-            	"Displays whole information while processing SQL scripts.")
-        }
+        createCommandLineParameters()
     );
-    
-    JSAPResult configuration = jsap.parse(arguments);
-    if (jsap.messagePrinted())
-      System.exit(1);
+  }
 
-    // Seeks any SQL script files from the specified path, or the
-    // working directory, and from all the subdirectories.
-    //
-    System.out.println("Collecting script files...");
-    Collection sqlScripts = collectSQLScripts(
-        new File(configuration.getString(LONG_FLAG_OPTION_PATH)),
-        new Vector());
+  /**
+   * Build the definitions of the arguments that the tool supports, as
+   * documented by the method <code>main</code>.
+   *
+   * @return the definitions of the arguments.
+   */
+  static protected com.martiansoftware.jsap.Parameter[] createCommandLineParameters() {
+    return new com.martiansoftware.jsap.Parameter[] {
+        new FlaggedOption(LONG_FLAG_OPTION_BATCH_SIZE, JSAP.INTEGER_PARSER, JSAP.NO_DEFAULT, JSAP.NOT_REQUIRED, SHORT_FLAG_OPTION_BATCH_SIZE, LONG_FLAG_OPTION_BATCH_SIZE,
+            "Specifies the maximum number of consecutive SQL statements of a script that are sent at once to the RDBMS."),
+        new FlaggedOption(LONG_FLAG_OPTION_CACHE_DIRECTORY, JSAP.STRING_PARSER, JSAP.NO_DEFAULT, JSAP.NOT_REQUIRED, SHORT_FLAG_OPTION_CACHE_DIRECTORY, LONG_FLAG_OPTION_CACHE_DIRECTORY,
+            "Specifies a directory where the results of the parsing of the SQL script files are cached."),
+        new FlaggedOption(LONG_FLAG_OPTION_COPY_BUFFER_SIZE, JSAP.INTEGER_PARSER, JSAP.NO_DEFAULT, JSAP.NOT_REQUIRED, SHORT_FLAG_OPTION_COPY_BUFFER_SIZE, LONG_FLAG_OPTION_COPY_BUFFER_SIZE,
+            "Specifies the size in bytes of the buffers used to stream the data of bulk loading statements and dataset files."),
+        new FlaggedOption(LONG_FLAG_OPTION_COPY_WORKER_COUNT, JSAP.INTEGER_PARSER, JSAP.NO_DEFAULT, JSAP.NOT_REQUIRED, SHORT_FLAG_OPTION_COPY_WORKER_COUNT, LONG_FLAG_OPTION_COPY_WORKER_COUNT,
+            "Specifies the number of dataset scripts that are loaded concurrently, each on its own connection."),
+        new Switch(LONG_FLAG_OPTION_FORCE_UPDATE, SHORT_FLAG_OPTION_FORCE_UPDATE, LONG_FLAG_OPTION_FORCE_UPDATE,
+            "Specifies that database objects must be updated even if their current revision correspond to the last deployed."),
+        new FlaggedOption(LONG_FLAG_OPTION_IGNORE_FILE, JSAP.STRING_PARSER, JSAP.NO_DEFAULT, JSAP.NOT_REQUIRED, SHORT_FLAG_OPTION_IGNORE_FILE, LONG_FLAG_OPTION_IGNORE_FILE,
+            "Specifies a file that lists the glob patterns of the files and directories to be ignored when collecting SQL script files.  If not defined, the file " + SQLScriptIgnoreList.DEFAULT_IGNORE_FILE_NAME + " of the path is used if it exists."),
+        new FlaggedOption(LONG_FLAG_OPTION_JDBC_DRIVER, JSAP.STRING_PARSER, JSAP.NO_DEFAULT, JSAP.REQUIRED, SHORT_FLAG_OPTION_JDBC_DRIVER, LONG_FLAG_OPTION_JDBC_DRIVER,
+            "Defines the Java class name of the JDBC driver that is to be used to connect to the relational database management system."),
+        new FlaggedOption(LONG_FLAG_OPTION_JDBC_URL, JSAP.STRING_PARSER, JSAP.NO_DEFAULT, JSAP.REQUIRED, SHORT_FLAG_OPTION_JDBC_URL, LONG_FLAG_OPTION_JDBC_URL,
+            "Defines a database URL of the form jdbc:subprotocol:subname identifying the relational database management system."),
+        new FlaggedOption(LONG_FLAG_OPTION_LOG_FORMAT, JSAP.STRING_PARSER, DeploymentLogger.FORMAT_TEXT, JSAP.NOT_REQUIRED, SHORT_FLAG_OPTION_LOG_FORMAT, LONG_FLAG_OPTION_LOG_FORMAT,
+            "Specifies whether the events of the deployment are written as text or as JSON lines (text|json)."),
+        new FlaggedOption(LONG_FLAG_OPTION_LOG_LEVEL, JSAP.STRING_PARSER, JSAP.NO_DEFAULT, JSAP.NOT_REQUIRED, SHORT_FLAG_OPTION_LOG_LEVEL, LONG_FLAG_OPTION_LOG_LEVEL,
+            "Specifies the level below which the events of the deployment are discarded (debug|info|warning|error)."),
+        new FlaggedOption(LONG_FLAG_OPTION_LOG_STATEMENT_LENGTH, JSAP.INTEGER_PARSER, Integer.toString(DeploymentLogger.DEFAULT_MAXIMUM_STATEMENT_LENGTH), JSAP.NOT_REQUIRED, SHORT_FLAG_OPTION_LOG_STATEMENT_LENGTH, LONG_FLAG_OPTION_LOG_STATEMENT_LENGTH,
+            "Specifies the number of characters beyond which the SQL statements written in the log are truncated, 0 to never truncate them."),
+        new FlaggedOption(LONG_FLAG_OPTION_MAXIMUM_ATTEMPT_COUNT, JSAP.INTEGER_PARSER, JSAP.NO_DEFAULT, JSAP.NOT_REQUIRED, SHORT_FLAG_OPTION_MAXIMUM_ATTEMPT_COUNT, LONG_FLAG_OPTION_MAXIMUM_ATTEMPT_COUNT,
+            "Specifies the maximum number of attempts in executing an SQL statement that might temporarily fail for dependency reason.  The default value is 3."),
+        new FlaggedOption(LONG_FLAG_OPTION_METRICS_FILE, JSAP.STRING_PARSER, JSAP.NO_DEFAULT, JSAP.NOT_REQUIRED, SHORT_FLAG_OPTION_METRICS_FILE, LONG_FLAG_OPTION_METRICS_FILE,
+            "Specifies a file where the metrics of the deployment are written in JSON once the deployment ends."),
+        new FlaggedOption(LONG_FLAG_OPTION_METRICS_TEXTFILE, JSAP.STRING_PARSER, JSAP.NO_DEFAULT, JSAP.NOT_REQUIRED, SHORT_FLAG_OPTION_METRICS_TEXTFILE, LONG_FLAG_OPTION_METRICS_TEXTFILE,
+            "Specifies a file where the metrics of the deployment are written in the text format of Prometheus once the deployment ends."),
+        new FlaggedOption(LONG_FLAG_OPTION_MODULE_NAME, JSAP.STRING_PARSER, JSAP.NO_DEFAULT, JSAP.NOT_REQUIRED, SHORT_FLAG_OPTION_MODULE_NAME, LONG_FLAG_OPTION_MODULE_NAME,
+            "Specifies the module which database objects have to be created or updated.  If not specified, all existing modules are creating or updating."),
+        new FlaggedOption(LONG_FLAG_OPTION_OBJECT_TYPE, JSAP.STRING_PARSER, JSAP.NO_DEFAULT, JSAP.NOT_REQUIRED, SHORT_FLAG_OPTION_OBJECT_TYPE, LONG_FLAG_OPTION_OBJECT_TYPE,
+            "Specifies the type of database objects that have to be created or updated.  If not specified, all database objects are creating or updating."),
+        new FlaggedOption(LONG_FLAG_OPTION_PASSWORD, JSAP.STRING_PARSER, JSAP.NO_DEFAULT, JSAP.REQUIRED, SHORT_FLAG_OPTION_PASSWORD, LONG_FLAG_OPTION_PASSWORD,
+            "Defines the password of the user on whose behalf the connection is being made to the relational database management system."),
+        new FlaggedOption(LONG_FLAG_OPTION_PATH, JSAP.STRING_PARSER, ".", JSAP.NOT_REQUIRED, SHORT_FLAG_OPTION_PATH, LONG_FLAG_OPTION_PATH,
+        	"Specifies the path where to find SQL script files.  If not defined, the path corresponds to the working directory."),
+        new FlaggedOption(LONG_FLAG_OPTION_RDBMS, JSAP.STRING_PARSER, JSAP.NO_DEFAULT, JSAP.REQUIRED, SHORT_FLAG_OPTION_RDBMS, LONG_FLAG_OPTION_RDBMS,
+            "Defines the name the relational database management system which the SQL statements might be specific to."),
+        new FlaggedOption(LONG_FLAG_OPTION_REVISION_CONTROL_SYSTEM, JSAP.STRING_PARSER, JSAP.NO_DEFAULT, JSAP.NOT_REQUIRED, SHORT_FLAG_OPTION_REVISION_CONTROL_SYSTEM, LONG_FLAG_OPTION_REVISION_CONTROL_SYSTEM,
+            "Specifies the name of the revision control system that stores the identification of a revision within source files: perforce, subversion, or content-hash (alias git) to identify a revision by a fingerprint of the content of the files."),
+        new FlaggedOption(LONG_FLAG_OPTION_TRANSACTION_MODE, JSAP.STRING_PARSER, JSAP.NO_DEFAULT, JSAP.NOT_REQUIRED, SHORT_FLAG_OPTION_TRANSACTION_MODE, LONG_FLAG_OPTION_TRANSACTION_MODE,
+            "Specifies when the SQL statements are committed: \"none\" (each statement), \"script\" or \"tier\".  A script is not deployed atomically if it contains a statement that cannot be executed in a transaction, which is executed after the transaction is committed, or a statement that fails because of a missing database object, which is undone and executed again in a later transaction; a warning is displayed in either case."),
+        new FlaggedOption(LONG_FLAG_OPTION_USERNAME, JSAP.STRING_PARSER, JSAP.NO_DEFAULT, JSAP.REQUIRED, SHORT_FLAG_OPTION_USERNAME, LONG_FLAG_OPTION_USERNAME,
+            "Defines database user on whose behalf the connection is being made to the relational database management system."),
+        new Switch(LONG_FLAG_OPTION_VERBOSE, SHORT_FLAG_OPTION_VERBOSE, LONG_FLAG_OPTION_VERBOSE,
+        	"Displays whole information while processing SQL scripts."),
+        new Switch(LONG_FLAG_OPTION_WATCH, SHORT_FLAG_OPTION_WATCH, LONG_FLAG_OPTION_WATCH,
+            "Specifies that the SQL script files are watched once deployed, and that the files that change are deployed again."),
+        new FlaggedOption(LONG_FLAG_OPTION_WORKER_COUNT, JSAP.INTEGER_PARSER, JSAP.NO_DEFAULT, JSAP.NOT_REQUIRED, SHORT_FLAG_OPTION_WORKER_COUNT, LONG_FLAG_OPTION_WORKER_COUNT,
+            "Specifies the number of SQL scripts of a same type of database objects that are executed concurrently, each on its own connection.")
+    };
+  }
 
-    //
-    //
+  /**
+   * Build a SQL deployment manager connected to the relational database
+   * management system that the specified arguments define, and
+   * configured with the settings that apply to every deployment it
+   * performs.
+   *
+   * @param configuration the arguments of the tool.
+   * @param workingDirectory the directory which relative paths of the
+   *        arguments are resolved against.
+   *
+   * @return the SQL deployment manager.
+   *
+   * @throws Exception if the SQL deployment manager cannot be built.
+   */
+  static protected SQLDeploymentManager createSQLDeploymentManager(
+      JSAPResult configuration,
+      Path workingDirectory)
+    throws Exception {
     SQLDeploymentManager sqlDeploymentManager =
       SQLDeploymentManagerFactory.getSQLDeploymentManager(
           configuration.getString(LONG_FLAG_OPTION_RDBMS),
@@ -178,56 +343,236 @@ public class Main {
           RevisionControlSystemFactory.getRevisionControlSystem(
               configuration.getString(LONG_FLAG_OPTION_REVISION_CONTROL_SYSTEM)));
     
-    if (configuration.getBoolean(LONG_FLAG_OPTION_FORCE_UPDATE))
-      sqlDeploymentManager.setForceUpdate(true);
-    
-    if (configuration.getBoolean(LONG_FLAG_OPTION_VERBOSE))
-        sqlDeploymentManager.setVerbose(true);
-    
-    sqlDeploymentManager.setSQLScripts(sqlScripts);
-    
-    String moduleName = configuration.getString(LONG_FLAG_OPTION_MODULE_NAME);
-    if (moduleName != null)
-      sqlDeploymentManager.setModuleNameFilter(moduleName);
-    
-    String objectType = configuration.getString(LONG_FLAG_OPTION_OBJECT_TYPE);
-    if (objectType != null)
-      sqlDeploymentManager.setObjectTypeFilter(objectType);
+    if (configuration.contains(LONG_FLAG_OPTION_BATCH_SIZE))
+      sqlDeploymentManager.setBatchSize(
+          configuration.getInt(LONG_FLAG_OPTION_BATCH_SIZE));
+
+    if (configuration.contains(LONG_FLAG_OPTION_CACHE_DIRECTORY))
+      sqlDeploymentManager.setCacheDirectory(
+          workingDirectory.resolve(configuration.getString(LONG_FLAG_OPTION_CACHE_DIRECTORY)));
 
-    sqlDeploymentManager.process();
+    if (configuration.contains(LONG_FLAG_OPTION_COPY_BUFFER_SIZE))
+      sqlDeploymentManager.setCopyBufferSize(
+          configuration.getInt(LONG_FLAG_OPTION_COPY_BUFFER_SIZE));
+
+    if (configuration.contains(LONG_FLAG_OPTION_COPY_WORKER_COUNT))
+      sqlDeploymentManager.setCopyWorkerCount(
+          configuration.getInt(LONG_FLAG_OPTION_COPY_WORKER_COUNT));
+
+    if (configuration.contains(LONG_FLAG_OPTION_TRANSACTION_MODE))
+      sqlDeploymentManager.setTransactionMode(
+          configuration.getString(LONG_FLAG_OPTION_TRANSACTION_MODE));
+
+    if (configuration.contains(LONG_FLAG_OPTION_WORKER_COUNT))
+      sqlDeploymentManager.setWorkerCount(
+          configuration.getInt(LONG_FLAG_OPTION_WORKER_COUNT));
+
+    return sqlDeploymentManager;
+  }
+
+  /**
+   * Build the SQL script of the specified file, if the name of this
+   * file respects the naming convention of the SQL script files.
+   *
+   * @param file the path of a file.
+   *
+   * @return the SQL script of the file, or <code>null</code> if the
+   *         file is not a SQL script file.
+   */
+  static protected SQLScript createSQLScript(Path file) {
+    Matcher matcher = m_patternScriptFileName.matcher(file.getFileName().toString());
+    if (!matcher.matches())
+      return null;
+
+    return new SQLScript(
+        matcher.group(2).toLowerCase(),
+        matcher.group(1),
+        file.toString());
   }
 
   /**
    * Collect the SQL script files located in the given directory and
-   * subdirectories.
+   * subdirectories, skipping the files and the directories that are
+   * ignored.
+   *
+   * @param rootPath directory where to find the SQL script files.
+   * @param ignoreList list of the rules that exclude files and
+   *        directories.
+   * @param logger the logger of the files that cannot be accessed.
    *
-   * @param directory directory where to find the SQL script files.
-   * @param scripts collection used to insert the references of the
-   *        SQL script files found in this directory and the
-   *        subdirectories.
+   * @return the collection of the SQL scripts found, sorted by their
+   *         pathname so that their processing order is deterministic.
    *
-   * @return the specified collection where the collected scripts have
-   *         been inserted in.
+   * @throws IOException if the directory cannot be walked.
    */
   static protected Collection collectSQLScripts(
-      File directory,
-      Collection scripts) {
-    File[] files = directory.listFiles();
-    for (int i = 0; i < files.length; i++) {
-      File file = files[i];
-      
-      if (file.isDirectory())
-        collectSQLScripts(file, scripts);
-      else {
-        Matcher matcher = m_patternScriptFileName.matcher(file.getName());
-        if (matcher.matches())
-          scripts.add(new SQLScript(
-              matcher.group(2).toLowerCase(),
-              matcher.group(1),
-              file.getPath()));
+      final Path rootPath,
+      final SQLScriptIgnoreList ignoreList,
+      final DeploymentLogger logger)
+    throws IOException {
+    final Vector scripts = new Vector();
+
+    Files.walkFileTree(rootPath, new SimpleFileVisitor<Path>() {
+      public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) {
+        if (!directory.equals(rootPath) && ignoreList.isIgnored(rootPath.relativize(directory), true))
+          return FileVisitResult.SKIP_SUBTREE;
+
+        return FileVisitResult.CONTINUE;
       }
-    }
-    
+
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+        if (attributes.isRegularFile() && !ignoreList.isIgnored(rootPath.relativize(file), false)) {
+          SQLScript script = createSQLScript(file);
+          if (script != null)
+            scripts.add(script);
+        }
+
+        return FileVisitResult.CONTINUE;
+      }
+
+      public FileVisitResult visitFileFailed(Path file, IOException exception) {
+        logger.warning("script.access", "cannot access " + file + " (" + exception.getMessage() + ")",
+            "file", file.toString());
+        return FileVisitResult.CONTINUE;
+      }
+    });
+
+    Collections.sort(scripts, new Comparator() {
+      public int compare(Object script1, Object script2) {
+        return ((SQLScript) script1).m_filePathname.compareTo(((SQLScript) script2).m_filePathname);
+      }
+    });
+
     return scripts;
-  }  
-}
\ No newline at end of file
+  }
+
+  /**
+   * Deploy the SQL script files that the specified arguments define,
+   * using the given SQL deployment manager.  The settings that only
+   * apply to this deployment, such as the filters, are defined on the
+   * SQL deployment manager before the SQL scripts are processed.
+   *
+   * @param sqlDeploymentManager the SQL deployment manager built from
+   *        the arguments.
+   * @param configuration the arguments of the tool.
+   * @param workingDirectory the directory which relative paths of the
+   *        arguments are resolved against.
+   * @param outputStream the stream the events of the deployment are
+   *        written to.
+   *
+   * @throws Exception if the deployment failed.
+   */
+  static protected void deploy(
+      SQLDeploymentManager sqlDeploymentManager,
+      JSAPResult configuration,
+      Path workingDirectory,
+      PrintStream outputStream)
+    throws Exception {
+    DeploymentMetrics metrics = sqlDeploymentManager.getMetrics();
+    metrics.reset();
+
+    DeploymentLogger logger = sqlDeploymentManager.getLogger();
+    logger.setOutputStream(outputStream);
+    logger.setFormat(configuration.getString(LONG_FLAG_OPTION_LOG_FORMAT));
+    logger.setMaximumStatementLength(configuration.getInt(LONG_FLAG_OPTION_LOG_STATEMENT_LENGTH));
+
+    sqlDeploymentManager.setVerbose(configuration.getBoolean(LONG_FLAG_OPTION_VERBOSE));
+    if (configuration.contains(LONG_FLAG_OPTION_LOG_LEVEL))
+      logger.setLevel(DeploymentLogger.getLevel(configuration.getString(LONG_FLAG_OPTION_LOG_LEVEL)));
+
+    boolean succeeded = false;
+    try {
+      // Seeks any SQL script files from the specified path, or the
+      // working directory, and from all the subdirectories.
+      //
+      logger.info("script.collect", "Collecting script files...");
+      long startTime = System.nanoTime();
+      Path rootPath = getRootPath(configuration, workingDirectory);
+      Collection sqlScripts = collectSQLScripts(
+          rootPath,
+          loadIgnoreList(configuration, rootPath, workingDirectory),
+          logger);
+      metrics.addPhaseTimeSince(DeploymentMetrics.PHASE_SCANNING, startTime);
+
+      sqlDeploymentManager.setForceUpdate(configuration.getBoolean(LONG_FLAG_OPTION_FORCE_UPDATE));
+      sqlDeploymentManager.setModuleNameFilter(configuration.getString(LONG_FLAG_OPTION_MODULE_NAME));
+      sqlDeploymentManager.setObjectTypeFilter(configuration.getString(LONG_FLAG_OPTION_OBJECT_TYPE));
+      sqlDeploymentManager.setSQLScripts(sqlScripts);
+
+      sqlDeploymentManager.process();
+      succeeded = true;
+    } finally {
+      metrics.setSucceeded(succeeded);
+      writeMetrics(metrics, logger, configuration, workingDirectory);
+      logger.flush();
+    }
+  }
+
+  /**
+   * Return the directory where to find the SQL script files.
+   *
+   * @param configuration the arguments of the tool.
+   * @param workingDirectory the directory which relative paths of the
+   *        arguments are resolved against.
+   *
+   * @return the path of the directory of the SQL script files.
+   */
+  static protected Path getRootPath(JSAPResult configuration, Path workingDirectory) {
+    return workingDirectory.resolve(configuration.getString(LONG_FLAG_OPTION_PATH));
+  }
+
+  /**
+   * Load the list of the rules that exclude files and directories from
+   * the SQL script files, from the ignore file that the arguments
+   * define, or from the default ignore file of the given directory.
+   *
+   * @param configuration the arguments of the tool.
+   * @param rootPath the directory where to find the SQL script files.
+   * @param workingDirectory the directory which relative paths of the
+   *        arguments are resolved against.
+   *
+   * @return the list of the rules that exclude files and directories.
+   *
+   * @throws IOException if the ignore file cannot be read.
+   */
+  static protected SQLScriptIgnoreList loadIgnoreList(
+      JSAPResult configuration,
+      Path rootPath,
+      Path workingDirectory)
+    throws IOException {
+    SQLScriptIgnoreList ignoreList = new SQLScriptIgnoreList();
+    if (configuration.contains(LONG_FLAG_OPTION_IGNORE_FILE))
+      ignoreList.load(workingDirectory.resolve(configuration.getString(LONG_FLAG_OPTION_IGNORE_FILE)));
+    else if (Files.isRegularFile(rootPath.resolve(SQLScriptIgnoreList.DEFAULT_IGNORE_FILE_NAME)))
+      ignoreList.load(rootPath.resolve(SQLScriptIgnoreList.DEFAULT_IGNORE_FILE_NAME));
+
+    return ignoreList;
+  }
+
+  /**
+   * Write the metrics of a deployment to the files that the specified
+   * arguments define, if any.  A file that cannot be written is
+   * reported without failing the deployment.
+   *
+   * @param metrics the metrics of the deployment.
+   * @param logger the logger of the files that cannot be written.
+   * @param configuration the arguments of the tool.
+   * @param workingDirectory the directory which relative paths of the
+   *        arguments are resolved against.
+   */
+  static protected void writeMetrics(
+      DeploymentMetrics metrics,
+      DeploymentLogger logger,
+      JSAPResult configuration,
+      Path workingDirectory) {
+    try {
+      if (configuration.contains(LONG_FLAG_OPTION_METRICS_FILE))
+        metrics.writeJSON(workingDirectory.resolve(configuration.getString(LONG_FLAG_OPTION_METRICS_FILE)));
+
+      if (configuration.contains(LONG_FLAG_OPTION_METRICS_TEXTFILE))
+        metrics.writePrometheusText(workingDirectory.resolve(configuration.getString(LONG_FLAG_OPTION_METRICS_TEXTFILE)));
+    } catch (IOException exception) {
+      logger.warning("metrics.write", "cannot write the metrics of the deployment: " + exception.getMessage());
+    }
+  }
+}
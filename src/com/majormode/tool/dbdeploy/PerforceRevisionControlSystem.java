@@ -37,6 +37,10 @@ public class PerforceRevisionControlSystem implements RevisionControlSystem {
    */
   protected Pattern m_patternRevisionKeyword = Pattern.compile(PATTERN_REVISION_KEYWORD);
   
+  public boolean hasOrderedRevisionNumbers() {
+    return true;
+  }
+
   public int parseRevisionNumber(String sourceCode)
     throws UndefinedRevisionNumberException {
     Matcher matcher = m_patternRevisionKeyword.matcher(sourceCode);
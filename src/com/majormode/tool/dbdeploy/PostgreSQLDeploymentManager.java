@@ -22,14 +22,22 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
-import java.io.StringReader;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 import java.util.Vector;
+import java.util.regex.MatchResult;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -38,30 +46,83 @@ import org.postgresql.core.BaseConnection;
 
 public class PostgreSQLDeploymentManager extends SQLDeploymentManager {
   /**
-   * Regular expression that matches the definition of a PL/pgSQL or SQL function.
-   * [TODO] This regular expression is a hack that doesn't cover all the possible
-   * use cases.
+   * Regular expression that matches command used to set a runtime parameter.
+   * Note: the ending semicolon has been removed when parsing this command as a
+   * SQL query.
    */
-  protected static final String PATTERN_SQL_FUNCTION_QUERY = "(CREATE([^$])+[$][$]([^$][$]{0,1})+[$][$]\\s+LANGUAGE\\s+(PLPGSQL|SQL));";
+  protected static final String PATTERN_RUNTIME_PARAMETER_COMMAND = "(SET\\s+(SESSION\\s+|LOCAL\\s+|)(?<name>\\w+)\\s+(TO|=).+)";
 
   /**
-   * Regular expression that matches standard SQL query delimited from another
-   * standard SQL query by the character <code>;</code>, or bulk loading
-   * expression ending with <code>\.</code>.
+   * Command used to reset all the runtime parameters of a session to their
+   * default values.
    */
-  protected static final String PATTERN_SQL_QUERY = "(((?!COPY)[^;])*;)|(COPY((?!\\\\\\.)[\\s\\S])*\\\\\\.)";
+  protected static final String COMMAND_RESET_ALL_RUNTIME_PARAMETERS = "RESET ALL";
+  protected static final String COMMAND_RESET_RUNTIME_PARAMETER = "RESET ";
 
   /**
-   * Regular expression that matches command used to set a runtime parameter.
-   * Note: the ending semicolon has been removed when parsing this command as a
-   * SQL query.
+   * SQLSTATE of the failure of a bulk loading statement whose data cannot be
+   * read, which is the PostgreSQL class of system I/O errors.
    */
-  protected static final String PATTERN_RUNTIME_PARAMETER_COMMAND = "(SET\\s+(SESSION\\s+|LOCAL\\s+|)(?<name>\\w+)\\s+(TO|=).+)";
+  protected static final String SQL_STATE_IO_ERROR = "58030";
+
+  /**
+   * Regular expression that matches the directive that declares an external
+   * dataset file to be copied to a table:
+   *
+   * <pre>
+   * --(defdataset table-name file-pathname [copy-options])
+   * </pre>
+   *
+   * The name of the table may be followed with a list of columns, and the
+   * pathname of the file is relative to the directory of the SQL script.
+   */
+  protected static final String PATTERN_DATASET_DIRECTIVE =
+      "--\\s*[(]defdataset\\s+(?<table>[^\\s(]+(?:[(][^)]*[)])?)\\s+(?<file>[^\\s)]+)(?:\\s+(?<options>.*?))?\\s*[)]\\s*$";
+
+  /**
+   * Regular expression that matches the option of a bulk loading statement that
+   * specifies the format of the data.
+   */
+  protected static final String PATTERN_COPY_FORMAT_OPTION = "\\bFORMAT\\b";
+
+  /**
+   * Regular expression that matches the name of the table, and its optional
+   * list of columns, that a bulk loading statement copies data to.
+   */
+  protected static final String PATTERN_COPY_TABLE = "COPY\\s+([^\\s(]+(?:\\s*[(][^)]*[)])?)";
+
+  /**
+   * Regular expression that matches the beginning of a SQL statement that can be
+   * sent in a batch with other statements.  A batch is executed in a single
+   * implicit transaction, and none of its statements may return a result.
+   */
+  protected static final String PATTERN_BATCHABLE_STATEMENT =
+      "(?:INSERT|UPDATE|DELETE|GRANT|REVOKE|COMMENT|TRUNCATE|(?:CREATE|ALTER|DROP)(?!\\s+(?:DATABASE|TABLESPACE|SYSTEM)\\b))\\b";
+
+  /**
+   * Regular expression that matches a clause which prevents a SQL statement from
+   * being sent in a batch, because this statement either cannot be executed
+   * inside a transaction block or returns a result.
+   */
+  protected static final String PATTERN_UNBATCHABLE_CLAUSE = "\\b(?:CONCURRENTLY|RETURNING|ADD\\s+VALUE)\\b";
+
+  /**
+   * Regular expression that matches the beginning of a SQL statement that cannot
+   * be executed inside a transaction block.
+   */
+  protected static final String PATTERN_NON_TRANSACTIONAL_STATEMENT =
+      "(?:VACUUM|(?:CREATE|DROP)\\s+(?:DATABASE|TABLESPACE)|ALTER\\s+SYSTEM|REINDEX\\s+(?:DATABASE|SYSTEM))\\b";
+
+  /**
+   * Regular expression that matches a clause which prevents a SQL statement from
+   * being executed inside a transaction block.
+   */
+  protected static final String PATTERN_NON_TRANSACTIONAL_CLAUSE = "\\b(?:CONCURRENTLY|ADD\\s+VALUE)\\b";
 
   /**
-   * Instruction to copy data between the standard input and a table.
+   * Type of the database objects that are loaded from dataset files.
    */
-  protected static final String PATTERN_COPY_INSTRUCTION = "COPY";
+  protected static final String OBJECT_TYPE_NAME_DATASET = "dataset";
 
   /**
    * Regular expression that matches PostgreSQL exception raised when a database
@@ -76,6 +137,18 @@ public class PostgreSQLDeploymentManager extends SQLDeploymentManager {
    */
   protected static final String PATTERN_DEPENDENCY_EXCEPTION = "does not exist";
 
+  /**
+   * Regular expression that matches the name of the missing database object in
+   * the message of a PostgreSQL exception raised because of a dependency on a
+   * database object that is not yet created, such as:
+   *
+   * <pre>
+   * ERROR: relation "account" does not exist
+   * ERROR: function get_job_hierarchy() does not exist
+   * </pre>
+   */
+  protected static final String PATTERN_MISSING_OBJECT = "\\b(?:relation|function)\\s+(\"[^\"]+\"|[^\\s(]+)";
+
   /**
    * List of the database objects, which PostgreSQL supports, declared in their
    * dependency order.
@@ -84,23 +157,66 @@ public class PostgreSQLDeploymentManager extends SQLDeploymentManager {
       "dataset", "materialized-view", "view", "index", "function", "job", "trigger" };
 
   /**
-   * Compiled representation of the regulat expression that maches a command that
-   * sets a runtime parameter.
+   * Compiled representation of the regular expression that matches the name of
+   * the missing database object in the message of a PostgreSQL exception.
    */
-  protected Pattern m_patternRuntimeParameterCommand = Pattern.compile(PATTERN_RUNTIME_PARAMETER_COMMAND,
+  protected Pattern m_patternMissingObject = Pattern.compile(PATTERN_MISSING_OBJECT);
+
+  /**
+   * Compiled representation of the regular expression that matches the
+   * beginning of a SQL statement that can be sent in a batch.
+   */
+  protected Pattern m_patternBatchableStatement = Pattern.compile(PATTERN_BATCHABLE_STATEMENT,
       Pattern.CASE_INSENSITIVE);
 
   /**
-   * Compiled representation of the regular expression that matches a standard SQL
-   * query.
+   * Compiled representation of the regular expression that matches a clause
+   * which prevents a SQL statement from being executed inside a transaction
+   * block.
    */
-  protected Pattern m_patternSQLQuery = Pattern.compile(PATTERN_SQL_QUERY, Pattern.CASE_INSENSITIVE);
+  protected Pattern m_patternNonTransactionalClause = Pattern.compile(PATTERN_NON_TRANSACTIONAL_CLAUSE,
+      Pattern.CASE_INSENSITIVE);
 
   /**
-   * Compile representation of the regulare expression that matches a definition
-   * of a PL/pgSQL function.
+   * Compiled representation of the regular expression that matches the
+   * beginning of a SQL statement that cannot be executed inside a transaction
+   * block.
    */
-  protected Pattern m_patternSQLFunctionQuery = Pattern.compile(PATTERN_SQL_FUNCTION_QUERY, Pattern.CASE_INSENSITIVE);
+  protected Pattern m_patternNonTransactionalStatement = Pattern.compile(PATTERN_NON_TRANSACTIONAL_STATEMENT,
+      Pattern.CASE_INSENSITIVE);
+
+  /**
+   * Compiled representation of the regular expression that matches the option
+   * of a bulk loading statement that specifies the format of the data.
+   */
+  protected Pattern m_patternCopyFormatOption = Pattern.compile(PATTERN_COPY_FORMAT_OPTION, Pattern.CASE_INSENSITIVE);
+
+  /**
+   * Compiled representation of the regular expression that matches the name of
+   * the table that a bulk loading statement copies data to.
+   */
+  protected Pattern m_patternCopyTable = Pattern.compile(PATTERN_COPY_TABLE, Pattern.CASE_INSENSITIVE);
+
+  /**
+   * Compiled representation of the regular expression that matches the
+   * directive that declares an external dataset file.
+   */
+  protected Pattern m_patternDatasetDirective = Pattern.compile(PATTERN_DATASET_DIRECTIVE,
+      Pattern.CASE_INSENSITIVE | Pattern.MULTILINE);
+
+  /**
+   * Compiled representation of the regular expression that matches a clause
+   * which prevents a SQL statement from being sent in a batch.
+   */
+  protected Pattern m_patternUnbatchableClause = Pattern.compile(PATTERN_UNBATCHABLE_CLAUSE,
+      Pattern.CASE_INSENSITIVE);
+
+  /**
+   * Compiled representation of the regulat expression that maches a command that
+   * sets a runtime parameter.
+   */
+  protected Pattern m_patternRuntimeParameterCommand = Pattern.compile(PATTERN_RUNTIME_PARAMETER_COMMAND,
+      Pattern.CASE_INSENSITIVE);
 
   /**
    * Build a new instance of a SQL deployment manager for a PostgreSQL relational
@@ -133,52 +249,184 @@ public class PostgreSQLDeploymentManager extends SQLDeploymentManager {
   /**
    * Parse the input stream and return a collection of SQL statements.
    *
-   * @param input          a stream containing SQL statements.
+   * @param content        the content of the SQL script file, without the data
+   *                       of its bulk loading statements.
    * @param objectTypeName the type of database object that these SQL statements
    *                       are responsible for creating.
    * @param sqlScript      the SQL script which the SQL statements are parsed
    *                       from.
+   * @param undefinedConstantNames a collection where the names of the tokens
+   *                       <code>+...+</code> used in the code of the SQL
+   *                       statements, or in the dataset directives, that
+   *                       don't correspond to any SQL constant are added to.
    *
    * @return a collection of SQL statements.
+   *
+   * @throws IOException if the SQL script file cannot be read.
    */
-  protected Collection<SQLStatement> parseSQLStatements(String input, String objectTypeName, SQLScript sqlScript) {
-    HashMap<String, String> runtimeParameterCommands = new HashMap<>();
+  protected Collection<SQLStatement> parseSQLStatements(SQLScriptContent content, String objectTypeName,
+      SQLScript sqlScript, Collection undefinedConstantNames) throws IOException {
+    String input = content.getText();
+
+    // Immutable snapshot of the runtime parameter commands declared so far,
+    // shared by the SQL statements that follow them.
+    Map runtimeParameters = Collections.EMPTY_MAP;
     Vector<SQLStatement> statements = new Vector<>();
 
-    // Remove all the comment from the script file's content.
-    //
-    Matcher matcher = m_patternSQLComment.matcher(input);
-    input = matcher.replaceAll("").trim();
+    // Index of the next bulk loading statement which data are located in the
+    // SQL script file.
+    int copyDataIndex = 0;
+
+    // Time in nanoseconds spent in replacing the SQL constants, which is
+    // recorded once the whole script has been parsed.
+    long substitutionTime = 0;
+
+    // Find the external dataset files declared in the script, which are
+    // loaded in their order among the other SQL statements.
+    LinkedList datasetDirectives = new LinkedList();
+    Matcher datasetDirectiveMatcher = m_patternDatasetDirective.matcher(input);
+    while (datasetDirectiveMatcher.find()) {
+      if (OBJECT_TYPE_NAME_DATASET.compareTo(objectTypeName) != 0) {
+        m_logger.warning("dataset.ignore", "dataset directive ignored in file '" + sqlScript.m_filePathname
+            + "' which doesn't manage datasets", "file", sqlScript.m_filePathname);
+        break;
+      }
 
-    // Parse each SQL statement.
+      datasetDirectives.add(datasetDirectiveMatcher.toMatchResult());
+    }
+
+    // Parse each SQL statement, skipping the comments.
     //
-    matcher = (objectTypeName.compareTo("function") == 0) ? m_patternSQLFunctionQuery.matcher(input)
-        : m_patternSQLQuery.matcher(input);
+    SQLLexer lexer = new SQLLexer(input);
+
+    while (lexer.next()) {
+      while (!datasetDirectives.isEmpty() && (((MatchResult) datasetDirectives.getFirst()).start() < lexer.getOffset())) {
+        statements.add(parseDatasetDirective((MatchResult) datasetDirectives.removeFirst(), sqlScript,
+            runtimeParameters, undefinedConstantNames));
+      }
 
-    while (matcher.find()) {
-      String sqlExpression = matcher.group(0).trim();
+      long startTime = System.nanoTime();
+      String sqlExpression = m_sqlConstantSubstitutor.substitute(lexer.getStatement(), null);
+      substitutionTime += System.nanoTime() - startTime;
       Matcher runtimeParameterCommandMatcher = m_patternRuntimeParameterCommand.matcher(sqlExpression);
 
-      // If the SQL expression corresponds to a runtime parameter command, add
-      // it to the corresponding dictionary with the name of the parameter as
-      // the key.
-      if (runtimeParameterCommandMatcher.find()) {
-        String parameterName = runtimeParameterCommandMatcher.group("name");
-        runtimeParameterCommands.put(parameterName, sqlExpression);
+      // If the SQL expression corresponds to a runtime parameter command, take
+      // a new snapshot of the runtime parameter commands with this command,
+      // keyed by the name of the parameter, which is case insensitive.
+      if (!lexer.hasCopyData() && runtimeParameterCommandMatcher.lookingAt()) {
+        String parameterName = runtimeParameterCommandMatcher.group("name").toLowerCase();
+        if (!sqlExpression.equals(runtimeParameters.get(parameterName))) {
+          Map snapshot = new LinkedHashMap(runtimeParameters);
+          snapshot.put(parameterName, sqlExpression);
+          runtimeParameters = Collections.unmodifiableMap(snapshot);
+        }
 
         // Add any other SQL expression in the list of statements to be executed.
-      } else if (sqlExpression.length() > 0) {
-        statements.add(new SQLStatement(sqlExpression, sqlScript, new ArrayList(runtimeParameterCommands.values())));
+      } else {
+        SQLStatement sqlStatement = new SQLStatement(sqlExpression, sqlScript, runtimeParameters);
+
+        // Only reference the location of the data of a bulk loading statement
+        // in the SQL script file, as these data may be very large.  They have
+        // been skipped when the file was read, in the order of the bulk loading
+        // statements.  Their SQL constants are replaced while they are copied.
+        if (lexer.hasCopyData()) {
+          sqlStatement.m_copyData = new SQLScriptCopyData(sqlScript.m_filePathname,
+              content.getCopyDataOffset(copyDataIndex), content.getCopyDataLength(copyDataIndex),
+              content.getFileSize(), content.getLastModifiedTime());
+          copyDataIndex++;
+        }
+
+        statements.add(sqlStatement);
       }
     }
 
+    while (!datasetDirectives.isEmpty()) {
+      statements.add(parseDatasetDirective((MatchResult) datasetDirectives.removeFirst(), sqlScript,
+          runtimeParameters, undefinedConstantNames));
+    }
+
+    // Report the undefined SQL constants that the code of the SQL statements
+    // uses.  The tokens found in string literals, comments, and the data of
+    // the bulk loading statements are not reported, as they may be ordinary
+    // text.
+    for (Iterator iterator = lexer.getConstantNames().iterator(); iterator.hasNext(); ) {
+      String constantName = (String) iterator.next();
+      if (m_sqlConstantSubstitutor.getValue(constantName) == null) {
+        undefinedConstantNames.add(constantName);
+      }
+    }
+
+    m_metrics.addPhaseTime(DeploymentMetrics.PHASE_CONSTANT_SUBSTITUTION, substitutionTime);
     return statements;
   }
 
+  /**
+   * Build the bulk loading statement that copies the external dataset file
+   * declared with the specified directive to its table.  Unless the options of
+   * the directive specify the format of the dataset file, this format is
+   * determined from the extension of its name: <code>.csv</code> for the CSV
+   * format, <code>.bin</code> or <code>.copy</code> for the binary format of
+   * PostgreSQL, and the text format otherwise, such as for <code>.tsv</code>.
+   * These extensions may be followed with <code>.gz</code> for a dataset file
+   * compressed with gzip.
+   *
+   * @param directive                the match result of a dataset directive.
+   * @param sqlScript                the SQL script which the directive is
+   *                                 declared in.
+   * @param runtimeParameters        the snapshot of the commands that change
+   *                                 run-time configuration parameters
+   *                                 declared so far.
+   * @param undefinedConstantNames   a collection where the names of the
+   *                                 undefined SQL constants are added to.
+   *
+   * @return the bulk loading statement.
+   *
+   * @throws FileNotFoundException if the dataset file doesn't exist.
+   */
+  protected SQLStatement parseDatasetDirective(MatchResult directive, SQLScript sqlScript,
+      Map runtimeParameters, Collection undefinedConstantNames) throws FileNotFoundException {
+    String tableName = m_sqlConstantSubstitutor.substitute(directive.group(1), undefinedConstantNames);
+    String filePathname = m_sqlConstantSubstitutor.substitute(directive.group(2), undefinedConstantNames);
+    String copyOptions = (directive.group(3) == null)
+        ? null
+        : m_sqlConstantSubstitutor.substitute(directive.group(3), undefinedConstantNames);
+
+    Path scriptDirectory = Paths.get(sqlScript.m_filePathname).toAbsolutePath().getParent();
+    Path datasetPath = scriptDirectory.resolve(filePathname);
+    if (!new File(datasetPath.toString()).isFile()) {
+      throw new FileNotFoundException("Dataset file " + datasetPath + " declared in file "
+          + sqlScript.m_filePathname + " doesn't exist");
+    }
+
+    SQLDatasetCopyData copyData = new SQLDatasetCopyData(datasetPath.toString());
+
+    if ((copyOptions == null) || !m_patternCopyFormatOption.matcher(copyOptions).find()) {
+      String fileName = copyData.getUncompressedFileName().toLowerCase();
+      String formatOption;
+      if (fileName.endsWith(".csv")) {
+        formatOption = "FORMAT csv";
+      } else if (fileName.endsWith(".bin") || fileName.endsWith(".copy")) {
+        formatOption = "FORMAT binary";
+      } else {
+        formatOption = "FORMAT text";
+      }
+
+      copyOptions = ((copyOptions == null) || (copyOptions.length() == 0))
+          ? formatOption
+          : formatOption + ", " + copyOptions;
+    }
+
+    SQLStatement sqlStatement = new SQLStatement("COPY " + tableName + " FROM STDIN WITH (" + copyOptions + ")",
+        sqlScript, runtimeParameters);
+    sqlStatement.m_copyData = copyData;
+    return sqlStatement;
+  }
+
   /**
    * Execute the specified SQL statement against the PostgreSQL relation database
    * management system.
    *
+   * @param sqlSession   the session to execute the SQL statement on.
    * @param sqlStatement a SQL statement to be executed.
    *
    * @return <code>true</code> if the SQL statement execution succeeded;
@@ -186,53 +434,68 @@ public class PostgreSQLDeploymentManager extends SQLDeploymentManager {
    *
    * @throws SQLException if the execution of the SQL statement failed.
    */
-  protected boolean processSQLStatement(SQLStatement sqlStatement) throws SQLException {
-    Connection rdbmsConnection = getRBDMSConnection();
+  protected boolean processSQLStatement(SQLSession sqlSession, SQLStatement sqlStatement) throws SQLException {
+    Connection rdbmsConnection = sqlSession.getConnection();
 
     try {
-      if (sqlStatement.m_runtimeParameterCommands != null) {
-        for (Iterator iterator = sqlStatement.m_runtimeParameterCommands.iterator(); iterator.hasNext();) {
-          String runtimeParameterCommand = (String) iterator.next();
-
-          if (m_verbose_enabled) {
-            System.out.println(runtimeParameterCommand);
-          }
+      setRuntimeParameters(sqlSession, sqlStatement.m_runtimeParameters);
 
-          rdbmsConnection.createStatement().execute(runtimeParameterCommand);
-        }
-      }
-
-      if (m_verbose_enabled) {
-        System.out.println(sqlStatement.m_sqlExpression);
+      if (m_logger.isEnabled(DeploymentLogger.LEVEL_DEBUG)) {
+        m_logger.debug("statement.execute", sqlStatement.m_sqlExpression, "file", sqlStatement.m_sqlScript.m_filePathname);
       }
 
       // Execute bulk loading expression into a table using the specific
       // PostgreSQL JDBC class.
-      if (sqlStatement.m_sqlExpression.startsWith(PATTERN_COPY_INSTRUCTION)) {
-        int splitOffset = sqlStatement.m_sqlExpression.indexOf(';');
-        String sqlExpression = sqlStatement.m_sqlExpression.substring(0, splitOffset);
-        String sqlData = sqlStatement.m_sqlExpression.substring(splitOffset + 1).trim() + System.lineSeparator();
-
+      if (sqlStatement.m_copyData != null) {
         BaseConnection baseConnection = (BaseConnection) rdbmsConnection;
         CopyManager copyManager = new CopyManager(baseConnection);
 
         try {
-          copyManager.copyIn(sqlExpression, new StringReader(sqlData));
+          String tableName = getCopyTableName(sqlStatement.m_sqlExpression);
+          SQLCopyProgressInputStream inputStream = new SQLCopyProgressInputStream(
+              sqlStatement.m_copyData.openInputStream(m_sqlConstantSubstitutor, m_copyBufferSize), tableName, m_logger);
+          try {
+            long rowCount = copyManager.copyIn(sqlStatement.m_sqlExpression, inputStream, m_copyBufferSize);
+            long endTime = System.currentTimeMillis();
+            m_copyStatistics.record(inputStream.getStartTime(), endTime, rowCount, inputStream.getByteCount());
+
+            m_logger.info("copy.complete", "Copied " + rowCount + " rows ("
+                + SQLCopyStatistics.formatMegabytes(inputStream.getByteCount()) + ") into " + tableName + " in "
+                + String.format("%.1f s", (endTime - inputStream.getStartTime()) / 1000.0),
+                "table", tableName, "row_count", Long.valueOf(rowCount), "byte_count", Long.valueOf(inputStream.getByteCount()),
+                "duration_ms", Long.valueOf(endTime - inputStream.getStartTime()));
+          } finally {
+            inputStream.close();
+          }
         } catch (IOException exception) {
-          exception.printStackTrace();
+          // Fail the statement rather than recording the revision of a script
+          // whose data haven't been loaded.
+          throw new SQLException("Cannot read the data of the statement of file '"
+              + sqlStatement.m_sqlScript.m_filePathname + "': " + exception.getMessage(), SQL_STATE_IO_ERROR, exception);
         }
 
         // Execute standard SQL expression with the classic JDBC statement class.
       } else {
-        rdbmsConnection.createStatement().execute(sqlStatement.m_sqlExpression);
-      }
+        Statement statement = rdbmsConnection.createStatement();
 
-      if (m_verbose_enabled) {
-        System.out.println("Success.\n");
+        try {
+          statement.execute(sqlStatement.m_sqlExpression);
+        } finally {
+          statement.close();
+        }
       }
+
+      m_logger.debug("statement.success", "Success.");
     } catch (SQLException exception) {
-      if (m_verbose_enabled) {
-        System.out.println("Failure: " + exception.getSQLState() + " " + exception.getMessage() + "\n");
+      if (m_logger.isEnabled(DeploymentLogger.LEVEL_DEBUG)) {
+        m_logger.debug("statement.failure", "Failure: " + exception.getSQLState() + " " + exception.getMessage(),
+            "file", sqlStatement.m_sqlScript.m_filePathname, "sql_state", exception.getSQLState());
+      }
+
+      // Undo the failed statement so that the transaction in progress, if any,
+      // can go on, whether this failure is ignored or not.
+      if (!sqlSession.checkBroken(exception)) {
+        sqlSession.rollbackToSavepoint();
       }
 
       String sqlState = exception.getSQLState();
@@ -246,7 +509,12 @@ public class PostgreSQLDeploymentManager extends SQLDeploymentManager {
       // 42P07 - ERROR: relation "..." already exists
       // 42P16 - ERROR: multiple primary keys for table "..." are not
       // allowed
-      if ("42883".compareTo(sqlState) == 0) {
+      // 58030 - ERROR: could not read the data of a bulk loading
+      // statement
+      if ((sqlState == null) || (SQL_STATE_IO_ERROR.compareTo(sqlState) == 0)) {
+        throw exception;
+      } else if ("42883".compareTo(sqlState) == 0) {
+        sqlStatement.m_missingObjectName = getMissingObjectName(exception);
         return false;
       } else if ("42P01".compareTo(sqlState) == 0) {
         // Handle the case when a table inherits from one other that has not been
@@ -259,16 +527,234 @@ public class PostgreSQLDeploymentManager extends SQLDeploymentManager {
             && ("materialized-view".compareTo(sqlStatement.m_sqlScript.m_objectTypeName) != 0)
             && ("constraint".compareTo(sqlStatement.m_sqlScript.m_objectTypeName) != 0)
             && ("index".compareTo(sqlStatement.m_sqlScript.m_objectTypeName) != 0))
-            || (sqlStatement.m_attemptCount > 0)) {
+            || (sqlStatement.m_attemptCount >= m_maximumAttemptCount)) {
           throw exception;
         }
+
+        sqlStatement.m_missingObjectName = getMissingObjectName(exception);
+        return false;
       } else if ("42703".compareTo(sqlState) == 0) {
         throw exception;
+      } else if (sqlSession.checkBroken(exception)) {
+        throw exception;
       }
-    } finally {
-      rdbmsConnection.close();
     }
 
     return true;
   }
+
+  /**
+   * Return the name of the table that the specified bulk loading statement
+   * copies data to.
+   *
+   * @param sqlExpression a bulk loading statement.
+   *
+   * @return the name of the table, or the statement itself if this name cannot
+   *         be found.
+   */
+  protected String getCopyTableName(String sqlExpression) {
+    Matcher matcher = m_patternCopyTable.matcher(sqlExpression);
+    return matcher.lookingAt() ? matcher.group(1) : sqlExpression;
+  }
+
+  /**
+   * Return the name of the missing database object reported in the message of
+   * the specified PostgreSQL exception.  The name is returned without its schema
+   * so that it can be compared with the names of the database objects that SQL
+   * statements create.
+   *
+   * @param exception an exception raised because of a dependency on a database
+   *                  object that is not yet created.
+   *
+   * @return the name of the missing database object, or <code>null</code> if
+   *         the message of the exception doesn't report it.
+   */
+  protected String getMissingObjectName(SQLException exception) {
+    String message = exception.getMessage();
+    if (message == null) {
+      return null;
+    }
+
+    Matcher matcher = m_patternMissingObject.matcher(message);
+    if (!matcher.find()) {
+      return null;
+    }
+
+    String name = matcher.group(1);
+    if (name.startsWith("\"")) {
+      name = name.substring(1, name.length() - 1);
+    }
+
+    name = name.substring(name.lastIndexOf('.') + 1);
+    if (name.startsWith("\"") && name.endsWith("\"") && (name.length() > 1)) {
+      name = name.substring(1, name.length() - 1);
+    }
+
+    return name;
+  }
+
+  /**
+   * Indicate whether the specified SQL statement can be sent in a batch with
+   * other statements.  Bulk loading statements, statements that return a result,
+   * and statements that cannot be executed inside a transaction block, such as
+   * <code>CREATE INDEX CONCURRENTLY</code> or <code>VACUUM</code>, are executed
+   * on their own.
+   *
+   * @param sqlStatement a SQL statement.
+   *
+   * @return <code>true</code> if the SQL statement can be batched;
+   *         <code>false</code> otherwise.
+   */
+  protected boolean isBatchable(SQLStatement sqlStatement) {
+    return (sqlStatement.m_copyData == null)
+        && m_patternBatchableStatement.matcher(sqlStatement.m_sqlExpression).lookingAt()
+        && !m_patternUnbatchableClause.matcher(sqlStatement.m_sqlExpression).find();
+  }
+
+  /**
+   * Indicate whether the specified SQL statement can be executed inside a
+   * transaction block.  Statements such as <code>VACUUM</code>,
+   * <code>CREATE DATABASE</code>, <code>CREATE INDEX CONCURRENTLY</code> or
+   * <code>ALTER TYPE ... ADD VALUE</code> are executed between two transactions.
+   *
+   * @param sqlStatement a SQL statement.
+   *
+   * @return <code>true</code> if the SQL statement can be executed inside a
+   *         transaction block; <code>false</code> otherwise.
+   */
+  protected boolean isTransactional(SQLStatement sqlStatement) {
+    return !m_patternNonTransactionalStatement.matcher(sqlStatement.m_sqlExpression).lookingAt()
+        && !m_patternNonTransactionalClause.matcher(sqlStatement.m_sqlExpression).find();
+  }
+
+  /**
+   * Execute the specified SQL statements in a single JDBC batch, which is sent to
+   * the server in one round trip and executed in a single implicit transaction.
+   *
+   * @param sqlSession    the session to execute the SQL statements on.
+   * @param sqlStatements a list of <code>SQLStatement</code> objects that can be
+   *                      batched and that share the same run-time configuration
+   *                      parameters.
+   *
+   * @return <code>true</code> if the execution of every SQL statement
+   *         succeeded; <code>false</code> if the batch failed.
+   *
+   * @throws SQLException if the run-time configuration parameters of the session
+   *                      cannot be changed, or if the connection has been lost.
+   */
+  protected boolean processSQLStatementBatch(SQLSession sqlSession, List sqlStatements) throws SQLException {
+    setRuntimeParameters(sqlSession, ((SQLStatement) sqlStatements.get(0)).m_runtimeParameters);
+
+    Statement statement = sqlSession.getConnection().createStatement();
+
+    try {
+      for (Iterator iterator = sqlStatements.iterator(); iterator.hasNext();) {
+        SQLStatement sqlStatement = (SQLStatement) iterator.next();
+
+        if (m_logger.isEnabled(DeploymentLogger.LEVEL_DEBUG)) {
+          m_logger.debug("statement.execute", sqlStatement.m_sqlExpression, "file", sqlStatement.m_sqlScript.m_filePathname);
+        }
+
+        statement.addBatch(sqlStatement.m_sqlExpression);
+      }
+
+      statement.executeBatch();
+
+      if (m_logger.isEnabled(DeploymentLogger.LEVEL_DEBUG)) {
+        m_logger.debug("batch.success", "Success (batch of " + sqlStatements.size() + " statements).",
+            "statement_count", Integer.valueOf(sqlStatements.size()));
+      }
+
+      return true;
+    } catch (SQLException exception) {
+      if (m_logger.isEnabled(DeploymentLogger.LEVEL_DEBUG)) {
+        m_logger.debug("batch.failure", "Batch failure: " + exception.getSQLState() + " " + exception.getMessage()
+            + ", executing the statements one by one", "sql_state", exception.getSQLState());
+      }
+
+      // The caller reconnects the session if the connection has been lost,
+      // and undoes the batch otherwise.
+      if (sqlSession.checkBroken(exception)) {
+        throw exception;
+      }
+
+      return false;
+    } finally {
+      statement.close();
+    }
+  }
+
+  /**
+   * Change the run-time configuration parameters of the specified session so
+   * that they correspond to the given snapshot of commands.  Nothing is
+   * executed if this snapshot has been already applied to this session.
+   * Otherwise only the commands of the parameters which differ from the current
+   * state of the session are executed, and the parameters that the snapshot
+   * doesn't define are reset to their default values, all in a single round
+   * trip.  If the state of the session is unknown, every runtime parameter is
+   * reset first.
+   *
+   * @param sqlSession        the session to change the runtime parameters.
+   * @param runtimeParameters snapshot of the commands to change run-time
+   *                          configuration parameters, keyed by the names of
+   *                          these parameters, or <code>null</code>.
+   *
+   * @throws SQLException if a runtime parameter cannot be changed.
+   */
+  protected void setRuntimeParameters(SQLSession sqlSession, Map runtimeParameters)
+      throws SQLException {
+    if (runtimeParameters == null) {
+      runtimeParameters = Collections.EMPTY_MAP;
+    }
+
+    Map sessionRuntimeParameters = sqlSession.m_runtimeParameters;
+    if ((sessionRuntimeParameters == runtimeParameters) || runtimeParameters.equals(sessionRuntimeParameters)) {
+      return;
+    }
+
+    List commands = new ArrayList();
+    if (sessionRuntimeParameters == null) {
+      commands.add(COMMAND_RESET_ALL_RUNTIME_PARAMETERS);
+      sessionRuntimeParameters = Collections.EMPTY_MAP;
+    }
+
+    for (Iterator iterator = sessionRuntimeParameters.keySet().iterator(); iterator.hasNext();) {
+      String parameterName = (String) iterator.next();
+      if (!runtimeParameters.containsKey(parameterName)) {
+        commands.add(COMMAND_RESET_RUNTIME_PARAMETER + parameterName);
+      }
+    }
+
+    for (Iterator iterator = runtimeParameters.entrySet().iterator(); iterator.hasNext();) {
+      Map.Entry entry = (Map.Entry) iterator.next();
+      if (!entry.getValue().equals(sessionRuntimeParameters.get(entry.getKey()))) {
+        commands.add(entry.getValue());
+      }
+    }
+
+    StringBuffer sqlExpression = new StringBuffer();
+    for (Iterator iterator = commands.iterator(); iterator.hasNext();) {
+      String command = (String) iterator.next();
+
+      m_logger.debug("session.parameter", command);
+
+      if (sqlExpression.length() > 0) {
+        sqlExpression.append("; ");
+      }
+      sqlExpression.append(command);
+    }
+
+    // The state of the session is unknown until every command succeeded.
+    sqlSession.m_runtimeParameters = null;
+
+    Statement statement = sqlSession.getConnection().createStatement();
+
+    try {
+      statement.execute(sqlExpression.toString());
+    } finally {
+      statement.close();
+    }
+
+    sqlSession.m_runtimeParameters = runtimeParameters;
+  }
 }
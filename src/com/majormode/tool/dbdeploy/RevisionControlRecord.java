@@ -0,0 +1,91 @@
+/**
+ * Copyright (C) 1998-2008 Majormode.  All rights reserved.
+ *
+ * This software is the confidential and proprietary information of
+ * Majormode or one of its subsidiaries.  You shall not disclose this
+ * confidential information and shall use it only in accordance with
+ * the terms of the license agreement or other applicable agreement
+ * you entered into with Majormode.
+ *
+ * MAJORMODE MAKES NO REPRESENTATIONS OR WARRANTIES ABOUT THE
+ * SUITABILITY OF THE SOFTWARE, EITHER EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE IMPLIED WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE, OR NON-INFRINGEMENT.  MAJORMODE
+ * SHALL NOT BE LIABLE FOR ANY LOSSES OR DAMAGES SUFFERED BY LICENSEE
+ * AS A RESULT OF USING, MODIFYING OR DISTRIBUTING THIS SOFTWARE OR
+ * ITS DERIVATIVES.
+ */
+
+package com.majormode.tool.dbdeploy;
+
+import java.util.Date;
+
+/**
+ * Represent the last deployment of the database objects of a given
+ * type for a given module, as stored in the table
+ * <code>revision_control</code>.
+ *
+ * @author Daniel CAUNE (daniel.caune@majormode.com)
+ */
+public class RevisionControlRecord {
+  /**
+   * Status of the last deployment of these database objects.
+   */
+  public int m_deploymentStatus;
+
+  /**
+   * Date and time of the last deployment of these database objects.
+   */
+  public Date m_deploymentTime;
+
+  /**
+   * Name of the module, as stored in the table.
+   */
+  public String m_moduleName;
+
+  /**
+   * Type of the database objects, as stored in the table.
+   */
+  public String m_objectTypeName;
+
+  /**
+   * Revision number of the last deployment of these database objects.
+   */
+  public int m_revisionNumber;
+
+  /**
+   * Build a revision control record.
+   *
+   * @param moduleName name of the module.
+   * @param objectTypeName type of the database objects.
+   * @param revisionNumber revision number of the last deployment.
+   * @param deploymentTime date and time of the last deployment.
+   * @param deploymentStatus status of the last deployment.
+   */
+  public RevisionControlRecord(
+      String moduleName,
+      String objectTypeName,
+      int revisionNumber,
+      Date deploymentTime,
+      int deploymentStatus) {
+    m_moduleName = moduleName;
+    m_objectTypeName = objectTypeName;
+    m_revisionNumber = revisionNumber;
+    m_deploymentTime = deploymentTime;
+    m_deploymentStatus = deploymentStatus;
+  }
+
+  /**
+   * Return the key that identifies the deployment of the database
+   * objects of a given type for a given module.  The key is case
+   * insensitive.
+   *
+   * @param moduleName name of the module.
+   * @param objectTypeName type of the database objects.
+   *
+   * @return the key of the deployment.
+   */
+  public static String getKey(String moduleName, String objectTypeName) {
+    return moduleName.toLowerCase() + ":" + objectTypeName.toLowerCase();
+  }
+}
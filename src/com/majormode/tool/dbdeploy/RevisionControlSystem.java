@@ -19,6 +19,16 @@
 package com.majormode.tool.dbdeploy;
 
 public interface RevisionControlSystem {
+  /**
+   * Indicate whether the revision numbers of this revision control
+   * system increase over time, so that a revision older than the last
+   * deployed can be detected.
+   *
+   * @return <code>true</code> if revision numbers are ordered;
+   *         <code>false</code> if they only identify a revision.
+   */
+  public boolean hasOrderedRevisionNumbers();
+
   public int parseRevisionNumber(String sourceCode)
     throws UndefinedRevisionNumberException;
 }
\ No newline at end of file
@@ -37,7 +37,10 @@ public abstract class RevisionControlSystemFactory {
   public static RevisionControlSystem getRevisionControlSystem(
       String revisionControlSystemName) 
     throws UnsupportedRevisionControlSystemException {
-    if (revisionControlSystemName.compareTo("perforce") == 0)
+    if ((revisionControlSystemName.compareTo("content-hash") == 0) ||
+        (revisionControlSystemName.compareTo("git") == 0))
+      return new ContentHashRevisionControlSystem();
+    else if (revisionControlSystemName.compareTo("perforce") == 0)
       return new PerforceRevisionControlSystem();
     else if (revisionControlSystemName.compareTo("subversion") == 0)
       return new SubversionRevisionControlSystem();
@@ -0,0 +1,258 @@
+/**
+ * Copyright (C) 1998-2008 Majormode.  All rights reserved.
+ *
+ * This software is the confidential and proprietary information of
+ * Majormode or one of its subsidiaries.  You shall not disclose this
+ * confidential information and shall use it only in accordance with
+ * the terms of the license agreement or other applicable agreement
+ * you entered into with Majormode.
+ *
+ * MAJORMODE MAKES NO REPRESENTATIONS OR WARRANTIES ABOUT THE
+ * SUITABILITY OF THE SOFTWARE, EITHER EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE IMPLIED WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE, OR NON-INFRINGEMENT.  MAJORMODE
+ * SHALL NOT BE LIABLE FOR ANY LOSSES OR DAMAGES SUFFERED BY LICENSEE
+ * AS A RESULT OF USING, MODIFYING OR DISTRIBUTING THIS SOFTWARE OR
+ * ITS DERIVATIVES.
+ */
+
+package com.majormode.tool.dbdeploy;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Persistent index of the SQL constants declared in the SQL script
+ * files, stored in a single file.  The index records, for every SQL
+ * script file, the size and the last modification time of this file
+ * together with the names and the values of the SQL constants it
+ * declares.  As SQL constants are global, every SQL script file has
+ * to be considered on every run, even when only some scripts are to
+ * be deployed: with the index, only the files which have changed
+ * since the previous run are read.  The index is updated
+ * incrementally with these files.
+ *
+ * @author Daniel CAUNE (daniel.caune@majormode.com)
+ */
+public class SQLConstantIndex {
+  /**
+   * Name of the file of the index in the directory of the parse cache.
+   */
+  public static final String DEFAULT_FILE_NAME = "constants.index";
+
+  /**
+   * Number that identifies the format of the index, and its version.
+   */
+  protected static final int FORMAT_MAGIC_NUMBER = 0x44424349;
+  protected static final int FORMAT_VERSION = 1;
+
+  /**
+   * Path of the file of the index.
+   */
+  protected Path m_filePath;
+
+  /**
+   * Logger of the warnings of the index.
+   */
+  protected DeploymentLogger m_logger;
+
+  /**
+   * Indicate whether the index has been modified since it has been
+   * loaded.
+   */
+  protected boolean m_modified = false;
+
+  /**
+   * Records of the SQL script files that have been found changed
+   * during this run, keyed by the absolute pathname of these files.
+   * Their attributes are those read before their content.
+   */
+  protected HashMap m_pendingRecords = new HashMap();
+
+  /**
+   * Records of the SQL script files, keyed by the absolute pathname of
+   * these files.  Only the pathname, the size, the last modification
+   * time and the declared constants of a record are used.
+   */
+  protected HashMap m_records = new HashMap();
+
+  /**
+   * Build the index stored in the specified file.  The index is empty
+   * if the file doesn't exist or cannot be read.
+   *
+   * @param filePath the path of the file of the index.
+   * @param logger the logger of the warnings of the index.
+   */
+  public SQLConstantIndex(Path filePath, DeploymentLogger logger) {
+    m_filePath = filePath;
+    m_logger = logger;
+
+    if (Files.isRegularFile(filePath)) {
+      try {
+        load();
+      } catch (IOException exception) {
+        m_logger.warning("index.load", "ignoring the constant index '" + filePath + "': " + exception.getMessage(),
+            "file", filePath.toString());
+        m_records.clear();
+      }
+    }
+  }
+
+  /**
+   * Return the SQL constants declared in the specified SQL script, if
+   * its file has not changed since it has been indexed.  Otherwise the
+   * current attributes of the file are remembered, so that the SQL
+   * constants read afterwards from this file are indexed with these
+   * attributes.
+   *
+   * @param sqlScript a SQL script.
+   *
+   * @return a list of <code>SQLConstant</code> objects, in the order
+   *         of their declaration, or <code>null</code> if the file has
+   *         to be read.
+   *
+   * @throws IOException if the attributes of the file cannot be read.
+   */
+  public List getSQLConstants(SQLScript sqlScript)
+    throws IOException {
+    Path path = SQLScriptCache.getAbsolutePath(sqlScript.m_filePathname);
+    long fileSize = Files.size(path);
+    long lastModifiedTime = Files.getLastModifiedTime(path).toMillis();
+
+    synchronized (this) {
+      SQLScriptCacheEntry record = (SQLScriptCacheEntry) m_records.get(path.toString());
+      if ((record != null) && (record.m_fileSize == fileSize) && (record.m_lastModifiedTime == lastModifiedTime))
+        return record.getSQLConstants(sqlScript);
+
+      m_pendingRecords.put(path.toString(), new SQLScriptCacheEntry(path.toString(), fileSize, lastModifiedTime, null));
+      return null;
+    }
+  }
+
+  /**
+   * Read the index from its file.
+   *
+   * @throws IOException if the file cannot be read or has not the
+   *         expected format.
+   */
+  protected void load()
+    throws IOException {
+    DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(m_filePath)));
+    try {
+      if ((input.readInt() != FORMAT_MAGIC_NUMBER) || (input.readInt() != FORMAT_VERSION))
+        throw new IOException("unsupported format");
+
+      int recordCount = input.readInt();
+      for (int i = 0; i < recordCount; i++) {
+        SQLScriptCacheEntry record = new SQLScriptCacheEntry(
+            SQLScriptCache.readString(input), input.readLong(), input.readLong(), null);
+
+        int constantCount = input.readInt();
+        for (int j = 0; j < constantCount; j++)
+          record.m_declaredConstants.add(new String[] {
+              SQLScriptCache.readString(input), SQLScriptCache.readString(input) });
+
+        m_records.put(record.m_filePathname, record);
+      }
+    } finally {
+      input.close();
+    }
+  }
+
+  /**
+   * Index the SQL constants that have just been read from the
+   * specified SQL script file.
+   *
+   * @param sqlScript a SQL script which file has changed.
+   * @param sqlConstants a list of the <code>SQLConstant</code> objects
+   *        declared in this file.
+   */
+  public synchronized void put(SQLScript sqlScript, List sqlConstants) {
+    String filePathname = SQLScriptCache.getAbsolutePath(sqlScript.m_filePathname).toString();
+    SQLScriptCacheEntry record = (SQLScriptCacheEntry) m_pendingRecords.remove(filePathname);
+    if (record == null)
+      return;
+
+    for (Iterator iterator = sqlConstants.iterator(); iterator.hasNext(); ) {
+      SQLConstant sqlConstant = (SQLConstant) iterator.next();
+      record.m_declaredConstants.add(new String[] { sqlConstant.m_name, sqlConstant.m_value });
+    }
+
+    m_records.put(filePathname, record);
+    m_modified = true;
+  }
+
+  /**
+   * Write the index to its file if it has been modified.  The records
+   * of the files that don't exist anymore are removed beforehand.  The
+   * index is written to a temporary file that then replaces the former
+   * file of the index.
+   *
+   * @param sqlScripts the collection of the SQL scripts of this run,
+   *        which records are kept without being checked.
+   */
+  public synchronized void save(Collection sqlScripts) {
+    if (!m_modified)
+      return;
+
+    Set filePathnames = new HashSet();
+    for (Iterator iterator = sqlScripts.iterator(); iterator.hasNext(); )
+      filePathnames.add(SQLScriptCache.getAbsolutePath(((SQLScript) iterator.next()).m_filePathname).toString());
+
+    for (Iterator iterator = m_records.keySet().iterator(); iterator.hasNext(); ) {
+      String filePathname = (String) iterator.next();
+      if (!filePathnames.contains(filePathname) && !Files.isRegularFile(Paths.get(filePathname)))
+        iterator.remove();
+    }
+
+    try {
+      Path temporaryPath = Files.createTempFile(m_filePath.toAbsolutePath().getParent(), null, null);
+      try {
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryPath)));
+        try {
+          output.writeInt(FORMAT_MAGIC_NUMBER);
+          output.writeInt(FORMAT_VERSION);
+          output.writeInt(m_records.size());
+
+          for (Iterator iterator = m_records.values().iterator(); iterator.hasNext(); ) {
+            SQLScriptCacheEntry record = (SQLScriptCacheEntry) iterator.next();
+            SQLScriptCache.writeString(output, record.m_filePathname);
+            output.writeLong(record.m_fileSize);
+            output.writeLong(record.m_lastModifiedTime);
+
+            output.writeInt(record.m_declaredConstants.size());
+            for (Iterator constantIterator = record.m_declaredConstants.iterator(); constantIterator.hasNext(); ) {
+              String[] declaredConstant = (String[]) constantIterator.next();
+              SQLScriptCache.writeString(output, declaredConstant[0]);
+              SQLScriptCache.writeString(output, declaredConstant[1]);
+            }
+          }
+        } finally {
+          output.close();
+        }
+
+        Files.move(temporaryPath, m_filePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } finally {
+        Files.deleteIfExists(temporaryPath);
+      }
+
+      m_modified = false;
+    } catch (IOException exception) {
+      m_logger.warning("index.store", "cannot store the constant index '" + m_filePath + "': " + exception.getMessage(),
+          "file", m_filePath.toString());
+    }
+  }
+}
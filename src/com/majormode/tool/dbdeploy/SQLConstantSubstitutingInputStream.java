@@ -0,0 +1,288 @@
+/**
+ * Copyright (C) 1998-2008 Majormode.  All rights reserved.
+ *
+ * This software is the confidential and proprietary information of
+ * Majormode or one of its subsidiaries.  You shall not disclose this
+ * confidential information and shall use it only in accordance with
+ * the terms of the license agreement or other applicable agreement
+ * you entered into with Majormode.
+ *
+ * MAJORMODE MAKES NO REPRESENTATIONS OR WARRANTIES ABOUT THE
+ * SUITABILITY OF THE SOFTWARE, EITHER EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE IMPLIED WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE, OR NON-INFRINGEMENT.  MAJORMODE
+ * SHALL NOT BE LIABLE FOR ANY LOSSES OR DAMAGES SUFFERED BY LICENSEE
+ * AS A RESULT OF USING, MODIFYING OR DISTRIBUTING THIS SOFTWARE OR
+ * ITS DERIVATIVES.
+ */
+
+package com.majormode.tool.dbdeploy;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+
+/**
+ * Input stream that replaces the SQL constants used in the bytes read
+ * from another stream, encoded in UTF-8, by their values.  The bytes
+ * don't need to be decoded: the delimiters and the names of SQL
+ * constants are ASCII characters, which bytes never occur within the
+ * encoding of another character.  As the name of a SQL constant
+ * cannot span several lines, the bytes are substituted by chunks of
+ * whole lines, so that the memory used doesn't depend on the number
+ * of bytes read but on the length of the longest line.
+ *
+ * @author Daniel CAUNE (daniel.caune@majormode.com)
+ */
+public class SQLConstantSubstitutingInputStream extends InputStream {
+  /**
+   * Encoded values of the SQL constants that have been replaced so
+   * far, keyed by the names of these constants.
+   */
+  protected HashMap m_encodedConstantValues = new HashMap();
+
+  /**
+   * Buffer of the bytes read from the underlying stream that have not
+   * been substituted yet.
+   */
+  protected byte[] m_inputBuffer;
+
+  /**
+   * Number of bytes stored in the input buffer.
+   */
+  protected int m_inputLength = 0;
+
+  /**
+   * Stream the bytes are read from.
+   */
+  protected InputStream m_inputStream;
+
+  /**
+   * Indicate whether the end of the underlying stream has been
+   * reached.
+   */
+  protected boolean m_isEndOfInput = false;
+
+  /**
+   * Buffer of the substituted bytes that have not been returned yet.
+   */
+  protected byte[] m_outputBuffer;
+
+  /**
+   * Number of bytes stored in the output buffer.
+   */
+  protected int m_outputLength = 0;
+
+  /**
+   * Offset of the next byte of the output buffer to be returned.
+   */
+  protected int m_outputOffset = 0;
+
+  /**
+   * Substitutor that replaces the SQL constants by their values.
+   */
+  protected SQLConstantSubstitutor m_sqlConstantSubstitutor;
+
+  /**
+   * Build a stream that replaces the SQL constants used in the bytes
+   * read from the specified stream.
+   *
+   * @param inputStream the stream the bytes are read from.
+   * @param sqlConstantSubstitutor the substitutor that replaces the SQL
+   *        constants by their values.
+   * @param bufferSize the initial size of the buffer of the bytes read
+   *        from the underlying stream.
+   */
+  public SQLConstantSubstitutingInputStream(
+      InputStream inputStream,
+      SQLConstantSubstitutor sqlConstantSubstitutor,
+      int bufferSize) {
+    m_inputStream = inputStream;
+    m_sqlConstantSubstitutor = sqlConstantSubstitutor;
+    m_inputBuffer = new byte[bufferSize];
+    m_outputBuffer = new byte[bufferSize];
+  }
+
+  /**
+   * Append the specified bytes to the output buffer.
+   *
+   * @param bytes an array of bytes.
+   * @param offset offset of the first byte to append.
+   * @param length number of bytes to append.
+   */
+  protected void append(byte[] bytes, int offset, int length) {
+    if (m_outputLength + length > m_outputBuffer.length) {
+      byte[] outputBuffer = new byte[Math.max(m_outputBuffer.length * 2, m_outputLength + length)];
+      System.arraycopy(m_outputBuffer, 0, outputBuffer, 0, m_outputLength);
+      m_outputBuffer = outputBuffer;
+    }
+
+    System.arraycopy(bytes, offset, m_outputBuffer, m_outputLength, length);
+    m_outputLength += length;
+  }
+
+  public void close()
+    throws IOException {
+    m_inputStream.close();
+  }
+
+  /**
+   * Substitute the next chunk of whole lines read from the underlying
+   * stream, and store the result in the output buffer.
+   *
+   * @return <code>false</code> if the end of the underlying stream has
+   *         been reached and every byte has been substituted;
+   *         <code>true</code> otherwise.
+   *
+   * @throws IOException if the underlying stream failed.
+   */
+  protected boolean fill()
+    throws IOException {
+    m_outputLength = 0;
+    m_outputOffset = 0;
+
+    while (true) {
+      int chunkLength = m_inputLength;
+      if (!m_isEndOfInput) {
+        while ((chunkLength > 0) && (m_inputBuffer[chunkLength - 1] != '\n'))
+          chunkLength--;
+      }
+
+      if (chunkLength > 0) {
+        substitute(m_inputBuffer, 0, chunkLength);
+
+        System.arraycopy(m_inputBuffer, chunkLength, m_inputBuffer, 0, m_inputLength - chunkLength);
+        m_inputLength -= chunkLength;
+        return true;
+      }
+
+      if (m_isEndOfInput)
+        return false;
+
+      // The buffer doesn't contain a whole line yet.
+      //
+      if (m_inputLength == m_inputBuffer.length) {
+        byte[] inputBuffer = new byte[m_inputBuffer.length * 2];
+        System.arraycopy(m_inputBuffer, 0, inputBuffer, 0, m_inputLength);
+        m_inputBuffer = inputBuffer;
+      }
+
+      int readCount = m_inputStream.read(m_inputBuffer, m_inputLength, m_inputBuffer.length - m_inputLength);
+      if (readCount < 0)
+        m_isEndOfInput = true;
+      else
+        m_inputLength += readCount;
+    }
+  }
+
+  /**
+   * Return the value of the specified SQL constant, encoded in UTF-8.
+   *
+   * @param constantName the name of a SQL constant, delimiters
+   *        included.
+   *
+   * @return the encoded value of this SQL constant, or
+   *         <code>null</code> if this constant is not defined.
+   */
+  protected byte[] getEncodedConstantValue(String constantName) {
+    byte[] encodedConstantValue = (byte[]) m_encodedConstantValues.get(constantName);
+    if (encodedConstantValue == null) {
+      String constantValue = m_sqlConstantSubstitutor.getValue(constantName);
+      if (constantValue == null)
+        return null;
+
+      encodedConstantValue = constantValue.getBytes(StandardCharsets.UTF_8);
+      m_encodedConstantValues.put(constantName, encodedConstantValue);
+    }
+
+    return encodedConstantValue;
+  }
+
+  /**
+   * Return the offset of the next delimiter of a SQL constant name in
+   * the specified region of bytes.
+   *
+   * @param bytes an array of bytes.
+   * @param start offset of the first byte of the region.
+   * @param end offset of the end of the region.
+   *
+   * @return the offset of the next delimiter, or <code>-1</code> if
+   *         the region doesn't contain any delimiter.
+   */
+  protected static int indexOfDelimiter(byte[] bytes, int start, int end) {
+    for (int i = start; i < end; i++)
+      if (bytes[i] == SQLConstantSubstitutor.CONSTANT_NAME_DELIMITER)
+        return i;
+
+    return -1;
+  }
+
+  public int read()
+    throws IOException {
+    while (m_outputOffset >= m_outputLength)
+      if (!fill())
+        return -1;
+
+    return m_outputBuffer[m_outputOffset++] & 0xFF;
+  }
+
+  public int read(byte[] buffer, int offset, int length)
+    throws IOException {
+    if (length == 0)
+      return 0;
+
+    while (m_outputOffset >= m_outputLength)
+      if (!fill())
+        return -1;
+
+    int count = Math.min(length, m_outputLength - m_outputOffset);
+    System.arraycopy(m_outputBuffer, m_outputOffset, buffer, offset, count);
+    m_outputOffset += count;
+    return count;
+  }
+
+  /**
+   * Replace every SQL constant used in a region of the specified bytes
+   * by its value, and append the result to the output buffer.
+   *
+   * @param bytes an array of bytes.
+   * @param start offset of the first byte of the region.
+   * @param end offset of the end of the region.
+   */
+  protected void substitute(byte[] bytes, int start, int end) {
+    int minimumNameLength = m_sqlConstantSubstitutor.getMinimumNameLength();
+    int maximumNameLength = m_sqlConstantSubstitutor.getMaximumNameLength();
+
+    int copyOffset = start;
+    int offset = indexOfDelimiter(bytes, start, end);
+
+    while (offset >= 0) {
+      int nameEnd = offset + 1;
+      while ((nameEnd < end) && SQLConstantSubstitutor.isConstantNamePart(bytes[nameEnd]))
+        nameEnd++;
+
+      if ((nameEnd < end) && (nameEnd > offset + 1) && (bytes[nameEnd] == SQLConstantSubstitutor.CONSTANT_NAME_DELIMITER)) {
+        int tokenLength = nameEnd + 1 - offset;
+        byte[] constantValue = ((tokenLength >= minimumNameLength) && (tokenLength <= maximumNameLength))
+            ? getEncodedConstantValue(new String(bytes, offset, tokenLength, StandardCharsets.US_ASCII))
+            : null;
+
+        if (constantValue != null) {
+          append(bytes, copyOffset, offset - copyOffset);
+          append(constantValue, 0, constantValue.length);
+          copyOffset = nameEnd + 1;
+          offset = indexOfDelimiter(bytes, copyOffset, end);
+          continue;
+        }
+      }
+
+      // The delimiter that ends a token which is not a SQL constant may
+      // start the next SQL constant.
+      //
+      offset = indexOfDelimiter(bytes, nameEnd, end);
+    }
+
+    append(bytes, copyOffset, end - copyOffset);
+  }
+}
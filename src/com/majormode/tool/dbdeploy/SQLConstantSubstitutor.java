@@ -0,0 +1,233 @@
+/**
+ * Copyright (C) 1998-2008 Majormode.  All rights reserved.
+ *
+ * This software is the confidential and proprietary information of
+ * Majormode or one of its subsidiaries.  You shall not disclose this
+ * confidential information and shall use it only in accordance with
+ * the terms of the license agreement or other applicable agreement
+ * you entered into with Majormode.
+ *
+ * MAJORMODE MAKES NO REPRESENTATIONS OR WARRANTIES ABOUT THE
+ * SUITABILITY OF THE SOFTWARE, EITHER EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE IMPLIED WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE, OR NON-INFRINGEMENT.  MAJORMODE
+ * SHALL NOT BE LIABLE FOR ANY LOSSES OR DAMAGES SUFFERED BY LICENSEE
+ * AS A RESULT OF USING, MODIFYING OR DISTRIBUTING THIS SOFTWARE OR
+ * ITS DERIVATIVES.
+ */
+
+package com.majormode.tool.dbdeploy;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Replace the SQL constants used in a SQL script by their values.
+ * The substitutor is compiled once from the collection of the SQL
+ * constants declared in the SQL script files.  It then replaces every
+ * token <code>+constant-name+</code> of a script in a single pass,
+ * whatever the number of SQL constants declared.
+ *
+ * @author Daniel CAUNE (daniel.caune@majormode.com)
+ */
+public class SQLConstantSubstitutor {
+  /**
+   * Character that delimits the name of a SQL constant.
+   */
+  public static final char CONSTANT_NAME_DELIMITER = '+';
+
+  /**
+   * Length of the longest name of a SQL constant, delimiters
+   * included.
+   */
+  protected int m_maximumNameLength = 0;
+
+  /**
+   * Length of the shortest name of a SQL constant, delimiters
+   * included.
+   */
+  protected int m_minimumNameLength = Integer.MAX_VALUE;
+
+  /**
+   * Indicate whether some SQL constants have values longer than their
+   * names, in which case a script grows when its constants are
+   * replaced.
+   */
+  protected boolean m_isExpanding = false;
+
+  /**
+   * Values of the SQL constants, keyed by the names of these
+   * constants, delimiters included.
+   */
+  protected HashMap m_constantValues = new HashMap();
+
+  /**
+   * Build a substitutor from the specified SQL constants.
+   *
+   * @param sqlConstants a map of <code>SQLConstant</code> objects
+   *        keyed by their names.
+   */
+  public SQLConstantSubstitutor(Map sqlConstants) {
+    for (Iterator iterator = sqlConstants.values().iterator(); iterator.hasNext(); ) {
+      SQLConstant sqlConstant = (SQLConstant) iterator.next();
+      m_constantValues.put(sqlConstant.m_name, sqlConstant.m_value);
+
+      int nameLength = sqlConstant.m_name.length();
+      m_maximumNameLength = Math.max(m_maximumNameLength, nameLength);
+      m_minimumNameLength = Math.min(m_minimumNameLength, nameLength);
+      m_isExpanding |= sqlConstant.m_value.length() > nameLength;
+    }
+  }
+
+  /**
+   * Collect the names of the tokens <code>+...+</code> found in the
+   * specified input, whether they correspond to SQL constants or not.
+   * A token is looked for at every delimiter, so that the names
+   * collected cover every SQL constant that the input may use,
+   * whatever the SQL constants declared.
+   *
+   * @param input the content of a SQL script, or a part of it.
+   * @param constantNames a collection where the names of the tokens,
+   *        delimiters included, are added to.
+   */
+  public static void collectConstantNames(CharSequence input, Collection constantNames) {
+    int length = input.length();
+
+    for (int offset = 0; offset < length; offset++) {
+      if (input.charAt(offset) != CONSTANT_NAME_DELIMITER)
+        continue;
+
+      int nameEnd = offset + 1;
+      while ((nameEnd < length) && isConstantNamePart(input.charAt(nameEnd)))
+        nameEnd++;
+
+      if ((nameEnd < length) && (nameEnd > offset + 1) && (input.charAt(nameEnd) == CONSTANT_NAME_DELIMITER))
+        constantNames.add(input.subSequence(offset, nameEnd + 1).toString());
+    }
+  }
+
+  /**
+   * Return the length of the longest name of a SQL constant,
+   * delimiters included.
+   *
+   * @return the length of the longest name.
+   */
+  public int getMaximumNameLength() {
+    return m_maximumNameLength;
+  }
+
+  /**
+   * Return the length of the shortest name of a SQL constant,
+   * delimiters included.
+   *
+   * @return the length of the shortest name.
+   */
+  public int getMinimumNameLength() {
+    return m_minimumNameLength;
+  }
+
+  /**
+   * Return the value of the specified SQL constant.
+   *
+   * @param constantName the name of a SQL constant, delimiters
+   *        included.
+   *
+   * @return the value of this SQL constant, or <code>null</code> if
+   *         this constant is not defined.
+   */
+  public String getValue(String constantName) {
+    return (String) m_constantValues.get(constantName);
+  }
+
+  /**
+   * Indicate whether the specified character can be part of the name
+   * of a SQL constant.
+   *
+   * @param c a character.
+   *
+   * @return <code>true</code> if the character can be part of the
+   *         name of a SQL constant; <code>false</code> otherwise.
+   */
+  public static boolean isConstantNamePart(int c) {
+    return ((c >= 'a') && (c <= 'z')) || ((c >= 'A') && (c <= 'Z'))
+        || ((c >= '0') && (c <= '9')) || (c == '_') || (c == '-');
+  }
+
+  /**
+   * Replace every SQL constant used in the specified input by its
+   * value.
+   *
+   * @param input the content of a SQL script.
+   * @param undefinedConstantNames a collection where the names of the
+   *        tokens <code>+...+</code> that don't correspond to any SQL
+   *        constant are added to, or <code>null</code>.
+   *
+   * @return the input where the SQL constants have been replaced by
+   *         their values.
+   */
+  public String substitute(String input, Collection undefinedConstantNames) {
+    int capacity = m_isExpanding ? input.length() + (input.length() >> 3) : input.length();
+    StringBuilder output = new StringBuilder(capacity);
+    substitute(input, 0, input.length(), output, undefinedConstantNames);
+    return output.toString();
+  }
+
+  /**
+   * Replace every SQL constant used in a region of the specified
+   * input by its value, and append the result to the given buffer.
+   *
+   * @param input the content of a SQL script.
+   * @param start offset of the first character of the region.
+   * @param end offset of the end of the region.
+   * @param output the buffer to append the result to, or
+   *        <code>null</code> if only the undefined SQL constants are
+   *        to be collected.
+   * @param undefinedConstantNames a collection where the names of the
+   *        tokens <code>+...+</code> that don't correspond to any SQL
+   *        constant are added to, or <code>null</code>.
+   */
+  public void substitute(
+      String input,
+      int start,
+      int end,
+      StringBuilder output,
+      Collection undefinedConstantNames) {
+    int copyOffset = start;
+    int offset = input.indexOf(CONSTANT_NAME_DELIMITER, start);
+
+    while ((offset >= 0) && (offset < end)) {
+      int nameEnd = offset + 1;
+      while ((nameEnd < end) && isConstantNamePart(input.charAt(nameEnd)))
+        nameEnd++;
+
+      if ((nameEnd < end) && (nameEnd > offset + 1) && (input.charAt(nameEnd) == CONSTANT_NAME_DELIMITER)) {
+        int tokenLength = nameEnd + 1 - offset;
+        String constantName = input.substring(offset, nameEnd + 1);
+        String constantValue = ((tokenLength >= m_minimumNameLength) && (tokenLength <= m_maximumNameLength))
+            ? (String) m_constantValues.get(constantName)
+            : null;
+
+        if (constantValue != null) {
+          if (output != null)
+            output.append(input, copyOffset, offset).append(constantValue);
+          copyOffset = nameEnd + 1;
+          offset = input.indexOf(CONSTANT_NAME_DELIMITER, copyOffset);
+          continue;
+        }
+
+        if (undefinedConstantNames != null)
+          undefinedConstantNames.add(constantName);
+      }
+
+      // The delimiter that ends a token which is not a SQL constant may
+      // start the next SQL constant.
+      //
+      offset = input.indexOf(CONSTANT_NAME_DELIMITER, nameEnd);
+    }
+
+    if (output != null)
+      output.append(input, copyOffset, end);
+  }
+}
@@ -0,0 +1,61 @@
+/**
+ * Copyright (C) 1998-2008 Majormode.  All rights reserved.
+ *
+ * This software is the confidential and proprietary information of
+ * Majormode or one of its subsidiaries.  You shall not disclose this
+ * confidential information and shall use it only in accordance with
+ * the terms of the license agreement or other applicable agreement
+ * you entered into with Majormode.
+ *
+ * MAJORMODE MAKES NO REPRESENTATIONS OR WARRANTIES ABOUT THE
+ * SUITABILITY OF THE SOFTWARE, EITHER EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE IMPLIED WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE, OR NON-INFRINGEMENT.  MAJORMODE
+ * SHALL NOT BE LIABLE FOR ANY LOSSES OR DAMAGES SUFFERED BY LICENSEE
+ * AS A RESULT OF USING, MODIFYING OR DISTRIBUTING THIS SOFTWARE OR
+ * ITS DERIVATIVES.
+ */
+
+package com.majormode.tool.dbdeploy;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+
+/**
+ * Represent the data of a bulk loading statement, which are copied to
+ * a table.  The data are not kept in memory: they are streamed from
+ * the file they are located in while they are copied to the table.
+ *
+ * @author Daniel CAUNE (daniel.caune@majormode.com)
+ */
+public abstract class SQLCopyData implements Serializable {
+  /**
+   * Pathname of the file the data are located in.
+   */
+  public String m_filePathname;
+
+  /**
+   * Build the reference to the data of a bulk loading statement.
+   *
+   * @param filePathname pathname of the file the data are located in.
+   */
+  protected SQLCopyData(String filePathname) {
+    m_filePathname = filePathname;
+  }
+
+  /**
+   * Open a stream of the data, in the format expected by the bulk
+   * loading statement.
+   *
+   * @param sqlConstantSubstitutor the substitutor that replaces the SQL
+   *        constants by their values, if the data may use some.
+   * @param bufferSize size of the buffers used to read the data.
+   *
+   * @return a stream of the data, which must be closed by the caller.
+   *
+   * @throws IOException if the file cannot be opened.
+   */
+  public abstract InputStream openInputStream(SQLConstantSubstitutor sqlConstantSubstitutor, int bufferSize)
+    throws IOException;
+}
@@ -0,0 +1,141 @@
+/**
+ * Copyright (C) 1998-2008 Majormode.  All rights reserved.
+ *
+ * This software is the confidential and proprietary information of
+ * Majormode or one of its subsidiaries.  You shall not disclose this
+ * confidential information and shall use it only in accordance with
+ * the terms of the license agreement or other applicable agreement
+ * you entered into with Majormode.
+ *
+ * MAJORMODE MAKES NO REPRESENTATIONS OR WARRANTIES ABOUT THE
+ * SUITABILITY OF THE SOFTWARE, EITHER EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE IMPLIED WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE, OR NON-INFRINGEMENT.  MAJORMODE
+ * SHALL NOT BE LIABLE FOR ANY LOSSES OR DAMAGES SUFFERED BY LICENSEE
+ * AS A RESULT OF USING, MODIFYING OR DISTRIBUTING THIS SOFTWARE OR
+ * ITS DERIVATIVES.
+ */
+
+package com.majormode.tool.dbdeploy;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Input stream that counts the bytes of the data of a bulk loading
+ * statement while they are copied to a table, and that regularly
+ * reports the progress of this copy.
+ *
+ * @author Daniel CAUNE (daniel.caune@majormode.com)
+ */
+public class SQLCopyProgressInputStream extends FilterInputStream {
+  /**
+   * Interval in milliseconds between two reports of the progress.
+   */
+  public static final long PROGRESS_REPORT_INTERVAL = 5000;
+
+  /**
+   * Number of bytes read so far.
+   */
+  protected long m_byteCount = 0;
+
+  /**
+   * Time in milliseconds of the last report of the progress.
+   */
+  protected long m_lastReportTime;
+
+  /**
+   * Logger the progress is reported to.
+   */
+  protected DeploymentLogger m_logger;
+
+  /**
+   * Time in milliseconds when the copy started.
+   */
+  protected long m_startTime;
+
+  /**
+   * Name of the table the data are copied to.
+   */
+  protected String m_tableName;
+
+  /**
+   * Build a stream that counts the bytes read from the specified
+   * stream.
+   *
+   * @param inputStream the stream of the data to be copied.
+   * @param tableName the name of the table the data are copied to.
+   * @param logger the logger the progress is reported to.
+   */
+  public SQLCopyProgressInputStream(InputStream inputStream, String tableName, DeploymentLogger logger) {
+    super(inputStream);
+    m_tableName = tableName;
+    m_logger = logger;
+    m_startTime = System.currentTimeMillis();
+    m_lastReportTime = m_startTime;
+  }
+
+  /**
+   * Count the specified number of bytes read, and report the progress
+   * of the copy if the last report is old enough.
+   *
+   * @param count a number of bytes read, or <code>-1</code> if the end
+   *        of the stream has been reached.
+   */
+  protected void count(long count) {
+    if (count <= 0)
+      return;
+
+    m_byteCount += count;
+
+    long time = System.currentTimeMillis();
+    if (time - m_lastReportTime >= PROGRESS_REPORT_INTERVAL) {
+      m_lastReportTime = time;
+      m_logger.info("copy.progress", "Copying " + m_tableName + ": "
+          + SQLCopyStatistics.formatMegabytes(m_byteCount) + " in "
+          + ((time - m_startTime) / 1000) + " s",
+          "table", m_tableName, "byte_count", Long.valueOf(m_byteCount), "duration_ms", Long.valueOf(time - m_startTime));
+    }
+  }
+
+  /**
+   * Return the number of bytes read so far.
+   *
+   * @return the number of bytes read.
+   */
+  public long getByteCount() {
+    return m_byteCount;
+  }
+
+  /**
+   * Return the time when the copy started.
+   *
+   * @return the time in milliseconds when the copy started.
+   */
+  public long getStartTime() {
+    return m_startTime;
+  }
+
+  public int read()
+    throws IOException {
+    int c = super.read();
+    if (c >= 0)
+      count(1);
+    return c;
+  }
+
+  public int read(byte[] buffer, int offset, int length)
+    throws IOException {
+    int count = super.read(buffer, offset, length);
+    count(count);
+    return count;
+  }
+
+  public long skip(long count)
+    throws IOException {
+    long skippedCount = super.skip(count);
+    count(skippedCount);
+    return skippedCount;
+  }
+}
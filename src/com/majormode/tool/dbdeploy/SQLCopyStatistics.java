@@ -0,0 +1,129 @@
+/**
+ * Copyright (C) 1998-2008 Majormode.  All rights reserved.
+ *
+ * This software is the confidential and proprietary information of
+ * Majormode or one of its subsidiaries.  You shall not disclose this
+ * confidential information and shall use it only in accordance with
+ * the terms of the license agreement or other applicable agreement
+ * you entered into with Majormode.
+ *
+ * MAJORMODE MAKES NO REPRESENTATIONS OR WARRANTIES ABOUT THE
+ * SUITABILITY OF THE SOFTWARE, EITHER EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE IMPLIED WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE, OR NON-INFRINGEMENT.  MAJORMODE
+ * SHALL NOT BE LIABLE FOR ANY LOSSES OR DAMAGES SUFFERED BY LICENSEE
+ * AS A RESULT OF USING, MODIFYING OR DISTRIBUTING THIS SOFTWARE OR
+ * ITS DERIVATIVES.
+ */
+
+package com.majormode.tool.dbdeploy;
+
+/**
+ * Statistics of the bulk loading statements executed during a
+ * deployment, which may be executed concurrently.  The throughput is
+ * computed over the elapsed time between the start of the first bulk
+ * loading statement and the end of the last one.
+ *
+ * @author Daniel CAUNE (daniel.caune@majormode.com)
+ */
+public class SQLCopyStatistics {
+  /**
+   * Number of bytes in a megabyte.
+   */
+  public static final double BYTES_PER_MEGABYTE = 1024.0 * 1024.0;
+
+  /**
+   * Number of bytes copied so far.
+   */
+  protected long m_byteCount = 0;
+
+  /**
+   * Time in milliseconds when the last bulk loading statement ended.
+   */
+  protected long m_endTime = 0;
+
+  /**
+   * Number of rows copied so far.
+   */
+  protected long m_rowCount = 0;
+
+  /**
+   * Time in milliseconds when the first bulk loading statement
+   * started, or <code>0</code> if none has been executed yet.
+   */
+  protected long m_startTime = 0;
+
+  /**
+   * Number of tables copied so far.
+   */
+  protected int m_tableCount = 0;
+
+  /**
+   * Format the specified number of bytes in megabytes.
+   *
+   * @param byteCount a number of bytes.
+   *
+   * @return the number of megabytes, with two decimals.
+   */
+  public static String formatMegabytes(long byteCount) {
+    return String.format("%.2f MB", byteCount / BYTES_PER_MEGABYTE);
+  }
+
+  /**
+   * Return the number of bytes copied so far.
+   *
+   * @return the number of bytes.
+   */
+  public synchronized long getByteCount() {
+    return m_byteCount;
+  }
+
+  /**
+   * Return the number of rows copied so far.
+   *
+   * @return the number of rows.
+   */
+  public synchronized long getRowCount() {
+    return m_rowCount;
+  }
+
+  /**
+   * Return the number of tables copied so far.
+   *
+   * @return the number of tables.
+   */
+  public synchronized int getTableCount() {
+    return m_tableCount;
+  }
+
+  /**
+   * Record the execution of a bulk loading statement.
+   *
+   * @param startTime time in milliseconds when the statement started.
+   * @param endTime time in milliseconds when the statement ended.
+   * @param rowCount number of rows copied.
+   * @param byteCount number of bytes copied.
+   */
+  public synchronized void record(long startTime, long endTime, long rowCount, long byteCount) {
+    if ((m_startTime == 0) || (startTime < m_startTime))
+      m_startTime = startTime;
+    m_endTime = Math.max(m_endTime, endTime);
+
+    m_rowCount += rowCount;
+    m_byteCount += byteCount;
+    m_tableCount++;
+  }
+
+  /**
+   * Return a summary of these statistics, including the overall
+   * throughput in rows and megabytes per second.
+   *
+   * @return a summary of the statistics.
+   */
+  public synchronized String toString() {
+    double seconds = Math.max(m_endTime - m_startTime, 1) / 1000.0;
+    return "Copied " + m_rowCount + " rows (" + formatMegabytes(m_byteCount) + ") into "
+        + m_tableCount + " tables in " + String.format("%.1f s", seconds) + ": "
+        + String.format("%.0f rows/s, %.2f MB/s", m_rowCount / seconds, m_byteCount / BYTES_PER_MEGABYTE / seconds);
+  }
+}
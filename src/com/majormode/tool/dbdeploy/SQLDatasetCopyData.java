@@ -0,0 +1,92 @@
+/**
+ * Copyright (C) 1998-2008 Majormode.  All rights reserved.
+ *
+ * This software is the confidential and proprietary information of
+ * Majormode or one of its subsidiaries.  You shall not disclose this
+ * confidential information and shall use it only in accordance with
+ * the terms of the license agreement or other applicable agreement
+ * you entered into with Majormode.
+ *
+ * MAJORMODE MAKES NO REPRESENTATIONS OR WARRANTIES ABOUT THE
+ * SUITABILITY OF THE SOFTWARE, EITHER EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE IMPLIED WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE, OR NON-INFRINGEMENT.  MAJORMODE
+ * SHALL NOT BE LIABLE FOR ANY LOSSES OR DAMAGES SUFFERED BY LICENSEE
+ * AS A RESULT OF USING, MODIFYING OR DISTRIBUTING THIS SOFTWARE OR
+ * ITS DERIVATIVES.
+ */
+
+package com.majormode.tool.dbdeploy;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Represent the data of a bulk loading statement that are stored in
+ * an external dataset file, declared in a SQL script file with the
+ * directive:
+ * <pre>
+ * --(defdataset table-name file-pathname [copy-options])
+ * </pre>
+ * A dataset file compressed with gzip, which name ends with
+ * <code>.gz</code>, is decompressed while it is read.  The data are
+ * copied as is: SQL constants are not replaced in a dataset file.
+ *
+ * @author Daniel CAUNE (daniel.caune@majormode.com)
+ */
+public class SQLDatasetCopyData extends SQLCopyData {
+  /**
+   * Extension of the name of a dataset file compressed with gzip.
+   */
+  public static final String COMPRESSED_FILE_EXTENSION = ".gz";
+
+  /**
+   * Build the reference to a dataset file.
+   *
+   * @param filePathname pathname of the dataset file.
+   */
+  public SQLDatasetCopyData(String filePathname) {
+    super(filePathname);
+  }
+
+  /**
+   * Return the name of the dataset file, without the extension of a
+   * compressed file.
+   *
+   * @return the name of the uncompressed dataset file.
+   */
+  public String getUncompressedFileName() {
+    String fileName = Paths.get(m_filePathname).getFileName().toString();
+    return isCompressed()
+        ? fileName.substring(0, fileName.length() - COMPRESSED_FILE_EXTENSION.length())
+        : fileName;
+  }
+
+  /**
+   * Indicate whether the dataset file is compressed with gzip.
+   *
+   * @return <code>true</code> if the dataset file is compressed;
+   *         <code>false</code> otherwise.
+   */
+  public boolean isCompressed() {
+    return m_filePathname.toLowerCase().endsWith(COMPRESSED_FILE_EXTENSION);
+  }
+
+  public InputStream openInputStream(SQLConstantSubstitutor sqlConstantSubstitutor, int bufferSize)
+    throws IOException {
+    InputStream inputStream = Files.newInputStream(Paths.get(m_filePathname));
+
+    try {
+      return isCompressed()
+          ? new GZIPInputStream(inputStream, bufferSize)
+          : new BufferedInputStream(inputStream, bufferSize);
+    } catch (IOException exception) {
+      inputStream.close();
+      throw exception;
+    }
+  }
+}
@@ -0,0 +1,200 @@
+/**
+ * Copyright (C) 1998-2008 Majormode.  All rights reserved.
+ *
+ * This software is the confidential and proprietary information of
+ * Majormode or one of its subsidiaries.  You shall not disclose this
+ * confidential information and shall use it only in accordance with
+ * the terms of the license agreement or other applicable agreement
+ * you entered into with Majormode.
+ *
+ * MAJORMODE MAKES NO REPRESENTATIONS OR WARRANTIES ABOUT THE
+ * SUITABILITY OF THE SOFTWARE, EITHER EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE IMPLIED WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE, OR NON-INFRINGEMENT.  MAJORMODE
+ * SHALL NOT BE LIABLE FOR ANY LOSSES OR DAMAGES SUFFERED BY LICENSEE
+ * AS A RESULT OF USING, MODIFYING OR DISTRIBUTING THIS SOFTWARE OR
+ * ITS DERIVATIVES.
+ */
+
+package com.majormode.tool.dbdeploy;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Extract from a SQL statement the names of the database objects this
+ * statement creates and the names of the database objects it
+ * references.  The analyzer doesn't parse the SQL grammar: it only
+ * recognizes the usual constructs with regular expressions, such as
+ * <code>CREATE TABLE</code>, <code>REFERENCES</code>,
+ * <code>INHERITS</code>, <code>FROM</code>, casts and function calls.
+ * It may thus report names that are not database objects, which is
+ * harmless as only the names created by other statements matter.
+ *
+ * <p>Names are reported without their schema.  An unquoted name is
+ * reported in lower case, while a quoted name is reported as is.</p>
+ *
+ * @author Daniel CAUNE (daniel.caune@majormode.com)
+ */
+public class SQLDependencyAnalyzer {
+  /**
+   * Regular expression that matches a name, possibly qualified by a
+   * schema, where each part is either an unquoted or a quoted
+   * identifier.
+   */
+  protected static final String PATTERN_NAME =
+    "(?:\"(?:[^\"]|\"\")+\"|[A-Za-z_][\\w$]*)(?:\\s*\\.\\s*(?:\"(?:[^\"]|\"\")+\"|[A-Za-z_][\\w$]*))*";
+
+  /**
+   * Regular expression that matches the beginning of a statement that
+   * creates a database object, which name is captured.
+   */
+  protected static final String PATTERN_CREATE_STATEMENT =
+    "CREATE\\s+(?:OR\\s+REPLACE\\s+)?(?:(?:GLOBAL|LOCAL)\\s+)?(?:(?:TEMP|TEMPORARY|UNLOGGED|RECURSIVE)\\s+)?"
+    + "(?:MATERIALIZED\\s+)?(?:TABLE|VIEW|FUNCTION|PROCEDURE|AGGREGATE|TYPE|DOMAIN|SEQUENCE)\\s+"
+    + "(?:IF\\s+NOT\\s+EXISTS\\s+)?(" + PATTERN_NAME + ")";
+
+  /**
+   * Regular expression that matches the references to a database
+   * object, which name is captured by one of the groups
+   * <code>keyword</code>, <code>cast</code> or <code>call</code>.
+   */
+  protected static final String PATTERN_REFERENCE =
+    "\\b(?:REFERENCES|FROM|JOIN|INTO|UPDATE|ON|TABLE|COPY|RETURNS(?:\\s+SETOF)?|SEQUENCE|PROCEDURE|FUNCTION)\\s+"
+    + "(?<keyword>" + PATTERN_NAME + ")"
+    + "|::\\s*(?<cast>" + PATTERN_NAME + ")"
+    + "|(?<call>" + PATTERN_NAME + ")\\s*\\(";
+
+  /**
+   * Regular expression that matches the list of parent tables of a
+   * table.
+   */
+  protected static final String PATTERN_INHERITS = "\\bINHERITS\\s*\\(([^)]*)\\)";
+
+  /**
+   * Compiled representation of the regular expression that matches
+   * the beginning of a statement that creates a database object.
+   */
+  protected Pattern m_patternCreateStatement = Pattern.compile(PATTERN_CREATE_STATEMENT, Pattern.CASE_INSENSITIVE);
+
+  /**
+   * Compiled representation of the regular expression that matches
+   * the list of parent tables of a table.
+   */
+  protected Pattern m_patternInherits = Pattern.compile(PATTERN_INHERITS, Pattern.CASE_INSENSITIVE);
+
+  /**
+   * Compiled representation of the regular expression that matches a
+   * name.
+   */
+  protected Pattern m_patternName = Pattern.compile(PATTERN_NAME);
+
+  /**
+   * Compiled representation of the regular expression that matches
+   * the references to a database object.
+   */
+  protected Pattern m_patternReference = Pattern.compile(PATTERN_REFERENCE, Pattern.CASE_INSENSITIVE);
+
+  /**
+   * Extract the names of the database objects that the specified SQL
+   * statement creates and references, and store them in this
+   * statement.
+   *
+   * @param sqlStatement a SQL statement.
+   */
+  public void analyze(SQLStatement sqlStatement) {
+    sqlStatement.m_createdObjectNames = getCreatedObjectNames(sqlStatement.m_sqlExpression);
+    sqlStatement.m_referencedObjectNames = getReferencedObjectNames(sqlStatement.m_sqlExpression);
+    sqlStatement.m_referencedObjectNames.removeAll(sqlStatement.m_createdObjectNames);
+  }
+
+  /**
+   * Return the names of the database objects that the specified SQL
+   * expression creates.
+   *
+   * @param sqlExpression a SQL expression.
+   *
+   * @return a set of names of database objects.
+   */
+  public Set getCreatedObjectNames(String sqlExpression) {
+    Set names = new HashSet();
+
+    Matcher matcher = m_patternCreateStatement.matcher(sqlExpression);
+    if (matcher.lookingAt())
+      names.add(normalizeName(matcher.group(1)));
+
+    return names;
+  }
+
+  /**
+   * Return the names of the database objects that the specified SQL
+   * expression references.
+   *
+   * @param sqlExpression a SQL expression.
+   *
+   * @return a set of names of database objects.
+   */
+  public Set getReferencedObjectNames(String sqlExpression) {
+    Set names = new HashSet();
+
+    Matcher matcher = m_patternReference.matcher(sqlExpression);
+    while (matcher.find()) {
+      String name = matcher.group("keyword");
+      if (name == null)
+        name = matcher.group("cast");
+      if (name == null)
+        name = matcher.group("call");
+      names.add(normalizeName(name));
+    }
+
+    matcher = m_patternInherits.matcher(sqlExpression);
+    while (matcher.find())
+      addNames(matcher.group(1), names);
+
+    return names;
+  }
+
+  /**
+   * Add the names listed in the specified text to the given
+   * collection.
+   *
+   * @param text a list of names separated with commas.
+   * @param names the collection to add the names to.
+   */
+  protected void addNames(String text, Collection names) {
+    Matcher matcher = m_patternName.matcher(text);
+    while (matcher.find())
+      names.add(normalizeName(matcher.group()));
+  }
+
+  /**
+   * Return the normalized form of the specified name: the schema is
+   * removed, an unquoted name is converted to lower case, and the
+   * quotes of a quoted name are removed.
+   *
+   * @param name a name, possibly qualified by a schema.
+   *
+   * @return the normalized name.
+   */
+  protected static String normalizeName(String name) {
+    int offset = name.length();
+    boolean isQuoted = false;
+    while (offset > 0) {
+      char c = name.charAt(offset - 1);
+      if (c == '"')
+        isQuoted = !isQuoted;
+      else if ((c == '.') && !isQuoted)
+        break;
+      offset--;
+    }
+
+    name = name.substring(offset).trim();
+    if (name.startsWith("\""))
+      return name.substring(1, name.length() - 1).replace("\"\"", "\"");
+
+    return name.toLowerCase();
+  }
+}
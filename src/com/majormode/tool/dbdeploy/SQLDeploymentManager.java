@@ -20,21 +20,37 @@ package com.majormode.tool.dbdeploy;
 
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -42,18 +58,19 @@ public abstract class SQLDeploymentManager {
   protected static int DEFAULT_MAXIMUM_ATTEMPT_COUNT = 3;
   protected static int DEPLOYMENT_STATUS_FAILURE = 0;
   protected static int DEPLOYMENT_STATUS_SUCCESS = 1;
+  protected static int DEFAULT_WORKER_COUNT = 1;
+  protected static int DEFAULT_COPY_BUFFER_SIZE = 65536;
+  protected static int DEFAULT_BATCH_SIZE = 1;
 
   /**
-   * Regular expression that matches any valid SQL comments such as:
-   * <ul>
-   * <li>comment that starts with the characters <code>--</code> and
-   * followed by any hcaracters until the end of the line.</li>
-   * <li>a C-like comment that starts with <code>/*</code> and ends
-   * with <code>*&#47;/</code>.</li>
-   * </ul>
+   * Transaction modes: every SQL statement is committed on its own,
+   * the SQL statements of a script are committed at once, or the SQL
+   * statements that a worker executes during a stage of a tier are
+   * committed at once.
    */
-  protected static final String PATTERN_SQL_COMMENT =
-    "(--[^\\n]*[\\n])|(/\\*([^/]|([^*]/))*\\*/)|(/\\*\\*/)";
+  public static final String TRANSACTION_MODE_NONE = "none";
+  public static final String TRANSACTION_MODE_SCRIPT = "script";
+  public static final String TRANSACTION_MODE_TIER = "tier";
 
   /**
    * Regular expression that matches the definition of an SQL constant
@@ -77,6 +94,31 @@ public abstract class SQLDeploymentManager {
    */
   protected String m_accountUsername;
 
+  /**
+   * Maximum number of consecutive SQL statements that are sent at once
+   * to the relational database management system.
+   */
+  protected int m_batchSize = DEFAULT_BATCH_SIZE;
+
+  /**
+   * Size in bytes of the buffers used to stream the data of bulk
+   * loading statements to the relational database management system.
+   */
+  protected int m_copyBufferSize = DEFAULT_COPY_BUFFER_SIZE;
+
+  /**
+   * Statistics of the bulk loading statements executed during the
+   * current deployment.
+   */
+  protected SQLCopyStatistics m_copyStatistics = new SQLCopyStatistics();
+
+  /**
+   * Number of workers that concurrently execute the SQL scripts of a
+   * stage which contains bulk loading statements, or <code>0</code>
+   * if this number is the same as for the other stages.
+   */
+  protected int m_copyWorkerCount = 0;
+
   /**
    * Indicate whether database objects must be updated even if their
    * current revision correspond to the last deployed.
@@ -108,6 +150,16 @@ public abstract class SQLDeploymentManager {
    */
   protected int m_maximumAttemptCount = DEFAULT_MAXIMUM_ATTEMPT_COUNT;
 
+  /**
+   * Logger of the events of the deployments.
+   */
+  protected DeploymentLogger m_logger = new DeploymentLogger();
+
+  /**
+   * Metrics of the current deployment.
+   */
+  protected DeploymentMetrics m_metrics = new DeploymentMetrics();
+
   /**
    * Name of the module to be only processed if defined.
    */
@@ -118,6 +170,11 @@ public abstract class SQLDeploymentManager {
    */
   protected String m_objectTypeFilter = null;
 
+  /**
+   * Number of threads used to read and parse the SQL script files.
+   */
+  protected int m_parserThreadCount = Runtime.getRuntime().availableProcessors();
+
   /**
    * List of database objects, which a given RDBMS supports, declared
    * in their dependency order.  By default, no database object
@@ -125,12 +182,6 @@ public abstract class SQLDeploymentManager {
    */
   protected String[] m_objectTypeNameOrders = new String[0];
 
-  /**
-   * Compiled representation of the regular expression that matches
-   * any valid SQL comments.
-   */
-  protected Pattern m_patternSQLComment = Pattern.compile(PATTERN_SQL_COMMENT);
-
   /**
    * Compiled representation of the regular expression that matches
    * any SQL constant declarations.
@@ -144,25 +195,77 @@ public abstract class SQLDeploymentManager {
    */
   protected RevisionControlSystem m_revisionControlSystem;
 
+  /**
+   * Pool of the sessions opened with the relational database
+   * management system, which SQL statements are executed on.
+   */
+  protected SQLSessionPool m_sessionPool;
+
   protected Collection m_sqlScripts;
 
+  /**
+   * Index of the SQL constants declared in the SQL script files, or
+   * <code>null</code> if every SQL script file is read for its SQL
+   * constants.
+   */
+  protected SQLConstantIndex m_sqlConstantIndex;
+
+  /**
+   * Cache of the results of the parsing of the SQL script files, or
+   * <code>null</code> if the SQL script files are always parsed.
+   */
+  protected SQLScriptCache m_sqlScriptCache;
+
+  /**
+   * Analyzer that extracts the names of the database objects that SQL
+   * statements create and reference.
+   */
+  protected SQLDependencyAnalyzer m_sqlDependencyAnalyzer = new SQLDependencyAnalyzer();
+
+  /**
+   * Substitutor that replaces the SQL constants used in a SQL script
+   * by their values.
+   */
+  protected SQLConstantSubstitutor m_sqlConstantSubstitutor;
+
   /**
    * Collection of SQL constants declared in SQL script files.
    */
   protected Hashtable m_sqlScriptConstants;
 
+  /**
+   * Set of the SQL scripts to be only processed, or <code>null</code>
+   * if every SQL script that matches the filters is to be processed.
+   */
+  protected Set m_sqlScriptSelection;
+
   /**
    * Collection of SQL script files grouped by the type of database
    * objects these files managed.
    */
   protected Hashtable m_sqlScriptGroups;
 
+  /**
+   * Mode that defines when the SQL statements are committed, one of
+   * <code>TRANSACTION_MODE_NONE</code>,
+   * <code>TRANSACTION_MODE_SCRIPT</code> or
+   * <code>TRANSACTION_MODE_TIER</code>.
+   */
+  protected String m_transactionMode = TRANSACTION_MODE_NONE;
+
   /**
    * Indicate whether to display whole information while processing
    * SQL scripts.
    */
   protected boolean m_verbose_enabled = false;
 
+  /**
+   * Number of workers that concurrently execute the SQL scripts which
+   * manage a same type of database objects, each worker with its own
+   * session.
+   */
+  protected int m_workerCount = DEFAULT_WORKER_COUNT;
+
   /**
    * Build a new instance of a SQL deployment manager for a given
    * relational database management system.
@@ -197,380 +300,1943 @@ public abstract class SQLDeploymentManager {
     m_jdbcUrl = jdbcUrl;
     m_accountUsername = accountUsername;
     m_accountPassword = accountPassword;
+    m_sessionPool = new SQLSessionPool(
+        jdbcUrl,
+        accountUsername,
+        accountPassword,
+        SQLSessionPool.DEFAULT_MAXIMUM_SESSION_COUNT);
+  }
+
+  /**
+   * Close the sessions opened with the relational database management
+   * system.  The SQL deployment manager cannot be used anymore after
+   * this method has been called.
+   */
+  public void close() {
+    m_sessionPool.close();
+    m_logger.close();
   }
 
   /**
-   * Return a connection to the relational database management system.
+   * Execute the specified SQL statement on the given session.  If the
+   * connection of the session happens to be broken, the session is
+   * reconnected and the SQL statement is executed once again.
+   *
+   * @param sqlSession the session to execute the SQL statement on.
+   * @param sqlStatement a SQL statement to be executed.
    *
-   * @return a connection to the relational database management
-   *         system.
+   * @return <code>true</code> if the SQL statement execution
+   *         succeeded; <code>false</code> if it failed because of a
+   *         dependency on a database object that has not been
+   *         created yet.
    *
-   * @throws SQLException if the connection to the relational database
-   *         management system fails for some reason.
+   * @throws SQLException if the execution of the SQL statement
+   *         failed.
    */
-  protected Connection getRBDMSConnection()
+  protected boolean executeSQLStatement(SQLSession sqlSession, SQLStatement sqlStatement)
     throws SQLException {
-    return DriverManager.getConnection(
-        m_jdbcUrl,
-        m_accountUsername,
-        m_accountPassword);
+    sqlStatement.m_missingObjectName = null;
+
+    long startTime = System.nanoTime();
+    boolean succeeded;
+    try {
+      sqlSession.setSavepoint();
+      succeeded = processSQLStatement(sqlSession, sqlStatement);
+    } catch (SQLException exception) {
+      reconnectBrokenSession(sqlSession, exception);
+      startTime = System.nanoTime();
+      succeeded = processSQLStatement(sqlSession, sqlStatement);
+      m_metrics.recordStatement(sqlStatement, System.nanoTime() - startTime, succeeded);
+      return succeeded;
+    }
+
+    m_metrics.recordStatement(sqlStatement, System.nanoTime() - startTime, succeeded);
+
+    if (succeeded)
+      sqlSession.releaseSavepoint();
+    else
+      sqlSession.rollbackToSavepoint();
+
+    return succeeded;
   }
 
   /**
-   * Group the given collection of SQL script files by the type of the
-   * database objects these scripts manage.  Each script will be
-   * stored in a hashtable that corresponds to the type of the
-   * database objects this script manages.
+   * Execute the specified SQL statements in a single batch on the
+   * given session.  If a transaction is in progress, the batch is
+   * undone when it fails, so that its SQL statements can be executed
+   * once again one by one.  If the connection of the session happens
+   * to be broken, the session is reconnected before the SQL statements
+   * are executed one by one, as for a single SQL statement.
    *
-   * @param sqlScripts a collection of <code>SQLScript</code> objects.
+   * @param sqlSession the session to execute the SQL statements on.
+   * @param sqlStatements a list of <code>SQLStatement</code> objects
+   *        that can be batched together.
    *
-   * @return a map of collections, one collection per database object
-   *         type.  The class of a key is a <code>String</code> object
-   *         identifying a type of database objects.  The class of a
-   *         value implements the <code>Collection</code> interface;
-   *         each value only contains <code>SQLScript</code> objects,
-   *         if any.
+   * @return <code>true</code> if the execution of every SQL statement
+   *         succeeded; <code>false</code> if the batch failed.
+   *
+   * @throws SQLException if the session cannot be prepared for the
+   *         batch, or if the connection has been lost while a
+   *         transaction is in progress.
    */
-  protected Hashtable groupSQLScripts(Collection sqlScripts) {
-    Hashtable sqlScriptGroups = new Hashtable();
-    for (int i = 0; i < m_objectTypeNameOrders.length; i++)
-      sqlScriptGroups.put(m_objectTypeNameOrders[i], new Vector());
+  protected boolean executeSQLStatementBatch(SQLSession sqlSession, List sqlStatements)
+    throws SQLException {
+    sqlSession.setSavepoint();
 
-    Iterator iterator = sqlScripts.iterator();
-    while (iterator.hasNext()) {
-      SQLScript script = (SQLScript) iterator.next();
-      Collection sqlScriptGroup = (Collection) sqlScriptGroups.get(script.m_objectTypeName);
-      if (sqlScriptGroup == null)
-        System.out.println(
-            "Ignore " + script.m_filePathname + ", object '"
-            + script.m_objectTypeName + "' not supported...");
-      else
-        sqlScriptGroup.add(script);
+    long startTime = System.nanoTime();
+    boolean succeeded;
+    try {
+      succeeded = processSQLStatementBatch(sqlSession, sqlStatements);
+    } catch (SQLException exception) {
+      reconnectBrokenSession(sqlSession, exception);
+      m_metrics.recordBatch(sqlStatements, System.nanoTime() - startTime, false);
+      return false;
     }
 
-    return sqlScriptGroups;
+    m_metrics.recordBatch(sqlStatements, System.nanoTime() - startTime, succeeded);
+
+    if (succeeded)
+      sqlSession.releaseSavepoint();
+    else if (sqlSession.checkBroken()) {
+      // The batch failed with an error which doesn't denote a lost
+      // connection, but the connection doesn't respond anymore.
+      //
+      reconnectBrokenSession(sqlSession, new SQLException("Connection lost while executing a batch of "
+          + sqlStatements.size() + " statements", SQLSession.SQLSTATE_CONNECTION_FAILURE));
+    } else
+      sqlSession.rollbackToSavepoint();
+
+    return succeeded;
   }
 
   /**
-   * Parse the SQL constants declared in the specified SQL scripts.
+   * Execute the SQL statements of a group, in their given order, on
+   * the specified session.  Consecutive SQL statements that can be
+   * batched are sent to the RDBMS at once, up to the batch size.  A
+   * SQL statement that fails because of a dependency on a database
+   * object that has not been created yet is marked as failed once its
+   * maximum number of attempts is reached; its execution status is
+   * left undefined otherwise.  If a transaction is in progress, a
+   * savepoint is set before each SQL statement, so that a failed SQL
+   * statement is undone without undoing the transaction.
    *
-   * @param sqlScripts a collection of SQL scripts.
+   * <p>The transaction in progress doesn't keep the SQL statements of
+   * a script atomic, which is reported with a warning, if a SQL
+   * statement cannot be executed inside a transaction block, as this
+   * transaction is committed before this SQL statement, or if a SQL
+   * statement is to be executed again, as it is undone and executed
+   * later in another transaction.</p>
    *
-   * @return a collection of <code>SQLConstant</code> objects.
+   * @param sqlSession the session to execute the SQL statements on.
+   * @param sqlStatements a list of <code>SQLStatement</code> objects.
    *
-   * @throws IOException if a read access to a SQL script files failed
-   *         for some reason.
+   * @throws SQLException if the execution of a SQL statement failed.
    */
-  protected Hashtable parseSQLScriptConstants(Collection sqlScripts)
-    throws IOException {
-    Hashtable sqlConstants = new Hashtable();
+  protected void executeSQLStatementGroup(SQLSession sqlSession, List sqlStatements)
+    throws SQLException {
+    int batchStart = 0;
+    while (batchStart < sqlStatements.size()) {
+      int batchEnd = getBatchEnd(sqlStatements, batchStart);
+      List batchSQLStatements = sqlStatements.subList(batchStart, batchEnd);
 
-    for (Iterator iterator = sqlScripts.iterator() ; iterator.hasNext(); ) {
-      SQLScript sqlScript = (SQLScript) iterator.next();
+      for (Iterator iterator = batchSQLStatements.iterator(); iterator.hasNext(); ) {
+        SQLStatement sqlStatement = (SQLStatement) iterator.next();
+        m_logger.info("statement.process", "Processing " + sqlStatement.m_sqlScript.m_moduleName
+            + " (" + sqlStatement.m_sqlScript.m_objectTypeName + ")",
+            "file", sqlStatement.m_sqlScript.m_filePathname);
+      }
+
+      // Execute the statements one by one if they cannot be batched, or
+      // if their batch failed, so that the failure is attributed to the
+      // right statement.
+      //
+      if ((batchSQLStatements.size() > 1) && executeSQLStatementBatch(sqlSession, batchSQLStatements)) {
+        for (Iterator iterator = batchSQLStatements.iterator(); iterator.hasNext(); )
+          ((SQLStatement) iterator.next()).m_executionStatus = SQLStatement.EXECUTION_STATUS_SUCCEEDED;
+      } else {
+        for (Iterator iterator = batchSQLStatements.iterator(); iterator.hasNext(); ) {
+          SQLStatement sqlStatement = (SQLStatement) iterator.next();
 
-      System.out.println("Processing file " + sqlScript.m_filePathname);
-      File file = new File(sqlScript.m_filePathname);
-      FileReader reader = new FileReader(file);
-      char[] buffer = new char[(int) file.length()];
-      reader.read(buffer);
-      reader.close();
-      String sqlScriptContent = new String(buffer);
+          // A SQL statement that cannot be executed inside a
+          // transaction block is executed between two transactions.
+          //
+          boolean isTransactionSuspended = sqlSession.isTransactionActive() && !isTransactional(sqlStatement);
+          if (isTransactionSuspended) {
+            m_logger.warning("transaction.suspend", "File " + sqlStatement.m_sqlScript.m_filePathname
+                + " is not deployed atomically: the transaction is committed before a statement that"
+                + " cannot be executed in a transaction block",
+                "file", sqlStatement.m_sqlScript.m_filePathname);
+            sqlSession.commitTransaction();
+          }
 
-      Matcher matcher = m_patternSQLConstantDeclaration.matcher(sqlScriptContent);
-      while (matcher.find()) {
-        String constantName = matcher.group(1);
-        String constantValue = matcher.group(2);
+          boolean succeeded = executeSQLStatement(sqlSession, sqlStatement);
 
-        SQLConstant sqlConstant = (SQLConstant) sqlConstants.get(constantName);
-        if (sqlConstant == null) {
-          sqlConstants.put(
-              constantName,
-              new SQLConstant(sqlScript, constantName, constantValue));
-          System.out.println("  (defconstant " + constantName + " " + constantValue + ")");
-        } else {
-          if (sqlConstant.m_value.compareTo(constantValue) == 0)
-            System.out.println("Warning: constant '" + constantName
-                + "' is defined first in file '" + sqlConstant.m_sqlScript.m_filePathname
-                + "' and in file '" + sqlScript.m_filePathname + "'!");
+          if (isTransactionSuspended)
+            sqlSession.beginTransaction();
+
+          if (succeeded)
+            sqlStatement.m_executionStatus = SQLStatement.EXECUTION_STATUS_SUCCEEDED;
           else {
-            System.out.println("Error: constant '" + constantName
-                + "' declaration mismatch between file '" + sqlConstant.m_sqlScript.m_filePathname
-                + "' and file '" + sqlScript.m_filePathname + "'!");
-            System.exit(0);
+            sqlStatement.m_attemptCount++;
+            if (sqlStatement.m_attemptCount > m_maximumAttemptCount)
+              sqlStatement.m_executionStatus = SQLStatement.EXECUTION_STATUS_FAILED;
+            else if (sqlSession.isTransactionActive())
+              m_logger.warning("transaction.retry", "File " + sqlStatement.m_sqlScript.m_filePathname
+                  + " is not deployed atomically: a statement is undone and executed again in a later transaction",
+                  "file", sqlStatement.m_sqlScript.m_filePathname);
           }
         }
       }
-    }
 
-    return sqlConstants;
+      batchStart = batchEnd;
+    }
   }
 
   /**
-   * Parse the input stream and return a collection of SQL statements.
+   * Execute one pass of the specified SQL statements, stage after
+   * stage.
    *
-   * @param input a stream containing SQL statements.
-   * @param objectTypeName the type of database object that these SQL
-   *        statements are responsible for creating.
-   * @param sqlScript the SQL from which the SQL statements are parsed
-   *        from.
+   * @param sqlSession the session of the calling thread.
+   * @param sqlStatements a list of <code>SQLStatement</code> objects.
+   * @param executorService the executor that runs the additional
+   *        workers, or <code>null</code> if the SQL statements are
+   *        executed by the calling thread only.
    *
-   * @return a collection of SQL statements.
+   * @return the list of the SQL statements that failed because of a
+   *         dependency on a database object that has not been created
+   *         yet, and that are to be executed again.
+   *
+   * @throws SQLException if the execution of a SQL statement failed.
    */
-  protected abstract Collection<SQLStatement> parseSQLStatements(
-      String input,
-      String objectTypeName,
-      SQLScript sqlScript);
+  protected List executeSQLStatementPass(
+      SQLSession sqlSession,
+      List sqlStatements,
+      ExecutorService executorService)
+    throws SQLException {
+    List pendingSQLStatements = new ArrayList();
+
+    int stageStart = 0;
+    while (stageStart < sqlStatements.size()) {
+      int stageEnd = getStageEnd(sqlStatements, stageStart);
+      List stageSQLStatements = sqlStatements.subList(stageStart, stageEnd);
+      executeStage(sqlSession, stageSQLStatements, executorService);
+
+      for (Iterator iterator = stageSQLStatements.iterator(); iterator.hasNext(); ) {
+        SQLStatement sqlStatement = (SQLStatement) iterator.next();
+        if (sqlStatement.m_executionStatus == SQLStatement.EXECUTION_STATUS_UNDEFINED)
+          pendingSQLStatements.add(sqlStatement);
+      }
+
+      stageStart = stageEnd;
+    }
+
+    return pendingSQLStatements;
+  }
 
   /**
-   * Execute all the SQL statements declared in the SQL script files
-   * provided to the SQL deployment manager.
+   * Execute the specified SQL statements, stage after stage, until
+   * every SQL statement passes or completely fails.
    *
-   * @throws IOException if a read access to a SQL script files failed
-   *         for some reason.
-   * @throws SQLException if the execution of an SQL statement of
-   *         these script files failed.
+   * <p>A SQL statement that fails because of a database object that
+   * has not been created yet is parked under the name of this object,
+   * as reported by the RDBMS.  It is woken and executed once again
+   * right after the stage where a SQL statement that creates this
+   * object succeeded.  The SQL statements that are still parked once
+   * every other statement has been executed, as well as those which
+   * missing object is unknown, are finally executed in passes, until
+   * their maximum number of attempts is reached.</p>
+   *
+   * @param sqlSession the session of the calling thread.
+   * @param sqlStatements a list of <code>SQLStatement</code> objects,
+   *        in their execution order.
+   * @param executorService the executor that runs the additional
+   *        workers, or <code>null</code> if the SQL statements are
+   *        executed by the calling thread only.
+   *
+   * @throws SQLException if the execution of a SQL statement failed.
    */
-  public void process()
-    throws IOException,
-           MaximumExecutionAttemptException,
-           SQLException,
-           UndefinedRevisionNumberException {
-    Connection rdbmsConnection = getRBDMSConnection();
-    ArrayList sqlStatements = new ArrayList();
-    Collection sqlStatementHistory = new Vector();
-
-    for (int i = 0; i < m_objectTypeNameOrders.length; i++) {
-      Collection _sqlScripts = (Collection) m_sqlScriptGroups.get(m_objectTypeNameOrders[i]);
-      for (Iterator sqlScriptIterator = _sqlScripts.iterator();
-           sqlScriptIterator.hasNext(); ) {
-        SQLScript sqlScript = (SQLScript) sqlScriptIterator.next();
+  protected void executeSQLStatements(
+      SQLSession sqlSession,
+      List sqlStatements,
+      ExecutorService executorService)
+    throws SQLException {
+    // Remember the execution order of the SQL statements so that the
+    // woken statements are executed in this order.
+    //
+    final HashMap executionOrders = new HashMap();
+    for (int i = 0; i < sqlStatements.size(); i++)
+      executionOrders.put(sqlStatements.get(i), Integer.valueOf(i));
 
-        if (((m_moduleNameFilter != null) &&
-             (sqlScript.m_moduleName.compareTo(m_moduleNameFilter) != 0)) ||
-            ((m_objectTypeFilter != null) &&
-             (sqlScript.m_objectTypeName.compareTo(m_objectTypeFilter) != 0)))
-          continue;
+    Comparator executionOrderComparator = new Comparator() {
+      public int compare(Object object1, Object object2) {
+        return ((Integer) executionOrders.get(object1)).compareTo((Integer) executionOrders.get(object2));
+      }
+    };
 
-        System.out.println("Parsing " + sqlScript.m_filePathname + "...");
+    HashMap parkedSQLStatements = new HashMap();
+    List unresolvedSQLStatements = new ArrayList();
+    Set createdObjectNames = new HashSet();
+    List remainingSQLStatements = new ArrayList(sqlStatements);
 
-        // Read the content of the script file.
-        //
-        File file = new File(sqlScript.m_filePathname);
-        FileReader reader = new FileReader(file);
-        char[] buffer = new char[(int) file.length()];
-        reader.read(buffer);
-        reader.close();
-        String sqlScriptContent = new String(buffer);
-
-        // Parse the revision number stored in this SQL script.
-        //
-        if (m_revisionControlSystem != null ) {
-          try {
-            sqlScript.m_revisionNumber =
-              m_revisionControlSystem.parseRevisionNumber(sqlScriptContent);
-            System.out.println("  revision-number = " + sqlScript.m_revisionNumber);
-          } catch (UndefinedRevisionNumberException exception) {
-            System.out.println(
-                "File " + sqlScript.m_filePathname + " has no revision");
-            throw exception;
-          }
+    while (!remainingSQLStatements.isEmpty()) {
+      int stageEnd = getStageEnd(remainingSQLStatements, 0);
+      List stageSQLStatements = new ArrayList(remainingSQLStatements.subList(0, stageEnd));
+      remainingSQLStatements.subList(0, stageEnd).clear();
 
-          // Retrieve the revision number of the last deployment of this
-          // SQL script.
-          //
-          PreparedStatement preparedStatement = rdbmsConnection.prepareStatement(
-              "SELECT revision_number, deployment_time, deployment_status" +
-              "  FROM revision_control" +
-              "  WHERE module_name = ?" +
-              "    AND object_type = ?");
-          preparedStatement.setString(1, sqlScript.m_moduleName.toLowerCase());
-          preparedStatement.setString(2, sqlScript.m_objectTypeName.toLowerCase());
-          ResultSet resultSet = preparedStatement.executeQuery();
-          if (resultSet.next()) {
-            sqlScript.m_lastDeploymentRevisionNumber = resultSet.getInt("revision_number");
-            sqlScript.m_lastDeploymentTime = new Date(resultSet.getLong("deployment_time"));
-            sqlScript.m_lastDeployementStatus = resultSet.getInt("deployment_status");
-            System.out.println("  last-deployment-revision-number = " + sqlScript.m_lastDeploymentRevisionNumber);
-            System.out.println("  last-deployment-time = " + sqlScript.m_lastDeploymentTime);
-            System.out.println("  last-deployment-status = " + sqlScript.m_lastDeployementStatus);
-          }
+      executeStage(sqlSession, stageSQLStatements, executorService);
 
-          if (sqlScript.m_revisionNumber < sqlScript.m_lastDeploymentRevisionNumber) {
-            System.out.println("Skipping " + sqlScript.m_filePathname + " as it is too old.");
-            continue;
-          } else if (sqlScript.m_revisionNumber == sqlScript.m_lastDeploymentRevisionNumber) {
-            if (m_forceUpdate)
-              System.out.println("Forcing update of " + sqlScript.m_filePathname);
-            else {
-              System.out.println("Skipping " + sqlScript.m_filePathname + " as it has been already deployed");
-              continue;
-            }
-          }
-        }
+      // Wake the statements parked under the name of a database object
+      // that a statement of this stage created.
+      //
+      List wokenSQLStatements = new ArrayList();
+      for (Iterator iterator = stageSQLStatements.iterator(); iterator.hasNext(); ) {
+        SQLStatement sqlStatement = (SQLStatement) iterator.next();
+        if (sqlStatement.m_executionStatus != SQLStatement.EXECUTION_STATUS_SUCCEEDED)
+          continue;
 
-        // Replace every constant used in the SQL script by its value.
-        //
-        for (Iterator sqlConstantIterator = m_sqlScriptConstants.values().iterator();
-        sqlConstantIterator.hasNext(); ) {
-          SQLConstant sqlConstant = (SQLConstant) sqlConstantIterator.next();
-          sqlScriptContent = sqlScriptContent.replace(
-              sqlConstant.m_name,
-              sqlConstant.m_value);
-        }
+        for (Iterator nameIterator = sqlStatement.m_createdObjectNames.iterator(); nameIterator.hasNext(); ) {
+          Object objectName = nameIterator.next();
+          createdObjectNames.add(objectName);
 
-        // Parse every SQL staments defined in the SQL script and
-        // store them in some collections.
-        //
-        Iterator sqlStatementIterator = parseSQLStatements(
-            sqlScriptContent,
-            sqlScript.m_objectTypeName,
-            sqlScript).iterator();
-        
-        while (sqlStatementIterator.hasNext()) {
-          SQLStatement sqlStatement = (SQLStatement) sqlStatementIterator.next();
-          sqlStatements.add(sqlStatement);
-          sqlStatementHistory.add(sqlStatement);
+          List sqlStatementsToWake = (List) parkedSQLStatements.remove(objectName);
+          if (sqlStatementsToWake != null)
+            wokenSQLStatements.addAll(sqlStatementsToWake);
         }
       }
-    }
 
-    // Execute the SQL statements in their given order, until every
-    // SQL statement passes or completely fails.
-    //
-    while (sqlStatements.size() > 0) {
-      Iterator iterator = sqlStatements.iterator();
-      while (iterator.hasNext()) {
+      // Park the statements of this stage that failed because of a
+      // missing database object, unless this object has been created
+      // in the meantime by a statement executed concurrently.
+      //
+      for (Iterator iterator = stageSQLStatements.iterator(); iterator.hasNext(); ) {
         SQLStatement sqlStatement = (SQLStatement) iterator.next();
+        if (sqlStatement.m_executionStatus != SQLStatement.EXECUTION_STATUS_UNDEFINED)
+          continue;
 
-        System.out.println("Processing " + sqlStatement.m_sqlScript.m_moduleName
-            + " (" + sqlStatement.m_sqlScript.m_objectTypeName + ")");
-
-        if (processSQLStatement(sqlStatement)) {
-          sqlStatement.m_executionStatus = SQLStatement.EXECUTION_STATUS_SUCCEEDED;
-          iterator.remove();
-        } else {
-          sqlStatement.m_attemptCount++;
-          if (sqlStatement.m_attemptCount > m_maximumAttemptCount) {
-            sqlStatement.m_executionStatus = SQLStatement.EXECUTION_STATUS_FAILED;
-            iterator.remove();
+        String objectName = sqlStatement.m_missingObjectName;
+        if (objectName == null)
+          unresolvedSQLStatements.add(sqlStatement);
+        else if (createdObjectNames.contains(objectName))
+          wokenSQLStatements.add(sqlStatement);
+        else {
+          List parkedSQLStatementList = (List) parkedSQLStatements.get(objectName);
+          if (parkedSQLStatementList == null) {
+            parkedSQLStatementList = new ArrayList();
+            parkedSQLStatements.put(objectName, parkedSQLStatementList);
           }
+          parkedSQLStatementList.add(sqlStatement);
         }
       }
+
+      if (!wokenSQLStatements.isEmpty()) {
+        Collections.sort(wokenSQLStatements, executionOrderComparator);
+        remainingSQLStatements.addAll(0, wokenSQLStatements);
+      }
     }
 
-    // Check every SQL statement execution result and update
-    // consequently the state of the SQL script it depends.
+    // Execute the statements which dependencies have not been
+    // resolved in passes, as a last resort.
     //
-    if (m_revisionControlSystem != null) {
-      Iterator sqlStatementIterator = sqlStatementHistory.iterator();
-      while (sqlStatementIterator.hasNext()) {
-        SQLStatement sqlStatement = (SQLStatement) sqlStatementIterator.next();
-        if (sqlStatement.m_sqlScript.m_executionStatus == SQLScript.EXECUTION_STATUS_NONE)
-          sqlStatement.m_sqlScript.m_executionStatus = sqlStatement.m_executionStatus;
-        else if (sqlStatement.m_executionStatus == SQLStatement.EXECUTION_STATUS_FAILED)
-          sqlStatement.m_sqlScript.m_executionStatus = SQLScript.EXECUTION_STATUS_FAILED;
+    List pendingSQLStatements = new ArrayList(unresolvedSQLStatements);
+    for (Iterator iterator = parkedSQLStatements.values().iterator(); iterator.hasNext(); )
+      pendingSQLStatements.addAll((List) iterator.next());
+    Collections.sort(pendingSQLStatements, executionOrderComparator);
+
+    while (!pendingSQLStatements.isEmpty())
+      pendingSQLStatements = executeSQLStatementPass(sqlSession, pendingSQLStatements, executorService);
+  }
+
+  /**
+   * Execute the specified SQL statements, which form a stage, and wait
+   * until every statement of this stage has been executed.  The
+   * statements are grouped by the script they belong to: the scripts
+   * are executed concurrently, each on its own session, while the
+   * statements of a script are executed in their given order.  A stage
+   * that contains bulk loading statements, which generally load
+   * different tables, has its own number of workers.  The calling
+   * thread takes part in the execution with its own session;
+   * the additional workers acquire their sessions from the pool.
+   *
+   * @param sqlSession the session of the calling thread.
+   * @param sqlStatements a list of <code>SQLStatement</code> objects.
+   * @param executorService the executor that runs the additional
+   *        workers, or <code>null</code> if the SQL statements are
+   *        executed by the calling thread only.
+   *
+   * @throws SQLException if the execution of a SQL statement failed.
+   */
+  protected void executeStage(
+      SQLSession sqlSession,
+      List sqlStatements,
+      ExecutorService executorService)
+    throws SQLException {
+    LinkedHashMap sqlStatementGroupMap = new LinkedHashMap();
+    for (Iterator iterator = sqlStatements.iterator(); iterator.hasNext(); ) {
+      SQLStatement sqlStatement = (SQLStatement) iterator.next();
+      List sqlStatementGroup = (List) sqlStatementGroupMap.get(sqlStatement.m_sqlScript);
+      if (sqlStatementGroup == null) {
+        sqlStatementGroup = new ArrayList();
+        sqlStatementGroupMap.put(sqlStatement.m_sqlScript, sqlStatementGroup);
       }
+      sqlStatementGroup.add(sqlStatement);
+    }
 
-      Iterator sqlScriptIterator = m_sqlScripts.iterator();
-      while (sqlScriptIterator.hasNext()) {
-        SQLScript sqlScript = (SQLScript) sqlScriptIterator.next();
-        if (sqlScript.m_executionStatus != SQLScript.EXECUTION_STATUS_NONE) {
-          if (sqlScript.m_lastDeploymentTime != null) {
-            PreparedStatement preparedStatement = rdbmsConnection.prepareStatement(
-                "UPDATE revision_control" +
-                "  SET revision_number = ?," +
-                "      deployment_time = ?," +
-                "      deployment_status = ?" +
-                "  WHERE module_name = ?" +
-                "    AND object_type = ?");
-            preparedStatement.setInt(1, sqlScript.m_revisionNumber);
-            preparedStatement.setLong(2, new Date().getTime());
-            preparedStatement.setInt(3, sqlScript.m_executionStatus);
-            preparedStatement.setString(4, sqlScript.m_moduleName);
-            preparedStatement.setString(5, sqlScript.m_objectTypeName);
-            preparedStatement.execute();
-          } else {
-            PreparedStatement preparedStatement = rdbmsConnection.prepareStatement(
-                "INSERT INTO revision_control(module_name, object_type, revision_number, deployment_time, deployment_status)" +
-                " VALUES (?, ?, ?, ?, ?)");
-            preparedStatement.setString(1, sqlScript.m_moduleName);
-            preparedStatement.setString(2, sqlScript.m_objectTypeName);
-            preparedStatement.setInt(3, sqlScript.m_revisionNumber);
-            preparedStatement.setLong(4, new Date().getTime());
-            preparedStatement.setInt(5, sqlScript.m_executionStatus);
-            preparedStatement.execute();
+    final LinkedList sqlStatementGroups = new LinkedList(sqlStatementGroupMap.values());
+    List futures = new ArrayList();
+
+    if (executorService != null) {
+      int workerCount = hasCopyData(sqlStatements) ? getCopyWorkerCount() : m_workerCount;
+      int additionalWorkerCount = Math.min(workerCount, sqlStatementGroups.size()) - 1;
+      for (int i = 0; i < additionalWorkerCount; i++)
+        futures.add(executorService.submit(new Callable() {
+          public Object call() throws SQLException {
+            long startTime = System.nanoTime();
+            SQLSession workerSQLSession = m_sessionPool.acquire();
+            m_metrics.addPhaseTimeSince(DeploymentMetrics.PHASE_SESSION_WAITING, startTime);
+            try {
+              pollSQLStatementGroups(workerSQLSession, sqlStatementGroups);
+            } finally {
+              m_sessionPool.release(workerSQLSession);
+            }
+            return null;
           }
-        }
+        }));
+    }
+
+    SQLException failure = null;
+    try {
+      pollSQLStatementGroups(sqlSession, sqlStatementGroups);
+    } catch (SQLException exception) {
+      failure = exception;
+    }
+
+    // Wait for every worker to finish, even if the execution failed,
+    // so that no statement of this stage runs beyond the barrier.
+    //
+    long startTime = System.nanoTime();
+    for (Iterator iterator = futures.iterator(); iterator.hasNext(); ) {
+      try {
+        ((Future) iterator.next()).get();
+      } catch (ExecutionException exception) {
+        Throwable cause = exception.getCause();
+        if (failure != null)
+          continue;
+        else if (cause instanceof SQLException)
+          failure = (SQLException) cause;
+        else if (cause instanceof RuntimeException)
+          throw (RuntimeException) cause;
+        else if (cause instanceof Error)
+          throw (Error) cause;
+        else
+          failure = new SQLException(cause);
+      } catch (InterruptedException exception) {
+        Thread.currentThread().interrupt();
+        throw new SQLException("Interrupted while executing SQL statements", exception);
       }
     }
 
-    rdbmsConnection.close();
+    if (!futures.isEmpty())
+      m_metrics.addPhaseTimeSince(DeploymentMetrics.PHASE_STAGE_WAITING, startTime);
+
+    if (failure != null)
+      throw failure;
   }
 
   /**
-   * Execute the specified SQL statement against the relation database
-   * management system.
+   * Return the entry of the specified SQL script in the parse cache.
+   * The entry is loaded from the parse cache, or it is built from the
+   * content of the SQL script file and stored if the file has changed.
    *
-   * @param sqlStatement a SQL statement to be executed.
+   * @param sqlScript a SQL script.
    *
-   * @throws SQLException if the execution of the SQL statement
-   *         failed.
+   * @return the entry of the SQL script.
+   *
+   * @throws IOException if a read access to the SQL script file
+   *         failed for some reason.
    */
-  protected abstract boolean processSQLStatement(SQLStatement sqlStatement)
-    throws SQLException;
+  protected SQLScriptCacheEntry getSQLScriptCacheEntry(SQLScript sqlScript)
+    throws IOException {
+    if (sqlScript.m_cacheEntry == null) {
+      sqlScript.m_cacheEntry = m_sqlScriptCache.get(sqlScript);
+      if (sqlScript.m_cacheEntry == null) {
+        sqlScript.m_cacheEntry = m_sqlScriptCache.createEntry(
+            sqlScript, sqlScript.getContent(), parseSQLConstantDeclarations(sqlScript));
+        m_sqlScriptCache.put(sqlScript.m_cacheEntry, null);
+      }
+    }
+
+    return sqlScript.m_cacheEntry;
+  }
 
   /**
-   * Specify whether database objects must be updated even if their
-   * current revision correspond to the last deployed.
+   * Return the end of the batch of SQL statements that starts at the
+   * specified SQL statement.  A batch is made of consecutive SQL
+   * statements that can be batched and that share the same run-time
+   * configuration parameters, up to the batch size.
    *
-   * @param forceUpdate <code>true</code> if the database objects must
-   *        be updated even if their current revision correspond to
-   *        the last deployed; <code>false</code> otherwise.
+   * @param sqlStatements a list of <code>SQLStatement</code> objects of
+   *        a same SQL script.
+   * @param batchStart index of the first SQL statement of the batch.
+   *
+   * @return the index of the first SQL statement after the batch.
    */
-  public void setForceUpdate(boolean forceUpdate) {
-    m_forceUpdate = forceUpdate;
+  protected int getBatchEnd(List sqlStatements, int batchStart) {
+    SQLStatement firstSQLStatement = (SQLStatement) sqlStatements.get(batchStart);
+    if ((m_batchSize <= 1) || !isBatchable(firstSQLStatement))
+      return batchStart + 1;
+
+    int batchEnd = batchStart + 1;
+    while ((batchEnd < sqlStatements.size()) && (batchEnd - batchStart < m_batchSize)) {
+      SQLStatement sqlStatement = (SQLStatement) sqlStatements.get(batchEnd);
+      if (!isBatchable(sqlStatement)
+          || !equals(sqlStatement.m_runtimeParameters, firstSQLStatement.m_runtimeParameters))
+        break;
+      batchEnd++;
+    }
+
+    return batchEnd;
   }
 
   /**
-   * Define the maximum numbers of attempt executing a SQL statement
-   * that might fail because of dependency on some database objects
-   * that have not been already created.
+   * Return the number of workers that concurrently execute the SQL
+   * scripts of a stage which contains bulk loading statements.
    *
-   * @param maximumAttemptCount the maximum numbers of attempt before
-   *        a fatal error is raised.
+   * @return the number of workers.
    */
-  public void setMaximumAttemptCount(int maximumAttemptCount) {
-    m_maximumAttemptCount = maximumAttemptCount;
+  protected int getCopyWorkerCount() {
+    return (m_copyWorkerCount > 0) ? m_copyWorkerCount : m_workerCount;
   }
 
   /**
-   * Define the name of the module to be only processed.
+   * Return the metrics of the current deployment, which are recorded
+   * until they are reset.
    *
-   * @param moduleName name of the module to be only processed if
-   *        defined.
+   * @return the metrics of the deployment.
    */
-  public void setModuleNameFilter(String moduleName) {
-    m_moduleNameFilter = moduleName;
+  public DeploymentMetrics getMetrics() {
+    return m_metrics;
   }
 
   /**
-   * Define the type of database objects to be only processed.
+   * Return the logger of the events of the deployments.
    *
-   * @param objectType type of database objects to be only processed
-   *        if defined.
+   * @return the logger of the deployments.
    */
-  public void setObjectTypeFilter(String objectType) {
-    m_objectTypeFilter = objectType;
+  public DeploymentLogger getLogger() {
+    return m_logger;
   }
 
   /**
-   * Define the revision control system that is used to manage the SQL
-   * script files and to store the identification of a revision within
-   * these files.
+   * Return the source code of the specified content of a SQL script
+   * which the revision number of the script is parsed from, once the
+   * SQL constants have been replaced.  The data of the bulk loading
+   * statements, which are not kept in the content, are represented by
+   * the digest of the file and by the values of the SQL constants they
+   * use, so that a revision number computed from the source code
+   * changes when these data change.
    *
-   * @param revisionControlSystem a revision control system.
+   * @param content the content of a SQL script file.
+   *
+   * @return the source code of the SQL script.
    */
-  public void setRevisionControlSystem(RevisionControlSystem revisionControlSystem) {
+  protected String getRevisionSourceCode(SQLScriptContent content) {
+    String sourceCode = m_sqlConstantSubstitutor.substitute(content.getText(), null);
+    if (!content.hasCopyData())
+      return sourceCode;
+
+    StringBuilder revisionSourceCode = new StringBuilder(sourceCode).append("\n-- copy data ");
+    byte[] digest = content.getDigest();
+    for (int i = 0; i < digest.length; i++)
+      revisionSourceCode.append(Character.forDigit((digest[i] >> 4) & 0xF, 16)).append(Character.forDigit(digest[i] & 0xF, 16));
+
+    for (Iterator iterator = content.getCopyDataConstantNames().iterator(); iterator.hasNext(); ) {
+      String constantName = (String) iterator.next();
+      revisionSourceCode.append(' ').append(constantName).append('=')
+          .append(m_sqlConstantSubstitutor.getValue(constantName));
+    }
+
+    return revisionSourceCode.toString();
+  }
+
+  /**
+   * Return the SQL scripts provided to the SQL deployment manager.
+   *
+   * @return a collection of <code>SQLScript</code> objects, or
+   *         <code>null</code> if no SQL scripts have been provided
+   *         yet.
+   */
+  public Collection getSQLScripts() {
+    return m_sqlScripts;
+  }
+
+  /**
+   * Return the end of the stage that starts at the specified SQL
+   * statement.  A stage is made of consecutive SQL statements that
+   * manage the same type of database objects, and that don't depend
+   * on each other across scripts: a statement that depends on a
+   * statement of another script of the stage starts the next stage.
+   *
+   * @param sqlStatements a list of <code>SQLStatement</code> objects.
+   * @param stageStart index of the first SQL statement of the stage.
+   *
+   * @return the index of the first SQL statement after the stage.
+   */
+  protected static int getStageEnd(List sqlStatements, int stageStart) {
+    String objectTypeName = ((SQLStatement) sqlStatements.get(stageStart)).m_sqlScript.m_objectTypeName;
+    Set stageSQLStatements = new HashSet();
+
+    int stageEnd = stageStart;
+    while (stageEnd < sqlStatements.size()) {
+      SQLStatement sqlStatement = (SQLStatement) sqlStatements.get(stageEnd);
+      if (!sqlStatement.m_sqlScript.m_objectTypeName.equals(objectTypeName)
+          || isDependent(sqlStatement, stageSQLStatements))
+        break;
+
+      stageSQLStatements.add(sqlStatement);
+      stageEnd++;
+    }
+
+    return stageEnd;
+  }
+
+  /**
+   * Group the given collection of SQL script files by the type of the
+   * database objects these scripts manage.  Each script will be
+   * stored in a hashtable that corresponds to the type of the
+   * database objects this script manages.
+   *
+   * @param sqlScripts a collection of <code>SQLScript</code> objects.
+   *
+   * @return a map of collections, one collection per database object
+   *         type.  The class of a key is a <code>String</code> object
+   *         identifying a type of database objects.  The class of a
+   *         value implements the <code>Collection</code> interface;
+   *         each value only contains <code>SQLScript</code> objects,
+   *         if any.
+   */
+  protected Hashtable groupSQLScripts(Collection sqlScripts) {
+    Hashtable sqlScriptGroups = new Hashtable();
+    for (int i = 0; i < m_objectTypeNameOrders.length; i++)
+      sqlScriptGroups.put(m_objectTypeNameOrders[i], new Vector());
+
+    Iterator iterator = sqlScripts.iterator();
+    while (iterator.hasNext()) {
+      SQLScript script = (SQLScript) iterator.next();
+      Collection sqlScriptGroup = (Collection) sqlScriptGroups.get(script.m_objectTypeName);
+      if (sqlScriptGroup == null)
+        m_logger.warning("script.ignore",
+            "Ignore " + script.m_filePathname + ", object '"
+            + script.m_objectTypeName + "' not supported...",
+            "file", script.m_filePathname, "object_type", script.m_objectTypeName);
+      else
+        sqlScriptGroup.add(script);
+    }
+
+    return sqlScriptGroups;
+  }
+
+  /**
+   * Execute the specified tasks with the parser threads and return
+   * their results in the order of these tasks.
+   *
+   * @param tasks a list of <code>Callable</code> objects.
+   *
+   * @return the list of the results of these tasks.
+   *
+   * @throws IOException if a task failed because of a read access to a
+   *         SQL script file, or if the current thread has been
+   *         interrupted.
+   */
+  protected List invokeParserTasks(List tasks)
+    throws IOException {
+    if (tasks.isEmpty())
+      return new ArrayList();
+
+    ExecutorService executorService = Executors.newFixedThreadPool(Math.min(m_parserThreadCount, tasks.size()));
+
+    try {
+      List futures = executorService.invokeAll(tasks);
+      List results = new ArrayList(futures.size());
+
+      for (Iterator iterator = futures.iterator(); iterator.hasNext(); ) {
+        try {
+          results.add(((Future) iterator.next()).get());
+        } catch (ExecutionException exception) {
+          Throwable cause = exception.getCause();
+          if (cause instanceof IOException)
+            throw (IOException) cause;
+          else if (cause instanceof RuntimeException)
+            throw (RuntimeException) cause;
+          else if (cause instanceof Error)
+            throw (Error) cause;
+
+          throw new IOException(cause);
+        }
+      }
+
+      return results;
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while parsing SQL scripts");
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  /**
+   * Indicate whether the specified objects are equal, or both
+   * <code>null</code>.
+   *
+   * @param object1 an object, or <code>null</code>.
+   * @param object2 an object, or <code>null</code>.
+   *
+   * @return <code>true</code> if the objects are equal;
+   *         <code>false</code> otherwise.
+   */
+  protected static boolean equals(Object object1, Object object2) {
+    return (object1 == null) ? (object2 == null) : object1.equals(object2);
+  }
+
+  /**
+   * Indicate whether one of the specified SQL statements is a bulk
+   * loading statement.
+   *
+   * @param sqlStatements a list of <code>SQLStatement</code> objects.
+   *
+   * @return <code>true</code> if one of the SQL statements copies data
+   *         to a table; <code>false</code> otherwise.
+   */
+  protected static boolean hasCopyData(List sqlStatements) {
+    for (Iterator iterator = sqlStatements.iterator(); iterator.hasNext(); )
+      if (((SQLStatement) iterator.next()).m_copyData != null)
+        return true;
+
+    return false;
+  }
+
+  /**
+   * Indicate whether the specified SQL statement can be sent to the
+   * RDBMS in a batch with other SQL statements.  By default, no SQL
+   * statement can be batched.
+   *
+   * @param sqlStatement a SQL statement.
+   *
+   * @return <code>true</code> if the SQL statement can be batched;
+   *         <code>false</code> otherwise.
+   */
+  protected boolean isBatchable(SQLStatement sqlStatement) {
+    return false;
+  }
+
+  /**
+   * Indicate whether the specified SQL statement can be executed
+   * inside a transaction block.  By default, every SQL statement can.
+   *
+   * @param sqlStatement a SQL statement.
+   *
+   * @return <code>true</code> if the SQL statement can be executed
+   *         inside a transaction block; <code>false</code> otherwise.
+   */
+  protected boolean isTransactional(SQLStatement sqlStatement) {
+    return true;
+  }
+
+  /**
+   * Indicate whether the specified SQL statement depends on one of the
+   * given SQL statements.
+   *
+   * @param sqlStatement a SQL statement.
+   * @param sqlStatements a set of <code>SQLStatement</code> objects.
+   *
+   * @return <code>true</code> if one of the SQL statements creates a
+   *         database object that the SQL statement references;
+   *         <code>false</code> otherwise.
+   */
+  protected static boolean isDependent(SQLStatement sqlStatement, Set sqlStatements) {
+    for (Iterator iterator = sqlStatement.m_dependencies.iterator(); iterator.hasNext(); )
+      if (sqlStatements.contains(iterator.next()))
+        return true;
+
+    return false;
+  }
+
+  /**
+   * Indicate whether the current revision of the specified SQL script
+   * has been already deployed.
+   *
+   * @param sqlScript a SQL script.
+   *
+   * @return <code>true</code> if the current revision of the SQL
+   *         script corresponds to the last deployed; <code>false</code>
+   *         otherwise.
+   */
+  protected boolean isDeployed(SQLScript sqlScript) {
+    return (sqlScript.m_lastDeploymentTime != null)
+        && (sqlScript.m_revisionNumber == sqlScript.m_lastDeploymentRevisionNumber);
+  }
+
+  /**
+   * Indicate whether the current revision of the specified SQL script
+   * is older than the last deployed.  This only applies to revision
+   * control systems which revision numbers increase over time.
+   *
+   * @param sqlScript a SQL script.
+   *
+   * @return <code>true</code> if the current revision of the SQL
+   *         script is older than the last deployed; <code>false</code>
+   *         otherwise.
+   */
+  protected boolean isObsolete(SQLScript sqlScript) {
+    return m_revisionControlSystem.hasOrderedRevisionNumbers()
+        && (sqlScript.m_lastDeploymentTime != null)
+        && (sqlScript.m_revisionNumber < sqlScript.m_lastDeploymentRevisionNumber);
+  }
+
+  /**
+   * Indicate whether the specified SQL script is to be processed, i.e.,
+   * whether it manages a supported type of database objects and it
+   * passes the module and object type filters and the selection of SQL
+   * scripts, if any.
+   *
+   * @param sqlScript a SQL script.
+   *
+   * @return <code>true</code> if the SQL script is to be processed;
+   *         <code>false</code> otherwise.
+   */
+  protected boolean isSelected(SQLScript sqlScript) {
+    return Arrays.asList(m_objectTypeNameOrders).contains(sqlScript.m_objectTypeName)
+        && ((m_moduleNameFilter == null) || (sqlScript.m_moduleName.compareTo(m_moduleNameFilter) == 0))
+        && ((m_objectTypeFilter == null) || (sqlScript.m_objectTypeName.compareTo(m_objectTypeFilter) == 0))
+        && ((m_sqlScriptSelection == null) || m_sqlScriptSelection.contains(sqlScript));
+  }
+
+  /**
+   * Load the last deployment of every module and type of database
+   * objects, as stored in the table <code>revision_control</code>.
+   *
+   * @param rdbmsConnection a connection to the relational database
+   *        management system.
+   *
+   * @return a map of <code>RevisionControlRecord</code> objects keyed
+   *         by module name and object type.
+   *
+   * @throws SQLException if the table cannot be read.
+   */
+  protected Hashtable loadRevisionControlRecords(Connection rdbmsConnection)
+    throws SQLException {
+    Hashtable revisionControlRecords = new Hashtable();
+
+    Statement statement = rdbmsConnection.createStatement();
+    try {
+      ResultSet resultSet = statement.executeQuery(
+          "SELECT module_name, object_type, revision_number, deployment_time, deployment_status" +
+          "  FROM revision_control");
+      while (resultSet.next()) {
+        RevisionControlRecord revisionControlRecord = new RevisionControlRecord(
+            resultSet.getString("module_name"),
+            resultSet.getString("object_type"),
+            resultSet.getInt("revision_number"),
+            new Date(resultSet.getLong("deployment_time")),
+            resultSet.getInt("deployment_status"));
+        revisionControlRecords.put(
+            RevisionControlRecord.getKey(revisionControlRecord.m_moduleName, revisionControlRecord.m_objectTypeName),
+            revisionControlRecord);
+      }
+    } finally {
+      statement.close();
+    }
+
+    return revisionControlRecords;
+  }
+
+  /**
+   * Parse the declarations of the SQL constants of the specified SQL
+   * script.
+   *
+   * @param sqlScript a SQL script.
+   *
+   * @return a list of <code>SQLConstant</code> objects, in the order
+   *         of their declaration.
+   *
+   * @throws IOException if a read access to the SQL script file
+   *         failed for some reason.
+   */
+  protected List parseSQLConstantDeclarations(SQLScript sqlScript)
+    throws IOException {
+    List sqlConstants = new ArrayList();
+
+    Matcher matcher = m_patternSQLConstantDeclaration.matcher(sqlScript.getContent().getText());
+    while (matcher.find())
+      sqlConstants.add(new SQLConstant(sqlScript, matcher.group(1), matcher.group(2)));
+
+    return sqlConstants;
+  }
+
+  /**
+   * Return the SQL constants declared in the specified SQL script.
+   * They are read from the constant index, or from the parse cache, if
+   * the SQL script file has not changed since it has been stored
+   * there.  The content of the script is kept until its SQL statements
+   * are parsed, unless the script is not to be processed.
+   *
+   * @param sqlScript a SQL script.
+   *
+   * @return a list of <code>SQLConstant</code> objects, in the order
+   *         of their declaration.
+   *
+   * @throws IOException if a read access to the SQL script file
+   *         failed for some reason.
+   */
+  protected List parseSQLScriptConstants(SQLScript sqlScript)
+    throws IOException {
+    if (m_sqlConstantIndex != null) {
+      List sqlConstants = m_sqlConstantIndex.getSQLConstants(sqlScript);
+      if (sqlConstants != null)
+        return sqlConstants;
+    }
+
+    List sqlConstants = (m_sqlScriptCache == null)
+        ? parseSQLConstantDeclarations(sqlScript)
+        : getSQLScriptCacheEntry(sqlScript).getSQLConstants(sqlScript);
+
+    if (m_sqlConstantIndex != null)
+      m_sqlConstantIndex.put(sqlScript, sqlConstants);
+
+    // Keep the content of the script file only if it is going to be
+    // processed, so that the file is read once.
+    //
+    if (!isSelected(sqlScript))
+      sqlScript.releaseContent();
+
+    return sqlConstants;
+  }
+
+  /**
+   * Parse the SQL constants declared in the specified SQL scripts.
+   * The SQL script files are read in parallel, while their constants
+   * are merged in the order of the scripts.
+   *
+   * @param sqlScripts a collection of SQL scripts.
+   *
+   * @return a collection of <code>SQLConstant</code> objects.
+   *
+   * @throws IOException if a read access to a SQL script files failed
+   *         for some reason.
+   * @throws SQLConstantMismatchException if a SQL constant is declared
+   *         with different values.
+   */
+  protected Hashtable parseSQLScriptConstants(Collection sqlScripts)
+    throws IOException,
+           SQLConstantMismatchException {
+    Hashtable sqlConstants = new Hashtable();
+
+    List tasks = new ArrayList(sqlScripts.size());
+    for (Iterator iterator = sqlScripts.iterator(); iterator.hasNext(); ) {
+      final SQLScript sqlScript = (SQLScript) iterator.next();
+      tasks.add(new Callable() {
+        public Object call() throws IOException {
+          return parseSQLScriptConstants(sqlScript);
+        }
+      });
+    }
+
+    Iterator sqlScriptIterator = sqlScripts.iterator();
+    for (Iterator iterator = invokeParserTasks(tasks).iterator(); iterator.hasNext(); ) {
+      SQLScript sqlScript = (SQLScript) sqlScriptIterator.next();
+      m_logger.info("constant.parse", "Processing file " + sqlScript.m_filePathname,
+          "file", sqlScript.m_filePathname);
+
+      for (Iterator constantIterator = ((List) iterator.next()).iterator(); constantIterator.hasNext(); ) {
+        SQLConstant declaredSQLConstant = (SQLConstant) constantIterator.next();
+        String constantName = declaredSQLConstant.m_name;
+        String constantValue = declaredSQLConstant.m_value;
+
+        SQLConstant sqlConstant = (SQLConstant) sqlConstants.get(constantName);
+        if (sqlConstant == null) {
+          sqlConstants.put(constantName, declaredSQLConstant);
+          m_logger.info("constant.define", "  (defconstant " + constantName + " " + constantValue + ")",
+              "file", sqlScript.m_filePathname, "constant", constantName, "value", constantValue);
+        } else {
+          if (sqlConstant.m_value.compareTo(constantValue) == 0)
+            m_logger.warning("constant.redefine", "constant '" + constantName
+                + "' is defined first in file '" + sqlConstant.m_sqlScript.m_filePathname
+                + "' and in file '" + sqlScript.m_filePathname + "'!",
+                "file", sqlScript.m_filePathname, "constant", constantName);
+          else {
+            m_logger.error("constant.mismatch", "constant '" + constantName
+                + "' declaration mismatch between file '" + sqlConstant.m_sqlScript.m_filePathname
+                + "' and file '" + sqlScript.m_filePathname + "'!",
+                "file", sqlScript.m_filePathname, "constant", constantName);
+            throw new SQLConstantMismatchException(sqlConstant, sqlScript);
+          }
+        }
+      }
+    }
+
+    return sqlConstants;
+  }
+
+  /**
+   * Replace the constants used in the specified SQL script by their
+   * values, parse the revision number of this script if a revision
+   * control system is defined, and parse the SQL statements of this
+   * script unless it doesn't need to be deployed.  The content of the
+   * script is released once its SQL statements have been produced.
+   * The revision number and the SQL statements are read from the
+   * parse cache instead if neither the SQL script file nor the SQL
+   * constants it uses have changed since they have been stored.
+   *
+   * @param sqlScript a SQL script to be deployed.
+   * @param undefinedConstantNames a collection where the names of the
+   *        undefined constants used in the SQL script are added to.
+   *
+   * @return a collection of SQL statements, an empty collection if the
+   *         SQL script doesn't need to be deployed, or
+   *         <code>null</code> if the SQL script has no revision number.
+   *
+   * @throws IOException if a read access to the SQL script file failed
+   *         for some reason.
+   */
+  protected Collection<SQLStatement> parseSQLScript(SQLScript sqlScript, Collection undefinedConstantNames)
+    throws IOException {
+    // The parse cache entry of the SQL script can only be used if the
+    // SQL constants that the script uses have not changed.
+    //
+    SQLScriptCacheEntry cacheEntry = (m_sqlScriptCache == null) ? null : getSQLScriptCacheEntry(sqlScript);
+    boolean isCacheEntryValid = (cacheEntry != null)
+        && cacheEntry.hasSameConstantValues(m_sqlConstantSubstitutor);
+    SQLScriptContent sqlScriptContent = null;
+
+    // Parse the revision number of the SQL script once its constants
+    // have been replaced, so that a revision number computed from the
+    // content of the script changes when a constant value changes.
+    //
+    if (m_revisionControlSystem != null) {
+      String revisionControlSystemName = m_revisionControlSystem.getClass().getName();
+      if (isCacheEntryValid && revisionControlSystemName.equals(cacheEntry.m_revisionControlSystemName))
+        sqlScript.m_revisionNumber = cacheEntry.m_revisionNumber;
+      else {
+        sqlScriptContent = sqlScript.getContent();
+        try {
+          long startTime = System.nanoTime();
+          String sourceCode = getRevisionSourceCode(sqlScriptContent);
+          m_metrics.addPhaseTimeSince(DeploymentMetrics.PHASE_CONSTANT_SUBSTITUTION, startTime);
+
+          sqlScript.m_revisionNumber = m_revisionControlSystem.parseRevisionNumber(sourceCode);
+        } catch (UndefinedRevisionNumberException exception) {
+          sqlScript.releaseContent();
+          return null;
+        }
+
+        if (cacheEntry != null) {
+          cacheEntry.setUsedConstants(sqlScriptContent, m_sqlConstantSubstitutor);
+          cacheEntry.m_revisionControlSystemName = revisionControlSystemName;
+          cacheEntry.m_revisionNumber = sqlScript.m_revisionNumber;
+          isCacheEntryValid = false;
+        }
+      }
+
+      if (isObsolete(sqlScript) || (isDeployed(sqlScript) && !m_forceUpdate)) {
+        sqlScript.releaseContent();
+        if ((cacheEntry != null) && (sqlScriptContent != null))
+          m_sqlScriptCache.put(cacheEntry, null);
+
+        return new Vector<SQLStatement>();
+      }
+    }
+
+    if (isCacheEntryValid && cacheEntry.m_hasSQLStatements && getClass().getName().equals(cacheEntry.m_parserName)) {
+      Collection<SQLStatement> sqlStatements = m_sqlScriptCache.getSQLStatements(cacheEntry, sqlScript);
+      if (sqlStatements != null) {
+        sqlScript.releaseContent();
+        undefinedConstantNames.addAll(cacheEntry.m_undefinedConstantNames);
+        return sqlStatements;
+      }
+    }
+
+    sqlScriptContent = sqlScript.getContent();
+
+    Collection<SQLStatement> sqlStatements;
+    try {
+      sqlStatements = parseSQLStatements(sqlScriptContent, sqlScript.m_objectTypeName, sqlScript,
+          undefinedConstantNames);
+    } finally {
+      sqlScript.releaseContent();
+    }
+
+    for (Iterator iterator = sqlStatements.iterator(); iterator.hasNext(); )
+      m_sqlDependencyAnalyzer.analyze((SQLStatement) iterator.next());
+
+    if (cacheEntry != null) {
+      cacheEntry.setUsedConstants(sqlScriptContent, m_sqlConstantSubstitutor);
+      cacheEntry.m_parserName = getClass().getName();
+      cacheEntry.m_undefinedConstantNames = new TreeSet(undefinedConstantNames);
+      m_sqlScriptCache.put(cacheEntry, sqlStatements);
+    }
+
+    return sqlStatements;
+  }
+
+  /**
+   * Parse the input stream and return a collection of SQL statements.
+   * The SQL constants used in every SQL statement are replaced by
+   * their values, while the data of a bulk loading statement are only
+   * referenced by their location in the SQL script file.
+   *
+   * @param content the content of the SQL script file, which data of
+   *        the bulk loading statements are located in this file.
+   * @param objectTypeName the type of database object that these SQL
+   *        statements are responsible for creating.
+   * @param sqlScript the SQL from which the SQL statements are parsed
+   *        from.
+   * @param undefinedConstantNames a collection where the names of the
+   *        tokens <code>+...+</code> that don't correspond to any SQL
+   *        constant are added to.
+   *
+   * @return a collection of SQL statements.
+   *
+   * @throws IOException if a read access to the SQL script file
+   *         failed for some reason.
+   */
+  protected abstract Collection<SQLStatement> parseSQLStatements(
+      SQLScriptContent content,
+      String objectTypeName,
+      SQLScript sqlScript,
+      Collection undefinedConstantNames)
+    throws IOException;
+
+  /**
+   * Execute all the SQL statements declared in the SQL script files
+   * provided to the SQL deployment manager.
+   *
+   * @throws IOException if a read access to a SQL script files failed
+   *         for some reason.
+   * @throws SQLException if the execution of an SQL statement of
+   *         these script files failed.
+   */
+  public void process()
+    throws IOException,
+           MaximumExecutionAttemptException,
+           SQLException,
+           UndefinedRevisionNumberException {
+    int openedConnectionCount = m_sessionPool.getOpenedConnectionCount();
+    long startTime = System.nanoTime();
+    SQLSession sqlSession = m_sessionPool.acquire();
+    m_metrics.addPhaseTimeSince(DeploymentMetrics.PHASE_SESSION_WAITING, startTime);
+    try {
+      process(sqlSession);
+    } finally {
+      m_sessionPool.release(sqlSession);
+      m_metrics.addConnectionCount(m_sessionPool.getOpenedConnectionCount() - openedConnectionCount);
+      m_logger.flush();
+    }
+  }
+
+  /**
+   * Execute all the SQL statements declared in the SQL script files
+   * provided to the SQL deployment manager, using the specified
+   * session.
+   *
+   * @param sqlSession the session to execute the SQL statements on.
+   *
+   * @throws IOException if a read access to a SQL script files failed
+   *         for some reason.
+   * @throws SQLException if the execution of an SQL statement of
+   *         these script files failed.
+   */
+  protected void process(SQLSession sqlSession)
+    throws IOException,
+           MaximumExecutionAttemptException,
+           SQLException,
+           UndefinedRevisionNumberException {
+    Connection rdbmsConnection = sqlSession.getConnection();
+    List sqlStatements = new ArrayList();
+    Collection sqlStatementHistory = new Vector();
+    List deployedSQLScripts = new ArrayList();
+
+    // Retrieve the last deployment of every module and type of
+    // database objects at once.
+    //
+    long startTime = System.nanoTime();
+    Hashtable revisionControlRecords = (m_revisionControlSystem == null)
+        ? new Hashtable()
+        : loadRevisionControlRecords(rdbmsConnection);
+    m_metrics.addPhaseTimeSince(DeploymentMetrics.PHASE_REVISION_CONTROL, startTime);
+
+    for (int i = 0; i < m_objectTypeNameOrders.length; i++) {
+      Collection _sqlScripts = (Collection) m_sqlScriptGroups.get(m_objectTypeNameOrders[i]);
+      for (Iterator sqlScriptIterator = _sqlScripts.iterator();
+           sqlScriptIterator.hasNext(); ) {
+        SQLScript sqlScript = (SQLScript) sqlScriptIterator.next();
+
+        if (!isSelected(sqlScript)) {
+          sqlScript.releaseContent();
+          continue;
+        }
+
+        // Retrieve the revision number of the last deployment of this
+        // SQL script.
+        //
+        RevisionControlRecord revisionControlRecord = (RevisionControlRecord) revisionControlRecords.get(
+            RevisionControlRecord.getKey(sqlScript.m_moduleName, sqlScript.m_objectTypeName));
+        if (revisionControlRecord != null) {
+          sqlScript.m_lastDeploymentRevisionNumber = revisionControlRecord.m_revisionNumber;
+          sqlScript.m_lastDeploymentTime = revisionControlRecord.m_deploymentTime;
+          sqlScript.m_lastDeployementStatus = revisionControlRecord.m_deploymentStatus;
+        }
+
+        deployedSQLScripts.add(sqlScript);
+      }
+    }
+
+    // Parse the revision numbers and the SQL statements of the scripts
+    // to be deployed in parallel, and collect them in the order of
+    // these scripts.
+    //
+    List tasks = new ArrayList(deployedSQLScripts.size());
+    List undefinedConstantNameCollections = new ArrayList(deployedSQLScripts.size());
+    for (Iterator iterator = deployedSQLScripts.iterator(); iterator.hasNext(); ) {
+      final SQLScript sqlScript = (SQLScript) iterator.next();
+      final Collection undefinedConstantNames = new TreeSet();
+      undefinedConstantNameCollections.add(undefinedConstantNames);
+
+      tasks.add(new Callable() {
+        public Object call() throws IOException {
+          return parseSQLScript(sqlScript, undefinedConstantNames);
+        }
+      });
+    }
+
+    startTime = System.nanoTime();
+    List results = invokeParserTasks(tasks);
+    m_metrics.addPhaseTimeSince(DeploymentMetrics.PHASE_PARSING, startTime);
+    for (int i = 0; i < results.size(); i++) {
+      SQLScript sqlScript = (SQLScript) deployedSQLScripts.get(i);
+
+      if (results.get(i) == null) {
+        m_logger.error("script.revision", "File " + sqlScript.m_filePathname + " has no revision",
+            "file", sqlScript.m_filePathname);
+        throw new UndefinedRevisionNumberException();
+      }
+
+      if (m_revisionControlSystem != null) {
+        String revision = sqlScript.m_filePathname
+            + "\n  revision-number = " + sqlScript.m_revisionNumber;
+        if (sqlScript.m_lastDeploymentTime != null)
+          revision += "\n  last-deployment-revision-number = " + sqlScript.m_lastDeploymentRevisionNumber
+              + "\n  last-deployment-time = " + sqlScript.m_lastDeploymentTime
+              + "\n  last-deployment-status = " + sqlScript.m_lastDeployementStatus;
+
+        m_logger.info("script.revision", revision,
+            "file", sqlScript.m_filePathname,
+            "revision_number", Integer.valueOf(sqlScript.m_revisionNumber),
+            "last_deployment_revision_number", Integer.valueOf(sqlScript.m_lastDeploymentRevisionNumber),
+            "last_deployment_time", sqlScript.m_lastDeploymentTime,
+            "last_deployment_status", Integer.valueOf(sqlScript.m_lastDeployementStatus));
+
+        if (isObsolete(sqlScript)) {
+          m_logger.info("script.skip", "Skipping " + sqlScript.m_filePathname + " as it is too old.",
+              "file", sqlScript.m_filePathname, "reason", "obsolete");
+          continue;
+        } else if (isDeployed(sqlScript)) {
+          if (!m_forceUpdate) {
+            m_logger.info("script.skip", "Skipping " + sqlScript.m_filePathname + " as it has been already deployed",
+                "file", sqlScript.m_filePathname, "reason", "deployed");
+            continue;
+          }
+
+          m_logger.info("script.force", "Forcing update of " + sqlScript.m_filePathname,
+              "file", sqlScript.m_filePathname);
+        }
+      }
+
+      m_logger.info("script.parse", "Parsing " + sqlScript.m_filePathname + "...",
+          "file", sqlScript.m_filePathname);
+
+      Collection undefinedConstantNames = (Collection) undefinedConstantNameCollections.get(i);
+      for (Iterator iterator = undefinedConstantNames.iterator(); iterator.hasNext(); ) {
+        String constantName = (String) iterator.next();
+        m_logger.warning("constant.undefined", "constant '" + constantName
+            + "' used in file '" + sqlScript.m_filePathname + "' is not defined!",
+            "file", sqlScript.m_filePathname, "constant", constantName);
+      }
+
+      sqlStatements.addAll((Collection) results.get(i));
+      sqlStatementHistory.addAll((Collection) results.get(i));
+    }
+
+    // Order the SQL statements so that the database objects they
+    // reference are created before.
+    //
+    startTime = System.nanoTime();
+    sqlStatements = scheduleSQLStatements(sqlStatements);
+    m_metrics.addPhaseTimeSince(DeploymentMetrics.PHASE_SCHEDULING, startTime);
+
+    // Execute the SQL statements in their given order, until every
+    // SQL statement passes or completely fails.  The scripts of a same
+    // type of database objects are executed concurrently when several
+    // workers are allowed.
+    //
+    int maximumWorkerCount = Math.max(m_workerCount, getCopyWorkerCount());
+    ExecutorService executorService = (maximumWorkerCount > 1)
+        ? Executors.newFixedThreadPool(maximumWorkerCount - 1)
+        : null;
+
+    m_copyStatistics = new SQLCopyStatistics();
+
+    startTime = System.nanoTime();
+    try {
+      executeSQLStatements(sqlSession, sqlStatements, executorService);
+    } finally {
+      if (executorService != null)
+        executorService.shutdownNow();
+
+      m_metrics.addPhaseTimeSince(DeploymentMetrics.PHASE_EXECUTION, startTime);
+      m_metrics.addCopyStatistics(m_copyStatistics);
+    }
+
+    if (m_copyStatistics.getTableCount() > 0)
+      m_logger.info("copy.statistics", m_copyStatistics.toString(),
+          "table_count", Integer.valueOf(m_copyStatistics.getTableCount()),
+          "row_count", Long.valueOf(m_copyStatistics.getRowCount()),
+          "byte_count", Long.valueOf(m_copyStatistics.getByteCount()));
+
+    // Check every SQL statement execution result and update
+    // consequently the state of the SQL script it depends.
+    //
+    if (m_revisionControlSystem != null) {
+      // The session may have been reconnected while executing the SQL
+      // statements.
+      //
+      rdbmsConnection = sqlSession.getConnection();
+
+      Iterator sqlStatementIterator = sqlStatementHistory.iterator();
+      while (sqlStatementIterator.hasNext()) {
+        SQLStatement sqlStatement = (SQLStatement) sqlStatementIterator.next();
+        if (sqlStatement.m_sqlScript.m_executionStatus == SQLScript.EXECUTION_STATUS_NONE)
+          sqlStatement.m_sqlScript.m_executionStatus = sqlStatement.m_executionStatus;
+        else if (sqlStatement.m_executionStatus == SQLStatement.EXECUTION_STATUS_FAILED)
+          sqlStatement.m_sqlScript.m_executionStatus = SQLScript.EXECUTION_STATUS_FAILED;
+      }
+
+      List executedSQLScripts = new ArrayList();
+      for (Iterator sqlScriptIterator = m_sqlScripts.iterator(); sqlScriptIterator.hasNext(); ) {
+        SQLScript sqlScript = (SQLScript) sqlScriptIterator.next();
+        if (sqlScript.m_executionStatus != SQLScript.EXECUTION_STATUS_NONE)
+          executedSQLScripts.add(sqlScript);
+      }
+
+      startTime = System.nanoTime();
+      saveRevisionControlRecords(rdbmsConnection, revisionControlRecords, executedSQLScripts);
+      m_metrics.addPhaseTimeSince(DeploymentMetrics.PHASE_REVISION_CONTROL, startTime);
+    }
+  }
+
+  /**
+   * Execute the specified SQL statement against the relation database
+   * management system.  When the execution fails because of a
+   * dependency on a database object that has not been created yet,
+   * the name of this object is stored in the SQL statement, if the
+   * RDBMS reports it.
+   *
+   * @param sqlSession the session to execute the SQL statement on.
+   * @param sqlStatement a SQL statement to be executed.
+   *
+   * @return <code>true</code> if the SQL statement execution
+   *         succeeded; <code>false</code> if it failed because of a
+   *         dependency on a database object that has not been
+   *         created yet.
+   *
+   * @throws SQLException if the execution of the SQL statement
+   *         failed.
+   */
+  protected abstract boolean processSQLStatement(SQLSession sqlSession, SQLStatement sqlStatement)
+    throws SQLException;
+
+  /**
+   * Execute the specified SQL statements against the relational
+   * database management system in a single batch, which either
+   * succeeds or fails as a whole.  By default, batches are not
+   * supported.
+   *
+   * @param sqlSession the session to execute the SQL statements on.
+   * @param sqlStatements a list of <code>SQLStatement</code> objects
+   *        that can be batched and that share the same run-time
+   *        configuration parameters.
+   *
+   * @return <code>true</code> if the execution of every SQL statement
+   *         succeeded; <code>false</code> if the batch failed, in which
+   *         case none of the SQL statements has been executed.
+   *
+   * @throws SQLException if the run-time configuration parameters of
+   *         the session cannot be changed, or if the connection has
+   *         been lost.
+   */
+  protected boolean processSQLStatementBatch(SQLSession sqlSession, List sqlStatements)
+    throws SQLException {
+    return false;
+  }
+
+  /**
+   * Reconnect the specified session, which connection has been lost,
+   * so that the SQL statements which execution failed can be executed
+   * once again.
+   *
+   * @param sqlSession the session which the SQL statements have been
+   *        executed on.
+   * @param exception the exception raised while executing the SQL
+   *        statements.
+   *
+   * @throws SQLException the specified exception, if it doesn't
+   *         denote a lost connection or if a transaction is in progress,
+   *         or if the session cannot be reconnected.
+   */
+  protected void reconnectBrokenSession(SQLSession sqlSession, SQLException exception)
+    throws SQLException {
+    // The SQL statements already executed in the transaction in
+    // progress are lost with the connection, and they cannot be
+    // replayed.
+    //
+    if (!sqlSession.checkBroken(exception) || sqlSession.isTransactionActive())
+      throw exception;
+
+    m_logger.warning("session.reconnect", "Connection lost (" + exception.getSQLState() + "), reconnecting...",
+        "sql_state", exception.getSQLState());
+    sqlSession.reconnect();
+  }
+
+  /**
+   * Deploy once again the specified SQL scripts, which files have been
+   * created or modified, on a session of the pool, keeping the state
+   * of the SQL deployment manager for the other SQL scripts.  The SQL
+   * constants of the modified files are parsed once again.  The SQL
+   * scripts which use SQL constants which values have changed are
+   * deployed as well, provided that their parse cache entries are
+   * known.  SQL scripts are deployed whatever their revision numbers.
+   *
+   * @param updatedSQLScripts a collection of the
+   *        <code>SQLScript</code> objects of the files that have been
+   *        created or modified.
+   * @param deletedFilePathnames a collection of the pathnames of the
+   *        SQL script files that have been deleted.
+   *
+   * @return <code>false</code> if the SQL scripts have not been
+   *         deployed because of a SQL constant declaration mismatch;
+   *         <code>true</code> otherwise.
+   *
+   * @throws IOException if a read access to a SQL script files failed
+   *         for some reason.
+   * @throws SQLException if the execution of an SQL statement of
+   *         these script files failed.
+   */
+  public boolean redeploy(Collection updatedSQLScripts, Collection deletedFilePathnames)
+    throws IOException,
+           MaximumExecutionAttemptException,
+           SQLException,
+           UndefinedRevisionNumberException {
+    Set replacedFilePathnames = new HashSet(deletedFilePathnames);
+    for (Iterator iterator = updatedSQLScripts.iterator(); iterator.hasNext(); )
+      replacedFilePathnames.add(((SQLScript) iterator.next()).m_filePathname);
+
+    // Merge the SQL constants of the updated files with those of the
+    // other files, which are kept as is.
+    //
+    Hashtable sqlScriptConstants = new Hashtable();
+    for (Iterator iterator = m_sqlScriptConstants.values().iterator(); iterator.hasNext(); ) {
+      SQLConstant sqlConstant = (SQLConstant) iterator.next();
+      if (!replacedFilePathnames.contains(sqlConstant.m_sqlScript.m_filePathname))
+        sqlScriptConstants.put(sqlConstant.m_name, sqlConstant);
+    }
+
+    for (Iterator iterator = updatedSQLScripts.iterator(); iterator.hasNext(); ) {
+      SQLScript sqlScript = (SQLScript) iterator.next();
+      for (Iterator constantIterator = parseSQLScriptConstants(sqlScript).iterator(); constantIterator.hasNext(); ) {
+        SQLConstant declaredSQLConstant = (SQLConstant) constantIterator.next();
+        SQLConstant sqlConstant = (SQLConstant) sqlScriptConstants.get(declaredSQLConstant.m_name);
+        if (sqlConstant == null)
+          sqlScriptConstants.put(declaredSQLConstant.m_name, declaredSQLConstant);
+        else if (sqlConstant.m_value.compareTo(declaredSQLConstant.m_value) != 0) {
+          m_logger.error("constant.mismatch", "constant '" + declaredSQLConstant.m_name
+              + "' declaration mismatch between file '" + sqlConstant.m_sqlScript.m_filePathname
+              + "' and file '" + sqlScript.m_filePathname + "'!",
+              "file", sqlScript.m_filePathname, "constant", declaredSQLConstant.m_name);
+          m_logger.flush();
+          return false;
+        }
+      }
+    }
+
+    Set changedConstantNames = new HashSet();
+    for (Iterator iterator = m_sqlScriptConstants.values().iterator(); iterator.hasNext(); ) {
+      SQLConstant sqlConstant = (SQLConstant) iterator.next();
+      SQLConstant newSQLConstant = (SQLConstant) sqlScriptConstants.get(sqlConstant.m_name);
+      if ((newSQLConstant == null) || !newSQLConstant.m_value.equals(sqlConstant.m_value))
+        changedConstantNames.add(sqlConstant.m_name);
+    }
+    for (Iterator iterator = sqlScriptConstants.keySet().iterator(); iterator.hasNext(); ) {
+      Object constantName = iterator.next();
+      if (!m_sqlScriptConstants.containsKey(constantName))
+        changedConstantNames.add(constantName);
+    }
+
+    // Replace the SQL scripts of the updated and deleted files, and
+    // select the SQL scripts to be deployed.
+    //
+    Set sqlScriptSelection = new HashSet(updatedSQLScripts);
+    List sqlScripts = new ArrayList(updatedSQLScripts);
+    for (Iterator iterator = m_sqlScripts.iterator(); iterator.hasNext(); ) {
+      SQLScript sqlScript = (SQLScript) iterator.next();
+      if (replacedFilePathnames.contains(sqlScript.m_filePathname))
+        continue;
+
+      sqlScript.m_executionStatus = SQLScript.EXECUTION_STATUS_NONE;
+      sqlScripts.add(sqlScript);
+
+      if ((sqlScript.m_cacheEntry != null) && !changedConstantNames.isEmpty()
+          && !Collections.disjoint(sqlScript.m_cacheEntry.m_usedConstantValues.keySet(), changedConstantNames))
+        sqlScriptSelection.add(sqlScript);
+    }
+
+    Collections.sort(sqlScripts, new Comparator() {
+      public int compare(Object script1, Object script2) {
+        return ((SQLScript) script1).m_filePathname.compareTo(((SQLScript) script2).m_filePathname);
+      }
+    });
+
+    m_sqlScripts = sqlScripts;
+    m_sqlScriptGroups = groupSQLScripts(sqlScripts);
+    m_sqlScriptConstants = sqlScriptConstants;
+    m_sqlConstantSubstitutor = new SQLConstantSubstitutor(sqlScriptConstants);
+
+    if (m_sqlConstantIndex != null)
+      m_sqlConstantIndex.save(sqlScripts);
+
+    boolean forceUpdate = m_forceUpdate;
+    m_forceUpdate = true;
+    m_sqlScriptSelection = sqlScriptSelection;
+    try {
+      process();
+    } finally {
+      m_forceUpdate = forceUpdate;
+      m_sqlScriptSelection = null;
+    }
+
+    return true;
+  }
+
+  /**
+   * Store the result of the deployment of the specified SQL scripts in
+   * the table <code>revision_control</code>.  The rows of the scripts
+   * already deployed are updated, and the rows of the other scripts
+   * are inserted, with two batches executed in a single transaction.
+   * The table is locked during this transaction so that concurrent
+   * deployments cannot insert the same rows twice.
+   *
+   * @param rdbmsConnection a connection to the relational database
+   *        management system.
+   * @param revisionControlRecords a map of the
+   *        <code>RevisionControlRecord</code> objects loaded before the
+   *        deployment; this map is updated accordingly.
+   * @param sqlScripts a list of the SQL scripts that have been
+   *        executed.
+   *
+   * @throws SQLException if the table cannot be updated.
+   */
+  protected void saveRevisionControlRecords(
+      Connection rdbmsConnection,
+      Hashtable revisionControlRecords,
+      List sqlScripts)
+    throws SQLException {
+    if (sqlScripts.isEmpty())
+      return;
+
+    Date deploymentTime = new Date();
+    boolean isAutoCommit = rdbmsConnection.getAutoCommit();
+    rdbmsConnection.setAutoCommit(false);
+
+    PreparedStatement updateStatement = null;
+    PreparedStatement insertStatement = null;
+
+    try {
+      Statement lockStatement = rdbmsConnection.createStatement();
+      try {
+        lockStatement.execute("LOCK TABLE revision_control IN SHARE ROW EXCLUSIVE MODE");
+      } finally {
+        lockStatement.close();
+      }
+
+      updateStatement = rdbmsConnection.prepareStatement(
+          "UPDATE revision_control" +
+          "  SET revision_number = ?," +
+          "      deployment_time = ?," +
+          "      deployment_status = ?" +
+          "  WHERE module_name = ?" +
+          "    AND object_type = ?");
+
+      for (Iterator iterator = sqlScripts.iterator(); iterator.hasNext(); ) {
+        SQLScript sqlScript = (SQLScript) iterator.next();
+        RevisionControlRecord revisionControlRecord = (RevisionControlRecord) revisionControlRecords.get(
+            RevisionControlRecord.getKey(sqlScript.m_moduleName, sqlScript.m_objectTypeName));
+
+        updateStatement.setInt(1, sqlScript.m_revisionNumber);
+        updateStatement.setLong(2, deploymentTime.getTime());
+        updateStatement.setInt(3, sqlScript.m_executionStatus);
+        updateStatement.setString(4, (revisionControlRecord == null) ? sqlScript.m_moduleName : revisionControlRecord.m_moduleName);
+        updateStatement.setString(5, (revisionControlRecord == null) ? sqlScript.m_objectTypeName : revisionControlRecord.m_objectTypeName);
+        updateStatement.addBatch();
+      }
+
+      int[] updateCounts = updateStatement.executeBatch();
+
+      // Insert the rows of the SQL scripts that have never been
+      // deployed before.
+      //
+      int insertCount = 0;
+      for (int i = 0; i < updateCounts.length; i++) {
+        if (updateCounts[i] != 0)
+          continue;
+
+        SQLScript sqlScript = (SQLScript) sqlScripts.get(i);
+        if (insertStatement == null)
+          insertStatement = rdbmsConnection.prepareStatement(
+              "INSERT INTO revision_control(module_name, object_type, revision_number, deployment_time, deployment_status)" +
+              " VALUES (?, ?, ?, ?, ?)");
+
+        insertStatement.setString(1, sqlScript.m_moduleName);
+        insertStatement.setString(2, sqlScript.m_objectTypeName);
+        insertStatement.setInt(3, sqlScript.m_revisionNumber);
+        insertStatement.setLong(4, deploymentTime.getTime());
+        insertStatement.setInt(5, sqlScript.m_executionStatus);
+        insertStatement.addBatch();
+        insertCount++;
+      }
+
+      if (insertCount > 0)
+        insertStatement.executeBatch();
+
+      rdbmsConnection.commit();
+    } catch (SQLException exception) {
+      rdbmsConnection.rollback();
+      throw exception;
+    } finally {
+      if (updateStatement != null)
+        updateStatement.close();
+      if (insertStatement != null)
+        insertStatement.close();
+
+      rdbmsConnection.setAutoCommit(isAutoCommit);
+    }
+
+    for (Iterator iterator = sqlScripts.iterator(); iterator.hasNext(); ) {
+      SQLScript sqlScript = (SQLScript) iterator.next();
+      String key = RevisionControlRecord.getKey(sqlScript.m_moduleName, sqlScript.m_objectTypeName);
+      RevisionControlRecord revisionControlRecord = (RevisionControlRecord) revisionControlRecords.get(key);
+
+      if (revisionControlRecord == null)
+        revisionControlRecords.put(key, new RevisionControlRecord(
+            sqlScript.m_moduleName,
+            sqlScript.m_objectTypeName,
+            sqlScript.m_revisionNumber,
+            deploymentTime,
+            sqlScript.m_executionStatus));
+      else {
+        revisionControlRecord.m_revisionNumber = sqlScript.m_revisionNumber;
+        revisionControlRecord.m_deploymentTime = deploymentTime;
+        revisionControlRecord.m_deploymentStatus = sqlScript.m_executionStatus;
+      }
+    }
+  }
+
+  /**
+   * Define the maximum number of consecutive SQL statements of a
+   * script that are sent at once to the relational database management
+   * system.  Batches are disabled with a size of <code>1</code>.
+   *
+   * @param batchSize the maximum number of SQL statements of a batch.
+   */
+  public void setBatchSize(int batchSize) {
+    if (batchSize < 1)
+      throw new IllegalArgumentException("The size of the batches must be at least 1");
+
+    m_batchSize = batchSize;
+  }
+
+  /**
+   * Define the directory where the results of the parsing of the SQL
+   * script files are cached from one run to the other, as well as the
+   * index of the SQL constants they declare.  This method must be
+   * called before the SQL scripts are provided.
+   *
+   * @param cacheDirectory the directory of the parse cache, which is
+   *        created if it doesn't exist.
+   *
+   * @throws IOException if the directory cannot be created.
+   */
+  public void setCacheDirectory(Path cacheDirectory)
+    throws IOException {
+    m_sqlScriptCache = new SQLScriptCache(cacheDirectory, m_logger);
+    m_sqlConstantIndex = new SQLConstantIndex(cacheDirectory.resolve(SQLConstantIndex.DEFAULT_FILE_NAME), m_logger);
+  }
+
+  /**
+   * Define the size of the buffers used to stream the data of bulk
+   * loading statements to the relational database management system.
+   *
+   * @param copyBufferSize the size of the buffers in bytes.
+   */
+  public void setCopyBufferSize(int copyBufferSize) {
+    if (copyBufferSize < 1)
+      throw new IllegalArgumentException("The size of the copy buffers must be at least 1 byte");
+
+    m_copyBufferSize = copyBufferSize;
+  }
+
+  /**
+   * Define the number of workers that concurrently execute the SQL
+   * scripts of a stage which contains bulk loading statements, such as
+   * the scripts that load datasets.
+   *
+   * @param copyWorkerCount the number of workers, at least 1.
+   */
+  public void setCopyWorkerCount(int copyWorkerCount) {
+    if (copyWorkerCount < 1)
+      throw new IllegalArgumentException("The number of copy workers must be at least 1");
+
+    m_copyWorkerCount = copyWorkerCount;
+    m_sessionPool.setMaximumSessionCount(Math.max(m_workerCount, getCopyWorkerCount()));
+  }
+
+  /**
+   * Specify whether database objects must be updated even if their
+   * current revision correspond to the last deployed.
+   *
+   * @param forceUpdate <code>true</code> if the database objects must
+   *        be updated even if their current revision correspond to
+   *        the last deployed; <code>false</code> otherwise.
+   */
+  public void setForceUpdate(boolean forceUpdate) {
+    m_forceUpdate = forceUpdate;
+  }
+
+  /**
+   * Define the maximum numbers of attempt executing a SQL statement
+   * that might fail because of dependency on some database objects
+   * that have not been already created.
+   *
+   * @param maximumAttemptCount the maximum numbers of attempt before
+   *        a fatal error is raised.
+   */
+  public void setMaximumAttemptCount(int maximumAttemptCount) {
+    m_maximumAttemptCount = maximumAttemptCount;
+  }
+
+  /**
+   * Define the name of the module to be only processed.
+   *
+   * @param moduleName name of the module to be only processed if
+   *        defined.
+   */
+  public void setModuleNameFilter(String moduleName) {
+    m_moduleNameFilter = moduleName;
+  }
+
+  /**
+   * Define the type of database objects to be only processed.
+   *
+   * @param objectType type of database objects to be only processed
+   *        if defined.
+   */
+  public void setObjectTypeFilter(String objectType) {
+    m_objectTypeFilter = objectType;
+  }
+
+  /**
+   * Execute the groups of SQL statements taken from the specified
+   * queue on the given session, until the queue is empty.  The queue
+   * is cleared if the execution of a SQL statement failed, so that
+   * the other workers stop as soon as they have finished their
+   * current group.
+   *
+   * <p>Unless the transaction mode is <code>TRANSACTION_MODE_NONE</code>,
+   * the SQL statements are executed in a transaction, which is
+   * committed after each group in the mode
+   * <code>TRANSACTION_MODE_SCRIPT</code>, or once the queue is empty
+   * in the mode <code>TRANSACTION_MODE_TIER</code>.  The transaction in
+   * progress is rolled back if the execution of a SQL statement
+   * failed.  A script is not deployed atomically if it contains a SQL
+   * statement that cannot be executed in a transaction, or a SQL
+   * statement that is executed again because of a missing database
+   * object (see {@link #executeSQLStatementGroup}).</p>
+   *
+   * @param sqlSession the session to execute the SQL statements on.
+   * @param sqlStatementGroups a queue of lists of
+   *        <code>SQLStatement</code> objects, shared by the workers.
+   *
+   * @throws SQLException if the execution of a SQL statement failed.
+   */
+  protected void pollSQLStatementGroups(SQLSession sqlSession, LinkedList sqlStatementGroups)
+    throws SQLException {
+    try {
+      while (true) {
+        List sqlStatements;
+        synchronized (sqlStatementGroups) {
+          if (sqlStatementGroups.isEmpty())
+            break;
+          sqlStatements = (List) sqlStatementGroups.removeFirst();
+        }
+
+        if (!TRANSACTION_MODE_NONE.equals(m_transactionMode) && !sqlSession.isTransactionActive())
+          sqlSession.beginTransaction();
+
+        executeSQLStatementGroup(sqlSession, sqlStatements);
+
+        if (TRANSACTION_MODE_SCRIPT.equals(m_transactionMode))
+          sqlSession.commitTransaction();
+      }
+
+      // Commit the SQL statements of this stage before the barrier, so
+      // that the next stages see the database objects they created.
+      //
+      if (sqlSession.isTransactionActive())
+        sqlSession.commitTransaction();
+    } catch (SQLException exception) {
+      synchronized (sqlStatementGroups) {
+        sqlStatementGroups.clear();
+      }
+
+      if (sqlSession.isTransactionActive())
+        sqlSession.rollbackTransaction();
+
+      throw exception;
+    }
+  }
+
+  /**
+   * Order the specified SQL statements so that a SQL statement that
+   * references a database object comes after the SQL statements of
+   * other scripts that create this object.  The statements of a same
+   * script keep their order, and the order is otherwise stable: among
+   * the statements that can be executed, the one that comes first in
+   * the given list is picked first.  The dependencies of a cycle are
+   * broken by picking the first statement of this cycle.
+   *
+   * @param sqlStatements a list of <code>SQLStatement</code> objects
+   *        which names of created and referenced database objects
+   *        have been extracted.
+   *
+   * @return the list of these SQL statements in their execution
+   *         order.
+   */
+  protected List scheduleSQLStatements(List sqlStatements) {
+    int sqlStatementCount = sqlStatements.size();
+
+    // Index the statements that create every database object.
+    //
+    HashMap creatorIndexes = new HashMap();
+    for (int i = 0; i < sqlStatementCount; i++) {
+      SQLStatement sqlStatement = (SQLStatement) sqlStatements.get(i);
+      for (Iterator iterator = sqlStatement.m_createdObjectNames.iterator(); iterator.hasNext(); ) {
+        Object objectName = iterator.next();
+        List indexes = (List) creatorIndexes.get(objectName);
+        if (indexes == null) {
+          indexes = new ArrayList();
+          creatorIndexes.put(objectName, indexes);
+        }
+        indexes.add(Integer.valueOf(i));
+      }
+    }
+
+    // Build the graph of the dependencies between the statements: a
+    // statement depends on the previous statement of its script, and
+    // on the statements of other scripts that create the database
+    // objects it references.
+    //
+    List[] successors = new List[sqlStatementCount];
+    int[] predecessorCounts = new int[sqlStatementCount];
+    HashMap lastIndexes = new HashMap();
+
+    for (int i = 0; i < sqlStatementCount; i++) {
+      SQLStatement sqlStatement = (SQLStatement) sqlStatements.get(i);
+      Set predecessorIndexes = new TreeSet();
+
+      Integer previousIndex = (Integer) lastIndexes.put(sqlStatement.m_sqlScript, Integer.valueOf(i));
+      if (previousIndex != null)
+        predecessorIndexes.add(previousIndex);
+
+      List dependencies = new ArrayList();
+      for (Iterator iterator = sqlStatement.m_referencedObjectNames.iterator(); iterator.hasNext(); ) {
+        List indexes = (List) creatorIndexes.get(iterator.next());
+        if (indexes == null)
+          continue;
+
+        for (Iterator indexIterator = indexes.iterator(); indexIterator.hasNext(); ) {
+          Integer index = (Integer) indexIterator.next();
+          SQLStatement creatorSQLStatement = (SQLStatement) sqlStatements.get(index.intValue());
+          if ((creatorSQLStatement.m_sqlScript != sqlStatement.m_sqlScript) && predecessorIndexes.add(index))
+            dependencies.add(creatorSQLStatement);
+        }
+      }
+      sqlStatement.m_dependencies = dependencies;
+
+      for (Iterator iterator = predecessorIndexes.iterator(); iterator.hasNext(); ) {
+        int predecessorIndex = ((Integer) iterator.next()).intValue();
+        if (successors[predecessorIndex] == null)
+          successors[predecessorIndex] = new ArrayList();
+        successors[predecessorIndex].add(Integer.valueOf(i));
+        predecessorCounts[i]++;
+      }
+    }
+
+    // Sort the statements in topological order.
+    //
+    PriorityQueue readyIndexes = new PriorityQueue();
+    for (int i = 0; i < sqlStatementCount; i++)
+      if (predecessorCounts[i] == 0)
+        readyIndexes.add(Integer.valueOf(i));
+
+    List scheduledSQLStatements = new ArrayList(sqlStatementCount);
+    boolean[] isScheduled = new boolean[sqlStatementCount];
+    int firstUnscheduledIndex = 0;
+
+    while (scheduledSQLStatements.size() < sqlStatementCount) {
+      if (readyIndexes.isEmpty()) {
+        while (isScheduled[firstUnscheduledIndex])
+          firstUnscheduledIndex++;
+
+        SQLStatement sqlStatement = (SQLStatement) sqlStatements.get(firstUnscheduledIndex);
+        m_logger.warning("statement.schedule", "circular dependency involving a statement of file '"
+            + sqlStatement.m_sqlScript.m_filePathname + "'",
+            "file", sqlStatement.m_sqlScript.m_filePathname);
+        predecessorCounts[firstUnscheduledIndex] = 0;
+        readyIndexes.add(Integer.valueOf(firstUnscheduledIndex));
+      }
+
+      int index = ((Integer) readyIndexes.poll()).intValue();
+      if (isScheduled[index])
+        continue;
+
+      isScheduled[index] = true;
+      scheduledSQLStatements.add(sqlStatements.get(index));
+
+      if (successors[index] != null)
+        for (Iterator iterator = successors[index].iterator(); iterator.hasNext(); ) {
+          int successorIndex = ((Integer) iterator.next()).intValue();
+          if (!isScheduled[successorIndex] && (--predecessorCounts[successorIndex] == 0))
+            readyIndexes.add(Integer.valueOf(successorIndex));
+        }
+    }
+
+    return scheduledSQLStatements;
+  }
+
+  /**
+   * Define the revision control system that is used to manage the SQL
+   * script files and to store the identification of a revision within
+   * these files.
+   *
+   * @param revisionControlSystem a revision control system.
+   */
+  public void setRevisionControlSystem(RevisionControlSystem revisionControlSystem) {
     m_revisionControlSystem = revisionControlSystem;
   }
 
@@ -579,12 +2245,50 @@ public abstract class SQLDeploymentManager {
    * @param sqlScripts a collection of SQL script files that contain
    *        SQL statements to be executed against a relational
    *        database management system.
+   *
+   * @throws IOException if a read access to a SQL script files failed
+   *         for some reason.
+   * @throws SQLConstantMismatchException if a SQL constant is declared
+   *         with different values, in which case the SQL scripts
+   *         previously provided are kept.
    */
   public void setSQLScripts(Collection sqlScripts)
-    throws IOException {
+    throws IOException,
+           SQLConstantMismatchException {
+    long startTime = System.nanoTime();
+    Hashtable sqlScriptConstants = parseSQLScriptConstants(sqlScripts);
+    m_metrics.addPhaseTimeSince(DeploymentMetrics.PHASE_CONSTANT_DECLARATION, startTime);
+
     m_sqlScripts = sqlScripts;
     m_sqlScriptGroups = groupSQLScripts(sqlScripts);
-    m_sqlScriptConstants = parseSQLScriptConstants(sqlScripts);
+    m_sqlScriptConstants = sqlScriptConstants;
+    m_sqlConstantSubstitutor = new SQLConstantSubstitutor(m_sqlScriptConstants);
+
+    if (m_sqlConstantIndex != null)
+      m_sqlConstantIndex.save(sqlScripts);
+
+    if (m_sqlScriptCache != null)
+      m_sqlScriptCache.evictStaleEntries(sqlScripts);
+  }
+
+  /**
+   * Define when the SQL statements are committed.
+   *
+   * @param transactionMode <code>TRANSACTION_MODE_NONE</code> to commit
+   *        every SQL statement on its own,
+   *        <code>TRANSACTION_MODE_SCRIPT</code> to commit the SQL
+   *        statements of a script at once, or
+   *        <code>TRANSACTION_MODE_TIER</code> to commit at once the SQL
+   *        statements that a worker executes before the barrier of a
+   *        stage.
+   */
+  public void setTransactionMode(String transactionMode) {
+    if (!TRANSACTION_MODE_NONE.equals(transactionMode)
+        && !TRANSACTION_MODE_SCRIPT.equals(transactionMode)
+        && !TRANSACTION_MODE_TIER.equals(transactionMode))
+      throw new IllegalArgumentException("Unsupported transaction mode \"" + transactionMode + "\"");
+
+    m_transactionMode = transactionMode;
   }
 
   /**
@@ -597,5 +2301,21 @@ public abstract class SQLDeploymentManager {
    */
   public void setVerbose(boolean enabled) {
     m_verbose_enabled = enabled;
+    m_logger.setLevel(enabled ? DeploymentLogger.LEVEL_DEBUG : DeploymentLogger.LEVEL_INFO);
+  }
+
+  /**
+   * Define the number of workers that concurrently execute the SQL
+   * scripts which manage a same type of database objects.  Each
+   * worker executes the SQL statements on its own session.
+   *
+   * @param workerCount the number of workers, at least 1.
+   */
+  public void setWorkerCount(int workerCount) {
+    if (workerCount < 1)
+      throw new IllegalArgumentException("The number of workers must be at least 1");
+
+    m_workerCount = workerCount;
+    m_sessionPool.setMaximumSessionCount(Math.max(m_workerCount, getCopyWorkerCount()));
   }
 }
@@ -0,0 +1,472 @@
+/**
+ * Copyright (C) 1998-2008 Majormode.  All rights reserved.
+ *
+ * This software is the confidential and proprietary information of
+ * Majormode or one of its subsidiaries.  You shall not disclose this
+ * confidential information and shall use it only in accordance with
+ * the terms of the license agreement or other applicable agreement
+ * you entered into with Majormode.
+ *
+ * MAJORMODE MAKES NO REPRESENTATIONS OR WARRANTIES ABOUT THE
+ * SUITABILITY OF THE SOFTWARE, EITHER EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE IMPLIED WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE, OR NON-INFRINGEMENT.  MAJORMODE
+ * SHALL NOT BE LIABLE FOR ANY LOSSES OR DAMAGES SUFFERED BY LICENSEE
+ * AS A RESULT OF USING, MODIFYING OR DISTRIBUTING THIS SOFTWARE OR
+ * ITS DERIVATIVES.
+ */
+
+package com.majormode.tool.dbdeploy;
+
+import com.martiansoftware.jsap.FlaggedOption;
+import com.martiansoftware.jsap.JSAP;
+import com.martiansoftware.jsap.JSAPResult;
+import com.martiansoftware.jsap.SimpleJSAP;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Vector;
+
+import jdk.net.ExtendedSocketOptions;
+import jdk.net.UnixDomainPrincipal;
+
+/**
+ * Resident server that deploys SQL script files on behalf of clients
+ * connected to a Unix domain socket.  The server keeps its SQL deployment
+ * managers, and therefore their sessions and the results of the
+ * parsing of the SQL script files, from one deployment to the other,
+ * so that a deployment doesn't pay for the start of a virtual machine,
+ * the connection to the relational database management system and the
+ * parsing of the unchanged files.
+ *
+ * <p>A client sends a request made of the working directory which
+ * relative paths are resolved against, followed by the arguments of
+ * the command line of the tool, one per line, and ended with an empty
+ * line.  The server replies with the output of the deployment, ended
+ * with a status line <code>STATUS_PREFIX</code> followed by
+ * <code>0</code> if the deployment succeeded, and closes the
+ * connection.  Deployments are executed one at a time, in the order
+ * the requests are received.</p>
+ *
+ * <p>A request runs with the rights of the server on the file system,
+ * and it defines the connection to the RDBMS, so only the user who
+ * runs the server may connect to it: the socket file is only readable
+ * and writable by this user, in a directory only accessible by this
+ * user when the server creates it, and the connections of the other
+ * users are refused when the platform reports the user of the
+ * client.</p>
+ *
+ * @author Daniel CAUNE (daniel.caune@majormode.com)
+ */
+public class SQLDeploymentServer {
+  /**
+   * Default pathname of the socket file, relative to the home
+   * directory of the user who runs the server.
+   */
+  public static final String DEFAULT_SOCKET_PATHNAME = ".dbdeploy/server.sock";
+
+  /**
+   * Default maximum number of SQL deployment managers kept, with their
+   * sessions, from one request to the other.
+   */
+  public static final int DEFAULT_MAXIMUM_MANAGER_COUNT = 4;
+
+  protected static final String LONG_FLAG_OPTION_CACHE_DIRECTORY = "cache-directory";
+  protected static final String LONG_FLAG_OPTION_MAXIMUM_MANAGER_COUNT = "maximum-manager-count";
+  protected static final String LONG_FLAG_OPTION_SOCKET = "socket";
+
+  protected static final char SHORT_FLAG_OPTION_CACHE_DIRECTORY = 'e';
+  protected static final char SHORT_FLAG_OPTION_MAXIMUM_MANAGER_COUNT = 'm';
+  protected static final char SHORT_FLAG_OPTION_SOCKET = 's';
+
+  /**
+   * Arguments which define the connection and the settings of a SQL
+   * deployment manager, which is shared by the requests that define
+   * the same values for these arguments.
+   */
+  protected static final String[] SQL_DEPLOYMENT_MANAGER_OPTIONS = {
+    Main.LONG_FLAG_OPTION_RDBMS,
+    Main.LONG_FLAG_OPTION_JDBC_DRIVER,
+    Main.LONG_FLAG_OPTION_JDBC_URL,
+    Main.LONG_FLAG_OPTION_USERNAME,
+    Main.LONG_FLAG_OPTION_PASSWORD,
+    Main.LONG_FLAG_OPTION_BATCH_SIZE,
+    Main.LONG_FLAG_OPTION_CACHE_DIRECTORY,
+    Main.LONG_FLAG_OPTION_COPY_BUFFER_SIZE,
+    Main.LONG_FLAG_OPTION_COPY_WORKER_COUNT,
+    Main.LONG_FLAG_OPTION_MAXIMUM_ATTEMPT_COUNT,
+    Main.LONG_FLAG_OPTION_REVISION_CONTROL_SYSTEM,
+    Main.LONG_FLAG_OPTION_TRANSACTION_MODE,
+    Main.LONG_FLAG_OPTION_WORKER_COUNT
+  };
+
+  /**
+   * Prefix of the last line of a reply, followed by the exit status of
+   * the deployment.
+   */
+  public static final String STATUS_PREFIX = "dbdeploy-status: ";
+
+  /**
+   * Directory where the results of the parsing of the SQL script files
+   * are cached, when a request doesn't define any.
+   */
+  protected Path m_cacheDirectory;
+
+  /**
+   * Logger of the events of the server itself, such as the requests
+   * that cannot be served.  The events of a deployment are logged by
+   * the SQL deployment manager that executes it.
+   */
+  protected DeploymentLogger m_logger = new DeploymentLogger();
+
+  /**
+   * Pathname of the socket file the server listens to.
+   */
+  protected Path m_socketPath;
+
+  /**
+   * Maximum number of SQL deployment managers kept from one request to
+   * the other.
+   */
+  protected int m_maximumManagerCount;
+
+  /**
+   * SQL deployment managers used by the last requests, keyed by a
+   * digest of the values of the arguments which define them, from the
+   * least recently used to the most recently used.
+   */
+  protected LinkedHashMap m_sqlDeploymentManagers;
+
+  /**
+   * Build a server listening to the specified socket file.
+   *
+   * @param socketPath the pathname of the socket file the server
+   *        listens to.
+   * @param cacheDirectory the directory where the results of the
+   *        parsing of the SQL script files are cached when a request
+   *        doesn't define any, or <code>null</code>.
+   * @param maximumManagerCount the maximum number of SQL deployment
+   *        managers kept from one request to the other.  The least
+   *        recently used SQL deployment manager is closed beyond this
+   *        number.
+   */
+  public SQLDeploymentServer(Path socketPath, Path cacheDirectory, int maximumManagerCount) {
+    if (maximumManagerCount < 1)
+      throw new IllegalArgumentException("The maximum number of SQL deployment managers must be at least 1");
+
+    m_socketPath = socketPath.toAbsolutePath();
+    m_cacheDirectory = cacheDirectory;
+    m_maximumManagerCount = maximumManagerCount;
+
+    m_sqlDeploymentManagers = new LinkedHashMap(16, 0.75f, true) {
+      protected boolean removeEldestEntry(Map.Entry eldest) {
+        if (size() <= m_maximumManagerCount)
+          return false;
+
+        ((SQLDeploymentManager) eldest.getValue()).close();
+        m_logger.info("manager.evict", "Closed the least recently used connection to the RDBMS");
+        return true;
+      }
+    };
+  }
+
+  /**
+   * Close the sessions of every SQL deployment manager built so far,
+   * and remove the socket file.
+   */
+  public synchronized void close() {
+    for (Iterator iterator = m_sqlDeploymentManagers.values().iterator(); iterator.hasNext(); )
+      ((SQLDeploymentManager) iterator.next()).close();
+    m_sqlDeploymentManagers.clear();
+
+    try {
+      Files.deleteIfExists(m_socketPath);
+    } catch (IOException exception) {
+      m_logger.warning("server.close", String.valueOf(exception.getMessage()), "socket", m_socketPath.toString());
+    }
+    m_logger.close();
+  }
+
+  /**
+   * Deploy the SQL script files that the specified arguments define.
+   * The events of the deployment are written to the specified stream,
+   * while the standard output and error streams of the server are left
+   * untouched.
+   *
+   * @param workingDirectory the directory which relative paths of the
+   *        arguments are resolved against.
+   * @param arguments the arguments of the command line of the tool.
+   * @param outputStream the stream connected to the client.
+   *
+   * @return the exit status of the deployment: <code>0</code> if the
+   *         deployment succeeded; <code>1</code> otherwise.
+   */
+  protected int deploy(Path workingDirectory, String[] arguments, PrintStream outputStream) {
+    // The events that occur before the SQL deployment manager is known,
+    // such as the errors of the arguments, are written to the client
+    // as well.
+    //
+    DeploymentLogger logger = new DeploymentLogger(outputStream, DeploymentLogger.DEFAULT_CAPACITY);
+    SQLDeploymentManager sqlDeploymentManager = null;
+    try {
+      JSAP jsap = new JSAP();
+      com.martiansoftware.jsap.Parameter[] parameters = Main.createCommandLineParameters();
+      for (int i = 0; i < parameters.length; i++)
+        jsap.registerParameter(parameters[i]);
+
+      JSAPResult configuration = jsap.parse(arguments);
+      if (!configuration.success()) {
+        for (Iterator iterator = configuration.getErrorMessageIterator(); iterator.hasNext(); )
+          logger.error("request.argument", String.valueOf(iterator.next()));
+        return 1;
+      }
+
+      if (configuration.getBoolean(Main.LONG_FLAG_OPTION_WATCH)) {
+        logger.error("request.option", "the option " + Main.LONG_FLAG_OPTION_WATCH + " is not supported by the server",
+            "option", Main.LONG_FLAG_OPTION_WATCH);
+        return 1;
+      }
+
+      sqlDeploymentManager = getSQLDeploymentManager(configuration, workingDirectory);
+      Main.deploy(sqlDeploymentManager, configuration, workingDirectory, outputStream);
+      return 0;
+    } catch (Exception exception) {
+      ((sqlDeploymentManager == null) ? logger : sqlDeploymentManager.getLogger()).error("deployment.failure",
+          String.valueOf(exception.getMessage()), "working_directory", workingDirectory.toString());
+      return 1;
+    } finally {
+      // The events are written before the exit status, and the SQL
+      // deployment manager writes its next events to the standard
+      // output of the server.
+      //
+      logger.close();
+      if (sqlDeploymentManager != null)
+        sqlDeploymentManager.getLogger().setOutputStream(null);
+    }
+  }
+
+  /**
+   * Return the SQL deployment manager that the specified arguments
+   * define, which is built the first time these arguments are used.
+   *
+   * @param configuration the arguments of the tool.
+   * @param workingDirectory the directory which relative paths of the
+   *        arguments are resolved against.
+   *
+   * @return the SQL deployment manager.
+   *
+   * @throws Exception if the SQL deployment manager cannot be built.
+   */
+  protected SQLDeploymentManager getSQLDeploymentManager(
+      JSAPResult configuration,
+      Path workingDirectory)
+    throws Exception {
+    // The key is a digest of the values of the arguments, so that the
+    // password is not kept in clear.
+    //
+    StringBuilder values = new StringBuilder();
+    for (int i = 0; i < SQL_DEPLOYMENT_MANAGER_OPTIONS.length; i++) {
+      String option = SQL_DEPLOYMENT_MANAGER_OPTIONS[i];
+      if (configuration.contains(option)) {
+        String value = configuration.getObject(option).toString();
+        if (option.equals(Main.LONG_FLAG_OPTION_CACHE_DIRECTORY))
+          value = workingDirectory.resolve(value).toAbsolutePath().normalize().toString();
+        values.append(option).append('=').append(value);
+      }
+      values.append('\n');
+    }
+
+    byte[] digest = MessageDigest.getInstance("SHA-256").digest(values.toString().getBytes(StandardCharsets.UTF_8));
+    StringBuilder key = new StringBuilder();
+    for (int i = 0; i < digest.length; i++)
+      key.append(Character.forDigit((digest[i] >> 4) & 0xF, 16)).append(Character.forDigit(digest[i] & 0xF, 16));
+
+    SQLDeploymentManager sqlDeploymentManager = (SQLDeploymentManager) m_sqlDeploymentManagers.get(key.toString());
+    if (sqlDeploymentManager == null) {
+      sqlDeploymentManager = Main.createSQLDeploymentManager(configuration, workingDirectory);
+      if (!configuration.contains(Main.LONG_FLAG_OPTION_CACHE_DIRECTORY) && (m_cacheDirectory != null))
+        sqlDeploymentManager.setCacheDirectory(m_cacheDirectory);
+      m_sqlDeploymentManagers.put(key.toString(), sqlDeploymentManager);
+    }
+
+    return sqlDeploymentManager;
+  }
+
+  /**
+   * Indicate whether the specified client is allowed to send requests
+   * to the server, i.e., whether it is run by the owner of the socket
+   * file.  If the platform doesn't report the user of a client, only
+   * the permissions of the socket file restrict who may connect.
+   *
+   * @param channel the channel connected to the client.
+   *
+   * @return <code>true</code> if the client is allowed to send
+   *         requests; <code>false</code> otherwise.
+   *
+   * @throws IOException if the user of the client or the owner of the
+   *         socket file cannot be read.
+   */
+  protected boolean isAuthorized(SocketChannel channel)
+    throws IOException {
+    if (!channel.supportedOptions().contains(ExtendedSocketOptions.SO_PEERCRED))
+      return true;
+
+    UnixDomainPrincipal principal = (UnixDomainPrincipal) channel.getOption(ExtendedSocketOptions.SO_PEERCRED);
+    return principal.user().getName().equals(Files.getOwner(m_socketPath).getName());
+  }
+
+  /**
+   * Listen to the socket file and serve the requests until the server
+   * is stopped.  The directory of the socket file is created, only
+   * accessible by the current user, if it doesn't exist, and the socket
+   * file left by a previous server is replaced.
+   *
+   * @throws IOException if the server cannot listen to its socket
+   *         file.
+   */
+  public void listen()
+    throws IOException {
+    boolean isPosix = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+
+    Path directory = m_socketPath.getParent();
+    if (!Files.isDirectory(directory)) {
+      if (isPosix)
+        Files.createDirectories(directory,
+            PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+      else
+        Files.createDirectories(directory);
+    }
+
+    if (Files.exists(m_socketPath) && !Files.isRegularFile(m_socketPath) && !Files.isDirectory(m_socketPath))
+      Files.delete(m_socketPath);
+
+    ServerSocketChannel serverChannel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+    try {
+      serverChannel.bind(UnixDomainSocketAddress.of(m_socketPath));
+      if (isPosix)
+        Files.setPosixFilePermissions(m_socketPath, PosixFilePermissions.fromString("rw-------"));
+
+      m_logger.info("server.listen", "Listening on " + m_socketPath + "...", "socket", m_socketPath.toString());
+      while (true) {
+        SocketChannel channel = serverChannel.accept();
+        try {
+          if (isAuthorized(channel))
+            serve(channel);
+          else
+            m_logger.warning("request.deny", "Connection of another user refused");
+        } catch (IOException exception) {
+          m_logger.warning("request.failure", String.valueOf(exception.getMessage()));
+        } finally {
+          channel.close();
+        }
+      }
+    } finally {
+      serverChannel.close();
+    }
+  }
+
+  /**
+   * Execute the deployment server.
+   *
+   * @param arguments a list of arguments that the server supports:
+   *        <ul>
+   *        <li><code>--cache-directory</code>: specifies a directory
+   *         where the results of the parsing of the SQL script files
+   *         are cached, for the requests that don't define any.</li>
+   *        <li><code>--maximum-manager-count</code>: specifies the
+   *         maximum number of connection settings which sessions are
+   *         kept from one request to the other.</li>
+   *        <li><code>--socket</code>: specifies the pathname of the
+   *         socket file the server listens to.</li>
+   *        </ul>
+   *
+   * @throws Exception if an unexpected exception occurs.
+   */
+  public static void main(String[] arguments)
+    throws Exception {
+    SimpleJSAP jsap = new SimpleJSAP(
+        "dbdeploy-server",
+        "Deploy database objects on behalf of the clients connected to a Unix domain socket.",
+        new com.martiansoftware.jsap.Parameter[] {
+            new FlaggedOption(LONG_FLAG_OPTION_CACHE_DIRECTORY, JSAP.STRING_PARSER, JSAP.NO_DEFAULT, JSAP.NOT_REQUIRED, SHORT_FLAG_OPTION_CACHE_DIRECTORY, LONG_FLAG_OPTION_CACHE_DIRECTORY,
+                "Specifies a directory where the results of the parsing of the SQL script files are cached, for the requests that don't define any."),
+            new FlaggedOption(LONG_FLAG_OPTION_MAXIMUM_MANAGER_COUNT, JSAP.INTEGER_PARSER, Integer.toString(DEFAULT_MAXIMUM_MANAGER_COUNT), JSAP.NOT_REQUIRED, SHORT_FLAG_OPTION_MAXIMUM_MANAGER_COUNT, LONG_FLAG_OPTION_MAXIMUM_MANAGER_COUNT,
+                "Specifies the maximum number of connection settings which sessions are kept from one request to the other.  The sessions of the least recently used settings are closed beyond this number."),
+            new FlaggedOption(LONG_FLAG_OPTION_SOCKET, JSAP.STRING_PARSER, JSAP.NO_DEFAULT, JSAP.NOT_REQUIRED, SHORT_FLAG_OPTION_SOCKET, LONG_FLAG_OPTION_SOCKET,
+                "Specifies the pathname of the socket file the server listens to.  If not defined, the socket file is " + DEFAULT_SOCKET_PATHNAME + " in the home directory of the user.")
+        }
+    );
+
+    JSAPResult configuration = jsap.parse(arguments);
+    if (jsap.messagePrinted())
+      System.exit(1);
+
+    final SQLDeploymentServer server = new SQLDeploymentServer(
+        configuration.contains(LONG_FLAG_OPTION_SOCKET)
+          ? Paths.get(configuration.getString(LONG_FLAG_OPTION_SOCKET))
+          : Paths.get(System.getProperty("user.home"), DEFAULT_SOCKET_PATHNAME),
+        configuration.contains(LONG_FLAG_OPTION_CACHE_DIRECTORY)
+          ? Paths.get(configuration.getString(LONG_FLAG_OPTION_CACHE_DIRECTORY))
+          : null,
+        configuration.getInt(LONG_FLAG_OPTION_MAXIMUM_MANAGER_COUNT));
+
+    Runtime.getRuntime().addShutdownHook(new Thread() {
+      public void run() {
+        server.close();
+      }
+    });
+
+    server.listen();
+  }
+
+  /**
+   * Read the request of the specified client, execute the deployment
+   * it defines, and write back the output of the deployment.
+   *
+   * @param channel the channel connected to the client.
+   *
+   * @throws IOException if the request cannot be read or the reply
+   *         cannot be written.
+   */
+  protected synchronized void serve(SocketChannel channel)
+    throws IOException {
+    BufferedReader reader = new BufferedReader(new InputStreamReader(Channels.newInputStream(channel),
+        StandardCharsets.UTF_8));
+    String workingDirectory = reader.readLine();
+    if (workingDirectory == null)
+      return;
+
+    Vector arguments = new Vector();
+    String line;
+    while (((line = reader.readLine()) != null) && (line.length() > 0))
+      arguments.add(line);
+
+    PrintStream output = new PrintStream(Channels.newOutputStream(channel), true, "UTF-8");
+
+    long startTime = System.currentTimeMillis();
+    int status = deploy(Paths.get(workingDirectory), (String[]) arguments.toArray(new String[arguments.size()]), output);
+    output.println(STATUS_PREFIX + status);
+
+    long duration = System.currentTimeMillis() - startTime;
+    m_logger.info("deployment.complete", "Deployment from " + workingDirectory + " "
+        + ((status == 0) ? "succeeded" : "failed") + " in " + duration + " ms",
+        "working_directory", workingDirectory, "status", Integer.valueOf(status), "duration_ms", Long.valueOf(duration));
+  }
+}
@@ -0,0 +1,828 @@
+/**
+ * Copyright (C) 1998-2008 Majormode.  All rights reserved.
+ *
+ * This software is the confidential and proprietary information of
+ * Majormode or one of its subsidiaries.  You shall not disclose this
+ * confidential information and shall use it only in accordance with
+ * the terms of the license agreement or other applicable agreement
+ * you entered into with Majormode.
+ *
+ * MAJORMODE MAKES NO REPRESENTATIONS OR WARRANTIES ABOUT THE
+ * SUITABILITY OF THE SOFTWARE, EITHER EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE IMPLIED WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE, OR NON-INFRINGEMENT.  MAJORMODE
+ * SHALL NOT BE LIABLE FOR ANY LOSSES OR DAMAGES SUFFERED BY LICENSEE
+ * AS A RESULT OF USING, MODIFYING OR DISTRIBUTING THIS SOFTWARE OR
+ * ITS DERIVATIVES.
+ */
+
+package com.majormode.tool.dbdeploy;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+/**
+ * Split the content of a SQL script into SQL statements.  The lexer
+ * reads the script in a single pass, with a constant stack depth, and
+ * it understands:
+ * <ul>
+ * <li>string literals <code>'...'</code>, including the escape string
+ * constants <code>E'...'</code>;</li>
+ * <li>quoted identifiers <code>"..."</code>;</li>
+ * <li>dollar-quoted strings <code>$tag$...$tag$</code>, such as the
+ * body of a function;</li>
+ * <li>comments that start with the characters <code>--</code>, and
+ * C-like comments <code>/* ... *&#47;</code> that can be nested;</li>
+ * <li>optimizer hints <code>/*+ ... *&#47;</code>, which are kept in
+ * the SQL statement;</li>
+ * <li>bulk loading statements <code>COPY ... FROM STDIN;</code>
+ * followed by their data, up to the line <code>\.</code>.</li>
+ * </ul>
+ * Comments are removed from the SQL statements returned by the lexer,
+ * except when they are part of a string literal or a dollar-quoted
+ * string.  The lexer also records the tokens <code>+...+</code> that
+ * the code of the SQL statements uses, outside any string literal,
+ * quoted identifier, dollar-quoted string, or comment, and which are
+ * not part of a longer expression such as <code>a+b+c</code>.
+ *
+ * <p>The lexer reads the script through a window of characters, which
+ * only keeps the characters of the current token and the two
+ * characters that precede it.  When the script is read from a stream,
+ * the memory that the lexer takes doesn't depend on the size of the
+ * script: the data of the bulk loading statements are skipped, and
+ * only their location in the stream, in bytes, and the names of the
+ * SQL constants they use are kept, as well as the text of the script
+ * without these data.</p>
+ *
+ * @author Daniel CAUNE (daniel.caune@majormode.com)
+ */
+public class SQLLexer {
+  /**
+   * Line that marks the end of the data of a bulk loading statement.
+   */
+  protected static final String COPY_DATA_END_MARKER = "\\.";
+
+  /**
+   * Initial capacity of the window of characters of a script read
+   * from a stream.
+   */
+  protected static final int DEFAULT_WINDOW_CAPACITY = 64 * 1024;
+
+  /**
+   * Number of characters that the lexer may look at before the
+   * current character.
+   */
+  protected static final int LOOKBEHIND_LENGTH = 2;
+
+  /**
+   * Regular expression that matches a bulk loading statement which
+   * data are provided with the statement itself.
+   */
+  protected static final String PATTERN_COPY_FROM_STDIN = "COPY\\s.*?\\sFROM\\s+STDIN\\b";
+
+  /**
+   * Compiled representation of the regular expression that matches a
+   * bulk loading statement which data are provided with the statement
+   * itself.
+   */
+  protected static final Pattern m_patternCopyFromStdin =
+    Pattern.compile(PATTERN_COPY_FROM_STDIN, Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+  /**
+   * Buffer used to build the current SQL statement.
+   */
+  protected StringBuilder m_buffer = new StringBuilder();
+
+  /**
+   * Number of bytes, once encoded in UTF-8, of the characters that
+   * precede the offset up to which the bytes have been counted, when
+   * the script is read from a stream.
+   */
+  protected long m_byteCount;
+
+  /**
+   * Offset of the character up to which the bytes have been counted.
+   */
+  protected long m_byteCountOffset = 0;
+
+  /**
+   * Offset in bytes of the end of the data of the current bulk loading
+   * statement, when the script is read from a stream.
+   */
+  protected long m_copyDataByteEnd = -1;
+
+  /**
+   * Offset in bytes of the data of the current bulk loading statement,
+   * when the script is read from a stream.
+   */
+  protected long m_copyDataByteStart = -1;
+
+  /**
+   * Names of the SQL constants used in the data of the bulk loading
+   * statements, when the script is read from a stream.
+   */
+  protected Collection m_copyDataConstantNames;
+
+  /**
+   * Names of the tokens <code>+...+</code> used in the code of the SQL
+   * statements read so far, which are expected to be SQL constants.
+   */
+  protected Collection m_constantNames = new TreeSet();
+
+  /**
+   * Offset of the end of the data of the current bulk loading
+   * statement, excluding the line that marks the end of these data.
+   */
+  protected long m_copyDataEnd = -1;
+
+  /**
+   * Line of the data of a bulk loading statement being read, when the
+   * script is read from a stream.
+   */
+  protected StringBuilder m_copyDataLine;
+
+  /**
+   * Offset of the first character of the data of the current bulk
+   * loading statement, or <code>-1</code> if the current SQL
+   * statement is not a bulk loading statement.
+   */
+  protected long m_copyDataStart = -1;
+
+  /**
+   * Indicate whether the lexer is reading the data of a bulk loading
+   * statement, which are not kept in the text of the script.
+   */
+  protected boolean m_isReadingCopyData = false;
+
+  /**
+   * Offset of the next character to read from the content of the SQL
+   * script.
+   */
+  protected long m_offset = 0;
+
+  /**
+   * Stream the content of the SQL script is read from, or
+   * <code>null</code> if the whole content is provided at once or if
+   * the end of the stream has been reached.
+   */
+  protected Reader m_reader;
+
+  /**
+   * Current SQL statement, without its comments and its ending
+   * semicolon.
+   */
+  protected String m_statement;
+
+  /**
+   * Text of the script read so far, without the data of the bulk
+   * loading statements, when the script is read from a stream;
+   * <code>null</code> otherwise.
+   */
+  protected StringBuilder m_text;
+
+  /**
+   * Offset of the first character which has not been appended to the
+   * text of the script yet.
+   */
+  protected long m_textOffset = 0;
+
+  /**
+   * Characters of the content of the SQL script currently available.
+   */
+  protected char[] m_window;
+
+  /**
+   * Number of characters available in the window.
+   */
+  protected int m_windowLength;
+
+  /**
+   * Offset of the first character of the window in the content of the
+   * SQL script.
+   */
+  protected long m_windowOffset = 0;
+
+  /**
+   * Build a lexer that splits the specified content of a SQL script.
+   *
+   * @param input the content of a SQL script.
+   */
+  public SQLLexer(String input) {
+    m_window = input.toCharArray();
+    m_windowLength = m_window.length;
+  }
+
+  /**
+   * Build a lexer that splits the content of a SQL script read from
+   * the specified stream.  The text of the script, without the data of
+   * its bulk loading statements, is available once the whole script
+   * has been read.
+   *
+   * @param reader the stream of the content of a SQL script.
+   * @param byteOffset the number of bytes that precede the content of
+   *        the stream, such as a byte order mark.
+   */
+  public SQLLexer(Reader reader, long byteOffset) {
+    m_reader = reader;
+    m_window = new char[DEFAULT_WINDOW_CAPACITY];
+    m_byteCount = byteOffset;
+    m_copyDataConstantNames = new TreeSet();
+    m_copyDataLine = new StringBuilder();
+    m_text = new StringBuilder();
+  }
+
+  /**
+   * Append the character that separates two tokens to the current SQL
+   * statement, in place of a comment.
+   */
+  protected void appendSeparator() {
+    int length = m_buffer.length();
+    if ((length > 0) && !Character.isWhitespace(m_buffer.charAt(length - 1)))
+      m_buffer.append(' ');
+  }
+
+  /**
+   * Append the characters that precede the specified offset to the
+   * text of the script, unless they are the data of a bulk loading
+   * statement.
+   *
+   * @param end offset of the end of the characters to append.
+   */
+  protected void appendText(long end) {
+    if ((m_text == null) || (end <= m_textOffset))
+      return;
+
+    if (!m_isReadingCopyData)
+      m_text.append(m_window, (int) (m_textOffset - m_windowOffset), (int) (end - m_textOffset));
+    m_textOffset = end;
+  }
+
+  /**
+   * Return the character at the specified offset of the content of
+   * the SQL script, reading more characters from the stream if
+   * needed.
+   *
+   * @param offset offset of a character that follows the characters
+   *        discarded from the window.
+   *
+   * @return the character, or <code>-1</code> if the end of the
+   *         script has been reached.
+   *
+   * @throws IOException if the stream cannot be read.
+   */
+  protected int charAt(long offset)
+    throws IOException {
+    while (offset - m_windowOffset >= m_windowLength) {
+      if (!fill())
+        return -1;
+    }
+
+    return m_window[(int) (offset - m_windowOffset)];
+  }
+
+  /**
+   * Count the bytes, once encoded in UTF-8, of the characters that
+   * precede the specified offset, when the script is read from a
+   * stream.
+   *
+   * @param end offset of the end of the characters to count.
+   */
+  protected void countBytes(long end) {
+    if (m_text == null)
+      return;
+
+    for (int i = (int) (m_byteCountOffset - m_windowOffset), last = (int) (end - m_windowOffset); i < last; i++) {
+      char c = m_window[i];
+      if (c < 0x80)
+        m_byteCount++;
+      else if (c < 0x800)
+        m_byteCount += 2;
+      else if (Character.isHighSurrogate(c))
+        m_byteCount += 4;
+      else if (!Character.isLowSurrogate(c))
+        m_byteCount += 3;
+    }
+
+    m_byteCountOffset = Math.max(m_byteCountOffset, end);
+  }
+
+  /**
+   * Read more characters from the stream into the window, discarding
+   * the characters that the lexer won't look at anymore.  The window
+   * only grows when a single token doesn't fit in it.
+   *
+   * @return <code>true</code> if some characters have been read;
+   *         <code>false</code> if the end of the script has been
+   *         reached.
+   *
+   * @throws IOException if the stream cannot be read.
+   */
+  protected boolean fill()
+    throws IOException {
+    if (m_reader == null)
+      return false;
+
+    long discardEnd = Math.max(m_windowOffset, m_offset - LOOKBEHIND_LENGTH);
+    appendText(discardEnd);
+    countBytes(discardEnd);
+
+    int discardLength = (int) (discardEnd - m_windowOffset);
+    if (discardLength > 0) {
+      System.arraycopy(m_window, discardLength, m_window, 0, m_windowLength - discardLength);
+      m_windowLength -= discardLength;
+      m_windowOffset = discardEnd;
+    }
+
+    if (m_windowLength == m_window.length)
+      m_window = Arrays.copyOf(m_window, m_window.length * 2);
+
+    int count = m_reader.read(m_window, m_windowLength, m_window.length - m_windowLength);
+    if (count < 0) {
+      m_reader = null;
+      return false;
+    }
+
+    m_windowLength += count;
+    return true;
+  }
+
+  /**
+   * Return the length in bytes of the data of the current bulk loading
+   * statement, when the script is read from a stream.
+   *
+   * @return the length of the data in bytes.
+   */
+  public long getCopyDataByteLength() {
+    return m_copyDataByteEnd - m_copyDataByteStart;
+  }
+
+  /**
+   * Return the offset in bytes of the data of the current bulk loading
+   * statement in the stream the script is read from, including the
+   * bytes that precede this stream.
+   *
+   * @return the offset of the data in bytes.
+   */
+  public long getCopyDataByteOffset() {
+    return m_copyDataByteStart;
+  }
+
+  /**
+   * Return the names of the tokens <code>+...+</code> used in the code
+   * of the SQL statements read so far, outside any string literal,
+   * quoted identifier, dollar-quoted string, or comment.
+   *
+   * @return a sorted collection of names of SQL constants, delimiters
+   *         included.
+   */
+  public Collection getConstantNames() {
+    return m_constantNames;
+  }
+
+  /**
+   * Return the names of the SQL constants used in the data of the bulk
+   * loading statements read so far, when the script is read from a
+   * stream.
+   *
+   * @return a sorted collection of names of SQL constants, delimiters
+   *         included.
+   */
+  public Collection getCopyDataConstantNames() {
+    return m_copyDataConstantNames;
+  }
+
+  /**
+   * Return the offset of the end of the data of the current bulk
+   * loading statement.  The line that marks the end of the data is
+   * not included.
+   *
+   * @return the offset of the end of the data.
+   */
+  public long getCopyDataEnd() {
+    return m_copyDataEnd;
+  }
+
+  /**
+   * Return the offset of the first character of the data of the
+   * current bulk loading statement.
+   *
+   * @return the offset of the start of the data.
+   */
+  public long getCopyDataStart() {
+    return m_copyDataStart;
+  }
+
+  /**
+   * Return the offset of the character that follows the current SQL
+   * statement, and its data if any.
+   *
+   * @return the offset of the end of the current SQL statement.
+   */
+  public long getOffset() {
+    return m_offset;
+  }
+
+  /**
+   * Return the current SQL statement, without its comments and its
+   * ending semicolon.  The data of a bulk loading statement are not
+   * included.
+   *
+   * @return the current SQL statement.
+   */
+  public String getStatement() {
+    return m_statement;
+  }
+
+  /**
+   * Return the text of the script read from a stream, without the data
+   * of its bulk loading statements.  The line that marks the end of
+   * the data of a bulk loading statement is kept, so that this text
+   * splits into the same SQL statements as the script.
+   *
+   * @return the text of the script, once the whole script has been
+   *         read.
+   */
+  public String getText() {
+    appendText(m_windowOffset + m_windowLength);
+    return m_text.toString();
+  }
+
+  /**
+   * Indicate whether the current SQL statement is a bulk loading
+   * statement which data follow the statement.
+   *
+   * @return <code>true</code> if the current SQL statement has some
+   *         data; <code>false</code> otherwise.
+   */
+  public boolean hasCopyData() {
+    return m_copyDataStart >= 0;
+  }
+
+  /**
+   * Indicate whether the specified character can be part of an
+   * identifier.
+   *
+   * @param c a character.
+   *
+   * @return <code>true</code> if the character can be part of an
+   *         identifier; <code>false</code> otherwise.
+   */
+  protected static boolean isIdentifierPart(int c) {
+    return Character.isLetterOrDigit(c) || (c == '_') || (c == '$');
+  }
+
+  /**
+   * Indicate whether the line that starts at the specified offset
+   * marks the end of the data of a bulk loading statement.
+   *
+   * @param lineStart offset of the first character of a line.
+   *
+   * @return <code>true</code> if the line is the line
+   *         <code>\.</code>; <code>false</code> otherwise.
+   *
+   * @throws IOException if the stream cannot be read.
+   */
+  protected boolean isCopyDataEndMarker(long lineStart)
+    throws IOException {
+    for (int i = 0; i < COPY_DATA_END_MARKER.length(); i++) {
+      if (charAt(lineStart + i) != COPY_DATA_END_MARKER.charAt(i))
+        return false;
+    }
+
+    long markerEnd = lineStart + COPY_DATA_END_MARKER.length();
+    int c = charAt(markerEnd);
+    if (c == '\r')
+      c = charAt(markerEnd + 1);
+
+    return (c < 0) || (c == '\n');
+  }
+
+  /**
+   * Indicate whether the string literal the lexer is positioned on is
+   * an escape string constant, i.e., that it is prefixed with the
+   * letter <code>E</code>.
+   *
+   * @return <code>true</code> if the string literal is an escape
+   *         string constant; <code>false</code> otherwise.
+   *
+   * @throws IOException if the stream cannot be read.
+   */
+  protected boolean isEscapeString()
+    throws IOException {
+    if (m_offset == 0)
+      return false;
+
+    int prefix = charAt(m_offset - 1);
+    return ((prefix == 'E') || (prefix == 'e'))
+        && ((m_offset == 1) || !isIdentifierPart(charAt(m_offset - 2)));
+  }
+
+  /**
+   * Read the next SQL statement of the script.
+   *
+   * @return <code>true</code> if a SQL statement has been read;
+   *         <code>false</code> if the end of the script has been
+   *         reached.
+   *
+   * @throws IOException if the stream cannot be read.
+   */
+  public boolean next()
+    throws IOException {
+    int c;
+
+    while ((c = charAt(m_offset)) >= 0) {
+      if ((c == '-') && (charAt(m_offset + 1) == '-')) {
+        skipLine();
+        appendSeparator();
+      } else if ((c == '/') && (charAt(m_offset + 1) == '*')) {
+        readBlockComment(charAt(m_offset + 2) == '+');
+      } else if (c == '\'') {
+        readQuotedString(isEscapeString());
+      } else if (c == '"') {
+        readQuotedString(false);
+      } else if (c == '$') {
+        int tagLength = scanDollarQuoteTag();
+        if (tagLength < 0) {
+          m_buffer.append('$');
+          m_offset++;
+        } else
+          readDollarQuotedString(tagLength);
+      } else if (c == ';') {
+        m_offset++;
+        if (terminateStatement())
+          return true;
+      } else {
+        if (c == SQLConstantSubstitutor.CONSTANT_NAME_DELIMITER)
+          scanConstantName();
+        m_buffer.append((char) c);
+        m_offset++;
+      }
+    }
+
+    return terminateStatement();
+  }
+
+  /**
+   * Copy a C-like comment to the current SQL statement, or skip it.
+   * The lexer is positioned on the character <code>/</code> that
+   * starts the comment.
+   *
+   * @param isCopied indicate whether the comment must be copied to
+   *        the current SQL statement.
+   *
+   * @throws IOException if the stream cannot be read.
+   */
+  protected void readBlockComment(boolean isCopied)
+    throws IOException {
+    int depth = 1;
+
+    if (isCopied)
+      m_buffer.append("/*");
+    m_offset += 2;
+
+    int c;
+    while ((depth > 0) && ((c = charAt(m_offset)) >= 0)) {
+      int length = 1;
+      if ((c == '/') && (charAt(m_offset + 1) == '*')) {
+        depth++;
+        length = 2;
+      } else if ((c == '*') && (charAt(m_offset + 1) == '/')) {
+        depth--;
+        length = 2;
+      }
+
+      if (isCopied) {
+        for (int i = 0; i < length; i++)
+          m_buffer.append((char) charAt(m_offset + i));
+      }
+      m_offset += length;
+    }
+
+    if (!isCopied)
+      appendSeparator();
+  }
+
+  /**
+   * Copy a dollar-quoted string to the current SQL statement.  The
+   * lexer is positioned on the character <code>$</code> that starts
+   * the tag of the dollar-quoted string.
+   *
+   * @param tagLength the length of the tag, both characters
+   *        <code>$</code> included.
+   *
+   * @throws IOException if the stream cannot be read.
+   */
+  protected void readDollarQuotedString(int tagLength)
+    throws IOException {
+    char[] tag = new char[tagLength];
+    for (int i = 0; i < tagLength; i++)
+      tag[i] = (char) charAt(m_offset + i);
+
+    m_buffer.append(tag);
+    m_offset += tagLength;
+
+    int c;
+    while ((c = charAt(m_offset)) >= 0) {
+      if (c == '$') {
+        int i = 1;
+        while ((i < tagLength) && (charAt(m_offset + i) == tag[i]))
+          i++;
+
+        if (i == tagLength) {
+          m_buffer.append(tag);
+          m_offset += tagLength;
+          return;
+        }
+      }
+
+      m_buffer.append((char) c);
+      m_offset++;
+    }
+  }
+
+  /**
+   * Copy a string literal or a quoted identifier to the current SQL
+   * statement.  The lexer is positioned on the opening quote.
+   *
+   * @param isEscapeString indicate whether the backslash character
+   *        escapes the character that follows it.
+   *
+   * @throws IOException if the stream cannot be read.
+   */
+  protected void readQuotedString(boolean isEscapeString)
+    throws IOException {
+    int quote = charAt(m_offset++);
+    m_buffer.append((char) quote);
+
+    int c;
+    while ((c = charAt(m_offset)) >= 0) {
+      m_buffer.append((char) c);
+      m_offset++;
+
+      if (isEscapeString && (c == '\\')) {
+        if ((c = charAt(m_offset)) >= 0) {
+          m_buffer.append((char) c);
+          m_offset++;
+        }
+      } else if (c == quote) {
+        if (charAt(m_offset) != quote)
+          break;
+
+        m_buffer.append((char) quote);
+        m_offset++;
+      }
+    }
+  }
+
+  /**
+   * Record the token <code>+...+</code> the lexer is positioned on, if
+   * any.  The token is ignored when an identifier character precedes
+   * or follows it, as the character <code>+</code> is then most likely
+   * the addition operator, such as in <code>a+b+c</code>.
+   *
+   * @throws IOException if the stream cannot be read.
+   */
+  protected void scanConstantName()
+    throws IOException {
+    if ((m_offset > 0) && isIdentifierPart(charAt(m_offset - 1)))
+      return;
+
+    long offset = m_offset + 1;
+    int c;
+    while (((c = charAt(offset)) >= 0) && SQLConstantSubstitutor.isConstantNamePart(c))
+      offset++;
+
+    if ((offset > m_offset + 1) && (c == SQLConstantSubstitutor.CONSTANT_NAME_DELIMITER)
+        && !isIdentifierPart(charAt(offset + 1))) {
+      StringBuilder constantName = new StringBuilder();
+      for (long i = m_offset; i <= offset; i++)
+        constantName.append((char) charAt(i));
+      m_constantNames.add(constantName.toString());
+    }
+  }
+
+  /**
+   * Return the length of the tag of a dollar-quoted string the lexer
+   * is positioned on.
+   *
+   * @return the length of the tag, both characters <code>$</code>
+   *         included, or <code>-1</code> if the character
+   *         <code>$</code> doesn't start a tag, such as a positional
+   *         parameter <code>$1</code>.
+   *
+   * @throws IOException if the stream cannot be read.
+   */
+  protected int scanDollarQuoteTag()
+    throws IOException {
+    if ((m_offset > 0) && isIdentifierPart(charAt(m_offset - 1)))
+      return -1;
+
+    long offset = m_offset + 1;
+    int c = charAt(offset);
+    if ((c >= 0) && (Character.isLetter(c) || (c == '_'))) {
+      offset++;
+      while (((c = charAt(offset)) >= 0) && (Character.isLetterOrDigit(c) || (c == '_')))
+        offset++;
+    }
+
+    return (c == '$') ? (int) (offset + 1 - m_offset) : -1;
+  }
+
+  /**
+   * Skip the data of a bulk loading statement, which start on the
+   * line following the statement and end with the line
+   * <code>\.</code>.  When the script is read from a stream, the
+   * location of the data in bytes and the names of the SQL constants
+   * they use are recorded, and the data are not kept in the text of
+   * the script.
+   *
+   * @throws IOException if the stream cannot be read.
+   */
+  protected void skipCopyData()
+    throws IOException {
+    skipLine();
+    if (charAt(m_offset) == '\n')
+      m_offset++;
+
+    m_copyDataStart = m_offset;
+    appendText(m_copyDataStart);
+    countBytes(m_copyDataStart);
+    m_copyDataByteStart = m_byteCount;
+    m_isReadingCopyData = true;
+
+    while ((charAt(m_offset) >= 0) && !isCopyDataEndMarker(m_offset)) {
+      int c;
+      boolean hasConstant = false;
+      while (((c = charAt(m_offset)) >= 0) && (c != '\n')) {
+        if (m_copyDataLine != null) {
+          m_copyDataLine.append((char) c);
+          hasConstant |= (c == SQLConstantSubstitutor.CONSTANT_NAME_DELIMITER);
+        }
+        m_offset++;
+      }
+
+      if (hasConstant)
+        SQLConstantSubstitutor.collectConstantNames(m_copyDataLine, m_copyDataConstantNames);
+      if (m_copyDataLine != null)
+        m_copyDataLine.setLength(0);
+
+      if (c == '\n')
+        m_offset++;
+    }
+
+    m_copyDataEnd = m_offset;
+    countBytes(m_copyDataEnd);
+    m_copyDataByteEnd = m_byteCount;
+    m_textOffset = Math.max(m_textOffset, m_copyDataEnd);
+    m_isReadingCopyData = false;
+
+    // Skip the line that marks the end of the data, if any.
+    //
+    skipLine();
+    if (charAt(m_offset) == '\n')
+      m_offset++;
+  }
+
+  /**
+   * Move the lexer to the end of the current line, i.e., to the next
+   * character <code>\n</code> or to the end of the script.
+   *
+   * @throws IOException if the stream cannot be read.
+   */
+  protected void skipLine()
+    throws IOException {
+    int c;
+    while (((c = charAt(m_offset)) >= 0) && (c != '\n'))
+      m_offset++;
+  }
+
+  /**
+   * Terminate the current SQL statement.
+   *
+   * @return <code>true</code> if the SQL statement is not empty;
+   *         <code>false</code> otherwise.
+   *
+   * @throws IOException if the stream cannot be read.
+   */
+  protected boolean terminateStatement()
+    throws IOException {
+    m_statement = m_buffer.toString().trim();
+    m_buffer.setLength(0);
+    m_copyDataStart = -1;
+    m_copyDataEnd = -1;
+    m_copyDataByteStart = -1;
+    m_copyDataByteEnd = -1;
+
+    if (m_statement.length() == 0)
+      return false;
+
+    if (m_patternCopyFromStdin.matcher(m_statement).lookingAt())
+      skipCopyData();
+
+    return true;
+  }
+}
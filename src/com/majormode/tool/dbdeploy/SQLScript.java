@@ -18,6 +18,7 @@
 
 package com.majormode.tool.dbdeploy;
 
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.Date;
 
@@ -40,6 +41,18 @@ public class SQLScript implements Cloneable, Serializable {
   public static final int EXECUTION_STATUS_SUCCEEDED = 1;
   public static final int EXECUTION_STATUS_FAILED = 2;
   
+  /**
+   * Content of the SQL script file, or <code>null</code> if this
+   * content has not been loaded yet or if it has been released.
+   */
+  protected transient SQLScriptContent m_content;
+
+  /**
+   * Entry of this SQL script in the parse cache, or <code>null</code>
+   * if no parse cache is used.
+   */
+  protected transient SQLScriptCacheEntry m_cacheEntry;
+
   public int m_executionStatus;
   public String m_filePathname;
   public int m_lastDeploymentRevisionNumber;
@@ -68,6 +81,32 @@ public class SQLScript implements Cloneable, Serializable {
     m_objectTypeName = objectTypeName;
   }
   
+  /**
+   * Return the content of the SQL script file.  The file is read once,
+   * and its content, without the data of its bulk loading statements,
+   * is kept until it is released.
+   *
+   * @return the content of the SQL script file.
+   *
+   * @throws IOException if a read access to the SQL script file failed
+   *         for some reason.
+   */
+  public SQLScriptContent getContent()
+    throws IOException {
+    if (m_content == null)
+      m_content = SQLScriptReader.read(m_filePathname);
+
+    return m_content;
+  }
+
+  /**
+   * Release the content of the SQL script file once it is not needed
+   * anymore.
+   */
+  public void releaseContent() {
+    m_content = null;
+  }
+
   public void setRevisionNumber(int revisionNumber) {
     m_revisionNumber = revisionNumber;
   }
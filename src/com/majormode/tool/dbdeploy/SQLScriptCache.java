@@ -0,0 +1,637 @@
+/**
+ * Copyright (C) 1998-2008 Majormode.  All rights reserved.
+ *
+ * This software is the confidential and proprietary information of
+ * Majormode or one of its subsidiaries.  You shall not disclose this
+ * confidential information and shall use it only in accordance with
+ * the terms of the license agreement or other applicable agreement
+ * you entered into with Majormode.
+ *
+ * MAJORMODE MAKES NO REPRESENTATIONS OR WARRANTIES ABOUT THE
+ * SUITABILITY OF THE SOFTWARE, EITHER EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE IMPLIED WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE, OR NON-INFRINGEMENT.  MAJORMODE
+ * SHALL NOT BE LIABLE FOR ANY LOSSES OR DAMAGES SUFFERED BY LICENSEE
+ * AS A RESULT OF USING, MODIFYING OR DISTRIBUTING THIS SOFTWARE OR
+ * ITS DERIVATIVES.
+ */
+
+package com.majormode.tool.dbdeploy;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Local cache of the results of the parsing of SQL script files,
+ * stored in a directory with one file per SQL script file.  An entry
+ * is keyed by the pathname of its SQL script file, and it is checked
+ * against the size and the last modification time of this file.  If
+ * they differ, the content of the file is read and compared with the
+ * SHA-1 digest stored in the entry, so that a file which has only
+ * been touched doesn't need to be parsed again.
+ *
+ * <p>An entry is stored in a compact binary format.  The SQL
+ * statements come last, so that they are read only when they are
+ * needed.  The runtime parameter snapshots shared by several SQL
+ * statements are stored once.</p>
+ *
+ * @author Daniel CAUNE (daniel.caune@majormode.com)
+ */
+public class SQLScriptCache {
+  /**
+   * Kinds of the data of a bulk loading statement, as stored in an
+   * entry.
+   */
+  protected static final byte COPY_DATA_KIND_NONE = 0;
+  protected static final byte COPY_DATA_KIND_SCRIPT = 1;
+  protected static final byte COPY_DATA_KIND_DATASET = 2;
+
+  /**
+   * Extension of the name of the files of the entries.
+   */
+  protected static final String ENTRY_FILE_EXTENSION = ".cache";
+
+  /**
+   * Number that identifies the format of the entries, and its version,
+   * which is to be incremented whenever this format or the way SQL
+   * script files are parsed changes.
+   */
+  protected static final int FORMAT_MAGIC_NUMBER = 0x44424443;
+  protected static final int FORMAT_VERSION = 2;
+
+  /**
+   * Directory where the entries are stored.
+   */
+  protected Path m_directory;
+
+  /**
+   * Logger of the warnings of the cache.
+   */
+  protected DeploymentLogger m_logger;
+
+  /**
+   * Build a cache stored in the specified directory, which is created
+   * if it doesn't exist.
+   *
+   * @param directory the directory where the entries are stored.
+   * @param logger the logger of the warnings of the cache.
+   *
+   * @throws IOException if the directory cannot be created.
+   */
+  public SQLScriptCache(Path directory, DeploymentLogger logger)
+    throws IOException {
+    m_directory = directory;
+    m_logger = logger;
+    Files.createDirectories(directory);
+  }
+
+  /**
+   * Return the SHA-1 digest of the specified content.
+   *
+   * @param content the content of a SQL script file.
+   *
+   * @return the digest of the content.
+   */
+  public static byte[] computeContentHash(String content) {
+    try {
+      return MessageDigest.getInstance("SHA-1").digest(content.getBytes(StandardCharsets.UTF_8));
+    } catch (NoSuchAlgorithmException exception) {
+      throw new IllegalStateException(exception);
+    }
+  }
+
+  /**
+   * Build a new entry for the specified SQL script, from its content
+   * that has just been read.
+   *
+   * @param sqlScript a SQL script.
+   * @param content the content of the SQL script file.
+   * @param sqlConstants a list of the <code>SQLConstant</code> objects
+   *        declared in the SQL script file.
+   *
+   * @return the new entry, which is not stored yet.
+   *
+   * @throws IOException if the attributes of the file cannot be read.
+   */
+  public SQLScriptCacheEntry createEntry(SQLScript sqlScript, SQLScriptContent content, List sqlConstants)
+    throws IOException {
+    Path path = getAbsolutePath(sqlScript.m_filePathname);
+    SQLScriptCacheEntry entry = new SQLScriptCacheEntry(
+        path.toString(),
+        Files.size(path),
+        Files.getLastModifiedTime(path).toMillis(),
+        content.getDigest());
+
+    for (Iterator iterator = sqlConstants.iterator(); iterator.hasNext(); ) {
+      SQLConstant sqlConstant = (SQLConstant) iterator.next();
+      entry.m_declaredConstants.add(new String[] { sqlConstant.m_name, sqlConstant.m_value });
+    }
+
+    return entry;
+  }
+
+  /**
+   * Delete the entries which SQL script files don't exist anymore, as
+   * well as the entries that cannot be read.
+   *
+   * @param sqlScripts the collection of the SQL scripts being deployed,
+   *        which entries are kept without being checked.
+   */
+  public void evictStaleEntries(Collection sqlScripts) {
+    Set entryPaths = new HashSet();
+    for (Iterator iterator = sqlScripts.iterator(); iterator.hasNext(); )
+      entryPaths.add(getEntryPath(((SQLScript) iterator.next()).m_filePathname));
+
+    try {
+      DirectoryStream directoryStream = Files.newDirectoryStream(m_directory, "*" + ENTRY_FILE_EXTENSION);
+      try {
+        for (Iterator iterator = directoryStream.iterator(); iterator.hasNext(); ) {
+          Path entryPath = (Path) iterator.next();
+          if (entryPaths.contains(entryPath))
+            continue;
+
+          SQLScriptCacheEntry entry = readEntry(entryPath);
+          if ((entry == null) || !Files.isRegularFile(Paths.get(entry.m_filePathname)))
+            Files.deleteIfExists(entryPath);
+        }
+      } finally {
+        directoryStream.close();
+      }
+    } catch (IOException exception) {
+      m_logger.warning("cache.evict", "cannot evict the stale entries of the parse cache: " + exception.getMessage(),
+          "directory", m_directory.toString());
+    }
+  }
+
+  /**
+   * Return the entry of the specified SQL script if this entry is
+   * still valid.  If the size or the last modification time of the
+   * SQL script file have changed while its content hasn't, the entry
+   * is updated with the new attributes of the file.
+   *
+   * @param sqlScript a SQL script.
+   *
+   * @return the entry of the SQL script, or <code>null</code> if there
+   *         is no entry for this SQL script or if the SQL script file
+   *         has changed since the entry has been stored.
+   *
+   * @throws IOException if the SQL script file cannot be read.
+   */
+  public SQLScriptCacheEntry get(SQLScript sqlScript)
+    throws IOException {
+    Path path = getAbsolutePath(sqlScript.m_filePathname);
+    Path entryPath = getEntryPath(path.toString());
+    if (!Files.isRegularFile(entryPath))
+      return null;
+
+    SQLScriptCacheEntry entry = readEntry(entryPath);
+    if ((entry == null) || !entry.m_filePathname.equals(path.toString()))
+      return null;
+
+    long fileSize = Files.size(path);
+    long lastModifiedTime = Files.getLastModifiedTime(path).toMillis();
+    if ((entry.m_fileSize == fileSize) && (entry.m_lastModifiedTime == lastModifiedTime))
+      return entry;
+
+    if (!entry.hasSameContent(sqlScript.getContent().getDigest()))
+      return null;
+
+    // The file has been touched without being modified.
+    //
+    List sqlStatements = entry.m_hasSQLStatements ? getSQLStatements(entry, sqlScript) : null;
+    entry.m_fileSize = fileSize;
+    entry.m_lastModifiedTime = lastModifiedTime;
+    put(entry, sqlStatements);
+
+    return entry;
+  }
+
+  /**
+   * Return the absolute and normalized path of the specified file,
+   * which is the key of the entry of this file.
+   *
+   * @param filePathname the pathname of a SQL script file.
+   *
+   * @return the absolute path of the file.
+   */
+  protected static Path getAbsolutePath(String filePathname) {
+    return Paths.get(filePathname).toAbsolutePath().normalize();
+  }
+
+  /**
+   * Return the path of the file of the entry of the specified SQL
+   * script file.
+   *
+   * @param filePathname the pathname of a SQL script file.
+   *
+   * @return the path of the file of the entry.
+   */
+  protected Path getEntryPath(String filePathname) {
+    byte[] digest = computeContentHash(getAbsolutePath(filePathname).toString());
+
+    StringBuilder entryFileName = new StringBuilder(digest.length * 2 + ENTRY_FILE_EXTENSION.length());
+    for (int i = 0; i < digest.length; i++)
+      entryFileName.append(Character.forDigit((digest[i] >> 4) & 0xF, 16)).append(Character.forDigit(digest[i] & 0xF, 16));
+    entryFileName.append(ENTRY_FILE_EXTENSION);
+
+    return m_directory.resolve(entryFileName.toString());
+  }
+
+  /**
+   * Read the SQL statements stored in the specified entry.  New
+   * <code>SQLStatement</code> objects are returned on every call.
+   *
+   * @param entry an entry which SQL statements are stored.
+   * @param sqlScript the SQL script of this entry.
+   *
+   * @return a list of <code>SQLStatement</code> objects, in their
+   *         order in the SQL script file, or <code>null</code> if the
+   *         entry cannot be read anymore.
+   */
+  public List getSQLStatements(SQLScriptCacheEntry entry, SQLScript sqlScript) {
+    try {
+      DataInputStream input = openEntry(getEntryPath(entry.m_filePathname));
+      try {
+        if (input == null)
+          return null;
+
+        SQLScriptCacheEntry storedEntry = readEntry(input);
+        if (!storedEntry.m_hasSQLStatements || !storedEntry.hasSameContent(entry.m_contentHash))
+          return null;
+
+        return readSQLStatements(input, entry, sqlScript);
+      } finally {
+        if (input != null)
+          input.close();
+      }
+    } catch (IOException exception) {
+      return null;
+    }
+  }
+
+  /**
+   * Open the file of an entry and check its format.
+   *
+   * @param entryPath the path of the file of an entry.
+   *
+   * @return a stream positioned after the header of the file, or
+   *         <code>null</code> if the file has not the expected format.
+   *
+   * @throws IOException if the file cannot be read.
+   */
+  protected DataInputStream openEntry(Path entryPath)
+    throws IOException {
+    DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(entryPath)));
+    if ((input.readInt() != FORMAT_MAGIC_NUMBER) || (input.readInt() != FORMAT_VERSION)) {
+      input.close();
+      return null;
+    }
+
+    return input;
+  }
+
+  /**
+   * Store the specified entry, and the given SQL statements if any.
+   * The entry is written to a temporary file that then replaces the
+   * former file of the entry, so that a concurrent run never reads a
+   * partial entry.
+   *
+   * @param entry the entry to store.
+   * @param sqlStatements a collection of the <code>SQLStatement</code>
+   *        objects of the SQL script file, or <code>null</code> if they
+   *        are not to be stored.
+   */
+  public void put(SQLScriptCacheEntry entry, Collection sqlStatements) {
+    entry.m_hasSQLStatements = (sqlStatements != null);
+
+    Path entryPath = getEntryPath(entry.m_filePathname);
+    try {
+      Path temporaryPath = Files.createTempFile(m_directory, null, null);
+      try {
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryPath)));
+        try {
+          output.writeInt(FORMAT_MAGIC_NUMBER);
+          output.writeInt(FORMAT_VERSION);
+          writeEntry(output, entry);
+          if (sqlStatements != null)
+            writeSQLStatements(output, sqlStatements);
+        } finally {
+          output.close();
+        }
+
+        Files.move(temporaryPath, entryPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } finally {
+        Files.deleteIfExists(temporaryPath);
+      }
+    } catch (IOException exception) {
+      m_logger.warning("cache.store", "cannot store the parse cache entry of file '" + entry.m_filePathname
+          + "': " + exception.getMessage(), "file", entry.m_filePathname);
+    }
+  }
+
+  /**
+   * Read the entry stored in the specified file, without its SQL
+   * statements.
+   *
+   * @param entryPath the path of the file of an entry.
+   *
+   * @return the entry, or <code>null</code> if the file cannot be
+   *         read or has not the expected format.
+   */
+  protected SQLScriptCacheEntry readEntry(Path entryPath) {
+    try {
+      DataInputStream input = openEntry(entryPath);
+      if (input == null)
+        return null;
+
+      try {
+        return readEntry(input);
+      } finally {
+        input.close();
+      }
+    } catch (IOException exception) {
+      return null;
+    }
+  }
+
+  /**
+   * Read an entry, without its SQL statements, from the specified
+   * stream.
+   *
+   * @param input a stream positioned after the header of the file of
+   *        an entry.
+   *
+   * @return the entry.
+   *
+   * @throws IOException if the entry cannot be read.
+   */
+  protected SQLScriptCacheEntry readEntry(DataInputStream input)
+    throws IOException {
+    String filePathname = readString(input);
+    long fileSize = input.readLong();
+    long lastModifiedTime = input.readLong();
+    byte[] contentHash = new byte[input.readUnsignedByte()];
+    input.readFully(contentHash);
+
+    SQLScriptCacheEntry entry = new SQLScriptCacheEntry(filePathname, fileSize, lastModifiedTime, contentHash);
+
+    int declaredConstantCount = input.readInt();
+    for (int i = 0; i < declaredConstantCount; i++)
+      entry.m_declaredConstants.add(new String[] { readString(input), readString(input) });
+
+    int usedConstantCount = input.readInt();
+    entry.m_usedConstantValues = new HashMap(usedConstantCount * 2);
+    for (int i = 0; i < usedConstantCount; i++)
+      entry.m_usedConstantValues.put(readString(input), readString(input));
+
+    entry.m_undefinedConstantNames = readStrings(input, new TreeSet());
+    entry.m_parserName = readString(input);
+    entry.m_revisionControlSystemName = readString(input);
+    entry.m_revisionNumber = input.readInt();
+    entry.m_hasSQLStatements = input.readBoolean();
+
+    return entry;
+  }
+
+  /**
+   * Read the SQL statements of an entry from the specified stream.
+   *
+   * @param input a stream positioned after the entry.
+   * @param entry the entry, which fingerprint identifies the version of
+   *        the SQL script file the locations of the data of the bulk
+   *        loading statements refer to.
+   * @param sqlScript the SQL script the SQL statements come from.
+   *
+   * @return a list of <code>SQLStatement</code> objects.
+   *
+   * @throws IOException if the SQL statements cannot be read.
+   */
+  protected List readSQLStatements(DataInputStream input, SQLScriptCacheEntry entry, SQLScript sqlScript)
+    throws IOException {
+    Map[] runtimeParameterSnapshots = new Map[input.readInt()];
+    for (int i = 0; i < runtimeParameterSnapshots.length; i++) {
+      int parameterCount = input.readInt();
+      Map runtimeParameters = new LinkedHashMap(parameterCount * 2);
+      for (int j = 0; j < parameterCount; j++)
+        runtimeParameters.put(readString(input), readString(input));
+      runtimeParameterSnapshots[i] = Collections.unmodifiableMap(runtimeParameters);
+    }
+
+    int sqlStatementCount = input.readInt();
+    List sqlStatements = new ArrayList(sqlStatementCount);
+    for (int i = 0; i < sqlStatementCount; i++) {
+      String sqlExpression = readString(input);
+      int snapshotIndex = input.readInt();
+
+      SQLStatement sqlStatement = new SQLStatement(sqlExpression, sqlScript,
+          (snapshotIndex < 0) ? null : runtimeParameterSnapshots[snapshotIndex]);
+      sqlStatement.m_createdObjectNames = readStrings(input, new HashSet());
+      sqlStatement.m_referencedObjectNames = readStrings(input, new HashSet());
+
+      byte copyDataKind = input.readByte();
+      if (copyDataKind == COPY_DATA_KIND_SCRIPT)
+        sqlStatement.m_copyData = new SQLScriptCopyData(sqlScript.m_filePathname, input.readLong(), input.readLong(),
+            entry.m_fileSize, entry.m_lastModifiedTime);
+      else if (copyDataKind == COPY_DATA_KIND_DATASET)
+        sqlStatement.m_copyData = new SQLDatasetCopyData(readString(input));
+
+      sqlStatements.add(sqlStatement);
+    }
+
+    return sqlStatements;
+  }
+
+  /**
+   * Read a string, possibly <code>null</code>, encoded in UTF-8 and
+   * prefixed with its length in bytes.
+   *
+   * @param input a stream.
+   *
+   * @return the string read.
+   *
+   * @throws IOException if the string cannot be read.
+   */
+  protected static String readString(DataInputStream input)
+    throws IOException {
+    int length = input.readInt();
+    if (length < 0)
+      return null;
+
+    byte[] bytes = new byte[length];
+    input.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Read a collection of strings prefixed with its size.
+   *
+   * @param input a stream.
+   * @param strings the collection where to add the strings read.
+   *
+   * @return the collection of strings.
+   *
+   * @throws IOException if the strings cannot be read.
+   */
+  protected static Collection readStrings(DataInputStream input, Collection strings)
+    throws IOException {
+    int count = input.readInt();
+    for (int i = 0; i < count; i++)
+      strings.add(readString(input));
+
+    return strings;
+  }
+
+  /**
+   * Write the specified entry, without its SQL statements.
+   *
+   * @param output a stream.
+   * @param entry the entry to write.
+   *
+   * @throws IOException if the entry cannot be written.
+   */
+  protected void writeEntry(DataOutputStream output, SQLScriptCacheEntry entry)
+    throws IOException {
+    writeString(output, entry.m_filePathname);
+    output.writeLong(entry.m_fileSize);
+    output.writeLong(entry.m_lastModifiedTime);
+    output.writeByte(entry.m_contentHash.length);
+    output.write(entry.m_contentHash);
+
+    output.writeInt(entry.m_declaredConstants.size());
+    for (Iterator iterator = entry.m_declaredConstants.iterator(); iterator.hasNext(); ) {
+      String[] declaredConstant = (String[]) iterator.next();
+      writeString(output, declaredConstant[0]);
+      writeString(output, declaredConstant[1]);
+    }
+
+    output.writeInt(entry.m_usedConstantValues.size());
+    for (Iterator iterator = entry.m_usedConstantValues.entrySet().iterator(); iterator.hasNext(); ) {
+      Map.Entry usedConstant = (Map.Entry) iterator.next();
+      writeString(output, (String) usedConstant.getKey());
+      writeString(output, (String) usedConstant.getValue());
+    }
+
+    writeStrings(output, entry.m_undefinedConstantNames);
+    writeString(output, entry.m_parserName);
+    writeString(output, entry.m_revisionControlSystemName);
+    output.writeInt(entry.m_revisionNumber);
+    output.writeBoolean(entry.m_hasSQLStatements);
+  }
+
+  /**
+   * Write the specified SQL statements.  The runtime parameter
+   * snapshots are written first, once each, and every SQL statement
+   * refers to its snapshot by its index.
+   *
+   * @param output a stream.
+   * @param sqlStatements a collection of <code>SQLStatement</code>
+   *        objects.
+   *
+   * @throws IOException if the SQL statements cannot be written.
+   */
+  protected void writeSQLStatements(DataOutputStream output, Collection sqlStatements)
+    throws IOException {
+    IdentityHashMap snapshotIndexes = new IdentityHashMap();
+    List runtimeParameterSnapshots = new ArrayList();
+    for (Iterator iterator = sqlStatements.iterator(); iterator.hasNext(); ) {
+      Map runtimeParameters = ((SQLStatement) iterator.next()).m_runtimeParameters;
+      if ((runtimeParameters != null) && !snapshotIndexes.containsKey(runtimeParameters)) {
+        snapshotIndexes.put(runtimeParameters, Integer.valueOf(runtimeParameterSnapshots.size()));
+        runtimeParameterSnapshots.add(runtimeParameters);
+      }
+    }
+
+    output.writeInt(runtimeParameterSnapshots.size());
+    for (Iterator iterator = runtimeParameterSnapshots.iterator(); iterator.hasNext(); ) {
+      Map runtimeParameters = (Map) iterator.next();
+      output.writeInt(runtimeParameters.size());
+      for (Iterator parameterIterator = runtimeParameters.entrySet().iterator(); parameterIterator.hasNext(); ) {
+        Map.Entry runtimeParameter = (Map.Entry) parameterIterator.next();
+        writeString(output, (String) runtimeParameter.getKey());
+        writeString(output, (String) runtimeParameter.getValue());
+      }
+    }
+
+    output.writeInt(sqlStatements.size());
+    for (Iterator iterator = sqlStatements.iterator(); iterator.hasNext(); ) {
+      SQLStatement sqlStatement = (SQLStatement) iterator.next();
+      writeString(output, sqlStatement.m_sqlExpression);
+
+      Integer snapshotIndex = (Integer) snapshotIndexes.get(sqlStatement.m_runtimeParameters);
+      output.writeInt((snapshotIndex == null) ? -1 : snapshotIndex.intValue());
+
+      writeStrings(output, sqlStatement.m_createdObjectNames);
+      writeStrings(output, sqlStatement.m_referencedObjectNames);
+
+      if (sqlStatement.m_copyData instanceof SQLScriptCopyData) {
+        SQLScriptCopyData copyData = (SQLScriptCopyData) sqlStatement.m_copyData;
+        output.writeByte(COPY_DATA_KIND_SCRIPT);
+        output.writeLong(copyData.m_offset);
+        output.writeLong(copyData.m_length);
+      } else if (sqlStatement.m_copyData instanceof SQLDatasetCopyData) {
+        output.writeByte(COPY_DATA_KIND_DATASET);
+        writeString(output, sqlStatement.m_copyData.m_filePathname);
+      } else
+        output.writeByte(COPY_DATA_KIND_NONE);
+    }
+  }
+
+  /**
+   * Write a string, possibly <code>null</code>, encoded in UTF-8 and
+   * prefixed with its length in bytes.
+   *
+   * @param output a stream.
+   * @param string the string to write, or <code>null</code>.
+   *
+   * @throws IOException if the string cannot be written.
+   */
+  protected static void writeString(DataOutputStream output, String string)
+    throws IOException {
+    if (string == null) {
+      output.writeInt(-1);
+      return;
+    }
+
+    byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+    output.writeInt(bytes.length);
+    output.write(bytes);
+  }
+
+  /**
+   * Write a collection of strings prefixed with its size.
+   *
+   * @param output a stream.
+   * @param strings a collection of strings.
+   *
+   * @throws IOException if the strings cannot be written.
+   */
+  protected static void writeStrings(DataOutputStream output, Collection strings)
+    throws IOException {
+    output.writeInt(strings.size());
+    for (Iterator iterator = strings.iterator(); iterator.hasNext(); )
+      writeString(output, (String) iterator.next());
+  }
+}
@@ -0,0 +1,198 @@
+/**
+ * Copyright (C) 1998-2008 Majormode.  All rights reserved.
+ *
+ * This software is the confidential and proprietary information of
+ * Majormode or one of its subsidiaries.  You shall not disclose this
+ * confidential information and shall use it only in accordance with
+ * the terms of the license agreement or other applicable agreement
+ * you entered into with Majormode.
+ *
+ * MAJORMODE MAKES NO REPRESENTATIONS OR WARRANTIES ABOUT THE
+ * SUITABILITY OF THE SOFTWARE, EITHER EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE IMPLIED WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE, OR NON-INFRINGEMENT.  MAJORMODE
+ * SHALL NOT BE LIABLE FOR ANY LOSSES OR DAMAGES SUFFERED BY LICENSEE
+ * AS A RESULT OF USING, MODIFYING OR DISTRIBUTING THIS SOFTWARE OR
+ * ITS DERIVATIVES.
+ */
+
+package com.majormode.tool.dbdeploy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Represent the result of the parsing of a SQL script file, as stored
+ * in the parse cache.  An entry records the fingerprint of the file
+ * it has been built from, the SQL constants this file declares, and,
+ * once the file has been parsed, the SQL constants it uses together
+ * with their values, its revision number and whether its SQL
+ * statements are stored.  The SQL statements themselves are only read
+ * from the cache when they are needed.
+ *
+ * @author Daniel CAUNE (daniel.caune@majormode.com)
+ */
+public class SQLScriptCacheEntry {
+  /**
+   * SHA-1 digest of the content of the SQL script file.
+   */
+  public byte[] m_contentHash;
+
+  /**
+   * Names and values of the SQL constants declared in the SQL script
+   * file, in the order of their declaration.
+   */
+  public List m_declaredConstants = new ArrayList();
+
+  /**
+   * Pathname of the SQL script file.
+   */
+  public String m_filePathname;
+
+  /**
+   * Size in bytes of the SQL script file.
+   */
+  public long m_fileSize;
+
+  /**
+   * Indicate whether the SQL statements of the SQL script file are
+   * stored in the cache.
+   */
+  public boolean m_hasSQLStatements = false;
+
+  /**
+   * Time in milliseconds of the last modification of the SQL script
+   * file.
+   */
+  public long m_lastModifiedTime;
+
+  /**
+   * Java class name of the SQL deployment manager that parsed the SQL
+   * statements, or <code>null</code> if the SQL script file has not
+   * been parsed.
+   */
+  public String m_parserName;
+
+  /**
+   * Java class name of the revision control system that parsed the
+   * revision number of the SQL script file, or <code>null</code> if
+   * this revision number has not been parsed.
+   */
+  public String m_revisionControlSystemName;
+
+  /**
+   * Revision number of the SQL script file.
+   */
+  public int m_revisionNumber;
+
+  /**
+   * Names of the tokens <code>+...+</code> used in the SQL statements
+   * that don't correspond to any SQL constant.
+   */
+  public Collection m_undefinedConstantNames = Collections.EMPTY_SET;
+
+  /**
+   * Values of the SQL constants used in the SQL script file when it
+   * has been parsed, keyed by the names of these constants, with a
+   * <code>null</code> value for an undefined constant.
+   */
+  public Map m_usedConstantValues = Collections.EMPTY_MAP;
+
+  /**
+   * Build an entry for the specified SQL script file.
+   *
+   * @param filePathname pathname of the SQL script file.
+   * @param fileSize size in bytes of the file.
+   * @param lastModifiedTime time in milliseconds of the last
+   *        modification of the file.
+   * @param contentHash SHA-1 digest of the content of the file.
+   */
+  public SQLScriptCacheEntry(
+      String filePathname,
+      long fileSize,
+      long lastModifiedTime,
+      byte[] contentHash) {
+    m_filePathname = filePathname;
+    m_fileSize = fileSize;
+    m_lastModifiedTime = lastModifiedTime;
+    m_contentHash = contentHash;
+  }
+
+  /**
+   * Return the SQL constants declared in the SQL script file.
+   *
+   * @param sqlScript the SQL script the constants are declared in.
+   *
+   * @return a list of <code>SQLConstant</code> objects, in the order
+   *         of their declaration.
+   */
+  public List getSQLConstants(SQLScript sqlScript) {
+    List sqlConstants = new ArrayList(m_declaredConstants.size());
+    for (Iterator iterator = m_declaredConstants.iterator(); iterator.hasNext(); ) {
+      String[] declaredConstant = (String[]) iterator.next();
+      sqlConstants.add(new SQLConstant(sqlScript, declaredConstant[0], declaredConstant[1]));
+    }
+
+    return sqlConstants;
+  }
+
+  /**
+   * Indicate whether the SQL constants used in the SQL script file
+   * still have the values they had when this file has been parsed.
+   *
+   * @param sqlConstantSubstitutor the substitutor of the SQL constants
+   *        declared in the SQL script files being deployed.
+   *
+   * @return <code>true</code> if no SQL constant used in the file has
+   *         changed; <code>false</code> otherwise.
+   */
+  public boolean hasSameConstantValues(SQLConstantSubstitutor sqlConstantSubstitutor) {
+    for (Iterator iterator = m_usedConstantValues.entrySet().iterator(); iterator.hasNext(); ) {
+      Map.Entry entry = (Map.Entry) iterator.next();
+      String constantValue = sqlConstantSubstitutor.getValue((String) entry.getKey());
+      if ((constantValue == null) ? (entry.getValue() != null) : !constantValue.equals(entry.getValue()))
+        return false;
+    }
+
+    return true;
+  }
+
+  /**
+   * Indicate whether this entry has been built from the specified
+   * content.
+   *
+   * @param contentHash SHA-1 digest of the content of a file.
+   *
+   * @return <code>true</code> if the content is the same;
+   *         <code>false</code> otherwise.
+   */
+  public boolean hasSameContent(byte[] contentHash) {
+    return Arrays.equals(m_contentHash, contentHash);
+  }
+
+  /**
+   * Record the SQL constants used in the specified content of the SQL
+   * script file, with their current values.
+   *
+   * @param content the content of the SQL script file.
+   * @param sqlConstantSubstitutor the substitutor of the SQL constants
+   *        declared in the SQL script files being deployed.
+   */
+  public void setUsedConstants(SQLScriptContent content, SQLConstantSubstitutor sqlConstantSubstitutor) {
+    Collection constantNames = new HashSet(content.getCopyDataConstantNames());
+    SQLConstantSubstitutor.collectConstantNames(content.getText(), constantNames);
+
+    m_usedConstantValues = new HashMap();
+    for (Iterator iterator = constantNames.iterator(); iterator.hasNext(); ) {
+      String constantName = (String) iterator.next();
+      m_usedConstantValues.put(constantName, sqlConstantSubstitutor.getValue(constantName));
+    }
+  }
+}
@@ -0,0 +1,187 @@
+/**
+ * Copyright (C) 1998-2008 Majormode.  All rights reserved.
+ *
+ * This software is the confidential and proprietary information of
+ * Majormode or one of its subsidiaries.  You shall not disclose this
+ * confidential information and shall use it only in accordance with
+ * the terms of the license agreement or other applicable agreement
+ * you entered into with Majormode.
+ *
+ * MAJORMODE MAKES NO REPRESENTATIONS OR WARRANTIES ABOUT THE
+ * SUITABILITY OF THE SOFTWARE, EITHER EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE IMPLIED WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE, OR NON-INFRINGEMENT.  MAJORMODE
+ * SHALL NOT BE LIABLE FOR ANY LOSSES OR DAMAGES SUFFERED BY LICENSEE
+ * AS A RESULT OF USING, MODIFYING OR DISTRIBUTING THIS SOFTWARE OR
+ * ITS DERIVATIVES.
+ */
+
+package com.majormode.tool.dbdeploy;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Content of a SQL script file, as read by {@link SQLScriptReader}.
+ * The data of the bulk loading statements of the script are not kept
+ * in memory: only their location in the file, in bytes, and the
+ * names of the SQL constants they use are, so that the memory the
+ * content takes doesn't depend on the size of these data.
+ *
+ * @author Daniel CAUNE (daniel.caune@majormode.com)
+ */
+public class SQLScriptContent {
+  /**
+   * Names of the SQL constants used in the data of the bulk loading
+   * statements of the script, delimiters included.
+   */
+  protected Collection m_copyDataConstantNames;
+
+  /**
+   * Location of the data of the bulk loading statements of the script
+   * in the file, as arrays of their offset and their length in bytes,
+   * in the order of these statements.
+   */
+  protected List m_copyDataRegions;
+
+  /**
+   * SHA-1 digest of the bytes of the file.
+   */
+  protected byte[] m_digest;
+
+  /**
+   * Size in bytes of the file when it has been read.
+   */
+  protected long m_fileSize;
+
+  /**
+   * Time in milliseconds of the last modification of the file when it
+   * has been read.
+   */
+  protected long m_lastModifiedTime;
+
+  /**
+   * Text of the script, without the data of its bulk loading
+   * statements.
+   */
+  protected String m_text;
+
+  /**
+   * Build the content of a SQL script file.
+   *
+   * @param text the text of the script, without the data of its bulk
+   *        loading statements.
+   * @param copyDataRegions a list of the locations of the data of the
+   *        bulk loading statements, as arrays of their offset and their
+   *        length in bytes.
+   * @param copyDataConstantNames the names of the SQL constants used
+   *        in these data.
+   * @param digest the SHA-1 digest of the bytes of the file.
+   * @param fileSize the size in bytes of the file when it has been
+   *        read.
+   * @param lastModifiedTime the time in milliseconds of the last
+   *        modification of the file when it has been read.
+   */
+  public SQLScriptContent(String text, List copyDataRegions, Collection copyDataConstantNames, byte[] digest,
+      long fileSize, long lastModifiedTime) {
+    m_text = text;
+    m_copyDataRegions = copyDataRegions;
+    m_copyDataConstantNames = copyDataConstantNames;
+    m_digest = digest;
+    m_fileSize = fileSize;
+    m_lastModifiedTime = lastModifiedTime;
+  }
+
+  /**
+   * Return the names of the SQL constants used in the data of the bulk
+   * loading statements of the script.
+   *
+   * @return a sorted collection of names of SQL constants, delimiters
+   *         included.
+   */
+  public Collection getCopyDataConstantNames() {
+    return m_copyDataConstantNames;
+  }
+
+  /**
+   * Return the length in bytes of the data of the specified bulk
+   * loading statement of the script.
+   *
+   * @param index the index of a bulk loading statement which data
+   *        follow the statement, in the order of these statements.
+   *
+   * @return the length of the data in bytes.
+   */
+  public long getCopyDataLength(int index) {
+    return ((long[]) m_copyDataRegions.get(index))[1];
+  }
+
+  /**
+   * Return the offset in bytes of the data of the specified bulk
+   * loading statement of the script in the file.
+   *
+   * @param index the index of a bulk loading statement which data
+   *        follow the statement, in the order of these statements.
+   *
+   * @return the offset of the data in bytes.
+   */
+  public long getCopyDataOffset(int index) {
+    return ((long[]) m_copyDataRegions.get(index))[0];
+  }
+
+  /**
+   * Return the SHA-1 digest of the bytes of the file, which changes
+   * when either the text of the script or the data of its bulk
+   * loading statements change.
+   *
+   * @return the digest of the file.
+   */
+  public byte[] getDigest() {
+    return m_digest;
+  }
+
+  /**
+   * Return the size in bytes of the file when it has been read.
+   *
+   * @return the size of the file.
+   */
+  public long getFileSize() {
+    return m_fileSize;
+  }
+
+  /**
+   * Return the time of the last modification of the file when it has
+   * been read, which, with the size of the file, identifies the
+   * version of the file the locations of the data of the bulk loading
+   * statements refer to.
+   *
+   * @return the time in milliseconds of the last modification of the
+   *         file.
+   */
+  public long getLastModifiedTime() {
+    return m_lastModifiedTime;
+  }
+
+  /**
+   * Return the text of the script, without the data of its bulk
+   * loading statements.  The line that marks the end of the data of a
+   * bulk loading statement is kept, so that this text splits into the
+   * same SQL statements as the script.
+   *
+   * @return the text of the script.
+   */
+  public String getText() {
+    return m_text;
+  }
+
+  /**
+   * Indicate whether the script has some bulk loading statements which
+   * data follow the statements.
+   *
+   * @return <code>true</code> if the script has such data;
+   *         <code>false</code> otherwise.
+   */
+  public boolean hasCopyData() {
+    return !m_copyDataRegions.isEmpty();
+  }
+}
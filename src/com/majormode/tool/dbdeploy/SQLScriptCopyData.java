@@ -0,0 +1,97 @@
+/**
+ * Copyright (C) 1998-2008 Majormode.  All rights reserved.
+ *
+ * This software is the confidential and proprietary information of
+ * Majormode or one of its subsidiaries.  You shall not disclose this
+ * confidential information and shall use it only in accordance with
+ * the terms of the license agreement or other applicable agreement
+ * you entered into with Majormode.
+ *
+ * MAJORMODE MAKES NO REPRESENTATIONS OR WARRANTIES ABOUT THE
+ * SUITABILITY OF THE SOFTWARE, EITHER EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE IMPLIED WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE, OR NON-INFRINGEMENT.  MAJORMODE
+ * SHALL NOT BE LIABLE FOR ANY LOSSES OR DAMAGES SUFFERED BY LICENSEE
+ * AS A RESULT OF USING, MODIFYING OR DISTRIBUTING THIS SOFTWARE OR
+ * ITS DERIVATIVES.
+ */
+
+package com.majormode.tool.dbdeploy;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Represent the data of a bulk loading statement that follow this
+ * statement in a SQL script file.  The SQL constants used in these
+ * data are replaced while they are read.
+ *
+ * <p>The data are read from the file when the statement is executed,
+ * at the location recorded when the file has been parsed.  The size
+ * and the time of the last modification of the file are recorded as
+ * well, so that data are not read from a file that has been modified
+ * since, such as a file being edited while a directory is watched.</p>
+ *
+ * @author Daniel CAUNE (daniel.caune@majormode.com)
+ */
+public class SQLScriptCopyData extends SQLCopyData {
+  /**
+   * Size in bytes of the file when it has been parsed.
+   */
+  public long m_fileSize;
+
+  /**
+   * Time in milliseconds of the last modification of the file when it
+   * has been parsed.
+   */
+  public long m_lastModifiedTime;
+
+  /**
+   * Length in bytes of the data.
+   */
+  public long m_length;
+
+  /**
+   * Offset in bytes of the data in the file.
+   */
+  public long m_offset;
+
+  /**
+   * Build the reference to the data of a bulk loading statement.
+   *
+   * @param filePathname pathname of the SQL script file the data are
+   *        located in.
+   * @param offset offset in bytes of the data in the file.
+   * @param length length in bytes of the data.
+   * @param fileSize size in bytes of the file when it has been parsed.
+   * @param lastModifiedTime time in milliseconds of the last
+   *        modification of the file when it has been parsed.
+   */
+  public SQLScriptCopyData(String filePathname, long offset, long length, long fileSize, long lastModifiedTime) {
+    super(filePathname);
+    m_offset = offset;
+    m_length = length;
+    m_fileSize = fileSize;
+    m_lastModifiedTime = lastModifiedTime;
+  }
+
+  public InputStream openInputStream(SQLConstantSubstitutor sqlConstantSubstitutor, int bufferSize)
+    throws IOException {
+    // The location of the data may not match the file anymore: the file
+    // needs to be parsed once again, which a watched directory does on
+    // the modification of the file.
+    //
+    Path path = Paths.get(m_filePathname);
+    if ((Files.size(path) != m_fileSize) || (Files.getLastModifiedTime(path).toMillis() != m_lastModifiedTime))
+      throw new IOException("File " + m_filePathname + " has been modified since it has been parsed:"
+          + " the data of its bulk loading statement cannot be read");
+
+    return new SQLConstantSubstitutingInputStream(
+        SQLScriptReader.openInputStream(m_filePathname, m_offset, m_length),
+        sqlConstantSubstitutor,
+        bufferSize);
+  }
+}
@@ -0,0 +1,175 @@
+/**
+ * Copyright (C) 1998-2008 Majormode.  All rights reserved.
+ *
+ * This software is the confidential and proprietary information of
+ * Majormode or one of its subsidiaries.  You shall not disclose this
+ * confidential information and shall use it only in accordance with
+ * the terms of the license agreement or other applicable agreement
+ * you entered into with Majormode.
+ *
+ * MAJORMODE MAKES NO REPRESENTATIONS OR WARRANTIES ABOUT THE
+ * SUITABILITY OF THE SOFTWARE, EITHER EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE IMPLIED WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE, OR NON-INFRINGEMENT.  MAJORMODE
+ * SHALL NOT BE LIABLE FOR ANY LOSSES OR DAMAGES SUFFERED BY LICENSEE
+ * AS A RESULT OF USING, MODIFYING OR DISTRIBUTING THIS SOFTWARE OR
+ * ITS DERIVATIVES.
+ */
+
+package com.majormode.tool.dbdeploy;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * List of the rules that exclude files and directories from the
+ * collection of the SQL script files.  Rules are glob patterns, one
+ * per line, read from an ignore file:
+ * <ul>
+ * <li>a pattern that doesn't contain the character <code>/</code>
+ * matches the name of a file or a directory at any depth, such as
+ * <code>*.bak</code>;</li>
+ * <li>a pattern that contains the character <code>/</code> matches
+ * the path of a file or a directory relative to the root directory,
+ * such as <code>legacy/**</code>;</li>
+ * <li>a pattern that ends with the character <code>/</code> only
+ * matches directories;</li>
+ * <li>blank lines and lines that start with the character
+ * <code>#</code> are ignored.</li>
+ * </ul>
+ * The directories of the usual revision control systems are always
+ * ignored.
+ *
+ * @author Daniel CAUNE (daniel.caune@majormode.com)
+ */
+public class SQLScriptIgnoreList {
+  /**
+   * Name of the ignore file that is read from the root directory if
+   * no other ignore file is specified.
+   */
+  public static final String DEFAULT_IGNORE_FILE_NAME = ".dbdeployignore";
+
+  /**
+   * Patterns of the directories that are always ignored.
+   */
+  protected static final String[] DEFAULT_IGNORE_PATTERNS = { ".git/", ".hg/", ".svn/", "CVS/" };
+
+  /**
+   * Matchers of the patterns that apply to the name of directories.
+   */
+  protected List m_directoryNameMatchers = new ArrayList();
+
+  /**
+   * Matchers of the patterns that apply to the relative path of
+   * directories.
+   */
+  protected List m_directoryPathMatchers = new ArrayList();
+
+  /**
+   * Matchers of the patterns that apply to the name of files and
+   * directories.
+   */
+  protected List m_nameMatchers = new ArrayList();
+
+  /**
+   * Matchers of the patterns that apply to the relative path of files
+   * and directories.
+   */
+  protected List m_pathMatchers = new ArrayList();
+
+  /**
+   * Build a list of ignore rules that only contains the default
+   * rules.
+   */
+  public SQLScriptIgnoreList() {
+    for (int i = 0; i < DEFAULT_IGNORE_PATTERNS.length; i++)
+      addPattern(DEFAULT_IGNORE_PATTERNS[i]);
+  }
+
+  /**
+   * Add the specified pattern to this list.
+   *
+   * @param pattern a glob pattern.
+   */
+  public void addPattern(String pattern) {
+    pattern = pattern.trim();
+    if ((pattern.length() == 0) || pattern.startsWith("#"))
+      return;
+
+    boolean isDirectoryPattern = pattern.endsWith("/");
+    if (isDirectoryPattern)
+      pattern = pattern.substring(0, pattern.length() - 1);
+
+    boolean isPathPattern = pattern.indexOf('/') >= 0;
+    if (pattern.startsWith("/"))
+      pattern = pattern.substring(1);
+
+    if (pattern.length() == 0)
+      return;
+
+    PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+    if (isDirectoryPattern)
+      (isPathPattern ? m_directoryPathMatchers : m_directoryNameMatchers).add(matcher);
+    else
+      (isPathPattern ? m_pathMatchers : m_nameMatchers).add(matcher);
+  }
+
+  /**
+   * Indicate whether the specified file or directory is ignored.
+   *
+   * @param relativePath the path of a file or a directory relative to
+   *        the root directory.
+   * @param isDirectory indicate whether the path refers to a
+   *        directory.
+   *
+   * @return <code>true</code> if the file or the directory is ignored;
+   *         <code>false</code> otherwise.
+   */
+  public boolean isIgnored(Path relativePath, boolean isDirectory) {
+    Path fileName = relativePath.getFileName();
+
+    return matches(m_nameMatchers, fileName)
+        || matches(m_pathMatchers, relativePath)
+        || (isDirectory && (matches(m_directoryNameMatchers, fileName)
+                            || matches(m_directoryPathMatchers, relativePath)));
+  }
+
+  /**
+   * Load the patterns declared in the specified ignore file.
+   *
+   * @param ignoreFile the path of an ignore file.
+   *
+   * @throws IOException if a read access to the ignore file failed for
+   *         some reason.
+   */
+  public void load(Path ignoreFile)
+    throws IOException {
+    for (Iterator iterator = Files.readAllLines(ignoreFile, SQLScriptReader.SCRIPT_CHARSET).iterator();
+         iterator.hasNext(); )
+      addPattern((String) iterator.next());
+  }
+
+  /**
+   * Indicate whether one of the specified matchers matches the given
+   * path.
+   *
+   * @param matchers a list of <code>PathMatcher</code> objects.
+   * @param path a path.
+   *
+   * @return <code>true</code> if one of the matchers matches the path;
+   *         <code>false</code> otherwise.
+   */
+  protected static boolean matches(List matchers, Path path) {
+    for (Iterator iterator = matchers.iterator(); iterator.hasNext(); )
+      if (((PathMatcher) iterator.next()).matches(path))
+        return true;
+
+    return false;
+  }
+}
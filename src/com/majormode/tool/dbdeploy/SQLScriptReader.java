@@ -0,0 +1,351 @@
+/**
+ * Copyright (C) 1998-2008 Majormode.  All rights reserved.
+ *
+ * This software is the confidential and proprietary information of
+ * Majormode or one of its subsidiaries.  You shall not disclose this
+ * confidential information and shall use it only in accordance with
+ * the terms of the license agreement or other applicable agreement
+ * you entered into with Majormode.
+ *
+ * MAJORMODE MAKES NO REPRESENTATIONS OR WARRANTIES ABOUT THE
+ * SUITABILITY OF THE SOFTWARE, EITHER EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE IMPLIED WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE, OR NON-INFRINGEMENT.  MAJORMODE
+ * SHALL NOT BE LIABLE FOR ANY LOSSES OR DAMAGES SUFFERED BY LICENSEE
+ * AS A RESULT OF USING, MODIFYING OR DISTRIBUTING THIS SOFTWARE OR
+ * ITS DERIVATIVES.
+ */
+
+package com.majormode.tool.dbdeploy;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read the content of SQL script files.  The content of a file is
+ * read with a file channel, memory-mapped by regions for large files,
+ * and it is decoded with an explicit character set, whatever the
+ * default character set of the platform.  The decoded content is
+ * streamed through the lexer, which skips the data of the bulk loading
+ * statements, so that the memory taken by the content of a file
+ * doesn't depend on the size of these data.
+ *
+ * @author Daniel CAUNE (daniel.caune@majormode.com)
+ */
+public abstract class SQLScriptReader {
+  /**
+   * Character set that SQL script files are encoded with.
+   */
+  public static final Charset SCRIPT_CHARSET = StandardCharsets.UTF_8;
+
+  /**
+   * Size in bytes from which the content of a file is memory-mapped
+   * instead of being read into a heap buffer.
+   */
+  protected static final long MAPPING_THRESHOLD = 1024 * 1024;
+
+  /**
+   * Maximal size in bytes of a region of a file that is memory-mapped
+   * at once.
+   */
+  protected static final long MAPPING_REGION_SIZE = 64 * 1024 * 1024;
+
+  /**
+   * Number of characters that are decoded at once.
+   */
+  protected static final int DECODING_BUFFER_SIZE = 8192;
+
+  /**
+   * Byte order mark that may start a file encoded in UTF-8, once
+   * decoded.
+   */
+  protected static final char BYTE_ORDER_MARK = '\uFEFF';
+
+  /**
+   * Number of bytes of the byte order mark once encoded in UTF-8.
+   */
+  protected static final int BYTE_ORDER_MARK_LENGTH = 3;
+
+  /**
+   * Read and decode the content of the specified SQL script file.  The
+   * data of its bulk loading statements are not kept: only their
+   * location in the file is.
+   *
+   * @param filePathname the pathname of a SQL script file.
+   *
+   * @return the content of the SQL script file.
+   *
+   * @throws IOException if a read access to the SQL script file failed
+   *         for some reason, or if its content is not correctly
+   *         encoded.
+   */
+  public static SQLScriptContent read(String filePathname)
+    throws IOException {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-1");
+    } catch (NoSuchAlgorithmException exception) {
+      throw new IllegalStateException(exception);
+    }
+
+    // Take the fingerprint of the file before reading it, so that a
+    // modification of the file while it is read is detected when the
+    // data of its bulk loading statements are read.
+    //
+    Path path = Paths.get(filePathname);
+    long lastModifiedTime = Files.getLastModifiedTime(path).toMillis();
+
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+    try {
+      long fileSize = channel.size();
+      PushbackReader reader = new PushbackReader(new ChannelReader(channel, digest));
+
+      List copyDataRegions = new ArrayList();
+      SQLLexer lexer;
+      try {
+        int c = reader.read();
+        if ((c >= 0) && (c != BYTE_ORDER_MARK))
+          reader.unread(c);
+
+        lexer = new SQLLexer(reader, (c == BYTE_ORDER_MARK) ? BYTE_ORDER_MARK_LENGTH : 0);
+        while (lexer.next()) {
+          if (lexer.hasCopyData())
+            copyDataRegions.add(new long[] { lexer.getCopyDataByteOffset(), lexer.getCopyDataByteLength() });
+        }
+      } catch (CharacterCodingException exception) {
+        throw new IOException("File " + filePathname + " is not encoded in " + SCRIPT_CHARSET.name(), exception);
+      }
+
+      return new SQLScriptContent(lexer.getText(), copyDataRegions, lexer.getCopyDataConstantNames(), digest.digest(),
+          fileSize, lastModifiedTime);
+    } finally {
+      channel.close();
+    }
+  }
+
+  /**
+   * Open a stream of the bytes of a region of the specified file,
+   * without loading this region into memory.
+   *
+   * @param filePathname the pathname of a file.
+   * @param offset offset in bytes of the region in the file.
+   * @param length length in bytes of the region.
+   *
+   * @return a stream of the region, which must be closed by the
+   *         caller.
+   *
+   * @throws IOException if the file cannot be opened.
+   */
+  public static InputStream openInputStream(String filePathname, long offset, final long length)
+    throws IOException {
+    final FileChannel channel = FileChannel.open(Paths.get(filePathname), StandardOpenOption.READ);
+    channel.position(offset);
+
+    return new InputStream() {
+      protected long m_remainingLength = length;
+
+      public int read() throws IOException {
+        byte[] bytes = new byte[1];
+        return (read(bytes, 0, 1) < 0) ? -1 : (bytes[0] & 0xFF);
+      }
+
+      public int read(byte[] bytes, int offset, int count) throws IOException {
+        if (m_remainingLength <= 0)
+          return -1;
+
+        int readCount = channel.read(ByteBuffer.wrap(bytes, offset, (int) Math.min(count, m_remainingLength)));
+        if (readCount > 0)
+          m_remainingLength -= readCount;
+        return readCount;
+      }
+
+      public void close() throws IOException {
+        channel.close();
+      }
+    };
+  }
+
+  /**
+   * Reader of the characters of a file, decoded from the bytes read
+   * with a file channel.  A small file is read at once into a heap
+   * buffer, while a large file is memory-mapped region by region.  The
+   * digest of the bytes of the file is updated while they are read.
+   */
+  protected static class ChannelReader extends Reader {
+    /**
+     * Channel of the file that is read.
+     */
+    protected FileChannel m_channel;
+
+    /**
+     * Characters decoded and not read yet.
+     */
+    protected CharBuffer m_chars = (CharBuffer) CharBuffer.allocate(DECODING_BUFFER_SIZE).flip();
+
+    /**
+     * Decoder of the bytes of the file, which reports the malformed
+     * input rather than replacing it.
+     */
+    protected CharsetDecoder m_decoder = SCRIPT_CHARSET.newDecoder()
+        .onMalformedInput(CodingErrorAction.REPORT)
+        .onUnmappableCharacter(CodingErrorAction.REPORT);
+
+    /**
+     * Digest of the bytes of the file read so far.
+     */
+    protected MessageDigest m_digest;
+
+    /**
+     * Number of bytes from the start of the file that have been added
+     * to the digest.
+     */
+    protected long m_digestLength = 0;
+
+    /**
+     * Indicate whether the whole file has been decoded.
+     */
+    protected boolean m_isEndOfInput = false;
+
+    /**
+     * Indicate whether the bytes of the current region have all been
+     * decoded, but possibly the first bytes of a character that ends in
+     * the next region.
+     */
+    protected boolean m_isUnderflow = true;
+
+    /**
+     * Bytes of the region of the file that is being decoded, or
+     * <code>null</code> if no region has been read yet.
+     */
+    protected ByteBuffer m_region;
+
+    /**
+     * Offset in bytes of the current region in the file.
+     */
+    protected long m_regionOffset = 0;
+
+    /**
+     * Size in bytes of the file when it has been opened.
+     */
+    protected long m_size;
+
+    /**
+     * Build a reader of the characters of the file of the specified
+     * channel.
+     *
+     * @param channel the channel of a file, positioned at its start.
+     * @param digest a digest updated with the bytes of the file while
+     *        they are read.
+     *
+     * @throws IOException if the size of the file cannot be read.
+     */
+    public ChannelReader(FileChannel channel, MessageDigest digest)
+      throws IOException {
+      m_channel = channel;
+      m_digest = digest;
+      m_size = channel.size();
+    }
+
+    public void close() {
+    }
+
+    /**
+     * Decode the next characters of the file, reading its next region
+     * once the bytes of the current region have been decoded.
+     *
+     * @return <code>true</code> if some characters have been decoded;
+     *         <code>false</code> if the end of the file has been
+     *         reached.
+     *
+     * @throws IOException if the file cannot be read, or if its content
+     *         is not correctly encoded.
+     */
+    protected boolean fill()
+      throws IOException {
+      m_chars.clear();
+
+      while (!m_isEndOfInput && (m_chars.position() == 0)) {
+        if (m_isUnderflow)
+          readRegion();
+
+        boolean isLastRegion = (m_regionOffset + m_region.limit() >= m_size);
+        CoderResult result = m_decoder.decode(m_region, m_chars, isLastRegion);
+        if (result.isError())
+          result.throwException();
+
+        m_isUnderflow = result.isUnderflow();
+        if (m_isUnderflow && isLastRegion) {
+          m_decoder.flush(m_chars);
+          m_isEndOfInput = true;
+        }
+      }
+
+      m_chars.flip();
+      return m_chars.hasRemaining();
+    }
+
+    public int read(char[] buffer, int offset, int length)
+      throws IOException {
+      if (length == 0)
+        return 0;
+
+      if (!m_chars.hasRemaining() && !fill())
+        return -1;
+
+      int count = Math.min(length, m_chars.remaining());
+      m_chars.get(buffer, offset, count);
+      return count;
+    }
+
+    /**
+     * Read the region of the file that starts at the first byte not
+     * decoded yet, and add its bytes that have not been added yet to
+     * the digest.
+     *
+     * @throws IOException if the file cannot be read.
+     */
+    protected void readRegion()
+      throws IOException {
+      long offset = (m_region == null) ? 0 : m_regionOffset + m_region.position();
+      long length = Math.min(m_size - offset, MAPPING_REGION_SIZE);
+
+      if (m_size >= MAPPING_THRESHOLD)
+        m_region = m_channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+      else {
+        m_region = ByteBuffer.allocate((int) length);
+        m_channel.position(offset);
+        while (m_region.hasRemaining() && (m_channel.read(m_region) >= 0));
+        m_region.flip();
+
+        // The file has been truncated since it has been opened.
+        if (m_region.limit() < length)
+          m_size = offset + m_region.limit();
+      }
+      m_regionOffset = offset;
+
+      ByteBuffer bytes = m_region.duplicate();
+      bytes.position((int) Math.min(m_digestLength - offset, bytes.limit()));
+      m_digest.update(bytes);
+      m_digestLength = Math.max(m_digestLength, offset + m_region.limit());
+    }
+  }
+}
@@ -0,0 +1,307 @@
+/**
+ * Copyright (C) 1998-2008 Majormode.  All rights reserved.
+ *
+ * This software is the confidential and proprietary information of
+ * Majormode or one of its subsidiaries.  You shall not disclose this
+ * confidential information and shall use it only in accordance with
+ * the terms of the license agreement or other applicable agreement
+ * you entered into with Majormode.
+ *
+ * MAJORMODE MAKES NO REPRESENTATIONS OR WARRANTIES ABOUT THE
+ * SUITABILITY OF THE SOFTWARE, EITHER EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE IMPLIED WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE, OR NON-INFRINGEMENT.  MAJORMODE
+ * SHALL NOT BE LIABLE FOR ANY LOSSES OR DAMAGES SUFFERED BY LICENSEE
+ * AS A RESULT OF USING, MODIFYING OR DISTRIBUTING THIS SOFTWARE OR
+ * ITS DERIVATIVES.
+ */
+
+package com.majormode.tool.dbdeploy;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watch the SQL script files located in a directory and its
+ * subdirectories, and deploy once again the SQL scripts which files
+ * are created or modified, through the SQL deployment manager that
+ * has deployed them first.  The SQL deployment manager keeps its
+ * parsed state and its sessions from one deployment to the other, so
+ * that only the changed files are parsed again.
+ *
+ * <p>The changes are collected until no file has changed for a short
+ * delay, as an editor generally writes a file in several steps.</p>
+ *
+ * @author Daniel CAUNE (daniel.caune@majormode.com)
+ */
+public class SQLScriptWatcher {
+  /**
+   * Delay in milliseconds without any change after which the changed
+   * files are deployed.
+   */
+  public static final long DEFAULT_DEBOUNCE_DELAY = 100;
+
+  /**
+   * Delay in milliseconds without any change after which the changed
+   * files are deployed.
+   */
+  protected long m_debounceDelay = DEFAULT_DEBOUNCE_DELAY;
+
+  /**
+   * Directories being watched, keyed by their watch keys.
+   */
+  protected HashMap m_directories = new HashMap();
+
+  /**
+   * List of the rules that exclude files and directories from the
+   * SQL script files.
+   */
+  protected SQLScriptIgnoreList m_ignoreList;
+
+  /**
+   * Directory where the SQL script files are watched.
+   */
+  protected Path m_rootPath;
+
+  /**
+   * SQL deployment manager that deploys the changed SQL scripts.
+   */
+  protected SQLDeploymentManager m_sqlDeploymentManager;
+
+  /**
+   * Service that reports the changes of the files.
+   */
+  protected WatchService m_watchService;
+
+  /**
+   * Build a watcher of the SQL script files located in the specified
+   * directory.
+   *
+   * @param sqlDeploymentManager the SQL deployment manager that has
+   *        deployed the SQL scripts of this directory.
+   * @param rootPath the directory where the SQL script files are
+   *        located.
+   * @param ignoreList list of the rules that exclude files and
+   *        directories.
+   */
+  public SQLScriptWatcher(
+      SQLDeploymentManager sqlDeploymentManager,
+      Path rootPath,
+      SQLScriptIgnoreList ignoreList) {
+    m_sqlDeploymentManager = sqlDeploymentManager;
+    m_rootPath = rootPath;
+    m_ignoreList = ignoreList;
+  }
+
+  /**
+   * Deploy the SQL scripts of the specified changed files.
+   *
+   * @param changedFiles a collection of the paths of the SQL script
+   *        files that have been created, modified or deleted.
+   */
+  protected void deploy(Collection changedFiles) {
+    List updatedSQLScripts = new ArrayList();
+    List deletedFilePathnames = new ArrayList();
+
+    DeploymentLogger logger = m_sqlDeploymentManager.getLogger();
+    for (Iterator iterator = changedFiles.iterator(); iterator.hasNext(); ) {
+      Path file = (Path) iterator.next();
+      if (Files.isRegularFile(file)) {
+        logger.info("watch.change", "Changed " + file, "file", file.toString(), "change", "modified");
+        updatedSQLScripts.add(Main.createSQLScript(file));
+      } else {
+        logger.info("watch.change", "Deleted " + file, "file", file.toString(), "change", "deleted");
+        deletedFilePathnames.add(file.toString());
+      }
+    }
+
+    long startTime = System.currentTimeMillis();
+    try {
+      // The SQL scripts have not been provided to the SQL deployment
+      // manager yet, as their first deployment failed on a SQL
+      // constant declaration mismatch: every file is deployed.
+      //
+      if (m_sqlDeploymentManager.getSQLScripts() == null) {
+        m_sqlDeploymentManager.setSQLScripts(Main.collectSQLScripts(m_rootPath, m_ignoreList, logger));
+        m_sqlDeploymentManager.process();
+        logDeployment(startTime);
+      } else if (m_sqlDeploymentManager.redeploy(updatedSQLScripts, deletedFilePathnames))
+        logDeployment(startTime);
+    } catch (Exception exception) {
+      logger.error("deployment.failure", String.valueOf(exception.getMessage()));
+    } finally {
+      logger.flush();
+    }
+  }
+
+  /**
+   * Indicate whether the specified file is a SQL script file that is
+   * not ignored.
+   *
+   * @param file the path of a file.
+   *
+   * @return <code>true</code> if the file is a SQL script file to be
+   *         watched; <code>false</code> otherwise.
+   */
+  protected boolean isSQLScriptFile(Path file) {
+    return (Main.createSQLScript(file) != null) && !m_ignoreList.isIgnored(m_rootPath.relativize(file), false);
+  }
+
+  /**
+   * Log the completion of a deployment of the changed files.
+   *
+   * @param startTime the time in milliseconds when the deployment
+   *        started.
+   */
+  protected void logDeployment(long startTime) {
+    long duration = System.currentTimeMillis() - startTime;
+    m_sqlDeploymentManager.getLogger().info("watch.deploy", "Deployed in " + duration + " ms",
+        "duration_ms", Long.valueOf(duration));
+  }
+
+  /**
+   * Collect the SQL script files that the events of the specified
+   * watch key report as changed.  New directories are watched as
+   * well, and the SQL script files they already contain are
+   * considered as changed.
+   *
+   * @param watchKey a watch key which events are pending.
+   * @param changedFiles a collection where the paths of the changed
+   *        SQL script files are added to.
+   *
+   * @throws IOException if a new directory cannot be watched.
+   */
+  protected void processEvents(WatchKey watchKey, Collection changedFiles)
+    throws IOException {
+    Path directory = (Path) m_directories.get(watchKey);
+
+    for (Iterator iterator = watchKey.pollEvents().iterator(); iterator.hasNext(); ) {
+      WatchEvent event = (WatchEvent) iterator.next();
+
+      // Some events have been lost: every SQL script file is
+      // considered as changed.
+      //
+      if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+        m_sqlDeploymentManager.getLogger().warning("watch.overflow", "too many changes, deploying every file",
+            "directory", m_rootPath.toString());
+        for (Iterator sqlScriptIterator = Main.collectSQLScripts(
+                 m_rootPath, m_ignoreList, m_sqlDeploymentManager.getLogger()).iterator();
+             sqlScriptIterator.hasNext(); )
+          changedFiles.add(m_rootPath.getFileSystem().getPath(((SQLScript) sqlScriptIterator.next()).m_filePathname));
+        continue;
+      }
+
+      if (directory == null)
+        continue;
+
+      Path file = directory.resolve((Path) event.context());
+      if ((event.kind() == StandardWatchEventKinds.ENTRY_CREATE) && Files.isDirectory(file)) {
+        if (!m_ignoreList.isIgnored(m_rootPath.relativize(file), true)) {
+          register(file);
+          for (Iterator sqlScriptIterator = Main.collectSQLScripts(
+                   file, m_ignoreList, m_sqlDeploymentManager.getLogger()).iterator();
+               sqlScriptIterator.hasNext(); )
+            changedFiles.add(file.getFileSystem().getPath(((SQLScript) sqlScriptIterator.next()).m_filePathname));
+        }
+      } else if (isSQLScriptFile(file))
+        changedFiles.add(file);
+    }
+
+    if (!watchKey.reset())
+      m_directories.remove(watchKey);
+  }
+
+  /**
+   * Watch the specified directory and its subdirectories, except
+   * those that are ignored.
+   *
+   * @param directory a directory.
+   *
+   * @throws IOException if a directory cannot be watched.
+   */
+  protected void register(Path directory)
+    throws IOException {
+    Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+      public FileVisitResult preVisitDirectory(Path subdirectory, BasicFileAttributes attributes)
+        throws IOException {
+        if (!subdirectory.equals(m_rootPath) && m_ignoreList.isIgnored(m_rootPath.relativize(subdirectory), true))
+          return FileVisitResult.SKIP_SUBTREE;
+
+        WatchKey watchKey = subdirectory.register(m_watchService,
+            StandardWatchEventKinds.ENTRY_CREATE,
+            StandardWatchEventKinds.ENTRY_MODIFY,
+            StandardWatchEventKinds.ENTRY_DELETE);
+        m_directories.put(watchKey, subdirectory);
+        return FileVisitResult.CONTINUE;
+      }
+
+      public FileVisitResult visitFileFailed(Path file, IOException exception) {
+        m_sqlDeploymentManager.getLogger().warning("script.access",
+            "cannot access " + file + " (" + exception.getMessage() + ")", "file", file.toString());
+        return FileVisitResult.CONTINUE;
+      }
+    });
+  }
+
+  /**
+   * Define the delay without any change after which the changed files
+   * are deployed.
+   *
+   * @param debounceDelay a delay in milliseconds.
+   */
+  public void setDebounceDelay(long debounceDelay) {
+    m_debounceDelay = debounceDelay;
+  }
+
+  /**
+   * Watch the SQL script files until the current thread is
+   * interrupted, and deploy the SQL scripts of the files that change.
+   *
+   * @throws IOException if the directories cannot be watched.
+   */
+  public void watch()
+    throws IOException {
+    m_watchService = FileSystems.getDefault().newWatchService();
+    try {
+      register(m_rootPath);
+      m_sqlDeploymentManager.getLogger().info("watch.start", "Watching " + m_rootPath + " for changes...",
+          "directory", m_rootPath.toString());
+      m_sqlDeploymentManager.getLogger().flush();
+
+      while (true) {
+        // Wait for a first change, then collect the changes until no
+        // file has changed for the debounce delay.
+        //
+        Collection changedFiles = new TreeSet();
+        WatchKey watchKey = m_watchService.take();
+        while (watchKey != null) {
+          processEvents(watchKey, changedFiles);
+          watchKey = m_watchService.poll(m_debounceDelay, TimeUnit.MILLISECONDS);
+        }
+
+        if (!changedFiles.isEmpty())
+          deploy(changedFiles);
+      }
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+    } finally {
+      m_watchService.close();
+    }
+  }
+}
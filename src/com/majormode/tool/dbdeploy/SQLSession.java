@@ -0,0 +1,336 @@
+/**
+ * Copyright (C) 1998-2008 Majormode.  All rights reserved.
+ *
+ * This software is the confidential and proprietary information of
+ * Majormode or one of its subsidiaries.  You shall not disclose this
+ * confidential information and shall use it only in accordance with
+ * the terms of the license agreement or other applicable agreement
+ * you entered into with Majormode.
+ *
+ * MAJORMODE MAKES NO REPRESENTATIONS OR WARRANTIES ABOUT THE
+ * SUITABILITY OF THE SOFTWARE, EITHER EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE IMPLIED WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE, OR NON-INFRINGEMENT.  MAJORMODE
+ * SHALL NOT BE LIABLE FOR ANY LOSSES OR DAMAGES SUFFERED BY LICENSEE
+ * AS A RESULT OF USING, MODIFYING OR DISTRIBUTING THIS SOFTWARE OR
+ * ITS DERIVATIVES.
+ */
+
+package com.majormode.tool.dbdeploy;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Represent a long-lived session opened with a relational database
+ * management system (RDBMS) and managed by a session pool.  A session
+ * wraps a JDBC connection and keeps track of the state of this
+ * connection, such as the runtime parameters that have been applied
+ * to it, so that this state doesn't need to be replayed before every
+ * SQL statement, and the transaction that may be in progress.
+ *
+ * @author Daniel CAUNE (daniel.caune@majormode.com)
+ */
+public class SQLSession {
+  /**
+   * Class of SQLSTATE codes raised when the connection with the
+   * relational database management system has been lost or could not
+   * be established.
+   */
+  protected static final String SQLSTATE_CLASS_CONNECTION_EXCEPTION = "08";
+
+  /**
+   * SQLSTATE code of a connection that has been lost.
+   */
+  public static final String SQLSTATE_CONNECTION_FAILURE = "08006";
+
+  /**
+   * Indicate whether the connection of this session has been detected
+   * as broken.
+   */
+  protected boolean m_broken = false;
+
+  /**
+   * JDBC connection of this session.
+   */
+  protected Connection m_connection;
+
+  /**
+   * Time in milliseconds when this session has been returned to its
+   * pool for the last time.
+   */
+  protected long m_lastReleaseTime;
+
+  /**
+   * Commands that have been executed on this session to change
+   * run-time configuration parameters, keyed by the names of these
+   * parameters.  The map is empty if every runtime parameter has its
+   * default value, and <code>null</code> if the state of the runtime
+   * parameters of this session is unknown, such as after a command
+   * failed.
+   */
+  protected Map m_runtimeParameters = Collections.EMPTY_MAP;
+
+  /**
+   * Savepoint set before the SQL statement being executed in the
+   * current transaction, or <code>null</code> if no savepoint is set.
+   */
+  protected Savepoint m_savepoint;
+
+  /**
+   * Commands that had been executed on this session to change
+   * run-time configuration parameters when the current savepoint was
+   * set.
+   */
+  protected Map m_savepointRuntimeParameters;
+
+  /**
+   * Pool this session belongs to.
+   */
+  protected SQLSessionPool m_sessionPool;
+
+  /**
+   * Indicate whether a transaction is in progress on this session.
+   */
+  protected boolean m_transactionActive = false;
+
+  /**
+   * Commands that had been executed on this session to change
+   * run-time configuration parameters when the current transaction
+   * began.
+   */
+  protected Map m_transactionRuntimeParameters;
+
+  /**
+   * Build a new session.
+   *
+   * @param sessionPool the pool this session belongs to.
+   * @param connection the JDBC connection of this session.
+   */
+  protected SQLSession(SQLSessionPool sessionPool, Connection connection) {
+    m_sessionPool = sessionPool;
+    m_connection = connection;
+    m_lastReleaseTime = System.currentTimeMillis();
+  }
+
+  /**
+   * Begin a transaction on this session.  The SQL statements executed
+   * on this session are no longer committed one by one, but when the
+   * transaction is committed.
+   *
+   * @throws SQLException if the auto-commit mode of the connection
+   *         cannot be disabled.
+   */
+  public void beginTransaction()
+    throws SQLException {
+    m_connection.setAutoCommit(false);
+    m_transactionActive = true;
+    m_transactionRuntimeParameters = m_runtimeParameters;
+  }
+
+  /**
+   * Close the JDBC connection of this session, ignoring any error.
+   */
+  protected void close() {
+    try {
+      m_connection.close();
+    } catch (SQLException exception) {
+      // The connection is most likely already broken.
+    }
+  }
+
+  /**
+   * Commit the transaction in progress on this session, and restore
+   * the auto-commit mode of the connection.
+   *
+   * @throws SQLException if the transaction cannot be committed.
+   */
+  public void commitTransaction()
+    throws SQLException {
+    m_savepoint = null;
+    m_connection.commit();
+    m_connection.setAutoCommit(true);
+    m_transactionActive = false;
+  }
+
+  /**
+   * Return the JDBC connection of this session.
+   *
+   * @return the JDBC connection of this session.
+   */
+  public Connection getConnection() {
+    return m_connection;
+  }
+
+  /**
+   * Indicate whether the specified exception has been raised because
+   * the connection with the relational database management system has
+   * been lost.
+   *
+   * @param exception an exception raised by the JDBC driver.
+   *
+   * @return <code>true</code> if the exception corresponds to a
+   *         connection failure; <code>false</code> otherwise.
+   */
+  public static boolean isConnectionException(SQLException exception) {
+    String sqlState = exception.getSQLState();
+    return (sqlState != null) && sqlState.startsWith(SQLSTATE_CLASS_CONNECTION_EXCEPTION);
+  }
+
+  /**
+   * Indicate whether the connection of this session has been detected
+   * as broken.
+   *
+   * @return <code>true</code> if the connection of this session is
+   *         broken; <code>false</code> otherwise.
+   */
+  public boolean isBroken() {
+    return m_broken;
+  }
+
+  /**
+   * Indicate whether a transaction is in progress on this session.
+   *
+   * @return <code>true</code> if a transaction is in progress;
+   *         <code>false</code> otherwise.
+   */
+  public boolean isTransactionActive() {
+    return m_transactionActive;
+  }
+
+  /**
+   * Check whether the connection of this session is still alive, and
+   * if not, flag this session as broken.  This takes a round trip to
+   * the relational database management system, unless the session is
+   * already flagged as broken.
+   *
+   * @return <code>true</code> if this session is now flagged as
+   *         broken; <code>false</code> otherwise.
+   */
+  public boolean checkBroken() {
+    if (!m_broken) {
+      try {
+        m_broken = !m_connection.isValid(SQLSessionPool.VALIDATION_TIMEOUT);
+      } catch (SQLException exception) {
+        m_broken = true;
+      }
+    }
+
+    return m_broken;
+  }
+
+  /**
+   * Check whether the specified exception, raised while using this
+   * session, denotes a broken connection, and if so, flag this
+   * session as broken.
+   *
+   * @param exception an exception raised while using this session.
+   *
+   * @return <code>true</code> if this session is now flagged as
+   *         broken; <code>false</code> otherwise.
+   */
+  public boolean checkBroken(SQLException exception) {
+    if (!m_broken) {
+      try {
+        m_broken = isConnectionException(exception) || m_connection.isClosed();
+      } catch (SQLException _exception) {
+        m_broken = true;
+      }
+    }
+
+    return m_broken;
+  }
+
+  /**
+   * Replace the broken connection of this session with a new
+   * connection to the relational database management system.  The
+   * state of the former connection is lost.
+   *
+   * @throws SQLException if the connection to the relational database
+   *         management system fails for some reason.
+   */
+  public void reconnect()
+    throws SQLException {
+    close();
+    m_connection = m_sessionPool.openConnection();
+    m_runtimeParameters = Collections.EMPTY_MAP;
+    m_savepoint = null;
+    m_transactionActive = false;
+    m_broken = false;
+  }
+
+  /**
+   * Release the savepoint set before the SQL statement that has just
+   * been executed successfully.  Nothing is done if no savepoint is
+   * set.
+   *
+   * @throws SQLException if the savepoint cannot be released.
+   */
+  public void releaseSavepoint()
+    throws SQLException {
+    if (m_savepoint != null) {
+      Savepoint savepoint = m_savepoint;
+      m_savepoint = null;
+      m_connection.releaseSavepoint(savepoint);
+    }
+  }
+
+  /**
+   * Roll back the transaction in progress on this session, ignoring
+   * any error, and restore the auto-commit mode of the connection.
+   * The run-time configuration parameters changed during this
+   * transaction are restored to their former values.
+   */
+  public void rollbackTransaction() {
+    m_savepoint = null;
+    m_transactionActive = false;
+    m_runtimeParameters = m_transactionRuntimeParameters;
+
+    try {
+      m_connection.rollback();
+      m_connection.setAutoCommit(true);
+    } catch (SQLException exception) {
+      checkBroken(exception);
+    }
+  }
+
+  /**
+   * Undo the SQL statement that has just failed, by rolling back the
+   * transaction in progress to the savepoint set before this
+   * statement, so that the transaction can go on.  Nothing is done if
+   * no savepoint is set.  The run-time configuration parameters
+   * changed since the savepoint are restored to their former values.
+   *
+   * @throws SQLException if the transaction cannot be rolled back to
+   *         the savepoint.
+   */
+  public void rollbackToSavepoint()
+    throws SQLException {
+    if (m_savepoint != null) {
+      Savepoint savepoint = m_savepoint;
+      m_savepoint = null;
+      m_runtimeParameters = m_savepointRuntimeParameters;
+      m_connection.rollback(savepoint);
+      m_connection.releaseSavepoint(savepoint);
+    }
+  }
+
+  /**
+   * Set a savepoint in the transaction in progress on this session,
+   * before a SQL statement is executed.  Nothing is done if no
+   * transaction is in progress, as every SQL statement is then
+   * committed on its own.
+   *
+   * @throws SQLException if the savepoint cannot be set.
+   */
+  public void setSavepoint()
+    throws SQLException {
+    if (m_transactionActive) {
+      m_savepoint = m_connection.setSavepoint();
+      m_savepointRuntimeParameters = m_runtimeParameters;
+    }
+  }
+}
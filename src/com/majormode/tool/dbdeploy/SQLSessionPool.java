@@ -0,0 +1,255 @@
+/**
+ * Copyright (C) 1998-2008 Majormode.  All rights reserved.
+ *
+ * This software is the confidential and proprietary information of
+ * Majormode or one of its subsidiaries.  You shall not disclose this
+ * confidential information and shall use it only in accordance with
+ * the terms of the license agreement or other applicable agreement
+ * you entered into with Majormode.
+ *
+ * MAJORMODE MAKES NO REPRESENTATIONS OR WARRANTIES ABOUT THE
+ * SUITABILITY OF THE SOFTWARE, EITHER EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE IMPLIED WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE, OR NON-INFRINGEMENT.  MAJORMODE
+ * SHALL NOT BE LIABLE FOR ANY LOSSES OR DAMAGES SUFFERED BY LICENSEE
+ * AS A RESULT OF USING, MODIFYING OR DISTRIBUTING THIS SOFTWARE OR
+ * ITS DERIVATIVES.
+ */
+
+package com.majormode.tool.dbdeploy;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedList;
+
+/**
+ * Small pool of sessions opened with a relational database management
+ * system.  Sessions are opened on demand, up to a maximum number of
+ * sessions, and they are kept open between two uses.  A session that
+ * has been idle for a while is validated before being handed out
+ * again, and it is transparently replaced if its connection is
+ * broken.
+ *
+ * @author Daniel CAUNE (daniel.caune@majormode.com)
+ */
+public class SQLSessionPool {
+  public static final int DEFAULT_MAXIMUM_SESSION_COUNT = 1;
+
+  /**
+   * Time in milliseconds after which an idle session is validated
+   * before being handed out again.
+   */
+  protected static final long VALIDATION_IDLE_TIME = 30000;
+
+  /**
+   * Time in seconds to wait for the database operation used to
+   * validate a session to complete.
+   */
+  protected static final int VALIDATION_TIMEOUT = 5;
+
+  /**
+   * Password of the user on whose behalf the connections are being
+   * made to the relational database management system.
+   */
+  protected String m_accountPassword;
+
+  /**
+   * Database user on whose behalf the connections are being made to
+   * the relational database management system.
+   */
+  protected String m_accountUsername;
+
+  /**
+   * Indicate whether this pool has been closed.
+   */
+  protected boolean m_closed = false;
+
+  /**
+   * List of the sessions that are currently not used.  The most
+   * recently released session is at the head of this list.
+   */
+  protected LinkedList m_idleSessions = new LinkedList();
+
+  /**
+   * Database URL of the form <code>jdbc:subprotocol:subname</code>
+   * identifying the relational database management system.
+   */
+  protected String m_jdbcUrl;
+
+  /**
+   * Maximum number of sessions that this pool opens at the same time.
+   */
+  protected int m_maximumSessionCount;
+
+  /**
+   * Total number of connections that have been opened by this pool.
+   */
+  protected int m_openedConnectionCount = 0;
+
+  /**
+   * Number of sessions currently open, whether used or idle.
+   */
+  protected int m_sessionCount = 0;
+
+  /**
+   * Build a new pool of sessions.
+   *
+   * @param jdbcUrl database URL of the form
+   *        <code>jdbc:subprotocol:subname</code> identifying the
+   *        relational database management system.
+   * @param accountUsername database user on whose behalf the
+   *        connections are being made to the relational database
+   *        management system.
+   * @param accountPassword password of the user on whose behalf the
+   *        connections are being made to the relational database
+   *        management system.
+   * @param maximumSessionCount maximum number of sessions that this
+   *        pool opens at the same time.
+   */
+  public SQLSessionPool(
+      String jdbcUrl,
+      String accountUsername,
+      String accountPassword,
+      int maximumSessionCount) {
+    m_jdbcUrl = jdbcUrl;
+    m_accountUsername = accountUsername;
+    m_accountPassword = accountPassword;
+    m_maximumSessionCount = maximumSessionCount;
+  }
+
+  /**
+   * Return a session from this pool.  This method blocks until a
+   * session is available if the maximum number of sessions are
+   * already used.
+   *
+   * @return a session opened with the relational database management
+   *         system.
+   *
+   * @throws SQLException if the connection to the relational database
+   *         management system fails for some reason.
+   */
+  public SQLSession acquire()
+    throws SQLException {
+    SQLSession sqlSession = null;
+
+    synchronized (this) {
+      while (sqlSession == null) {
+        if (m_closed)
+          throw new SQLException("The session pool has been closed");
+
+        if (!m_idleSessions.isEmpty())
+          sqlSession = (SQLSession) m_idleSessions.removeFirst();
+        else if (m_sessionCount < m_maximumSessionCount) {
+          m_sessionCount++;
+          break;
+        } else {
+          try {
+            wait();
+          } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a session");
+          }
+        }
+      }
+    }
+
+    try {
+      if (sqlSession == null)
+        return new SQLSession(this, openConnection());
+
+      if ((System.currentTimeMillis() - sqlSession.m_lastReleaseTime > VALIDATION_IDLE_TIME)
+          && !sqlSession.getConnection().isValid(VALIDATION_TIMEOUT))
+        sqlSession.reconnect();
+
+      return sqlSession;
+    } catch (SQLException exception) {
+      synchronized (this) {
+        m_sessionCount--;
+        notifyAll();
+      }
+
+      throw exception;
+    }
+  }
+
+  /**
+   * Close all the idle sessions of this pool.  Sessions that are
+   * currently used will be closed when they are released.
+   */
+  public synchronized void close() {
+    m_closed = true;
+
+    for (Iterator iterator = m_idleSessions.iterator(); iterator.hasNext(); ) {
+      ((SQLSession) iterator.next()).close();
+      m_sessionCount--;
+    }
+
+    m_idleSessions.clear();
+    notifyAll();
+  }
+
+  /**
+   * Return the total number of connections that have been opened by
+   * this pool, including reconnections of broken sessions.
+   *
+   * @return the number of connections opened by this pool.
+   */
+  public synchronized int getOpenedConnectionCount() {
+    return m_openedConnectionCount;
+  }
+
+  /**
+   * Open a new connection to the relational database management
+   * system.
+   *
+   * @return a connection to the relational database management
+   *         system.
+   *
+   * @throws SQLException if the connection to the relational database
+   *         management system fails for some reason.
+   */
+  protected Connection openConnection()
+    throws SQLException {
+    Connection connection = DriverManager.getConnection(
+        m_jdbcUrl,
+        m_accountUsername,
+        m_accountPassword);
+
+    synchronized (this) {
+      m_openedConnectionCount++;
+    }
+
+    return connection;
+  }
+
+  /**
+   * Return a session to this pool.  A broken session is closed and
+   * discarded, so that a new session will be opened when needed.
+   *
+   * @param sqlSession a session previously acquired from this pool.
+   */
+  public synchronized void release(SQLSession sqlSession) {
+    if (sqlSession.isBroken() || m_closed) {
+      sqlSession.close();
+      m_sessionCount--;
+    } else {
+      sqlSession.m_lastReleaseTime = System.currentTimeMillis();
+      m_idleSessions.addFirst(sqlSession);
+    }
+
+    notifyAll();
+  }
+
+  /**
+   * Define the maximum number of sessions that this pool opens at the
+   * same time.
+   *
+   * @param maximumSessionCount maximum number of sessions.
+   */
+  public synchronized void setMaximumSessionCount(int maximumSessionCount) {
+    m_maximumSessionCount = maximumSessionCount;
+    notifyAll();
+  }
+}
@@ -20,6 +20,8 @@ package com.majormode.tool.dbdeploy;
 
 import java.io.Serializable;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
 
 /**
  * Represent an SQL statement to be executed against a relational
@@ -34,13 +36,46 @@ public class SQLStatement implements Cloneable, Serializable
   public static final int EXECUTION_STATUS_FAILED = 2;
 
   public int m_attemptCount;
+
+  /**
+   * Reference to the data of a bulk loading statement, which are
+   * copied to a table, or <code>null</code> if the SQL statement is
+   * not a bulk loading statement.
+   */
+  public SQLCopyData m_copyData;
+
+  /**
+   * Names of the database objects that this SQL statement creates.
+   */
+  public Collection m_createdObjectNames;
+
+  /**
+   * SQL statements of other scripts that create database objects this
+   * SQL statement references, and that need to be executed before.
+   */
+  public Collection m_dependencies;
+
   public int m_executionStatus;
 
   /**
-   * Collection of commands that need to be executed before every SQL
-   * statement to change run-time configuration parameters.
+   * Name of the database object which absence made the last execution
+   * of this SQL statement fail, or <code>null</code> if this name is
+   * unknown.
+   */
+  public String m_missingObjectName;
+
+  /**
+   * Names of the database objects that this SQL statement references.
+   */
+  public Collection m_referencedObjectNames;
+
+  /**
+   * Immutable snapshot of the commands that change run-time
+   * configuration parameters to be applied before this SQL statement,
+   * keyed by the names of these parameters.  The SQL statements that
+   * follow the same commands share the same snapshot.
    */
-  protected Collection m_runtimeParameterCommands;
+  protected Map m_runtimeParameters;
 
   public String m_sqlExpression;
   public SQLScript m_sqlScript;
@@ -61,11 +96,14 @@ public class SQLStatement implements Cloneable, Serializable
 
   public SQLStatement(String sqlExpression,
                       SQLScript sqlScript,
-                      Collection runtimeParameterCommands) 
+                      Map runtimeParameters) 
   {
     m_attemptCount = 0;
+    m_createdObjectNames = Collections.EMPTY_SET;
+    m_dependencies = Collections.EMPTY_LIST;
     m_executionStatus = EXECUTION_STATUS_UNDEFINED;
-    m_runtimeParameterCommands = runtimeParameterCommands;
+    m_referencedObjectNames = Collections.EMPTY_SET;
+    m_runtimeParameters = runtimeParameters;
     m_sqlExpression = sqlExpression;
     m_sqlScript = sqlScript;
   }